@@ -20,6 +20,14 @@ import java.util.Map;
 public class AACAudioFileFormat extends ExtendedAudioFileFormat {
 
     public static AACAudioFileFormat of(ADTSDemultiplexer demultiplexer) throws AACException {
+        return of(demultiplexer, false);
+    }
+
+    /**
+     * @param decode {@code true} to decode every frame for the statistics,
+     *               otherwise only the first frame is decoded and the other frame headers are read
+     */
+    public static AACAudioFileFormat of(ADTSDemultiplexer demultiplexer, boolean decode) throws AACException {
         Decoder decoder = new Decoder(demultiplexer.getDecoderSpecificInfo());
         Map<String, Object> properties = new HashMap<>();
         SampleBuffer sampleBuffer = new SampleBuffer();
@@ -53,18 +61,36 @@ public class AACAudioFileFormat extends ExtendedAudioFileFormat {
         int frameLength = 0;
         boolean vbr = false;
         try {
-            while (true) {
+            if (decode) {
+                while (true) {
+                    decoder.decodeFrame(demultiplexer.readNextFrame(), sampleBuffer);
+                    minBitrate = Math.min(minBitrate, sampleBuffer.getEncodedBitrate());
+                    maxBitrate = Math.max(maxBitrate, sampleBuffer.getEncodedBitrate());
+                    currentBitrate = BigDecimal.valueOf(sampleBuffer.getEncodedBitrate());
+                    if (!vbr) {
+                        if (lastBitrate != null && !lastBitrate.equals(currentBitrate)) vbr = true;
+                        lastBitrate = currentBitrate;
+                    }
+                    totalBitrate = totalBitrate.add(currentBitrate);
+                    seconds += sampleBuffer.getLength();
+                    frameLength ++;
+                }
+            }
+            else {
+                // the first frame gives the output format and the length of a raw data block, SBR included
                 decoder.decodeFrame(demultiplexer.readNextFrame(), sampleBuffer);
-                minBitrate = Math.min(minBitrate, sampleBuffer.getBitrate());
-                maxBitrate = Math.max(maxBitrate, sampleBuffer.getBitrate());
-                currentBitrate = BigDecimal.valueOf(sampleBuffer.getBitrate());
-                if (!vbr) {
-                    if (lastBitrate != null && !lastBitrate.equals(currentBitrate)) vbr = true;
-                    lastBitrate = currentBitrate;
+                double blockSeconds = sampleBuffer.getLength();
+                do {
+                    double frameSeconds = blockSeconds * demultiplexer.getRawDataBlocks();
+                    double bitrate = demultiplexer.getFrameBytes() * 8 / frameSeconds;
+                    minBitrate = Math.min(minBitrate, bitrate);
+                    maxBitrate = Math.max(maxBitrate, bitrate);
+                    vbr |= demultiplexer.isVariableBitrate();
+                    totalBitrate = totalBitrate.add(BigDecimal.valueOf(bitrate));
+                    seconds += frameSeconds;
+                    frameLength ++;
                 }
-                totalBitrate = totalBitrate.add(currentBitrate);
-                seconds += sampleBuffer.getLength();
-                frameLength ++;
+                while (demultiplexer.skipNextFrame());
             }
         }
         catch (IOException ignored) {
@@ -13,12 +13,19 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 
 public class AACAudioFileReader extends TAudioFileReader {
 
+    /**
+     * System property, if {@code true} every frame is decoded for the statistics of the file format,
+     * otherwise only the frame headers are read.
+     */
+    public static final String DECODE_STATISTICS_PROPERTY = "io.github.jseproject.aac.decodeStatistics";
+
     private static final int INITIAL_READ_LENGTH = 128000 * 32;
     private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
 
@@ -26,9 +33,24 @@ public class AACAudioFileReader extends TAudioFileReader {
         super(MARK_LIMIT);
     }
 
+    @Override
+    public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioFileReader) TDebug.out("AACAudioFileReader.getAudioFileFormat(File): begin");
+        AudioFileFormat format;
+        try (SeekableInputStream inputStream = SeekableInputStream.open(file)) {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.AAC_ADTS))
+                throw new UnsupportedAudioFileException("Not an ADTS stream");
+            format = getAudioFileFormat(inputStream, inputStream.length());
+        }
+        if (TDebug.TraceAudioFileReader) TDebug.out("AACAudioFileReader.getAudioFileFormat(File): end");
+        return format;
+    }
+
     @Override
     public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioFileFormat(InputStream): begin (class: " + getClass().getSimpleName() + ")");
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.AAC_ADTS))
+            throw new UnsupportedAudioFileException("Not an ADTS stream");
         inputStream.mark(MARK_LIMIT);
         AudioFileFormat	audioFileFormat;
         try {
@@ -72,7 +94,7 @@ public class AACAudioFileReader extends TAudioFileReader {
         AudioFileFormat format;
         try {
             ADTSDemultiplexer demultiplexer = new ADTSDemultiplexer(pis);
-            format = AACAudioFileFormat.of(demultiplexer);
+            format = AACAudioFileFormat.of(demultiplexer, Boolean.getBoolean(DECODE_STATISTICS_PROPERTY));
         }
         catch (AACException e) {
             throw new UnsupportedAudioFileException(e.getMessage());
@@ -81,6 +103,26 @@ public class AACAudioFileReader extends TAudioFileReader {
         return format;
     }
 
+    @Override
+    public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioFileReader) TDebug.out("AACAudioFileReader.getAudioInputStream(File): begin");
+        AudioInputStream audioInputStream;
+        InputStream inputStream = SeekableInputStream.open(file);
+        try {
+            audioInputStream = getAudioInputStream(inputStream, file.length());
+        }
+        catch (UnsupportedAudioFileException | IOException e) {
+            try {
+                inputStream.close();
+            }
+            catch (IOException ignored) {
+            }
+            throw e;
+        }
+        if (TDebug.TraceAudioFileReader) TDebug.out("AACAudioFileReader.getAudioInputStream(File): end");
+        return audioInputStream;
+    }
+
     @Override
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioInputStream(InputStream): begin (class: " + getClass().getSimpleName() + ")");
@@ -101,6 +143,8 @@ public class AACAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream, long lFileLengthInBytes) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("AACAudioFileReader.getAudioInputStream(InputStream): begin");
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.AAC_ADTS))
+            throw new UnsupportedAudioFileException("Not an ADTS stream");
         inputStream.mark(MARK_LIMIT);
         PushbackInputStream pis = new PushbackInputStream(inputStream, 22);
         byte[] head = new byte[22];
@@ -132,7 +176,7 @@ public class AACAudioFileReader extends TAudioFileReader {
         SampleBuffer sampleBuffer;
         try {
             demultiplexer = new ADTSDemultiplexer(pis);
-            decoder = new Decoder(demultiplexer.getDecoderSpecificInfo());
+            decoder = AACAudioInputStream.acquireDecoder(demultiplexer.getDecoderSpecificInfo());
             sampleBuffer = new SampleBuffer();
             decoder.decodeFrame(demultiplexer.readNextFrame(), sampleBuffer);
             audioFormat = AACAudioFormat.of(decoder.getConfig(), sampleBuffer);
@@ -1,5 +1,6 @@
 package io.github.jseproject;
 
+import net.sourceforge.jaad.aac.AACException;
 import net.sourceforge.jaad.aac.ADTSDemultiplexer;
 import net.sourceforge.jaad.aac.Decoder;
 import net.sourceforge.jaad.aac.SampleBuffer;
@@ -8,10 +9,15 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class AACAudioInputStream extends AudioInputStream {
 
+    // decoders by their decoder specific info
+    private static final DecoderPool<ByteBuffer, Decoder> DECODERS = new DecoderPool<>();
+
     private final InputStream source;
+    private final ByteBuffer decoderKey;
 
     ADTSDemultiplexer demultiplexer;
     Decoder decoder;
@@ -25,6 +31,12 @@ public class AACAudioInputStream extends AudioInputStream {
         this.demultiplexer = demultiplexer;
         this.decoder = decoder;
         this.sampleBuffer = sampleBuffer;
+        decoderKey = ByteBuffer.wrap(demultiplexer.getDecoderSpecificInfo());
+    }
+
+    static Decoder acquireDecoder(byte[] decoderSpecificInfo) throws AACException {
+        Decoder decoder = DECODERS.acquire(ByteBuffer.wrap(decoderSpecificInfo));
+        return decoder == null ? new Decoder(decoderSpecificInfo) : decoder;
     }
 
     public InputStream getFilteredInputStream() {
@@ -34,6 +46,14 @@ public class AACAudioInputStream extends AudioInputStream {
     @Override
     public void close() throws IOException {
         super.close();
+        if (decoder != null) {
+            try {
+                decoder.reset();
+                DECODERS.release(decoderKey, decoder);
+            }
+            catch (AACException ignored) {
+            }
+        }
         demultiplexer = null;
         decoder = null;
         sampleBuffer = null;
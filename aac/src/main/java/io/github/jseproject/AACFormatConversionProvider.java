@@ -115,7 +115,8 @@ public class AACFormatConversionProvider extends TMatrixFormatConversionProvider
     }
 
     public AACFormatConversionProvider() {
-        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(OUTPUT_FORMATS), CONVERSIONS);
+        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(PcmFloat.addFormats(OUTPUT_FORMATS)),
+                PcmFloat.addConversions(CONVERSIONS, OUTPUT_FORMATS));
     }
 
     @Override
@@ -4,13 +4,12 @@ import net.sourceforge.jaad.aac.ADTSDemultiplexer;
 import net.sourceforge.jaad.aac.Decoder;
 import net.sourceforge.jaad.aac.SampleBuffer;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 
-public class DecodedAACAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedAACAudioInputStream extends DecodedAudioInputStream {
 
     private AACAudioInputStream audioInputStream;
     private ADTSDemultiplexer demultiplexer;
@@ -25,27 +24,37 @@ public class DecodedAACAudioInputStream extends TAsynchronousFilteredAudioInputS
         this.demultiplexer = inputStream.demultiplexer;
         this.decoder = inputStream.decoder;
         this.sampleBuffer = inputStream.sampleBuffer;
+        if (PcmFloat.isFloat(outputFormat)) {
+            // the reader decoded the first frame to 16 bit already
+            sampleBuffer.setFloatingPoint(true);
+            sampleBuffer.setBigEndian(outputFormat.isBigEndian());
+            decoder.sendToOutput(sampleBuffer);
+        }
         saved = sampleBuffer.getData();
     }
 
     @Override
-    public void execute() {
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): begin");
+    protected boolean decode() {
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): begin");
         try {
             if (saved == null) {
                 decoder.decodeFrame(demultiplexer.readNextFrame(), sampleBuffer);
-                getCircularBuffer().write(sampleBuffer.getData());
+                byte[] data = sampleBuffer.getData();
+                write(data, 0, data.length);
             }
             else {
-                getCircularBuffer().write(saved);
+                write(saved, 0, saved.length);
                 saved = null;
             }
+            return true;
         }
         catch (IOException e) {
             if (TDebug.TraceAudioConverter) TDebug.out(e);
-            getCircularBuffer().close();
+            return false;
+        }
+        finally {
+            if (TDebug.TraceAudioConverter) TDebug.out("decode(): end");
         }
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): end");
     }
 
     @Override
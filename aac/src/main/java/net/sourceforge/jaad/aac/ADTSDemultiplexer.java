@@ -33,6 +33,23 @@ public class ADTSDemultiplexer {
 		return b;
 	}
 
+	/**
+	 * Skips the data of the next frame, only its header is read.
+	 * @return false if there is no complete frame left
+	 */
+	public boolean skipNextFrame() throws IOException {
+		if(first) first = false;
+		else if(!findNextFrame()) return false;
+
+		int left = frame.getFrameLength();
+		while(left>0) {
+			int skipped = din.skipBytes(left);
+			if(skipped<=0) return false;
+			left -= skipped;
+		}
+		return true;
+	}
+
 	private boolean findNextFrame() throws IOException {
 		//find next ADTS ID
 		boolean found = false;
@@ -59,4 +76,22 @@ public class ADTSDemultiplexer {
 	public int getChannelCount() {
 		return frame.getChannelCount();
 	}
+
+	/**
+	 * @return the length of the current frame in bytes, header included
+	 */
+	public int getFrameBytes() {
+		return frame.getTotalLength();
+	}
+
+	/**
+	 * @return the number of raw data blocks in the current frame
+	 */
+	public int getRawDataBlocks() {
+		return frame.getRawDataBlockCount()+1;
+	}
+
+	public boolean isVariableBitrate() {
+		return frame.isVariableBitrate();
+	}
 }
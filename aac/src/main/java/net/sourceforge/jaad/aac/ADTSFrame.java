@@ -79,6 +79,20 @@ final class ADTSFrame {
 		return frameLength-(protectionAbsent ? 7 : 9);
 	}
 
+	//header included
+	int getTotalLength() {
+		return frameLength;
+	}
+
+	int getRawDataBlockCount() {
+		return rawDataBlockCount;
+	}
+
+	//a buffer fullness of 0x7FF signals a variable bitrate stream
+	boolean isVariableBitrate() {
+		return adtsBufferFullness==0x7FF;
+	}
+
 	byte[] createDecoderSpecificInfo() {
 		if(info==null) {
 			//5 bits profile, 4 bits sample frequency, 4 bits channel configuration
@@ -18,8 +18,9 @@ import net.sourceforge.jaad.aac.transport.ADIFHeader;
  * @author in-somnia
  */
 public class Decoder implements SyntaxConstants {
-    private final AACDecoderConfig config;
-    private final SyntacticElements syntacticElements;
+    private final byte[] decoderSpecificInfo;
+    private AACDecoderConfig config;
+    private SyntacticElements syntacticElements;
     private final FilterBank filterBank;
     private IBitStream _in;
     private ADIFHeader adifHeader;
@@ -49,6 +50,7 @@ public class Decoder implements SyntaxConstants {
      *             if the specified profile is not supported
      */
     public Decoder(byte[] decoderSpecificInfo) throws AACException {
+        this.decoderSpecificInfo = decoderSpecificInfo.clone();
         config = AACDecoderConfig.parseMP4DecoderSpecificInfo(decoderSpecificInfo);
         if (config == null)
             throw new IllegalArgumentException("illegal MP4 decoder specific info");
@@ -70,6 +72,19 @@ public class Decoder implements SyntaxConstants {
         return config;
     }
 
+    /**
+     * Resets the decoder to decode another stream with the same decoder
+     * specific info. The filter bank is kept, the channel elements, including
+     * their SBR state, are created again.
+     */
+    public void reset() throws AACException {
+        // a program config element in the stream may have changed the configuration
+        config = AACDecoderConfig.parseMP4DecoderSpecificInfo(decoderSpecificInfo);
+        syntacticElements = new SyntacticElements(config);
+        filterBank.reset();
+        adifHeader = null;
+    }
+
     /**
      * Decodes one frame of AAC data in frame mode and returns the raw PCM data.
      * 
@@ -94,6 +109,17 @@ public class Decoder implements SyntaxConstants {
         }
     }
 
+    /**
+     * Writes the last decoded frame to the buffer again, e.g. after its output
+     * format has been changed.
+     * 
+     * @param buffer
+     *            a buffer to hold the decoded PCM data
+     */
+    public void sendToOutput(SampleBuffer buffer) {
+        syntacticElements.sendToOutput(buffer);
+    }
+
     private void decode(SampleBuffer buffer) throws AACException {
         if (ADIFHeader.isPresent(_in)) {
             adifHeader = ADIFHeader.readHeader(_in);
@@ -16,6 +16,7 @@ public class SampleBuffer {
 	private double length, bitrate, encodedBitrate;
 	private byte[] data;
 	private boolean bigEndian;
+	private boolean floatingPoint;
 	private int bitsRead;
 
 	public SampleBuffer() {
@@ -110,16 +111,40 @@ public class SampleBuffer {
 	 */
 	public void setBigEndian(boolean bigEndian) {
 		if(bigEndian!=this.bigEndian) {
+			final int bytesPerSample = bitsPerSample>0 ? bitsPerSample/8 : 2;
 			byte tmp;
-			for(int i = 0; i<data.length; i += 2) {
-				tmp = data[i];
-				data[i] = data[i+1];
-				data[i+1] = tmp;
+			for(int i = 0; i<data.length; i += bytesPerSample) {
+				for(int j = 0; j<bytesPerSample/2; j++) {
+					tmp = data[i+j];
+					data[i+j] = data[i+bytesPerSample-1-j];
+					data[i+bytesPerSample-1-j] = tmp;
+				}
 			}
 			this.bigEndian = bigEndian;
 		}
 	}
 
+	/**
+	 * Indicates whether the data holds 32 bit floats instead of 16 bit
+	 * integers.
+	 * 
+	 * @return true if the data is in floating point
+	 */
+	public boolean isFloatingPoint() {
+		return floatingPoint;
+	}
+
+	/**
+	 * Sets whether the following frames are stored as 32 bit floats scaled
+	 * to [-1, 1), without clipping. Data already in the buffer is not
+	 * converted.
+	 * 
+	 * @param floatingPoint if true the data will be in floating point
+	 */
+	public void setFloatingPoint(boolean floatingPoint) {
+		this.floatingPoint = floatingPoint;
+	}
+
 	public void setData(byte[] data, int sampleRate, int channels, int bitsPerSample, int bitsRead) {
 		this.data = data;
 		this.sampleRate = sampleRate;
@@ -43,6 +43,16 @@ public class FilterBank implements SyntaxConstants, SineWindows, KBDWindows {
 		buf = new float[2*length];
 	}
 
+	/**
+	 * Clears the overlap of the previous frame, e.g. before decoding another
+	 * stream.
+	 */
+	public void reset() {
+		for(float[] overlap : overlaps) {
+			java.util.Arrays.fill(overlap, 0);
+		}
+	}
+
 	public void process(WindowSequence windowSequence, int windowShape, int windowShapePrev, float[] _in, float[] out, int channel) {
 		int i;
 		float[] overlap = overlaps[channel];
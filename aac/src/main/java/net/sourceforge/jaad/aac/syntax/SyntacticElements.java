@@ -399,6 +399,11 @@ public class SyntacticElements implements SyntaxConstants {
 		final int length = mult*config.getFrameLength();
 		final int freq = mult*config.getSampleFrequency().getFrequency();
 
+		if(buffer.isFloatingPoint()) {
+			sendFloatsToOutput(buffer, be, chs, length, freq);
+			return;
+		}
+
 		byte[] b = buffer.getData();
 		if(b.length!=chs*length*2) b = new byte[chs*length*2];
 
@@ -423,4 +428,33 @@ public class SyntacticElements implements SyntaxConstants {
 
 		buffer.setData(b, freq, chs, 16, bitsRead);
 	}
+
+	private void sendFloatsToOutput(SampleBuffer buffer, boolean be, int chs, int length, int freq) {
+		byte[] b = buffer.getData();
+		if(b.length!=chs*length*4) b = new byte[chs*length*4];
+
+		float[] cur;
+		int i, j, off, bits;
+		for(i = 0; i<chs; i++) {
+			cur = data[i];
+			for(j = 0; j<length; j++) {
+				bits = Float.floatToRawIntBits(cur[j]*(1.0f/32768.0f));
+				off = (j*chs+i)*4;
+				if(be) {
+					b[off] = (byte) (bits>>24);
+					b[off+1] = (byte) (bits>>16);
+					b[off+2] = (byte) (bits>>8);
+					b[off+3] = (byte) bits;
+				}
+				else {
+					b[off+3] = (byte) (bits>>24);
+					b[off+2] = (byte) (bits>>16);
+					b[off+1] = (byte) (bits>>8);
+					b[off] = (byte) bits;
+				}
+			}
+		}
+
+		buffer.setData(b, freq, chs, 32, bitsRead);
+	}
 }
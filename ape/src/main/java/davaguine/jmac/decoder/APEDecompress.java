@@ -71,7 +71,7 @@ public class APEDecompress extends IAPEDecompress {
         m_bIsRanged = (m_nStartBlock != 0) || (m_nFinishBlock != m_spAPEInfo.getApeInfoTotalBlocks());
     }
 
-    public int GetData(byte[] pBuffer, int nBlocks) throws IOException {
+    public int GetData(byte[] pBuffer, int nOffset, int nBlocks) throws IOException {
         InitializeDecompressor();
 
         // cap
@@ -81,7 +81,7 @@ public class APEDecompress extends IAPEDecompress {
         // get the data
         int nBlocksLeft = nBlocksToRetrieve;
         int nBlocksThisPass = 1;
-        int index = 0;
+        int index = nOffset;
         while ((nBlocksLeft > 0) && (nBlocksThisPass > 0)) {
             // fill up the frame buffer
             FillFrameBuffer();
@@ -359,7 +359,8 @@ public class APEDecompress extends IAPEDecompress {
     public void SeekToFrame(int nFrameIndex) throws IOException {
         int nSeekRemainder = (m_spAPEInfo.getApeInfoSeekByte(nFrameIndex) - m_spAPEInfo.getApeInfoSeekByte(0)) % 4;
         m_spUnBitArray.FillAndResetBitArray(nFrameIndex == m_nRealFrame ? -1 : m_spAPEInfo.getApeInfoSeekByte(nFrameIndex) - nSeekRemainder, nSeekRemainder * 8);
-        m_nRealFrame = nFrameIndex;
+        // the data has been read, seeking to any frame again has to move the file pointer
+        m_nRealFrame = -1;
     }
 
     protected void DecodeBlocksToFrameBuffer(int nBlocks) throws IOException {
@@ -64,7 +64,7 @@ public class APEDecompressOld extends IAPEDecompress {
         m_bIsRanged = (m_nStartBlock != 0) || (m_nFinishBlock != getApeInfoTotalBlocks());
     }
 
-    public int GetData(byte[] pBuffer, int nBlocks) throws IOException {
+    public int GetData(byte[] pBuffer, int nOffset, int nBlocks) throws IOException {
         InitializeDecompressor();
 
         // cap
@@ -83,7 +83,7 @@ public class APEDecompressOld extends IAPEDecompress {
             int nBytesAvailable = m_nBufferTail;
             int nIntialBytes = Math.min(nBytesLeft, nBytesAvailable);
             if (nIntialBytes > 0) {
-                System.arraycopy(m_spBuffer, 0, pBuffer, nTotalBytesNeeded - nBytesLeft, nIntialBytes);
+                System.arraycopy(m_spBuffer, 0, pBuffer, nOffset + nTotalBytesNeeded - nBytesLeft, nIntialBytes);
 
                 if ((m_nBufferTail - nIntialBytes) > 0)
                     System.arraycopy(m_spBuffer, nIntialBytes, m_spBuffer, 0, m_nBufferTail - nIntialBytes);
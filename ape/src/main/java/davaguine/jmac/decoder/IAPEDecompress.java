@@ -42,7 +42,18 @@ public abstract class IAPEDecompress {
     //	int * pBlocksRetrieved
     //		the number of blocks actually retrieved (could be less at end of file or on critical failure)
     //////////////////////////////////////////////////////////////////////////////////////////////
-    public abstract int GetData(byte[] pBuffer, int nBlocks) throws IOException;
+    public int GetData(byte[] pBuffer, int nBlocks) throws IOException {
+        return GetData(pBuffer, 0, nBlocks);
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////
+    // GetData(...) - gets raw decompressed audio at an offset of the buffer
+    //
+    // Parameters:
+    //	int nOffset
+    //		the position in pBuffer to put the data at
+    //////////////////////////////////////////////////////////////////////////////////////////////
+    public abstract int GetData(byte[] pBuffer, int nOffset, int nBlocks) throws IOException;
 
     //////////////////////////////////////////////////////////////////////////////////////////////
     // Seek(...) - seeks
@@ -45,7 +45,12 @@ public class WAVInputSource extends InputSource {
         AnalyzeSource();
 
         // fill in the parameters
-        pwfeSource = m_wfeSource;
+        pwfeSource.wFormatTag = m_wfeSource.wFormatTag;
+        pwfeSource.nChannels = m_wfeSource.nChannels;
+        pwfeSource.nSamplesPerSec = m_wfeSource.nSamplesPerSec;
+        pwfeSource.nAvgBytesPerSec = m_wfeSource.nAvgBytesPerSec;
+        pwfeSource.nBlockAlign = m_wfeSource.nBlockAlign;
+        pwfeSource.wBitsPerSample = m_wfeSource.wBitsPerSample;
         if (pTotalBlocks != null) pTotalBlocks.value = m_nDataBytes / m_wfeSource.nBlockAlign;
         if (pHeaderBytes != null) pHeaderBytes.value = m_nHeaderBytes;
         if (pTerminatingBytes != null) pTerminatingBytes.value = m_nTerminatingBytes;
@@ -29,12 +29,12 @@ public class APEAudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, APEFileFormatType.withProperties(fileType, properties), out);
+        return new APEAudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, APEFileFormatType.withProperties(fileType, properties), out);
+        return new APEAudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
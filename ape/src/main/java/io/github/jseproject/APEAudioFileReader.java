@@ -37,8 +37,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 
 public class APEAudioFileReader extends TAudioFileReader {
 
@@ -54,6 +52,12 @@ public class APEAudioFileReader extends TAudioFileReader {
         if (TDebug.TraceAudioFileReader) TDebug.out("APEAudioFileReader.getAudioFileFormat(File): begin");
         AudioFileFormat format;
         try (IoFile io = new RandomAccessIoFile(file, "r")) {
+            byte[] head = new byte[FormatSniffer.PEEK_LENGTH];
+            FormatSniffer.Format sniffed = FormatSniffer.sniff(head, Math.max(io.read(head), 0));
+            // the header of a local file is also searched behind an ID3v2 tag
+            if (sniffed != FormatSniffer.Format.APE && sniffed != FormatSniffer.Format.ID3V2)
+                throw new UnsupportedAudioFileException("Not an APE stream");
+            io.seek(0);
             format = APEAudioFileFormat.of(IAPEDecompress.CreateIAPEDecompress(io));
         }
         catch (APEException | EOFException e) {
@@ -81,6 +85,8 @@ public class APEAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("APEAudioFileReader.getAudioFileFormat(InputStream): begin");
         AudioFileFormat format;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.APE))
+            throw new UnsupportedAudioFileException("Not an APE stream");
         inputStream.mark(MARK_LIMIT);
         IoFile io = new InputStreamIoFile(inputStream);
         try {
@@ -107,11 +113,12 @@ public class APEAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("APEAudioFileReader.getAudioInputStream(File): begin");
         AudioInputStream audioInputStream;
-        InputStream inputStream = Files.newInputStream(file.toPath(), StandardOpenOption.READ);
-        if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
+        SeekableInputStream inputStream = SeekableInputStream.open(file);
         try {
-            IoFile io = new InputStreamIoFile(inputStream);
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.APE))
+                throw new APEException("Not an APE stream");
+            inputStream.mark(MARK_LIMIT);
+            IoFile io = new SeekableIoFile(inputStream);
             IAPEDecompress decoder = IAPEDecompress.CreateIAPEDecompress(io);
             AudioFormat audioFormat = APEAudioFormat.of(decoder);
             audioInputStream = new APEAudioInputStream(inputStream, audioFormat, io, decoder);
@@ -142,8 +149,10 @@ public class APEAudioFileReader extends TAudioFileReader {
         AudioInputStream audioInputStream;
         InputStream inputStream = url.openStream();
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
         try {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.APE))
+                throw new APEException("Not an APE stream");
+            inputStream.mark(MARK_LIMIT);
             IoFile io = new InputStreamIoFile(inputStream);
             IAPEDecompress decoder = IAPEDecompress.CreateIAPEDecompress(io);
             AudioFormat audioFormat = APEAudioFormat.of(decoder);
@@ -173,6 +182,8 @@ public class APEAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("FlacAudioFileReader.getAudioInputStream(InputStream): begin");
         AudioInputStream audioInputStream;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.APE))
+            throw new UnsupportedAudioFileException("Not an APE stream");
         inputStream.mark(MARK_LIMIT);
         try {
             IoFile io = new InputStreamIoFile(inputStream);
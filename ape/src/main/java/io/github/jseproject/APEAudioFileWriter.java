@@ -6,7 +6,6 @@ import davaguine.jmac.info.InputSource;
 import davaguine.jmac.info.WAVInputSource;
 import davaguine.jmac.info.WaveFormat;
 import davaguine.jmac.util.APEException;
-import davaguine.jmac.util.InputStreamIoFile;
 import davaguine.jmac.util.IntegerPointer;
 import davaguine.jmac.util.IoFile;
 import org.tritonus.sampled.file.WaveTool;
@@ -21,13 +20,13 @@ import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.SequenceInputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 public class APEAudioFileWriter extends TAudioFileWriter {
@@ -52,8 +51,16 @@ public class APEAudioFileWriter extends TAudioFileWriter {
             APEFileFormatType.APE, APEFileFormatType.MAC
     };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public APEAudioFileWriter() {
+        this(null);
+    }
+
+    APEAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -86,7 +93,7 @@ public class APEAudioFileWriter extends TAudioFileWriter {
         InputSource inputSource = null;
 
         try {
-            IoFile ioInput = new InputStreamIoFile(getWAVFileStream(outputFormat, audioInputStream, (int) frameLength));
+            IoFile ioInput = getWAVFile(outputFormat, audioInputStream, (int) frameLength);
             IoFile ioOutput = new TDataOutputStreamIoFile(params.getTDataOutputStream());
 
             byte[] abBuffer = null;
@@ -147,7 +154,7 @@ public class APEAudioFileWriter extends TAudioFileWriter {
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new APEAudioOutputParams(audioFormat, lLengthInBytes, dataOutputStream, ((APEFileFormatType) fileType).properties);
+        return new APEAudioOutputParams(audioFormat, lLengthInBytes, dataOutputStream, properties);
     }
 
     private static class APEAudioOutputParams implements AudioOutputStream {
@@ -333,7 +340,7 @@ public class APEAudioFileWriter extends TAudioFileWriter {
     private static final int STANDARD_FMT_CHUNK_SIZE = 16;
     private static final int WAVE_FORMAT_PCM = 0x0001;
 
-    private static InputStream getWAVFileStream(AudioFormat audioFormat, InputStream audioStream, int frameLength) throws IOException {
+    private static IoFile getWAVFile(AudioFormat audioFormat, InputStream audioStream, int frameLength) throws IOException {
         // WAVE header fields
         int headerLength       = STANDARD_HEADER_SIZE + STANDARD_FMT_CHUNK_SIZE;
         short wav_type         = WaveTool.getFormatCode(audioFormat);
@@ -388,7 +395,7 @@ public class APEAudioFileWriter extends TAudioFileWriter {
             }
         }
 
-        // Now push the header into a stream, concat, and return the new SequenceInputStream
+        // Now push the header into a stream, concat, and return the new WAVStreamIoFile
         byte[] header;
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
              DataOutputStream dos = new DataOutputStream(baos)) {
@@ -408,7 +415,163 @@ public class APEAudioFileWriter extends TAudioFileWriter {
             dos.writeInt(big2little(dataLength));
             header = baos.toByteArray();
         }
-        return new SequenceInputStream(new ByteArrayInputStream(header), codedAudioStream);
+        return new WAVStreamIoFile(header, codedAudioStream, (long) headerLength + dataLength);
+    }
+
+    // WAVInputSource seeks back into the header while analyzing the source,
+    // so keep the header in memory and only read the audio data forward.
+    private static class WAVStreamIoFile extends IoFile {
+        private final byte[] header;
+        private final InputStream audio;
+        private final long length;
+        private final DataInputStream in;
+        private long position = 0;
+        private WAVStreamIoFile(byte[] header, InputStream audio, long length) {
+            this.header = header;
+            this.audio = audio;
+            this.length = length;
+            in = new DataInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    int b;
+                    if (position < header.length) b = header[(int) position] & 0xFF;
+                    else b = audio.read();
+                    if (b != -1) position ++;
+                    return b;
+                }
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) return 0;
+                    int n;
+                    if (position < header.length) {
+                        n = Math.min(len, header.length - (int) position);
+                        System.arraycopy(header, (int) position, b, off, n);
+                    }
+                    else n = audio.read(b, off, len);
+                    if (n > 0) position += n;
+                    return n;
+                }
+            });
+        }
+        @Override
+        public void mark(int readlimit) throws IOException {
+            throw new APEException("Unsupported Method");
+        }
+        @Override
+        public void reset() throws IOException {
+            throw new APEException("Unsupported Method");
+        }
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+        @Override
+        public int read(byte[] b) throws IOException {
+            return in.read(b);
+        }
+        @Override
+        public int read(byte[] b, int offs, int len) throws IOException {
+            return in.read(b, offs, len);
+        }
+        @Override
+        public void readFully(byte[] b) throws IOException {
+            in.readFully(b);
+        }
+        @Override
+        public void readFully(byte[] b, int offs, int len) throws IOException {
+            in.readFully(b, offs, len);
+        }
+        @Override
+        public void close() throws IOException {
+            audio.close();
+        }
+        @Override
+        public boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+        @Override
+        public char readChar() throws IOException {
+            return in.readChar();
+        }
+        @Override
+        public double readDouble() throws IOException {
+            return in.readDouble();
+        }
+        @Override
+        public float readFloat() throws IOException {
+            return in.readFloat();
+        }
+        @Override
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+        @Override
+        @SuppressWarnings("deprecation")
+        public String readLine() throws IOException {
+            return in.readLine();
+        }
+        @Override
+        public long readLong() throws IOException {
+            return in.readLong();
+        }
+        @Override
+        public short readShort() throws IOException {
+            return in.readShort();
+        }
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return in.readUnsignedByte();
+        }
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return in.readUnsignedShort();
+        }
+        @Override
+        public String readUTF() throws IOException {
+            return in.readUTF();
+        }
+        @Override
+        public int skipBytes(int n) throws IOException {
+            return in.skipBytes(n);
+        }
+        @Override
+        public long length() throws IOException {
+            return length;
+        }
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos <= header.length && position <= header.length) position = pos;
+            else if (pos >= position) {
+                while (position < pos) {
+                    if (in.read() == -1) throw new APEException("Unsupported Method");
+                }
+            }
+            else throw new APEException("Unsupported Method");
+        }
+        @Override
+        public long getFilePointer() throws IOException {
+            return position;
+        }
+        @Override
+        public void setLength(long newLength) throws IOException {
+            throw new APEException("Unsupported Method");
+        }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            throw new APEException("Unsupported Method");
+        }
+        @Override
+        public boolean isLocal() {
+            return false;
+        }
+        @Override
+        public String getFilename() {
+            return null;
+        }
     }
 
     /**
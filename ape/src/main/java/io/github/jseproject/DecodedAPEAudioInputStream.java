@@ -21,19 +21,17 @@ package io.github.jseproject;
 
 import davaguine.jmac.decoder.IAPEDecompress;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 
-public class DecodedAPEAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedAPEAudioInputStream extends DecodedAudioInputStream {
 
     private final static int BLOCKS_PER_DECODE = 9216;
 
     private APEAudioInputStream audioInputStream;
     private IAPEDecompress decoder;
-    private byte[] buffer;
     private int blocksLeft;
     private final int blockAlign;
 
@@ -43,27 +41,46 @@ public class DecodedAPEAudioInputStream extends TAsynchronousFilteredAudioInputS
         this.decoder = inputStream.decoder;
         blocksLeft = decoder.getApeInfoDecompressTotalBlocks();
         blockAlign = decoder.getApeInfoBlockAlign();
-        // allocate space for decompression
-        buffer = new byte[blockAlign * BLOCKS_PER_DECODE];
-        buffer = new byte[blockAlign * BLOCKS_PER_DECODE];
     }
 
     @Override
-    public void execute() {
-        if (TDebug.TraceAudioInputStream) TDebug.out("execute(): begin");
+    protected boolean decode() {
+        if (TDebug.TraceAudioInputStream) TDebug.out("decode(): begin");
         try {
-            if (blocksLeft > 0) {
-                int nBlocksDecoded = decoder.GetData(buffer, BLOCKS_PER_DECODE);
-                blocksLeft -= nBlocksDecoded;
-                getCircularBuffer().write(buffer, 0, nBlocksDecoded * blockAlign);
-            }
-            else getCircularBuffer().close();
+            if (blocksLeft <= 0) return false;
+            // decompress straight into the reader's buffer if at least one block fits
+            int blocks = capacity() / blockAlign;
+            blocks = blocks > 0 ? Math.min(blocks, BLOCKS_PER_DECODE) : BLOCKS_PER_DECODE;
+            int offset = reserve(blockAlign * blocks);
+            int nBlocksDecoded = decoder.GetData(output(), offset, blocks);
+            commit(nBlocksDecoded * blockAlign);
+            blocksLeft -= nBlocksDecoded;
+            return nBlocksDecoded > 0;
         }
         catch (IOException e) {
             if (TDebug.TraceAudioConverter) TDebug.out(e);
-            getCircularBuffer().close();
+            return false;
         }
-        if (TDebug.TraceAudioInputStream) TDebug.out("execute(): end");
+        finally {
+            if (TDebug.TraceAudioInputStream) TDebug.out("decode(): end");
+        }
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return audioInputStream != null && audioInputStream.io instanceof SeekableIoFile;
+    }
+
+    @Override
+    protected long seek(long frame) throws IOException {
+        int totalBlocks = decoder.getApeInfoDecompressTotalBlocks();
+        if (frame >= totalBlocks) {
+            blocksLeft = 0;
+            return totalBlocks;
+        }
+        decoder.Seek((int) frame);
+        blocksLeft = totalBlocks - (int) frame;
+        return frame;
     }
 
     @Override
@@ -72,7 +89,6 @@ public class DecodedAPEAudioInputStream extends TAsynchronousFilteredAudioInputS
         audioInputStream.close();
         audioInputStream = null;
         decoder = null;
-        buffer = null;
     }
 
 }
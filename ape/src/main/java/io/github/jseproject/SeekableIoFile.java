@@ -0,0 +1,162 @@
+package io.github.jseproject;
+
+import davaguine.jmac.util.APEException;
+import davaguine.jmac.util.IoFile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+// Read-only IoFile over a SeekableInputStream, lets the decoder seek to a frame.
+class SeekableIoFile extends IoFile {
+
+    private final SeekableInputStream stream;
+    private final DataInputStream in;
+
+    SeekableIoFile(SeekableInputStream stream) {
+        this.stream = stream;
+        in = new DataInputStream(stream);
+    }
+
+    @Override
+    public void mark(int readlimit) throws IOException {
+        stream.mark(readlimit);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        stream.reset();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return in.read();
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return in.read(b);
+    }
+
+    @Override
+    public int read(byte[] b, int offs, int len) throws IOException {
+        return in.read(b, offs, len);
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        in.readFully(b);
+    }
+
+    @Override
+    public void readFully(byte[] b, int offs, int len) throws IOException {
+        in.readFully(b, offs, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return in.readByte();
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return in.readChar();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return in.readDouble();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return in.readFloat();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String readLine() throws IOException {
+        return in.readLine();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return in.readShort();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return in.readUnsignedShort();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return in.readUTF();
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        return in.skipBytes(n);
+    }
+
+    @Override
+    public long length() throws IOException {
+        return stream.length();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        stream.seek(pos);
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return stream.getFilePointer();
+    }
+
+    @Override
+    public void setLength(long newLength) throws IOException {
+        throw new APEException("Unsupported Method");
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        throw new APEException("Unsupported Method");
+    }
+
+    // like InputStreamIoFile, so the header is parsed the same way as for any other stream
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public String getFilename() {
+        return null;
+    }
+
+}
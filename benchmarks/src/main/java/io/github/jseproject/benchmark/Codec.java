@@ -0,0 +1,136 @@
+package io.github.jseproject.benchmark;
+
+import io.github.jseproject.AACAudioFileReader;
+import io.github.jseproject.AACFormatConversionProvider;
+import io.github.jseproject.APEAudioCompressionWriter;
+import io.github.jseproject.APEAudioFileReader;
+import io.github.jseproject.APEFileFormatType;
+import io.github.jseproject.APEFormatConversionProvider;
+import io.github.jseproject.FlacAudioCompressionWriter;
+import io.github.jseproject.FlacAudioFileReader;
+import io.github.jseproject.FlacFileFormatType;
+import io.github.jseproject.FlacFormatConversionProvider;
+import io.github.jseproject.Mp3AudioCompressionWriter;
+import io.github.jseproject.Mp3AudioFileReader;
+import io.github.jseproject.Mp3FileFormatType;
+import io.github.jseproject.Mp3FormatConversionProvider;
+import io.github.jseproject.OpusAudioCompressionWriter;
+import io.github.jseproject.OpusAudioFileReader;
+import io.github.jseproject.OpusFileFormatType;
+import io.github.jseproject.OpusFormatConversionProvider;
+import io.github.jseproject.SpeexAudioCompressionWriter;
+import io.github.jseproject.SpeexAudioFileReader;
+import io.github.jseproject.SpeexFileFormatType;
+import io.github.jseproject.SpeexFormatConversionProvider;
+import io.github.jseproject.VorbisAudioCompressionWriter;
+import io.github.jseproject.VorbisAudioFileReader;
+import io.github.jseproject.VorbisFileFormatType;
+import io.github.jseproject.VorbisFormatConversionProvider;
+import io.github.jseproject.WavPackAudioCompressionWriter;
+import io.github.jseproject.WavPackAudioFileReader;
+import io.github.jseproject.WavPackFileFormatType;
+import io.github.jseproject.WavPackFormatConversionProvider;
+import javasound.sampled.spi.AudioCompressionWriter;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.sound.sampled.spi.AudioFileReader;
+import javax.sound.sampled.spi.FormatConversionProvider;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The SPI modules under benchmark, with the PCM format each one is fed and decoded to.
+ */
+public enum Codec {
+
+    FLAC(44100, 2, FlacFileFormatType.FLAC) {
+        @Override AudioFileReader reader() { return new FlacAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new FlacFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new FlacAudioCompressionWriter(); }
+    },
+    OGG_FLAC(44100, 2, FlacFileFormatType.OGG_FLAC) {
+        @Override AudioFileReader reader() { return new FlacAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new FlacFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new FlacAudioCompressionWriter(); }
+    },
+    MP3(44100, 2, Mp3FileFormatType.MP3) {
+        @Override AudioFileReader reader() { return new Mp3AudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new Mp3FormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new Mp3AudioCompressionWriter(); }
+    },
+    AAC(44100, 2, null) {
+        @Override AudioFileReader reader() { return new AACAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new AACFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return null; }
+    },
+    VORBIS(44100, 2, VorbisFileFormatType.VORBIS) {
+        @Override AudioFileReader reader() { return new VorbisAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new VorbisFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new VorbisAudioCompressionWriter(); }
+    },
+    OPUS(48000, 2, OpusFileFormatType.OPUS) {
+        @Override AudioFileReader reader() { return new OpusAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new OpusFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new OpusAudioCompressionWriter(); }
+    },
+    SPEEX(32000, 1, SpeexFileFormatType.SPEEX) {
+        @Override AudioFileReader reader() { return new SpeexAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new SpeexFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new SpeexAudioCompressionWriter(); }
+    },
+    APE(44100, 2, APEFileFormatType.APE) {
+        @Override AudioFileReader reader() { return new APEAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new APEFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new APEAudioCompressionWriter(); }
+        // APE output is patched with its seek table at the end, so it needs a seekable sink
+        @Override boolean needsSeekableOutput() { return true; }
+    },
+    WAVPACK(44100, 2, WavPackFileFormatType.WAVPACK) {
+        @Override AudioFileReader reader() { return new WavPackAudioFileReader(); }
+        @Override FormatConversionProvider decoder() { return new WavPackFormatConversionProvider(); }
+        @Override AudioCompressionWriter writer() { return new WavPackAudioCompressionWriter(); }
+    };
+
+    final float sampleRate;
+    final int channels;
+    final AudioFileFormat.Type fileType;
+
+    Codec(float sampleRate, int channels, AudioFileFormat.Type fileType) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.fileType = fileType;
+    }
+
+    abstract AudioFileReader reader();
+
+    abstract FormatConversionProvider decoder();
+
+    /**
+     * @return the writer of this codec, or {@code null} if the module is decode-only
+     */
+    abstract AudioCompressionWriter writer();
+
+    boolean needsSeekableOutput() {
+        return false;
+    }
+
+    /**
+     * @return 16-bit signed little-endian PCM, the common denominator of all decoders and encoders
+     */
+    AudioFormat pcmFormat() {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels, channels * 2, sampleRate, false);
+    }
+
+    AudioInputStream decode(InputStream encoded) throws UnsupportedAudioFileException, IOException {
+        AudioInputStream encodedStream = reader().getAudioInputStream(encoded);
+        AudioFormat encodedFormat = encodedStream.getFormat();
+        AudioFormat targetFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                encodedFormat.getSampleRate(), 16, encodedFormat.getChannels(),
+                encodedFormat.getChannels() * 2, encodedFormat.getSampleRate(), false);
+        return decoder().getAudioInputStream(targetFormat, encodedStream);
+    }
+
+}
@@ -0,0 +1,58 @@
+package io.github.jseproject.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a complete in-memory file to 16-bit PCM per operation.
+ * The {@code bytes} counter is the PCM throughput; run with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"FLAC", "OGG_FLAC", "MP3", "AAC", "VORBIS", "OPUS", "SPEEX", "APE", "WAVPACK"})
+    public Codec codec;
+
+    @Param("5")
+    public int seconds;
+
+    private byte[] encoded;
+    private final byte[] buffer = new byte[16384];
+
+    @Setup
+    public void setup() throws IOException {
+        encoded = Fixtures.encode(codec, Fixtures.pcm(codec.pcmFormat(), seconds));
+    }
+
+    @Benchmark
+    public long decode(ByteCounters counters) throws UnsupportedAudioFileException, IOException {
+        long total = 0;
+        try (AudioInputStream stream = codec.decode(new BufferedInputStream(new ByteArrayInputStream(encoded)))) {
+            for (int n; (n = stream.read(buffer)) != -1; ) total += n;
+        }
+        counters.bytes += total;
+        return total;
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.github.jseproject.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes in-memory 16-bit PCM into a discarding sink per operation.
+ * The {@code bytes} counter is the PCM throughput; run with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+
+    // AAC is decode-only
+    @Param({"FLAC", "OGG_FLAC", "MP3", "VORBIS", "OPUS", "SPEEX", "APE", "WAVPACK"})
+    public Codec codec;
+
+    @Param("5")
+    public int seconds;
+
+    private byte[] pcm;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        pcm = Fixtures.pcm(codec.pcmFormat(), seconds);
+        if (codec.needsSeekableOutput()) file = File.createTempFile("jse-spi-benchmark", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (file != null) file.delete();
+    }
+
+    @Benchmark
+    public void encode(ByteCounters counters) throws IOException {
+        if (file != null) Fixtures.encode(codec, pcm, file);
+        else Fixtures.encode(codec, pcm, NullOutputStream.INSTANCE);
+        counters.bytes += pcm.length;
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+    }
+
+}
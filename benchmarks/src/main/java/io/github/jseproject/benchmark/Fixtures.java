@@ -0,0 +1,163 @@
+package io.github.jseproject.benchmark;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Deterministic, offline benchmark inputs. Nothing is read from disk or the network: PCM is synthesized
+ * from a fixed seed and the compressed fixtures are produced by the modules' own encoders.
+ */
+final class Fixtures {
+
+    private static final Map<String, Object> NO_PROPERTIES = Collections.emptyMap();
+
+    private Fixtures() {
+    }
+
+    /**
+     * A two-tone signal with a small amount of LCG noise, so encoders cannot collapse it into silence.
+     */
+    static byte[] pcm(AudioFormat format, int seconds) {
+        int channels = format.getChannels();
+        int frames = (int) format.getSampleRate() * seconds;
+        byte[] pcm = new byte[frames * channels * 2];
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < frames; i ++) {
+            for (int c = 0; c < channels; c ++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                double t = i / (double) format.getSampleRate();
+                double v = 0.4 * Math.sin(2 * Math.PI * 440 * (c + 1) * t)
+                        + 0.2 * Math.sin(2 * Math.PI * 1250 * t)
+                        + 0.05 * ((seed >>> 40) / (double) (1L << 24) - 0.5);
+                int s = (int) (v * Short.MAX_VALUE);
+                int o = (i * channels + c) * 2;
+                pcm[o] = (byte) s;
+                pcm[o + 1] = (byte) (s >> 8);
+            }
+        }
+        return pcm;
+    }
+
+    static AudioInputStream stream(AudioFormat format, byte[] pcm) {
+        return new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length / format.getFrameSize());
+    }
+
+    static byte[] encode(Codec codec, byte[] pcm) throws IOException {
+        if (codec == Codec.AAC) return adts(pcm.length / codec.pcmFormat().getFrameSize());
+        if (codec.needsSeekableOutput()) {
+            File file = File.createTempFile("jse-spi-benchmark", null);
+            try {
+                encode(codec, pcm, file);
+                return Files.readAllBytes(file.toPath());
+            }
+            finally {
+                file.delete();
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pcm.length / 2);
+        encode(codec, pcm, out);
+        return out.toByteArray();
+    }
+
+    static void encode(Codec codec, byte[] pcm, OutputStream out) throws IOException {
+        codec.writer().write(stream(codec.pcmFormat(), pcm), codec.fileType, NO_PROPERTIES, out);
+    }
+
+    static void encode(Codec codec, byte[] pcm, File out) throws IOException {
+        codec.writer().write(stream(codec.pcmFormat(), pcm), codec.fileType, NO_PROPERTIES, out);
+    }
+
+    /**
+     * There is no AAC encoder in this project, so the fixture is a hand-assembled ADTS stream of AAC-LC
+     * stereo frames whose bands are all coded with perceptual noise substitution. It carries no spectral
+     * data, but still drives the full bitstream parser, noise generator, filter bank and PCM output.
+     */
+    static byte[] adts(int frames) {
+        final int samplesPerFrame = 1024;
+        final int maxSFB = 40;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BitWriter bits = new BitWriter();
+        for (int f = 0; f < (frames + samplesPerFrame - 1) / samplesPerFrame; f ++) {
+            bits.reset();
+            bits.write(1, 3); // ID_CPE
+            bits.write(0, 4); // element instance tag
+            bits.write(1, 1); // common window
+            bits.write(0, 1); // reserved
+            bits.write(0, 2); // ONLY_LONG_SEQUENCE
+            bits.write(0, 1); // sine window
+            bits.write(maxSFB, 6);
+            bits.write(0, 1); // no prediction
+            bits.write(0, 2); // no M/S
+            for (int ch = 0; ch < 2; ch ++) {
+                bits.write(100, 8); // global gain
+                bits.write(13, 4); // NOISE_HCB for all bands
+                for (int left = maxSFB; ; left -= 31) {
+                    bits.write(Math.min(left, 31), 5);
+                    if (left < 31) break;
+                }
+                bits.write(256 + (f + ch) % 8, 9); // first noise energy
+                for (int sfb = 1; sfb < maxSFB; sfb ++) {
+                    switch ((sfb + f) % 4) {
+                        case 1: bits.write(0x4, 3); break; // -1
+                        case 3: bits.write(0xA, 4); break; // +1
+                        default: bits.write(0, 1); break; // 0
+                    }
+                }
+                bits.write(0, 1); // no pulse data
+                bits.write(0, 1); // no TNS
+                bits.write(0, 1); // no gain control
+            }
+            bits.write(7, 3); // ID_END
+            byte[] payload = bits.toByteArray();
+            int frameLength = payload.length + 7;
+            out.write(0xFF);
+            out.write(0xF1); // MPEG-4, layer 0, no CRC
+            out.write((1 << 6) | (4 << 2)); // AAC LC, 44100 Hz
+            out.write((2 << 6) | (frameLength >> 11)); // stereo
+            out.write(frameLength >> 3);
+            out.write(((frameLength & 0x7) << 5) | 0x1F);
+            out.write(0xFC); // VBR, one raw data block
+            out.write(payload, 0, payload.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class BitWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int cache;
+        private int count;
+
+        void reset() {
+            bytes.reset();
+            cache = 0;
+            count = 0;
+        }
+
+        void write(int value, int n) {
+            for (int i = n - 1; i >= 0; i --) {
+                cache = (cache << 1) | ((value >> i) & 1);
+                if (++ count == 8) {
+                    bytes.write(cache);
+                    cache = 0;
+                    count = 0;
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            if (count > 0) write(0, 8 - count);
+            return bytes.toByteArray();
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package net.sourceforge.lame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the packed synthesis filterbank over a second of synthetic stereo subband samples per operation,
+ * the way the layer decoders call it, into the byte layout of the output format.
+ * Before measuring, every format is run once so the shared synthesis code has seen all of them,
+ * as in a decoder serving several output formats.
+ * Lives in {@code net.sourceforge.lame} because the synths are package-private;
+ * e.g. {@code ./gradlew :benchmarks:jmh -Pjmh.args="SynthBenchmark"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynthBenchmark {
+
+    private static final int SUBBANDS = 32;
+    // 44.1 kHz stereo, 1152 samples per frame
+    private static final int FRAMES = 38;
+    private static final int SLOTS = FRAMES * 36;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    /** the output format, bits and byte order */
+    @Param({"16LE", "16BE", "24LE", "24BE"})
+    public String format;
+
+    private Synth synth;
+    private final MpStrTag mp = new MpStrTag();
+    private final float[][] bands = new float[2][SLOTS * SUBBANDS];
+    private byte[] out;
+    private final int[] pnt = new int[1];
+
+    @Setup
+    public void setup() {
+        long seed = SEED;
+        for (float[] channel : bands) {
+            for (int i = 0; i < channel.length; i ++) {
+                seed = next(seed);
+                // mostly within range, about one sample in a hundred clips
+                channel[i] = (float) ((seed >>> 40) / (double) (1 << 24) - 0.5) * (i % SUBBANDS < 4 ? 0.9f : 0.1f);
+            }
+        }
+        mp.InitMP3();
+        Synth[] synths = { synth("16LE"), synth("16BE"), synth("24LE"), synth("24BE") };
+        out = new byte[SLOTS * SUBBANDS * 2 * 3];
+        for (Synth s : synths) run(s);
+        synth = synth(format);
+        out = new byte[SLOTS * SUBBANDS * 2 * (format.startsWith("16") ? 2 : 3)];
+    }
+
+    private static Synth synth(String format) {
+        switch (format) {
+            case "16LE": return new Decode16.LE();
+            case "16BE": return new Decode16.BE();
+            case "24LE": return new Decode24.LE();
+            case "24BE": return new Decode24.BE();
+            default: throw new IllegalArgumentException(format);
+        }
+    }
+
+    private static long next(long seed) {
+        return seed * 6364136223846793005L + 1442695040888963407L;
+    }
+
+    private int run(Synth synth) {
+        int clip = 0;
+        pnt[0] = 0;
+        for (int slot = 0; slot < SLOTS; slot ++) {
+            int sample = pnt[0];
+            clip += synth.synth_1to1(mp, bands[0], slot * SUBBANDS, 0, out, pnt);
+            pnt[0] = sample;
+            clip += synth.synth_1to1(mp, bands[1], slot * SUBBANDS, 1, out, pnt);
+        }
+        return clip;
+    }
+
+    @Benchmark
+    public int synth1to1() {
+        return run(synth) ^ out[out.length - 1];
+    }
+
+}
@@ -0,0 +1,166 @@
+package org.xiph.flac;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a synthetic FLAC residual through {@link BitReader} per operation, the way the frame decoder does:
+ * rice-coded partitions with a running CRC-16, or fixed-width raw samples as in verbatim subframes.
+ * Only the rice benchmarks run once per parameter, the raw samples have a state of their own.
+ * The legacy benchmarks read the same data through {@link LegacyBitReader}, the former 32-bit word reader.
+ * Lives in {@code org.xiph.flac} because the reader is package-private,
+ * e.g. {@code ./gradlew :benchmarks:jmh -Pjmh.args="BitReaderBenchmark"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BitReaderBenchmark {
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int BLOCKS = 64;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    @State(Scope.Benchmark)
+    public static class Rice {
+
+        /** the rice parameter, small values mean long unary runs, large ones mostly binary bits */
+        @Param({"2", "8", "14"})
+        public int parameter;
+
+        private byte[] data;
+        private final int[] residual = new int[BLOCK_SIZE];
+        private final BitReader reader = new BitReader();
+        private final LegacyBitReader legacy = new LegacyBitReader();
+
+        @Setup
+        public void setup() {
+            int[] values = new int[BLOCK_SIZE];
+            long seed = SEED;
+            BitWriter writer = new BitWriter();
+            writer.init();
+            for (int block = 0; block < BLOCKS; block ++) {
+                for (int i = 0; i < BLOCK_SIZE; i ++) {
+                    seed = next(seed);
+                    // roughly laplacian around the magnitude the parameter is chosen for
+                    int magnitude = (int) ((seed >>> 33) % (3 << parameter));
+                    values[i] = (seed & 1) == 0 ? magnitude : -magnitude - 1;
+                }
+                writer.write_rice_signed_block(values, 0, BLOCK_SIZE, parameter);
+                // every block ends on a byte boundary like a frame, so the CRC covers whole bytes
+                writer.zero_pad_to_byte_boundary();
+            }
+            data = bytes(writer);
+            writer.free();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Raw {
+
+        private byte[] data;
+        private final BitReader reader = new BitReader();
+        private final LegacyBitReader legacy = new LegacyBitReader();
+
+        @Setup
+        public void setup() {
+            long seed = SEED;
+            BitWriter writer = new BitWriter();
+            writer.init();
+            for (int i = 0; i < BLOCKS * BLOCK_SIZE; i ++) {
+                seed = next(seed);
+                writer.write_raw_uint32((int) (seed >>> 40), 24);
+            }
+            data = bytes(writer);
+            writer.free();
+        }
+    }
+
+    private static long next(long seed) {
+        return seed * 6364136223846793005L + 1442695040888963407L;
+    }
+
+    private static byte[] bytes(BitWriter writer) {
+        BitWriterHelperStruct buffer = writer.get_buffer();
+        byte[] bytes = Arrays.copyOf(buffer.bytebuffer, buffer.bytes);
+        writer.release_buffer();
+        return bytes;
+    }
+
+    private static BitReaderReadCallback callback(byte[] data) {
+        return new BitReaderReadCallback() {
+            private int position = 0;
+
+            @Override
+            public int bit_read_callback(byte[] buffer, int bytes) throws IOException {
+                if (position == data.length) throw new IOException("end of data");
+                bytes = Math.min(bytes, data.length - position);
+                System.arraycopy(data, position, buffer, 0, bytes);
+                position += bytes;
+                return bytes;
+            }
+        };
+    }
+
+    @Benchmark
+    public int riceSignedBlock(Rice state) throws IOException {
+        BitReader reader = state.reader;
+        reader.init(callback(state.data));
+        int crc = 0;
+        for (int block = 0; block < BLOCKS; block ++) {
+            reader.reset_read_crc16(crc);
+            reader.read_rice_signed_block(state.residual, 0, BLOCK_SIZE, state.parameter);
+            if (!reader.is_consumed_byte_aligned()) reader.skip_bits_no_crc(reader.bits_left_for_byte_alignment());
+            crc = reader.get_read_crc16();
+        }
+        return crc ^ state.residual[BLOCK_SIZE - 1];
+    }
+
+    @Benchmark
+    public int rawUint32(Raw state) throws IOException {
+        BitReader reader = state.reader;
+        reader.init(callback(state.data));
+        int sum = 0;
+        for (int i = 0; i < BLOCKS * BLOCK_SIZE; i ++) sum += reader.read_raw_uint32(24);
+        return sum;
+    }
+
+    @Benchmark
+    public int riceSignedBlockLegacy(Rice state) throws IOException {
+        LegacyBitReader reader = state.legacy;
+        reader.init(callback(state.data));
+        int crc = 0;
+        for (int block = 0; block < BLOCKS; block ++) {
+            reader.reset_read_crc16(crc);
+            reader.read_rice_signed_block(state.residual, 0, BLOCK_SIZE, state.parameter);
+            if (!reader.is_consumed_byte_aligned()) reader.skip_bits_no_crc(reader.bits_left_for_byte_alignment());
+            crc = reader.get_read_crc16();
+        }
+        return crc ^ state.residual[BLOCK_SIZE - 1];
+    }
+
+    @Benchmark
+    public int rawUint32Legacy(Raw state) throws IOException {
+        LegacyBitReader reader = state.legacy;
+        reader.init(callback(state.data));
+        int sum = 0;
+        for (int i = 0; i < BLOCKS * BLOCK_SIZE; i ++) sum += reader.read_raw_uint32(24);
+        return sum;
+    }
+
+}
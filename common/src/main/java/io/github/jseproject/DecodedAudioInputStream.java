@@ -0,0 +1,294 @@
+package io.github.jseproject;
+
+import org.tritonus.share.TDebug;
+import org.tritonus.share.sampled.convert.TAudioInputStream;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base class for decoded streams that decode on demand in the reading thread.
+ * <p>
+ * {@link #decode()} is called from {@link #read(byte[], int, int)} until the caller's buffer is full.
+ * Decoded data is written straight into the caller's buffer, only the part of a frame that does not fit
+ * is kept in an internal buffer and returned by the next read.
+ * <p>
+ * Subclasses either pass already decoded bytes to {@link #write(byte[], int, int)}, or convert their samples
+ * in place: {@link #reserve(int)} space, fill {@link #output()} from the returned offset, then {@link #commit(int)}.
+ * <p>
+ * Subclasses which can reposition their decoder override {@link #isSeekable()} and {@link #seek(long)},
+ * everything else, including {@link #skip(long)}, then seeks instead of decoding up to the position.
+ */
+public abstract class DecodedAudioInputStream extends TAudioInputStream implements SeekableAudioInputStream {
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    // shorter skips are cheaper to decode than to seek
+    private static final int SEEK_THRESHOLD = 65536;
+
+    private byte[] singleByte = null;
+
+    // caller's buffer, only set while read(byte[], int, int) is decoding
+    private byte[] target = null;
+    private int targetPosition;
+    private int targetEnd;
+
+    // decoded data which did not fit into the caller's buffer
+    private byte[] pending = EMPTY_BYTE_ARRAY;
+    private int pendingPosition = 0;
+    private int pendingLength = 0;
+
+    private byte[] output = null;
+    private boolean reserved = false;
+    private boolean endOfStream = false;
+
+    // bytes returned to the reader since the start of the stream
+    private long bytePosition = 0;
+
+    public DecodedAudioInputStream(AudioFormat outputFormat, long lengthInFrames) {
+        this(new ByteArrayInputStream(EMPTY_BYTE_ARRAY), outputFormat, lengthInFrames);
+    }
+
+    public DecodedAudioInputStream(InputStream inputStream, AudioFormat outputFormat, long lengthInFrames) {
+        super(inputStream, outputFormat, lengthInFrames);
+    }
+
+    /**
+     * Decodes the next chunk of audio and passes it to {@link #write(byte[], int, int)} or
+     * {@link #reserve(int)}/{@link #commit(int)}. Producing nothing is allowed, e.g. for header packets.
+     *
+     * @return {@code false} if the end of the stream is reached
+     */
+    protected abstract boolean decode() throws IOException;
+
+    /**
+     * Moves the decoder to a position at or before {@code frame}. The data decoded so far is already discarded.
+     * Decoding ahead, e.g. to find out the exact position, is allowed.
+     *
+     * @return the frame position of the first byte decoded after the seek, i.e. of the data already decoded, if any
+     */
+    protected long seek(long frame) throws IOException {
+        throw new IOException("seek not supported");
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return false;
+    }
+
+    @Override
+    public long getFramePosition() {
+        return bytePosition / Math.max(format.getFrameSize(), 1);
+    }
+
+    @Override
+    public void seekToFrame(long frame) throws IOException {
+        if (frame < 0) throw new IllegalArgumentException("negative frame position: " + frame);
+        int frameSize = Math.max(format.getFrameSize(), 1);
+        long target = frame * frameSize;
+        if (isSeekable() && (target < bytePosition || target - bytePosition > SEEK_THRESHOLD)) {
+            if (TDebug.TraceAudioConverter) TDebug.out("DecodedAudioInputStream.seekToFrame(): seeking to " + frame);
+            pendingPosition = 0;
+            pendingLength = 0;
+            endOfStream = false;
+            long position;
+            try {
+                position = seek(frame);
+            }
+            catch (IOException e) {
+                pendingLength = 0;
+                endOfStream = true;
+                throw e;
+            }
+            bytePosition = position * frameSize;
+        }
+        else if (target < bytePosition) throw new IOException("seeking backwards not supported");
+        if (target > bytePosition) discard(target - bytePosition);
+    }
+
+    /**
+     * @return the free space left in the caller's buffer, {@code 0} if data is not read directly into it
+     */
+    protected final int capacity() {
+        return pendingLength == 0 && target != null ? targetEnd - targetPosition : 0;
+    }
+
+    /**
+     * Reserves {@code length} bytes for the next decoded data.
+     *
+     * @return the offset in {@link #output()} to write the data to
+     */
+    protected final int reserve(int length) {
+        reserved = true;
+        if (pendingLength == 0 && target != null && targetEnd - targetPosition >= length) {
+            output = target;
+            return targetPosition;
+        }
+        ensurePendingCapacity(length);
+        output = pending;
+        return pendingPosition + pendingLength;
+    }
+
+    /**
+     * @return the buffer to write the reserved data to
+     */
+    protected final byte[] output() {
+        return output;
+    }
+
+    /**
+     * Completes the data written into the reserved space.
+     *
+     * @param length the number of bytes actually written, not more than reserved
+     */
+    protected final void commit(int length) {
+        if (!reserved) throw new IllegalStateException("nothing reserved");
+        reserved = false;
+        if (output == target) targetPosition += length;
+        else {
+            pendingLength += length;
+            flush();
+        }
+        output = null;
+    }
+
+    /**
+     * Copies decoded data to the caller's buffer, the remainder is kept for the next read.
+     */
+    protected final void write(byte[] b, int off, int len) {
+        if (pendingLength == 0 && target != null) {
+            int n = Math.min(len, targetEnd - targetPosition);
+            System.arraycopy(b, off, target, targetPosition, n);
+            targetPosition += n;
+            off += n;
+            len -= n;
+        }
+        if (len > 0) {
+            ensurePendingCapacity(len);
+            System.arraycopy(b, off, pending, pendingPosition + pendingLength, len);
+            pendingLength += len;
+        }
+    }
+
+    private void ensurePendingCapacity(int length) {
+        if (pendingLength == 0) pendingPosition = 0;
+        if (pendingPosition + pendingLength + length > pending.length) {
+            byte[] buffer = pending;
+            if (pendingLength + length > buffer.length) buffer = new byte[Math.max(pendingLength + length, pending.length * 2)];
+            System.arraycopy(pending, pendingPosition, buffer, 0, pendingLength);
+            pending = buffer;
+            pendingPosition = 0;
+        }
+    }
+
+    private void flush() {
+        if (target == null || pendingLength == 0) return;
+        int n = Math.min(pendingLength, targetEnd - targetPosition);
+        System.arraycopy(pending, pendingPosition, target, targetPosition, n);
+        targetPosition += n;
+        pendingPosition += n;
+        pendingLength -= n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (singleByte == null) singleByte = new byte[1];
+        if (read(singleByte, 0, 1) <= 0) return -1;
+        else return singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        int frameSize = format.getFrameSize();
+        if (frameSize > 1 && len % frameSize != 0) len -= len % frameSize;
+        if (len == 0) return readSubFrame(b, off);
+        target = b;
+        targetPosition = off;
+        targetEnd = off + len;
+        try {
+            flush();
+            while (targetPosition < targetEnd && !endOfStream) {
+                if (!decode()) {
+                    if (TDebug.TraceAudioConverter) TDebug.out("DecodedAudioInputStream.read(): end of stream");
+                    endOfStream = true;
+                }
+            }
+        }
+        finally {
+            target = null;
+            output = null;
+            reserved = false;
+        }
+        int read = targetPosition - off;
+        bytePosition += read;
+        return read == 0 && endOfStream ? -1 : read;
+    }
+
+    // a read shorter than a frame is only possible for single byte reads
+    private int readSubFrame(byte[] b, int off) throws IOException {
+        while (pendingLength == 0 && !endOfStream) {
+            if (!decode()) endOfStream = true;
+        }
+        if (pendingLength == 0) return -1;
+        b[off] = pending[pendingPosition ++];
+        pendingLength --;
+        bytePosition ++;
+        return 1;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (n > SEEK_THRESHOLD && isSeekable()) {
+            long start = bytePosition;
+            seekToFrame((bytePosition + n) / Math.max(format.getFrameSize(), 1));
+            return bytePosition - start;
+        }
+        return discard(n);
+    }
+
+    private long discard(long n) throws IOException {
+        int frameSize = Math.max(format.getFrameSize(), 1);
+        int size = (int) Math.min(n, 65536);
+        byte[] buffer = new byte[Math.max(size - size % frameSize, frameSize)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read <= 0) break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return pendingLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        pending = EMPTY_BYTE_ARRAY;
+        pendingLength = 0;
+        singleByte = null;
+        endOfStream = true;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark not supported");
+    }
+
+}
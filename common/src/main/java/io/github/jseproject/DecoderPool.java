@@ -0,0 +1,68 @@
+package io.github.jseproject;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Idle decoders kept for streams with the same parameters, so opening a stream does not allocate
+ * a new decoder and its buffers.
+ * <p>
+ * A stream takes a decoder with {@link #acquire(Object)}, and when it is closed, resets it and gives it back with
+ * {@link #release(Object, Object)}. The key holds everything the decoder was created for, e.g. the channel count,
+ * and must implement {@code equals} and {@code hashCode}. Idle decoders are softly referenced, the garbage collector
+ * may drop them when memory runs low.
+ */
+public final class DecoderPool<K, D> {
+
+    /**
+     * System property, the number of idle decoders kept per key, {@code 0} disables pooling. Defaults to 4.
+     */
+    public static final String MAX_IDLE_PROPERTY = "io.github.jseproject.decoderPool.maxIdle";
+
+    private static final int DEFAULT_MAX_IDLE = 4;
+
+    private final int maxIdle;
+    private final Map<K, ArrayDeque<SoftReference<D>>> idle = new HashMap<>();
+
+    public DecoderPool() {
+        this(Integer.getInteger(MAX_IDLE_PROPERTY, DEFAULT_MAX_IDLE));
+    }
+
+    public DecoderPool(int maxIdle) {
+        this.maxIdle = Math.max(0, maxIdle);
+    }
+
+    /**
+     * @return an idle decoder for {@code key}, {@code null} if there is none
+     */
+    public synchronized D acquire(K key) {
+        ArrayDeque<SoftReference<D>> decoders = idle.get(key);
+        if (decoders == null) return null;
+        D decoder = null;
+        while (decoder == null && !decoders.isEmpty()) decoder = decoders.pop().get();
+        if (decoders.isEmpty()) idle.remove(key);
+        return decoder;
+    }
+
+    /**
+     * Keeps a reset decoder for the next {@link #acquire(Object)} with an equal key.
+     *
+     * @return {@code false} if the decoder was dropped because enough decoders are idle
+     */
+    public synchronized boolean release(K key, D decoder) {
+        if (maxIdle == 0) return false;
+        ArrayDeque<SoftReference<D>> decoders = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+        decoders.removeIf(reference -> reference.get() == null);
+        if (decoders.size() >= maxIdle) return false;
+        // the most recently used decoder is taken first, its buffers are most likely still cached
+        decoders.push(new SoftReference<>(decoder));
+        return true;
+    }
+
+    public synchronized void clear() {
+        idle.clear();
+    }
+
+}
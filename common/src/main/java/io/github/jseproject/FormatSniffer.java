@@ -0,0 +1,130 @@
+package io.github.jseproject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Recognizes the container of a stream from its first bytes, so a reader can reject a stream of
+ * another format without parsing it.
+ */
+public final class FormatSniffer {
+
+    public enum Format {
+        FLAC(false),
+        OGG_FLAC(false),
+        OGG_VORBIS(false),
+        OGG_OPUS(false),
+        OGG_SPEEX(false),
+        /**
+         * Ogg stream whose first packet is not recognized.
+         */
+        OGG(false),
+        MPEG_AUDIO(true),
+        AAC_ADTS(true),
+        APE(false),
+        WAVPACK(true),
+        /**
+         * Starts with an ID3v2 tag, the format of the audio data after the tag is not known.
+         */
+        ID3V2(false),
+        UNKNOWN(false);
+
+        private final boolean scanned;
+
+        Format(boolean scanned) {
+            this.scanned = scanned;
+        }
+
+        /**
+         * @return {@code true} if the decoder searches for the first frame, so the stream may start
+         * with an ID3v2 tag or other data
+         */
+        public boolean isScanned() {
+            return scanned;
+        }
+    }
+
+    /**
+     * The number of bytes read by {@link #sniff(InputStream)}.
+     */
+    public static final int PEEK_LENGTH = 64;
+
+    private static final int OGG_HEADER_SIZE = 27;
+
+    private FormatSniffer() {
+    }
+
+    /**
+     * Reads the first {@link #PEEK_LENGTH} bytes of the stream and resets it.
+     *
+     * @param inputStream a stream supporting mark and reset
+     */
+    public static Format sniff(InputStream inputStream) throws IOException {
+        byte[] head = new byte[PEEK_LENGTH];
+        inputStream.mark(PEEK_LENGTH);
+        int length = 0;
+        try {
+            while (length < PEEK_LENGTH) {
+                int read = inputStream.read(head, length, PEEK_LENGTH - length);
+                if (read < 0) break;
+                length += read;
+            }
+        }
+        finally {
+            inputStream.reset();
+        }
+        return sniff(head, length);
+    }
+
+    public static Format sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, "fLaC")) return Format.FLAC;
+        if (startsWith(head, length, 0, "MAC ")) return Format.APE;
+        if (startsWith(head, length, 0, "wvpk")) return Format.WAVPACK;
+        if (startsWith(head, length, 0, "ID3")) return Format.ID3V2;
+        if (startsWith(head, length, 0, "OggS")) {
+            if (length <= 26) return Format.OGG;
+            int packet = OGG_HEADER_SIZE + (head[26] & 0xFF);
+            if (startsWith(head, length, packet, "\u007FFLAC")) return Format.OGG_FLAC;
+            if (startsWith(head, length, packet, "\u0001vorbis")) return Format.OGG_VORBIS;
+            if (startsWith(head, length, packet, "OpusHead")) return Format.OGG_OPUS;
+            if (startsWith(head, length, packet, "Speex   ")) return Format.OGG_SPEEX;
+            return Format.OGG;
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xE0) == 0xE0) {
+            int version = (head[1] >> 3) & 0x3;
+            int layer = (head[1] >> 1) & 0x3;
+            if (layer == 0) {
+                // ADTS has a 12 bit sync word, frequency indexes from 13 up are reserved
+                if ((head[1] & 0xF0) == 0xF0 && ((head[2] >> 2) & 0xF) < 13) return Format.AAC_ADTS;
+            }
+            else if (version != 1 && ((head[2] >> 4) & 0xF) != 0xF && ((head[2] >> 2) & 0x3) != 0x3) return Format.MPEG_AUDIO;
+        }
+        return Format.UNKNOWN;
+    }
+
+    /**
+     * Checks whether the stream may be one of the given formats.
+     * <p>
+     * Streams of a recognized format match only that format. Unrecognized streams and streams starting
+     * with an ID3v2 tag also match the formats whose decoder searches for the first frame.
+     *
+     * @param inputStream a stream supporting mark and reset
+     */
+    public static boolean mayBe(InputStream inputStream, Format... formats) throws IOException {
+        Format sniffed = sniff(inputStream);
+        for (Format format : formats) {
+            if (format == sniffed) return true;
+            if (format.isScanned() && (sniffed == Format.UNKNOWN || sniffed == Format.ID3V2)) return true;
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] data, int length, int offset, String signature) {
+        if (offset + signature.length() > length) return false;
+        for (int i = 0; i < signature.length(); i ++) {
+            if (data[offset + i] != (byte) signature.charAt(i)) return false;
+        }
+        return true;
+    }
+
+}
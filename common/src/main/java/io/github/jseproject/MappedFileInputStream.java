@@ -0,0 +1,106 @@
+package io.github.jseproject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link SeekableInputStream} over a memory mapped file, reads are copied straight from the mapping
+ * and seeking only moves the position.
+ * <p>
+ * The file is mapped in windows of {@value #WINDOW_SIZE} bytes, so files of any length can be read.
+ * A mapping is released by the garbage collector, not by {@link #close()}.
+ */
+public class MappedFileInputStream extends SeekableInputStream {
+
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    private FileChannel channel;
+    private final long length;
+    private MappedByteBuffer window;
+    // file offset of window position 0
+    private long windowStart = 0;
+
+    public MappedFileInputStream(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            length = channel.size();
+            map(0);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) throw new IOException("Stream closed");
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, length - position));
+    }
+
+    // maps the next window if the current one is exhausted, false at the end of the file
+    private boolean ensureRemaining() throws IOException {
+        if (window.hasRemaining()) return true;
+        long position = windowStart + window.position();
+        if (position >= length) return false;
+        map(position);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        if (!ensureRemaining()) return -1;
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        if (len == 0) return 0;
+        if (!ensureRemaining()) return -1;
+        int n = Math.min(window.remaining(), len);
+        window.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        ensureOpen();
+        if (position < 0) throw new IOException("Negative seek offset");
+        position = Math.min(position, length);
+        if (position >= windowStart && position <= windowStart + window.limit()) {
+            window.position((int) (position - windowStart));
+        }
+        else map(position);
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return windowStart + window.position();
+    }
+
+    @Override
+    public long length() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            window = null;
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+package io.github.jseproject;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the pages of the first logical stream of an Ogg file by granule position.
+ */
+public final class OggSeeker {
+
+    private static final int HEADER_SIZE = 27;
+    private static final int MAX_PAGE_SIZE = HEADER_SIZE + 255 + 255 * 255;
+    // below this range the pages are scanned one by one
+    private static final int BISECTION_LIMIT = 65536;
+
+    private static final int[] CRC_TABLE = new int[256];
+    static {
+        for (int i = 0; i < 256; i ++) {
+            int r = i << 24;
+            for (int j = 0; j < 8; j ++) r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04C11DB7 : r << 1;
+            CRC_TABLE[i] = r;
+        }
+    }
+
+    public static final class Page {
+        private final long offset;
+        private final int size;
+        private final long granule;
+        private final int serial;
+        private final int flags;
+
+        private Page(long offset, int size, long granule, int serial, int flags) {
+            this.offset = offset;
+            this.size = size;
+            this.granule = granule;
+            this.serial = serial;
+            this.flags = flags;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the granule position, {@code -1} if no packet ends on this page
+         */
+        public long getGranule() {
+            return granule;
+        }
+
+        public int getSerial() {
+            return serial;
+        }
+
+        /**
+         * @return {@code true} if the page starts with the rest of a packet of the previous page
+         */
+        public boolean isContinued() {
+            return (flags & 0x01) != 0;
+        }
+
+        public boolean isEndOfStream() {
+            return (flags & 0x04) != 0;
+        }
+    }
+
+    private OggSeeker() {
+    }
+
+    /**
+     * @return the duration in the format of {@code OggAudioStatistics.getDuration()}, e.g. "00:03:25.17"
+     */
+    public static String formatDuration(double seconds) {
+        long hours = TimeUnit.SECONDS.toHours((long) seconds);
+        long minutes = TimeUnit.SECONDS.toMinutes((long) seconds) - hours * 60;
+        return String.format(Locale.ROOT, "%02d:%02d:%05.2f", hours, minutes, seconds - (hours * 60 + minutes) * 60);
+    }
+
+    /**
+     * Reads and checks the page at {@code offset}.
+     *
+     * @return the page, {@code null} if there is no valid page at the offset
+     */
+    public static Page readPage(SeekableInputStream in, long offset) throws IOException {
+        byte[] header = new byte[HEADER_SIZE + 255];
+        in.seek(offset);
+        if (!readFully(in, header, 0, HEADER_SIZE)) return null;
+        if (header[0] != 'O' || header[1] != 'g' || header[2] != 'g' || header[3] != 'S' || header[4] != 0) return null;
+        int segments = header[26] & 0xFF;
+        if (!readFully(in, header, HEADER_SIZE, segments)) return null;
+        int bodySize = 0;
+        for (int i = 0; i < segments; i ++) bodySize += header[HEADER_SIZE + i] & 0xFF;
+        byte[] body = new byte[bodySize];
+        if (!readFully(in, body, 0, bodySize)) return null;
+        int checksum = (int) getLittleEndian(header, 22, 4);
+        header[22] = header[23] = header[24] = header[25] = 0;
+        int crc = crc(0, header, 0, HEADER_SIZE + segments);
+        if (crc(crc, body, 0, bodySize) != checksum) return null;
+        return new Page(offset, HEADER_SIZE + segments + bodySize, getLittleEndian(header, 6, 8),
+                (int) getLittleEndian(header, 14, 4), header[5]);
+    }
+
+    /**
+     * Finds the first valid page starting at or after {@code offset} and before {@code limit}.
+     */
+    public static Page nextPage(SeekableInputStream in, long offset, long limit) throws IOException {
+        byte[] buffer = new byte[MAX_PAGE_SIZE];
+        while (offset < limit) {
+            in.seek(offset);
+            int length = read(in, buffer, (int) Math.min(buffer.length, limit - offset + 3));
+            if (length < 4) return null;
+            for (int i = 0; i + 3 < length; i ++) {
+                if (buffer[i] == 'O' && buffer[i + 1] == 'g' && buffer[i + 2] == 'g' && buffer[i + 3] == 'S') {
+                    Page page = readPage(in, offset + i);
+                    if (page != null) return page;
+                }
+            }
+            offset += length - 3;
+        }
+        return null;
+    }
+
+    /**
+     * @return the first page after the header pages, i.e. the first page with a granule position other than 0
+     */
+    public static Page firstAudioPage(SeekableInputStream in) throws IOException {
+        Page first = nextPage(in, 0, in.length());
+        if (first == null) return null;
+        long length = in.length();
+        for (Page page = first; page != null; page = next(in, page, length)) {
+            if (page.serial == first.serial && page.granule != 0) return page;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the page to restart decoding at for the given granule position.
+     *
+     * @return the last audio page whose granule position is not greater than {@code granule},
+     * the first audio page if there is none
+     */
+    public static Page findPage(SeekableInputStream in, long granule) throws IOException {
+        Page first = firstAudioPage(in);
+        if (first == null || first.granule > granule) return first;
+        Page best = first;
+        long low = first.offset;
+        long high = in.length();
+        while (high - low > BISECTION_LIMIT) {
+            long middle = low + (high - low) / 2;
+            Page page = nextPage(in, middle, high);
+            while (page != null && (page.serial != first.serial || page.granule == -1)) {
+                page = nextPage(in, page.offset + page.size, high);
+            }
+            if (page != null && page.granule <= granule) {
+                best = page;
+                low = page.offset;
+            }
+            else high = middle;
+        }
+        long length = in.length();
+        for (Page page = next(in, best, length); page != null; page = next(in, page, length)) {
+            if (page.serial != first.serial || page.granule == -1) continue;
+            if (page.granule > granule) break;
+            best = page;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the last page of the logical stream {@code serial} with a granule position,
+     * reading backwards from the end of the input.
+     *
+     * @return the page, {@code null} if there is none
+     */
+    public static Page lastPage(SeekableInputStream in, int serial) throws IOException {
+        long end = in.length();
+        while (end > 0) {
+            long start = Math.max(0, end - MAX_PAGE_SIZE);
+            Page last = null;
+            for (Page page = nextPage(in, start, end); page != null && page.offset < end; page = next(in, page, end)) {
+                if (page.serial == serial && page.granule != -1) last = page;
+            }
+            if (last != null) return last;
+            end = start;
+        }
+        return null;
+    }
+
+    private static Page next(SeekableInputStream in, Page page, long limit) throws IOException {
+        long offset = page.offset + page.size;
+        Page next = readPage(in, offset);
+        return next != null ? next : nextPage(in, offset, limit);
+    }
+
+    private static int crc(int crc, byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i ++) {
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    private static long getLittleEndian(byte[] data, int offset, int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i --) value = (value << 8) | (data[offset + i] & 0xFF);
+        return value;
+    }
+
+    private static int read(SeekableInputStream in, byte[] b, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int read = in.read(b, total, len - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static boolean readFully(SeekableInputStream in, byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int read = in.read(b, off, len);
+            if (read < 0) return false;
+            off += read;
+            len -= read;
+        }
+        return true;
+    }
+
+}
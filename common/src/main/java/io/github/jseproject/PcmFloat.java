@@ -0,0 +1,82 @@
+package io.github.jseproject;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * 32 bit {@link AudioFormat.Encoding#PCM_FLOAT} output of the decoders.
+ * <p>
+ * Samples are scaled to [-1, 1) and passed on as decoded, they are not clipped.
+ */
+public final class PcmFloat {
+
+    public static final int SAMPLE_SIZE_IN_BITS = 32;
+
+    private PcmFloat() {
+    }
+
+    public static boolean isFloat(AudioFormat format) {
+        return AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+    }
+
+    /**
+     * Writes a sample as 4 bytes at {@code offset}.
+     */
+    public static void put(byte[] buffer, int offset, float sample, boolean bigEndian) {
+        int bits = Float.floatToRawIntBits(sample);
+        if (bigEndian) {
+            buffer[offset] = (byte) (bits >>> 24);
+            buffer[offset + 1] = (byte) (bits >>> 16);
+            buffer[offset + 2] = (byte) (bits >>> 8);
+            buffer[offset + 3] = (byte) bits;
+        }
+        else {
+            buffer[offset] = (byte) bits;
+            buffer[offset + 1] = (byte) (bits >>> 8);
+            buffer[offset + 2] = (byte) (bits >>> 16);
+            buffer[offset + 3] = (byte) (bits >>> 24);
+        }
+    }
+
+    /**
+     * @return {@code outputs} followed by a float format for each 16 bit output, in the same order
+     */
+    public static AudioFormat[] addFormats(AudioFormat[] outputs) {
+        AudioFormat[] formats = new AudioFormat[outputs.length + count(outputs)];
+        System.arraycopy(outputs, 0, formats, 0, outputs.length);
+        int index = outputs.length;
+        for (AudioFormat output : outputs) {
+            if (output.getSampleSizeInBits() != 16) continue;
+            int channels = output.getChannels();
+            formats[index ++] = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, output.getSampleRate(), SAMPLE_SIZE_IN_BITS,
+                    channels, channels < 0 ? -1 : channels * SAMPLE_SIZE_IN_BITS / 8, output.getSampleRate(), output.isBigEndian());
+        }
+        return formats;
+    }
+
+    /**
+     * @return the conversion matrix for {@link #addFormats(AudioFormat[]) addFormats(outputs)}, an input converts
+     * to a float format if it converts to the 16 bit format it was made from
+     */
+    public static boolean[][] addConversions(boolean[][] conversions, AudioFormat[] outputs) {
+        boolean[][] result = new boolean[conversions.length][];
+        int added = count(outputs);
+        for (int i = 0; i < conversions.length; i ++) {
+            result[i] = new boolean[outputs.length + added];
+            System.arraycopy(conversions[i], 0, result[i], 0, outputs.length);
+            int index = outputs.length;
+            for (int j = 0; j < outputs.length; j ++) {
+                if (outputs[j].getSampleSizeInBits() == 16) result[i][index ++] = conversions[i][j];
+            }
+        }
+        return result;
+    }
+
+    private static int count(AudioFormat[] outputs) {
+        int count = 0;
+        for (AudioFormat output : outputs) {
+            if (output.getSampleSizeInBits() == 16) count ++;
+        }
+        return count;
+    }
+
+}
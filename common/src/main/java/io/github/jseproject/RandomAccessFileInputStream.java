@@ -0,0 +1,108 @@
+package io.github.jseproject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Buffered {@link SeekableInputStream} over a {@link RandomAccessFile}.
+ */
+public class RandomAccessFileInputStream extends SeekableInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private RandomAccessFile file;
+    private final long length;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // file offset of buffer[0], the file pointer is always at bufferStart + bufferLength
+    private long bufferStart = 0;
+    private int bufferLength = 0;
+    private int bufferPosition = 0;
+
+    public RandomAccessFileInputStream(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        length = this.file.length();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (file == null) throw new IOException("Stream closed");
+    }
+
+    private boolean fill() throws IOException {
+        bufferStart += bufferLength;
+        bufferPosition = 0;
+        bufferLength = 0;
+        int read = file.read(buffer, 0, BUFFER_SIZE);
+        if (read <= 0) return false;
+        bufferLength = read;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        ensureOpen();
+        if (bufferPosition >= bufferLength && !fill()) return -1;
+        return buffer[bufferPosition ++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        if (len == 0) return 0;
+        int available = bufferLength - bufferPosition;
+        if (available <= 0) {
+            if (len >= BUFFER_SIZE) {
+                // large reads bypass the buffer
+                bufferStart += bufferLength;
+                bufferPosition = 0;
+                bufferLength = 0;
+                int read = file.read(b, off, len);
+                if (read > 0) bufferStart += read;
+                return read;
+            }
+            if (!fill()) return -1;
+            available = bufferLength;
+        }
+        int n = Math.min(available, len);
+        System.arraycopy(buffer, bufferPosition, b, off, n);
+        bufferPosition += n;
+        return n;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        ensureOpen();
+        if (position < 0) throw new IOException("Negative seek offset");
+        if (position >= bufferStart && position <= bufferStart + bufferLength) {
+            bufferPosition = (int) (position - bufferStart);
+        }
+        else {
+            file.seek(position);
+            bufferStart = position;
+            bufferPosition = 0;
+            bufferLength = 0;
+        }
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        ensureOpen();
+        return bufferStart + bufferPosition;
+    }
+
+    @Override
+    public long length() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+    }
+
+}
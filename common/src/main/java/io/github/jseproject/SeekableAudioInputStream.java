@@ -0,0 +1,38 @@
+package io.github.jseproject;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * Decoded audio stream which can be repositioned by sample frame.
+ * <p>
+ * Seeking needs random access to the encoded data, e.g. a stream obtained from
+ * {@code AudioSystem.getAudioInputStream(File)}. Streams which cannot seek still move forward
+ * by decoding and discarding.
+ */
+public interface SeekableAudioInputStream {
+
+    AudioFormat getFormat();
+
+    /**
+     * @return {@code true} if the stream can be repositioned in both directions without decoding from the start
+     */
+    boolean isSeekable();
+
+    /**
+     * @return the index of the next sample frame returned by a read
+     */
+    long getFramePosition();
+
+    /**
+     * Moves the stream to the given sample frame. Seeking past the end leaves the stream at the end.
+     *
+     * @throws IOException if the stream cannot seek to the position, e.g. backwards in a non-seekable stream
+     */
+    void seekToFrame(long frame) throws IOException;
+
+    default void seekToMicrosecond(long microseconds) throws IOException {
+        seekToFrame(Math.round(microseconds * (double) getFormat().getFrameRate() / 1000000.0));
+    }
+
+}
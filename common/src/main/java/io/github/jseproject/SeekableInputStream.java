@@ -0,0 +1,78 @@
+package io.github.jseproject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream with random access to its source, used by the decoders to jump to a position.
+ * Marking is done by position, so the read limit is ignored.
+ */
+public abstract class SeekableInputStream extends InputStream {
+
+    private long markPosition = -1;
+
+    /**
+     * Opens a file for reading, memory mapped if the file system supports it.
+     */
+    public static SeekableInputStream open(File file) throws IOException {
+        try {
+            return new MappedFileInputStream(file);
+        }
+        catch (IOException e) {
+            return new RandomAccessFileInputStream(file);
+        }
+    }
+
+    /**
+     * Sets the offset, measured from the beginning of the source, of the next read.
+     */
+    public abstract void seek(long position) throws IOException;
+
+    /**
+     * @return the offset, measured from the beginning of the source, of the next read
+     */
+    public abstract long getFilePointer() throws IOException;
+
+    /**
+     * @return the length of the source in bytes
+     */
+    public abstract long length() throws IOException;
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        long position = getFilePointer();
+        n = Math.min(n, length() - position);
+        if (n <= 0) return 0;
+        seek(position + n);
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, length() - getFilePointer()));
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        try {
+            markPosition = getFilePointer();
+        }
+        catch (IOException e) {
+            markPosition = -1;
+        }
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (markPosition < 0) throw new IOException("mark not set");
+        seek(markPosition);
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.jseproject.batch;
+
+import javax.sound.sampled.AudioFileFormat;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A file to transcode: the source, the target file and its type, and the properties passed to the writer,
+ * e.g. {@code quality}.
+ */
+public final class TranscodeJob {
+
+    private final File source;
+    private final File target;
+    private final AudioFileFormat.Type type;
+    private final Map<String, Object> properties;
+
+    private TranscodeJob(File source, File target, AudioFileFormat.Type type, Map<String, Object> properties) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.target = Objects.requireNonNull(target, "target");
+        this.type = Objects.requireNonNull(type, "type");
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    public static TranscodeJob of(File source, File target, AudioFileFormat.Type type) {
+        return new TranscodeJob(source, target, type, Collections.emptyMap());
+    }
+
+    public static TranscodeJob of(File source, File target, AudioFileFormat.Type type, Map<String, Object> properties) {
+        return new TranscodeJob(source, target, type, properties);
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public File getTarget() {
+        return target;
+    }
+
+    public AudioFileFormat.Type getType() {
+        return type;
+    }
+
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target + " (" + type + ")";
+    }
+
+}
@@ -0,0 +1,27 @@
+package io.github.jseproject.batch;
+
+/**
+ * Receives the progress of the jobs of a {@link Transcoder}. The methods are called from the worker
+ * running the job, so they may be called concurrently for different jobs.
+ */
+public interface TranscodeListener {
+
+    /**
+     * Called after every read from the decoded source.
+     *
+     * @param frames the sample frames passed to the writer so far
+     * @param frameLength the length of the source in sample frames, {@code AudioSystem.NOT_SPECIFIED} if not known
+     */
+    default void progress(TranscodeJob job, long frames, long frameLength) {
+    }
+
+    /**
+     * @param bytes the number of bytes written
+     */
+    default void completed(TranscodeJob job, int bytes) {
+    }
+
+    default void failed(TranscodeJob job, Exception e) {
+    }
+
+}
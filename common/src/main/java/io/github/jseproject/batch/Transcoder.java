@@ -0,0 +1,229 @@
+package io.github.jseproject.batch;
+
+import javasound.sampled.spi.AudioCompressionWriter;
+import org.tritonus.share.TDebug;
+import org.tritonus.share.sampled.convert.TAudioInputStream;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs {@link TranscodeJob}s concurrently: each job reads its source with the installed audio file readers,
+ * decodes it to PCM with the format conversion providers and writes it with the audio compression writer
+ * of the target type, or with {@link AudioSystem#write(AudioInputStream, AudioFileFormat.Type, java.io.File)}
+ * if there is none.
+ * <p>
+ * At most {@code maxPendingJobs} jobs are queued or running, {@link #submit(TranscodeJob)} blocks until
+ * one of them finishes. Any executor can run the jobs, e.g. {@code Executors.newVirtualThreadPerTaskExecutor()}
+ * on Java 21.
+ */
+public class Transcoder implements Closeable {
+
+    private static final TranscodeListener NO_LISTENER = new TranscodeListener() {};
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Semaphore pending;
+    private final TranscodeListener listener;
+
+    /**
+     * Creates a transcoder running one job per available processor.
+     */
+    public Transcoder() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a transcoder with its own pool of {@code threads} threads, shut down by {@link #close()}.
+     */
+    public Transcoder(int threads) {
+        this(newPool(threads), true, 2 * threads, NO_LISTENER);
+    }
+
+    /**
+     * Creates a transcoder running the jobs on {@code executor}, which is not shut down by {@link #close()}.
+     *
+     * @param maxPendingJobs the number of jobs queued or running at the same time
+     * @param listener receives the progress of the jobs, may be {@code null}
+     */
+    public Transcoder(ExecutorService executor, int maxPendingJobs, TranscodeListener listener) {
+        this(executor, false, maxPendingJobs, listener);
+    }
+
+    private static ExecutorService newPool(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads < 1: " + threads);
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private Transcoder(ExecutorService executor, boolean ownsExecutor, int maxPendingJobs, TranscodeListener listener) {
+        if (maxPendingJobs < 1) throw new IllegalArgumentException("maxPendingJobs < 1: " + maxPendingJobs);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.pending = new Semaphore(maxPendingJobs);
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Queues a job, waiting while {@code maxPendingJobs} jobs are pending.
+     *
+     * @return the number of bytes written by the job
+     */
+    public Future<Integer> submit(TranscodeJob job) throws InterruptedException {
+        pending.acquire();
+        try {
+            return executor.submit(() -> {
+                try {
+                    return transcode(job);
+                }
+                finally {
+                    pending.release();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Queues the jobs in order, waiting while {@code maxPendingJobs} jobs are pending.
+     */
+    public List<Future<Integer>> submitAll(Collection<TranscodeJob> jobs) throws InterruptedException {
+        List<Future<Integer>> futures = new ArrayList<>(jobs.size());
+        for (TranscodeJob job : jobs) futures.add(submit(job));
+        return futures;
+    }
+
+    /**
+     * Runs a job in the calling thread.
+     *
+     * @return the number of bytes written
+     */
+    public int transcode(TranscodeJob job) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioConverter) TDebug.out("Transcoder.transcode(): " + job);
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(job.getSource());
+             AudioInputStream pcm = toPcm(source)) {
+            long frameLength = listener == NO_LISTENER ? AudioSystem.NOT_SPECIFIED : getFrameLength(source, pcm);
+            AudioInputStream stream = new AudioInputStream(
+                    new ProgressInputStream(pcm, job, pcm.getFormat().getFrameSize(), frameLength),
+                    pcm.getFormat(), pcm.getFrameLength());
+            int bytes = write(job, stream);
+            listener.completed(job, bytes);
+            return bytes;
+        }
+        catch (UnsupportedAudioFileException | IOException | RuntimeException e) {
+            listener.failed(job, e);
+            throw e;
+        }
+    }
+
+    private static AudioInputStream toPcm(AudioInputStream source) throws UnsupportedAudioFileException {
+        AudioFormat format = source.getFormat();
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if (AudioFormat.Encoding.PCM_SIGNED.equals(encoding) || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) return source;
+        // keep the resolution of lossless sources
+        int bits = format.getSampleSizeInBits() > 0 ? format.getSampleSizeInBits() : 16;
+        AudioFormat target = new AudioFormat(format.getSampleRate(), bits, format.getChannels(), true, false);
+        if (bits != 16 && !AudioSystem.isConversionSupported(target, format))
+            target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        if (!AudioSystem.isConversionSupported(target, format))
+            throw new UnsupportedAudioFileException("No decoder for " + format);
+        return AudioSystem.getAudioInputStream(target, source);
+    }
+
+    private static long getFrameLength(AudioInputStream source, AudioInputStream pcm) {
+        if (pcm.getFrameLength() != AudioSystem.NOT_SPECIFIED) return pcm.getFrameLength();
+        float frameRate = pcm.getFormat().getFrameRate();
+        if (frameRate <= 0) return AudioSystem.NOT_SPECIFIED;
+        // the frame length of encoded formats counts their own frames, the duration is reliable
+        Object duration = source instanceof TAudioInputStream ? ((TAudioInputStream) source).properties().get("duration") : null;
+        if (duration instanceof Long) return Math.round((Long) duration * (double) frameRate / 1000000.0);
+        AudioFormat format = source.getFormat();
+        if (source.getFrameLength() > 0 && format.getFrameRate() > 0)
+            return Math.round(source.getFrameLength() * (double) frameRate / format.getFrameRate());
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    private static int write(TranscodeJob job, AudioInputStream stream) throws IOException {
+        // ServiceLoader is not thread safe, every job iterates its own
+        for (AudioCompressionWriter writer : ServiceLoader.load(AudioCompressionWriter.class)) {
+            if (Arrays.asList(writer.getAudioFileTypes()).contains(job.getType()))
+                return writer.write(stream, job.getType(), job.getProperties(), job.getTarget());
+        }
+        return AudioSystem.write(stream, job.getType(), job.getTarget());
+    }
+
+    /**
+     * Shuts down the pool created by this transcoder, running jobs are completed.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    // reports the frames read and stops the job when its thread is interrupted
+    private class ProgressInputStream extends FilterInputStream {
+
+        private final TranscodeJob job;
+        private final int frameSize;
+        private final long frameLength;
+        private final byte[] singleByte = new byte[1];
+        private long bytes = 0;
+
+        ProgressInputStream(InputStream in, TranscodeJob job, int frameSize, long frameLength) {
+            super(in);
+            this.job = job;
+            this.frameSize = Math.max(frameSize, 1);
+            this.frameLength = frameLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Transcoding cancelled: " + job);
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                bytes += read;
+                listener.progress(job, bytes / frameSize, frameLength);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+    }
+
+}
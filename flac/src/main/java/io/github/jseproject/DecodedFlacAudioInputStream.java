@@ -1,8 +1,6 @@
 package io.github.jseproject;
 
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
-import org.xiph.flac.Format;
 import org.xiph.flac.Frame;
 import org.xiph.flac.StreamDecoder;
 import org.xiph.flac.StreamDecoderErrorCallback;
@@ -11,17 +9,58 @@ import org.xiph.flac.StreamDecoderWriteCallback;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
-public class DecodedFlacAudioInputStream extends TAsynchronousFilteredAudioInputStream
+public class DecodedFlacAudioInputStream extends DecodedAudioInputStream
         implements StreamDecoderWriteCallback, StreamDecoderErrorCallback {
 
-    private StreamDecoder decoder = new StreamDecoder();
-    private byte[] buffer = new byte[Format.FLAC__MAX_BLOCK_SIZE * Format.FLAC__MAX_CHANNELS * (Integer.SIZE >>> 3)]; /* WATCHOUT: can be up to 2 megs */
+    /**
+     * System property, the number of threads decoding the frames of a native FLAC file. Defaults to 1, decoding in
+     * the reading thread.
+     * <p>
+     * Whatever the number of threads, the MD5 signature of a stream read to its end without seeking is checked,
+     * a mismatch throws an {@link IOException}.
+     */
+    public static final String DECODER_THREADS_PROPERTY = "io.github.jseproject.flac.decoderThreads";
+
+    /**
+     * System property, {@code true} moves the MD5 update of a stream decoded in the reading thread to a pool
+     * thread. Defaults to {@code false}, the signature is updated in the reading thread.
+     */
+    public static final String ASYNC_MD5_PROPERTY = "io.github.jseproject.flac.asyncMd5";
+
+    private static final DecoderPool<List<Integer>, StreamDecoder> DECODERS = new DecoderPool<>();
+
+    private StreamDecoder decoder;
+    // the output buffers of a decoder fit streams of the same shape
+    private final List<Integer> decoderKey;
+    private final boolean seekable;
+    private ParallelFlacDecoder parallel;
+    private final boolean asyncMd5;
+    private boolean error = false;
 
     public DecodedFlacAudioInputStream(AudioFormat outputFormat, FlacAudioInputStream inputStream) {
         super(outputFormat, AudioSystem.NOT_SPECIFIED);
         if (TDebug.TraceAudioConverter) TDebug.out(">DecodedFlacAudioInputStream(AudioFormat, AudioInputStream)");
-        decoder.set_md5_checking(true);
+        decoderKey = Arrays.asList(outputFormat.getChannels(), outputFormat.getSampleSizeInBits());
+        decoder = DECODERS.acquire(decoderKey);
+        if (decoder == null) decoder = new StreamDecoder();
+        seekable = inputStream.getFilteredInputStream() instanceof SeekableInputStream;
+        int threads = Integer.getInteger(DECODER_THREADS_PROPERTY, 1);
+        byte[] streamHeader = null;
+        if (threads > 1 && seekable && !inputStream.isOgg()) {
+            try {
+                streamHeader = ParallelFlacDecoder.readStreamHeader((SeekableInputStream) inputStream.getFilteredInputStream());
+            }
+            catch (IOException e) {
+                if (TDebug.TraceAudioConverter) TDebug.out(e);
+            }
+        }
+        // the frames decoded by the workers are checked by the parallel decoder
+        decoder.set_md5_checking(streamHeader == null);
+        asyncMd5 = streamHeader == null && Boolean.getBoolean(ASYNC_MD5_PROPERTY);
+        decoder.set_async_md5(asyncMd5);
         int init_status;
         if (inputStream.isOgg()) init_status = decoder.init_ogg_FILE(inputStream.getFilteredInputStream(), this /* write_callback */, null /* metadata_callback */, this /* error_callback */);
         else init_status = decoder.init_FILE(inputStream.getFilteredInputStream(), this /* write_callback */, null /* metadata_callback */, this /* error_callback */);
@@ -31,100 +70,219 @@ public class DecodedFlacAudioInputStream extends TAsynchronousFilteredAudioInput
             if (TDebug.TraceAudioConverter) TDebug.out(StreamDecoder.FLAC__StreamDecoderInitStatusString[init_status]);
             throw new IllegalArgumentException("conversion not supported");
         }
-    }
-
-    @Override
-    public int read(byte[] abData, int nOffset, int nLength) throws IOException {
-        int n = super.read(abData, nOffset, nLength);
-        while (n == 0) n = super.read(abData, nOffset, nLength);
-        return n;
+        if (streamHeader != null) {
+            try {
+                // the main decoder reads the metadata and seeks, the frames after it are left to the workers
+                if (decoder.process_until_end_of_metadata())
+                    parallel = new ParallelFlacDecoder((SeekableInputStream) inputStream.getFilteredInputStream(),
+                            streamHeader, decoder.get_decode_position(), outputFormat, threads, DECODERS, decoderKey);
+            }
+            catch (IOException | UnsupportedOperationException e) {
+                if (TDebug.TraceAudioConverter) TDebug.out(e);
+            }
+        }
     }
 
     @Override
     public void close() throws IOException {
         super.close();
+        if (parallel != null) {
+            parallel.close();
+            parallel = null;
+        }
         if (decoder != null) {
-            decoder.delete();
+            decoder.finish_for_reuse(true);
+            DECODERS.release(decoderKey, decoder);
             decoder = null;
         }
-        buffer = null;
     }
 
     @Override
-    public void execute() {
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): begin");
-        if (!decoder.process_single() ||
-                decoder.get_state() == StreamDecoder.FLAC__STREAM_DECODER_END_OF_STREAM) {
-            getCircularBuffer().close();
+    protected boolean decode() throws IOException {
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): begin");
+        if (parallel != null) {
+            ParallelFlacDecoder.Batch batch = parallel.next();
+            if (batch == null) return false;
+            write(batch.pcm, 0, batch.length);
+            return !batch.error;
+        }
+        boolean more = decoder.process_single() && !error &&
+                decoder.get_state() != StreamDecoder.FLAC__STREAM_DECODER_END_OF_STREAM;
+        if (!more && !decoder.check_md5()) throw new IOException("MD5 signature mismatch");
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): end");
+        return more;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return seekable && decoder != null;
+    }
+
+    @Override
+    protected long seek(long frame) throws IOException {
+        long total = decoder.get_total_samples();
+        // stop at the last sample, reading on from there reaches the end of the stream
+        if (total > 0 && frame >= total) frame = total - 1;
+        error = false;
+        if (parallel != null) parallel.suspend();
+        if (!decoder.seek_absolute(frame)) {
+            String state = decoder.get_resolved_state_string();
+            // a failed seek leaves the decoder unusable until flushed
+            if (decoder.get_state() == StreamDecoder.FLAC__STREAM_DECODER_SEEK_ERROR) decoder.flush();
+            throw new IOException("seek failed: " + state);
         }
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): end");
+        // the frame holding the target sample is written, the workers go on after it
+        if (parallel != null) parallel.resume(decoder.get_decode_position());
+        return frame;
     }
 
     @Override
     public void dec_error_callback(StreamDecoder decoder, int status) throws IOException {
         if (TDebug.TraceAudioConverter) TDebug.out(new IOException(StreamDecoder.FLAC__StreamDecoderErrorStatusString[status]));
-        getCircularBuffer().close();
+        error = true;
     }
 
     @Override
     public int dec_write_callback(StreamDecoder decoder, Frame frame, int[][] buffer, int offset) {
-        int sample, channel, ibyte;
-        int bps = frame.header.bits_per_sample, channels = frame.header.channels;
         int blocksize = frame.header.blocksize;
-        int written = 0;
+        int start = reserve(blocksize * getFormat().getFrameSize());
+        commit(pack(buffer, offset, blocksize, frame.header.channels, frame.header.bits_per_sample, getFormat(), output(), start) - start);
+        return StreamDecoder.FLAC__STREAM_DECODER_WRITE_STATUS_CONTINUE;
+    }
+
+    /**
+     * @return {@code true} if {@code format} holds the samples of a stream of {@code bps} bits the way its MD5
+     * signature is computed, little-endian signed bytes of the stream's sample size
+     */
+    static boolean isSignatureLayout(AudioFormat format, int bps) {
+        return format.getSampleSizeInBits() == bps && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                && (bps == 8 || !format.isBigEndian());
+    }
+
+    /**
+     * Interleaves {@code blocksize} samples of {@code bps} bits from {@code offset} in {@code buffer} as samples
+     * of {@code format}, 8, 16, 24 or 32 bits, scaled to the sample size of the format.
+     *
+     * @return the position in {@code output} after the samples
+     */
+    static int pack(int[][] buffer, int offset, int blocksize, int channels, int bps, AudioFormat format, byte[] output, int written) {
+        int sample, channel, ibyte;
+        // after a seek the frame starts at the target sample, offset samples into the buffer
+        int end = offset + blocksize;
+        int bits = format.getSampleSizeInBits();
+        boolean bigEndian = format.isBigEndian() && bits > 8;
+        if (bits != bps || AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()))
+            return packScaled(buffer, offset, end, channels, bits - bps, format, output, written);
+        if (bigEndian) {
+            for (sample = offset; sample < end; sample ++) {
+                for (channel = 0; channel < channels; channel ++) {
+                    ibyte = buffer[channel][sample];
+                    for (int shift = bits - 8; shift >= 0; shift -= 8) output[written ++] = (byte) (ibyte >> shift);
+                }
+            }
+            return written;
+        }
         /* generic code for the rest */
         switch (bps) {
             case 8:
-                for (sample = 0; sample < blocksize; sample ++) {
+                for (sample = offset; sample < end; sample ++) {
                     for (channel = 0; channel < channels; channel ++) {
-                        this.buffer[written ++] = (byte) buffer[channel][sample];
+                        output[written ++] = (byte) buffer[channel][sample];
                     }
                 }
                 break;
             case 16:
                 switch (channels) {
                     case 1:
-                        for (sample = 0; sample < blocksize; sample ++) {
+                        for (sample = offset; sample < end; sample ++) {
                             ibyte = buffer[0][sample];
-                            this.buffer[written ++] = (byte) (ibyte & 0xFF);
-                            this.buffer[written ++] = (byte) ((ibyte >> 8) & 0xFF);
+                            output[written ++] = (byte) (ibyte & 0xFF);
+                            output[written ++] = (byte) ((ibyte >> 8) & 0xFF);
                         }
                         break;
                     case 2:
-                        for (sample = 0; sample < blocksize; sample ++) {
+                        for (sample = offset; sample < end; sample ++) {
                             ibyte = buffer[0][sample];
-                            this.buffer[written ++] = (byte) (ibyte & 0xFF);
-                            this.buffer[written ++] = (byte) ((ibyte >> 8) & 0xFF);
+                            output[written ++] = (byte) (ibyte & 0xFF);
+                            output[written ++] = (byte) ((ibyte >> 8) & 0xFF);
                             ibyte = buffer[1][sample];
-                            this.buffer[written ++] = (byte) (ibyte & 0xFF);
-                            this.buffer[written ++] = (byte) ((ibyte >> 8) & 0xFF);
+                            output[written ++] = (byte) (ibyte & 0xFF);
+                            output[written ++] = (byte) ((ibyte >> 8) & 0xFF);
                         }
                         break;
                     default: /* works for any 'channels' but above flavors are faster for 1 and 2 */
-                        for (sample = 0; sample < blocksize; sample ++) {
+                        for (sample = offset; sample < end; sample ++) {
                             for (channel = 0; channel < channels; channel ++) {
                                 ibyte = buffer[channel][sample];
-                                this.buffer[written ++] = (byte) (ibyte & 0xFF);
-                                this.buffer[written ++] = (byte) ((ibyte >> 8) & 0xFF);
+                                output[written ++] = (byte) (ibyte & 0xFF);
+                                output[written ++] = (byte) ((ibyte >> 8) & 0xFF);
                             }
                         }
                         break;
                 }
                 break;
             case 24:
-                for (sample = 0; sample < blocksize; sample ++) {
+                for (sample = offset; sample < end; sample ++) {
                     for (channel = 0; channel < channels; channel ++) {
                         ibyte = buffer[channel][sample];
-                        this.buffer[written ++] = (byte) (ibyte & 0xFF);
-                        this.buffer[written ++] = (byte) ((ibyte >> 8) & 0xFF);
-                        this.buffer[written ++] = (byte) ((ibyte >> 16) & 0xFF);
+                        output[written ++] = (byte) (ibyte & 0xFF);
+                        output[written ++] = (byte) ((ibyte >> 8) & 0xFF);
+                        output[written ++] = (byte) ((ibyte >> 16) & 0xFF);
                     }
                 }
                 break;
-            default: return StreamDecoder.FLAC__STREAM_DECODER_WRITE_STATUS_ABORT;
+            case 32:
+                switch (channels) {
+                    case 2:
+                        for (sample = offset; sample < end; sample ++) {
+                            ibyte = buffer[0][sample];
+                            output[written ++] = (byte) ibyte;
+                            output[written ++] = (byte) (ibyte >> 8);
+                            output[written ++] = (byte) (ibyte >> 16);
+                            output[written ++] = (byte) (ibyte >> 24);
+                            ibyte = buffer[1][sample];
+                            output[written ++] = (byte) ibyte;
+                            output[written ++] = (byte) (ibyte >> 8);
+                            output[written ++] = (byte) (ibyte >> 16);
+                            output[written ++] = (byte) (ibyte >> 24);
+                        }
+                        break;
+                    default:
+                        for (sample = offset; sample < end; sample ++) {
+                            for (channel = 0; channel < channels; channel ++) {
+                                ibyte = buffer[channel][sample];
+                                output[written ++] = (byte) ibyte;
+                                output[written ++] = (byte) (ibyte >> 8);
+                                output[written ++] = (byte) (ibyte >> 16);
+                                output[written ++] = (byte) (ibyte >> 24);
+                            }
+                        }
+                        break;
+                }
+                break;
         }
-		if (written > 0) getCircularBuffer().write(this.buffer, 0, written);
-        return StreamDecoder.FLAC__STREAM_DECODER_WRITE_STATUS_CONTINUE;
+        return written;
+    }
+
+    // streams whose sample size is not the one of the format, e.g. 20 bits as 24, and unsigned output
+    private static int packScaled(int[][] buffer, int offset, int end, int channels, int shift, AudioFormat format, byte[] output, int written) {
+        int bits = format.getSampleSizeInBits();
+        boolean bigEndian = format.isBigEndian() && bits > 8;
+        // flipping the sign bit turns two's complement into offset binary
+        int bias = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()) ? 1 << (bits - 1) : 0;
+        for (int sample = offset; sample < end; sample ++) {
+            for (int channel = 0; channel < channels; channel ++) {
+                int value = buffer[channel][sample];
+                value = (shift >= 0 ? value << shift : value >> -shift) ^ bias;
+                if (bigEndian) {
+                    for (int i = bits - 8; i >= 0; i -= 8) output[written ++] = (byte) (value >> i);
+                }
+                else {
+                    for (int i = 0; i < bits; i += 8) output[written ++] = (byte) (value >> i);
+                }
+            }
+        }
+        return written;
     }
 
 }
@@ -29,12 +29,12 @@ public class FlacAudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, FlacFileFormatType.withProperties(fileType, properties), out);
+        return new FlacAudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, FlacFileFormatType.withProperties(fileType, properties), out);
+        return new FlacAudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
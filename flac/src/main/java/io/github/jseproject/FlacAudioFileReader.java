@@ -29,8 +29,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
 public class FlacAudioFileReader extends TAudioFileReader {
@@ -46,8 +44,10 @@ public class FlacAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("FlacAudioFileReader.getAudioFileFormat(File): begin");
         AudioFileFormat format;
-        try (FlacFile flacFile = FlacFile.open(file)) {
-            format = FlacAudioFileFormat.of(flacFile);
+        try (SeekableInputStream inputStream = SeekableInputStream.open(file)) {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.FLAC, FormatSniffer.Format.OGG_FLAC, FormatSniffer.Format.OGG))
+                throw new UnsupportedAudioFileException("Not a FLAC stream");
+            format = FlacAudioFileFormat.of(openFlacFile(inputStream));
         }
         catch (IllegalArgumentException e) {
             throw new UnsupportedAudioFileException(e.getMessage());
@@ -87,6 +87,8 @@ public class FlacAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("FlacAudioFileReader.getAudioFileFormat(InputStream): begin");
         AudioFileFormat format;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.FLAC, FormatSniffer.Format.OGG_FLAC, FormatSniffer.Format.OGG))
+            throw new UnsupportedAudioFileException("Not a FLAC stream");
         inputStream.mark(MARK_LIMIT);
         try {
             format = FlacAudioFileFormat.of(openFlacFile(inputStream));
@@ -108,10 +110,11 @@ public class FlacAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("FlacAudioFileReader.getAudioInputStream(File): begin");
         AudioInputStream audioInputStream;
-        InputStream inputStream = Files.newInputStream(file.toPath(), StandardOpenOption.READ);
-        if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
+        InputStream inputStream = SeekableInputStream.open(file);
         try {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.FLAC, FormatSniffer.Format.OGG_FLAC, FormatSniffer.Format.OGG))
+                throw new IllegalArgumentException("Not a FLAC stream");
+            inputStream.mark(MARK_LIMIT);
             FlacFile flacFile = openFlacFile(inputStream);
             AudioFormat audioFormat = FlacAudioFormat.of(flacFile.getInfo());
             inputStream.reset();
@@ -135,8 +138,10 @@ public class FlacAudioFileReader extends TAudioFileReader {
         AudioInputStream audioInputStream;
         InputStream inputStream = url.openStream();
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
         try {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.FLAC, FormatSniffer.Format.OGG_FLAC, FormatSniffer.Format.OGG))
+                throw new IllegalArgumentException("Not a FLAC stream");
+            inputStream.mark(MARK_LIMIT);
             FlacFile flacFile = openFlacFile(inputStream);
             AudioFormat audioFormat = FlacAudioFormat.of(flacFile.getInfo());
             inputStream.reset();
@@ -158,6 +163,8 @@ public class FlacAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("FlacAudioFileReader.getAudioInputStream(InputStream): begin");
         AudioInputStream audioInputStream;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.FLAC, FormatSniffer.Format.OGG_FLAC, FormatSniffer.Format.OGG))
+            throw new UnsupportedAudioFileException("Not a FLAC stream");
         inputStream.mark(MARK_LIMIT);
         try {
             FlacFile flacFile = openFlacFile(inputStream);
@@ -9,6 +9,7 @@ import org.tritonus.share.sampled.file.TNonSeekableDataOutputStream;
 import org.tritonus.share.sampled.file.TSeekableDataOutputStream;
 import org.xiph.flac.Format;
 import org.xiph.flac.OggEncoderAspectWriteCallbackProxy;
+import org.xiph.flac.SeekTable;
 import org.xiph.flac.StreamEncoder;
 import org.xiph.flac.StreamEncoderReadCallback;
 import org.xiph.flac.StreamEncoderSeekCallback;
@@ -19,12 +20,15 @@ import org.xiph.flac.StreamMetadata;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
@@ -33,14 +37,16 @@ public class FlacAudioFileWriter extends TAudioFileWriter
         implements StreamEncoderWriteCallback, StreamEncoderSeekCallback, StreamEncoderTellCallback, StreamEncoderReadCallback,
         OggEncoderAspectWriteCallbackProxy {
 
-    private static final AudioFormat[] SUPPORTED_FORMATS = new AudioFormat[40];
+    private static final AudioFormat[] SUPPORTED_FORMATS = new AudioFormat[56];
     static {
         for (int channels = 0; channels < 8; channels ++) {
-            SUPPORTED_FORMATS[channels * 5] = new AudioFormat(-1.0f, 8, channels + 1, true, false);
-            SUPPORTED_FORMATS[channels * 5 + 1] = new AudioFormat(-1.0f, 16, channels + 1, true, false);
-            SUPPORTED_FORMATS[channels * 5 + 2] = new AudioFormat(-1.0f, 16, channels + 1, true, true);
-            SUPPORTED_FORMATS[channels * 5 + 3] = new AudioFormat(-1.0f, 24, channels + 1, true, false);
-            SUPPORTED_FORMATS[channels * 5 + 4] = new AudioFormat(-1.0f, 24, channels + 1, true, true);
+            SUPPORTED_FORMATS[channels * 7] = new AudioFormat(-1.0f, 8, channels + 1, true, false);
+            SUPPORTED_FORMATS[channels * 7 + 1] = new AudioFormat(-1.0f, 16, channels + 1, true, false);
+            SUPPORTED_FORMATS[channels * 7 + 2] = new AudioFormat(-1.0f, 16, channels + 1, true, true);
+            SUPPORTED_FORMATS[channels * 7 + 3] = new AudioFormat(-1.0f, 24, channels + 1, true, false);
+            SUPPORTED_FORMATS[channels * 7 + 4] = new AudioFormat(-1.0f, 24, channels + 1, true, true);
+            SUPPORTED_FORMATS[channels * 7 + 5] = new AudioFormat(-1.0f, 32, channels + 1, true, false);
+            SUPPORTED_FORMATS[channels * 7 + 6] = new AudioFormat(-1.0f, 32, channels + 1, true, true);
         }
     }
 
@@ -48,8 +54,16 @@ public class FlacAudioFileWriter extends TAudioFileWriter
             FlacFileFormatType.FLAC, FlacFileFormatType.OGG_FLAC
     };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public FlacAudioFileWriter() {
+        this(null);
+    }
+
+    FlacAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -73,14 +87,77 @@ public class FlacAudioFileWriter extends TAudioFileWriter
 
     @Override
     public int write(AudioInputStream audioInputStream, AudioFileFormat.Type fileType, File file) throws IOException {
+        if (audioInputStream instanceof FlacAudioInputStream) {
+            if (hasNoEncoderProperties()) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+                    return remux((FlacAudioInputStream) audioInputStream, fileType, out);
+                }
+            }
+            audioInputStream = decode((FlacAudioInputStream) audioInputStream);
+        }
         try (OutputStream ignored = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
             return super.write(audioInputStream, fileType, file);
         }
     }
 
+    @Override
+    public int write(AudioInputStream audioInputStream, AudioFileFormat.Type fileType, OutputStream outputStream) throws IOException {
+        if (audioInputStream instanceof FlacAudioInputStream) {
+            if (hasNoEncoderProperties())
+                return remux((FlacAudioInputStream) audioInputStream, fileType, outputStream);
+            audioInputStream = decode((FlacAudioInputStream) audioInputStream);
+        }
+        return super.write(audioInputStream, fileType, outputStream);
+    }
+
+    @Override
+    public AudioFileFormat.Type[] getAudioFileTypes(AudioInputStream audioInputStream) {
+        if (audioInputStream instanceof FlacAudioInputStream) return TYPES.clone();
+        return super.getAudioFileTypes(audioInputStream);
+    }
+
+    @Override
+    public boolean isFileTypeSupported(AudioFileFormat.Type fileType, AudioInputStream audioInputStream) {
+        if (audioInputStream instanceof FlacAudioInputStream) return isFileTypeSupported(fileType);
+        return super.isFileTypeSupported(fileType, audioInputStream);
+    }
+
+    // encoder properties only apply to a stream which is encoded again
+    private boolean hasNoEncoderProperties() {
+        return properties.isEmpty();
+    }
+
+    // the samples of a stream still holding FLAC frames, in whole bytes
+    private static AudioInputStream decode(FlacAudioInputStream audioInputStream) {
+        AudioFormat format = audioInputStream.getFormat();
+        int bits = (format.getSampleSizeInBits() + 7) & ~7;
+        AudioFormat pcmFormat = new AudioFormat(format.getSampleRate(), bits, format.getChannels(), true, false);
+        return new FlacFormatConversionProvider().getAudioInputStream(pcmFormat, audioInputStream);
+    }
+
+    // without encoder properties, a stream still holding FLAC frames is repackaged or copied as it is, without decoding and encoding it again
+    private static int remux(FlacAudioInputStream audioInputStream, AudioFileFormat.Type fileType, OutputStream out) throws IOException {
+        if (!FlacFileFormatType.FLAC.equals(fileType) && !FlacFileFormatType.OGG_FLAC.equals(fileType))
+            throw new IllegalArgumentException("file type is not supported.");
+        InputStream in = audioInputStream.getFilteredInputStream();
+        boolean ogg = FlacFileFormatType.OGG_FLAC.equals(fileType);
+        long written = 0;
+        if (ogg && !audioInputStream.isOgg()) written = FlacRemuxer.toOgg(in, out);
+        else if (!ogg && audioInputStream.isOgg()) written = FlacRemuxer.toNative(in, out);
+        else {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, n);
+                written += n;
+            }
+        }
+        out.flush();
+        return (int) Math.min(written, Integer.MAX_VALUE);
+    }
+
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new FlacAudioOutputParams(audioFormat, lLengthInBytes, dataOutputStream, ((FlacFileFormatType) fileType).properties, FlacFileFormatType.OGG_FLAC.equals(fileType));
+        return new FlacAudioOutputParams(audioFormat, lLengthInBytes, dataOutputStream, properties, FlacFileFormatType.OGG_FLAC.equals(fileType));
     }
 
     // 2024-09-26: Workaround for TAudioFileWriter
@@ -113,29 +190,72 @@ public class FlacAudioFileWriter extends TAudioFileWriter
         Object qualityObject = params.getProperties().get("quality");
         float quality = qualityObject instanceof Float ? Math.min(1, Math.max(0, (Float) qualityObject)) : -1;
         int compressionLevel = quality < 0 ? 5 : Math.round(8 * (1 - quality));
+        Object threadsObject = params.getProperties().get("flac.threads");
+        int threads = threadsObject instanceof Integer ? (Integer) threadsObject : 1;
+        if (threads < 1 || threads > StreamEncoder.FLAC__STREAM_ENCODER_MAX_THREADS) threads = 1;
+        // the settings below override the ones of the compression level, unset or out of range values are ignored
+        Object verifyObject = params.getProperties().get("flac.verify");
+        boolean verify = verifyObject instanceof Boolean ? (Boolean) verifyObject : true;
+        int blocksize = getInt(params, "flac.block.size", Format.FLAC__MIN_BLOCK_SIZE, Format.FLAC__MAX_BLOCK_SIZE);
+        Object apodizationObject = params.getProperties().get("flac.apodization");
+        String apodization = apodizationObject instanceof String ? (String) apodizationObject : null;
+        int maxLpcOrder = getInt(params, "flac.lpc.order.max", 0, Format.FLAC__MAX_LPC_ORDER);
+        // 0 selects the precision from the block size
+        int qlpCoeffPrecision = getInt(params, "flac.qlp.coeff.precision", 0, Format.FLAC__MAX_QLP_COEFF_PRECISION);
+        if (qlpCoeffPrecision > 0 && qlpCoeffPrecision < Format.FLAC__MIN_QLP_COEFF_PRECISION) qlpCoeffPrecision = -1;
+        Object exhaustiveObject = params.getProperties().get("flac.exhaustive.model.search");
+        int minPartitionOrder = getInt(params, "flac.rice.partition.order.min", 0, Format.FLAC__MAX_RICE_PARTITION_ORDER);
+        int maxPartitionOrder = getInt(params, "flac.rice.partition.order.max", 0, Format.FLAC__MAX_RICE_PARTITION_ORDER);
+        Object looseMidSideObject = params.getProperties().get("flac.mid.side.loose");
+        // the MD5 signature is updated by a pool thread instead of the encoding one
+        Object asyncMd5Object = params.getProperties().get("flac.md5.async");
+        // seconds between the seek points, the encoder fills them in only if it can seek back in the output
+        int seekInterval = getInt(params, "flac.seek.interval", 0, Integer.MAX_VALUE / sampleRate);
+        if (seekInterval < 0) seekInterval = 10;
+        long totalSamples = audioInputStream.getFrameLength();
+        boolean seekTable = seekInterval > 0 && totalSamples > 0 && out instanceof TSeekableDataOutputStream;
 
         StreamEncoder encoder = new StreamEncoder();
         boolean ok = true;
 
-        StreamMetadata[] metadata = new StreamMetadata[2];
+        StreamMetadata[] metadata = new StreamMetadata[seekTable ? 3 : 2];
 
-        ok &= encoder.set_verify(true);
+        ok &= encoder.set_verify(verify);
         ok &= encoder.set_compression_level(compressionLevel);
+        if (blocksize >= 0) ok &= encoder.set_blocksize(blocksize);
+        if (apodization != null) ok &= encoder.set_apodization(apodization);
+        if (maxLpcOrder >= 0) ok &= encoder.set_max_lpc_order(maxLpcOrder);
+        if (qlpCoeffPrecision >= 0) ok &= encoder.set_qlp_coeff_precision(qlpCoeffPrecision);
+        if (exhaustiveObject instanceof Boolean) ok &= encoder.set_do_exhaustive_model_search((Boolean) exhaustiveObject);
+        if (minPartitionOrder >= 0) ok &= encoder.set_min_residual_partition_order(minPartitionOrder);
+        if (maxPartitionOrder >= 0) ok &= encoder.set_max_residual_partition_order(maxPartitionOrder);
+        if (looseMidSideObject instanceof Boolean) ok &= encoder.set_loose_mid_side_stereo((Boolean) looseMidSideObject);
+        if (asyncMd5Object instanceof Boolean) ok &= encoder.set_async_md5((Boolean) asyncMd5Object);
         ok &= encoder.set_channels(channels);
         ok &= encoder.set_bits_per_sample(bps);
         ok &= encoder.set_sample_rate(sampleRate);
+        ok &= encoder.set_num_threads(threads) == StreamEncoder.FLAC__STREAM_ENCODER_SET_NUM_THREADS_OK;
         if (params.isOgg()) ok &= encoder.set_ogg_serial_number(ThreadLocalRandom.current().nextInt());
         //ok &= encoder.FLAC__stream_encoder_set_total_samples_estimate(total_samples);
 
         if (!ok) throw new IOException("Failed to initializing encoder");
 
         /* now add some metadata; we'll add some tags and a padding block */
+        int padding = metadata.length - 1;
         if ((metadata[0] = StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_VORBIS_COMMENT)) == null
-                || (metadata[1] = StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_PADDING)) == null) ok = false;
+                || (metadata[padding] = StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_PADDING)) == null) ok = false;
+        if (ok && seekTable) {
+            /* the points are templates until the encoder rewrites the table at the end, like flac -S 10s */
+            SeekTable table = (SeekTable) StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_SEEKTABLE);
+            ok = table != null
+                    && table.template_append_spaced_points_by_samples(seekInterval * sampleRate, totalSamples)
+                    && table.template_sort(true);
+            metadata[1] = table;
+        }
 
         if (ok) {
-            metadata[1].length = 4 + 4; /* set the padding length */
-            ok = encoder.set_metadata(metadata, 2);
+            metadata[padding].length = 4 + 4; /* set the padding length */
+            ok = encoder.set_metadata(metadata, metadata.length);
         }
         if (!ok) throw new IOException("Failed to initializing encoder");
 
@@ -146,42 +266,55 @@ public class FlacAudioFileWriter extends TAudioFileWriter
         else init_status = encoder.init_stream(this, this, this, null);
         if (init_status != StreamEncoder.FLAC__STREAM_ENCODER_INIT_STATUS_OK)
             throw new IOException("Failed to initializing encoder: " + StreamEncoder.FLAC__StreamEncoderInitStatusString[init_status]);
-        byte[] abBuffer = new byte[4096];
         bps >>>= 3;
-        int wide_samples = abBuffer.length / bps / channels;
+        int wide_samples = 4096 / bps / channels;
+        // whole frames only, so no sample is split between two reads
+        byte[] abBuffer = new byte[wide_samples * bps * channels];
         int[] pcm = new int[channels * wide_samples];
         int nBytesRead;
-        while (ok) {
-            if (TDebug.TraceAudioFileWriter) TDebug.out("trying to read (bytes): " + abBuffer.length);
-            nBytesRead = audioInputStream.read(abBuffer, 0, abBuffer.length);
-            if (nBytesRead < 0) break;
-            if (TDebug.TraceAudioFileWriter) TDebug.out("read (bytes): " + nBytesRead);
-            format_input(abBuffer, pcm, wide_samples, is_big_endian, is_unsigned, channels, bps);
-            ok = encoder.process_interleaved(pcm, nBytesRead / channels / bps);
-            if (TDebug.TraceAudioFileWriter) TDebug.out("write(byte[], int, int): end");
-        }
-        if (TDebug.TraceAudioFileWriter) TDebug.out("<TAudioFileWriter.writeImpl(): after main loop. Wrote " + writtenRef.get() + " bytes");
-
-        encoder.finish();
+        try {
+            while (true) {
+                if (TDebug.TraceAudioFileWriter) TDebug.out("trying to read (bytes): " + abBuffer.length);
+                nBytesRead = audioInputStream.read(abBuffer, 0, abBuffer.length);
+                if (nBytesRead < 0) break;
+                if (TDebug.TraceAudioFileWriter) TDebug.out("read (bytes): " + nBytesRead);
+                format_input(abBuffer, pcm, wide_samples, is_big_endian, is_unsigned, channels, bps);
+                // a false return is an encoder error, not the end of the input
+                if (!encoder.process_interleaved(pcm, nBytesRead / channels / bps))
+                    throw new IOException("Failed to encode: " + encoder.get_resolved_state_string());
+                if (TDebug.TraceAudioFileWriter) TDebug.out("write(byte[], int, int): end");
+            }
+            if (TDebug.TraceAudioFileWriter) TDebug.out("<TAudioFileWriter.writeImpl(): after main loop. Wrote " + writtenRef.get() + " bytes");
 
-        /* now that encoding is finished, the metadata can be freed */
-        StreamMetadata.delete(metadata[0]);
-        StreamMetadata.delete(metadata[1]);
+            if (!encoder.finish()) throw new IOException("Failed to encode: " + encoder.get_resolved_state_string());
+        }
+        finally {
+            /* now that encoding is finished, the metadata can be freed */
+            for (StreamMetadata block : metadata) StreamMetadata.delete(block);
 
-        encoder.delete();
+            encoder.delete();
 
-        if (out instanceof TNonSeekableDataOutputStream) {
-            ((TNonSeekableDataOutputStream) out).flush();
-        }
-        else if (out instanceof TSeekableDataOutputStream) {
-            out.close();
+            if (out instanceof TNonSeekableDataOutputStream) {
+                ((TNonSeekableDataOutputStream) out).flush();
+            }
+            else if (out instanceof TSeekableDataOutputStream) {
+                out.close();
+            }
+            outRef.remove();
         }
-        outRef.remove();
         // TODO: get bytes written for header etc. from AudioOutputStrem and add to nTotalWrittenBytes
         //return nTotalWritten;
         return writtenRef.get();
     }
 
+    // -1 if the property is not an Integer in [min, max]
+    private static int getInt(FlacAudioOutputParams params, String key, int min, int max) {
+        Object value = params.getProperties().get(key);
+        if (!(value instanceof Integer)) return -1;
+        int i = (Integer) value;
+        return i < min || i > max ? -1 : i;
+    }
+
     private static boolean format_input(byte[] scbuffer, int[] dest, int wide_samples, boolean is_big_endian, boolean is_unsigned_samples, int channels, int bytes_ps) {
         int wide_sample, sample, channel, ibyte;
         switch (bytes_ps) {
@@ -231,7 +364,8 @@ public class FlacAudioFileWriter extends TAudioFileWriter
                 }
                 break;
             case 3:
-                if (!is_big_endian) {
+                // java: the samples are assembled little-endian below, so big-endian input is swapped
+                if (is_big_endian) {
                     int bytes = wide_samples * channels * 3;
                     for (ibyte = 0; ibyte < bytes; ibyte += 3) {
                         byte tmp = scbuffer[ibyte];
@@ -261,6 +395,30 @@ public class FlacAudioFileWriter extends TAudioFileWriter
                     }
                 }
                 break;
+            case 4:
+                if (is_big_endian) {
+                    int bytes = (wide_samples * channels) << 2 /* (*bytes_ps) */;
+                    for (ibyte = 0; ibyte < bytes; ibyte += 4) {
+                        byte tmp = scbuffer[ibyte];
+                        scbuffer[ibyte] = scbuffer[ibyte + 3];
+                        scbuffer[ibyte + 3] = tmp;
+                        tmp = scbuffer[ibyte + 1];
+                        scbuffer[ibyte + 1] = scbuffer[ibyte + 2];
+                        scbuffer[ibyte + 2] = tmp;
+                    }
+                }
+                for (ibyte = wide_sample = 0; wide_sample < wide_samples; wide_sample ++) {
+                    for (channel = 0; channel < channels; channel ++) {
+                        int tmp = (int) scbuffer[ibyte ++] & 0xFF;
+                        tmp |= ((int) scbuffer[ibyte ++] & 0xFF) << 8;
+                        tmp |= ((int) scbuffer[ibyte ++] & 0xFF) << 16;
+                        tmp |= ((int) scbuffer[ibyte ++]) << 24;
+                        /* flipping the sign bit is the same as subtracting 0x80000000 without overflow */
+                        if (is_unsigned_samples) tmp ^= 0x80000000;
+                        dest[wide_sample * channels + channel] = tmp;
+                    }
+                }
+                break;
             default: return false;
         }
         return true;
@@ -298,7 +456,8 @@ public class FlacAudioFileWriter extends TAudioFileWriter
             }
             return StreamEncoder.FLAC__STREAM_ENCODER_SEEK_STATUS_OK;
         }
-        return StreamEncoder.FLAC__STREAM_ENCODER_SEEK_STATUS_ERROR;
+        // the STREAMINFO is then left as written first, not an error
+        return StreamEncoder.FLAC__STREAM_ENCODER_SEEK_STATUS_UNSUPPORTED;
     }
 
     @Override
@@ -1,7 +1,6 @@
 package io.github.jseproject;
 
 import javax.sound.sampled.AudioFileFormat;
-import java.util.Map;
 
 public class FlacFileFormatType extends AudioFileFormat.Type {
 
@@ -12,10 +11,4 @@ public class FlacFileFormatType extends AudioFileFormat.Type {
         super(name, extension);
     }
 
-    Map<String, Object> properties;
-    static AudioFileFormat.Type withProperties(AudioFileFormat.Type type, Map<String, Object> properties) {
-        if (type instanceof FlacFileFormatType) ((FlacFileFormatType) type).properties = properties;
-        return type;
-    }
-
 }
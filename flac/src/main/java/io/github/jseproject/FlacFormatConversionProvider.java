@@ -6,6 +6,7 @@ import javax.sound.sampled.spi.FormatConversionProvider;
 
 import org.tritonus.share.TDebug;
 import org.tritonus.share.sampled.AudioFormats;
+import org.xiph.flac.Format;
 
 public class FlacFormatConversionProvider extends FormatConversionProvider {
 
@@ -14,59 +15,24 @@ public class FlacFormatConversionProvider extends FormatConversionProvider {
 
     private static final AudioFormat.Encoding[] SOURCE_ENCODINGS = new AudioFormat.Encoding[] { FlacEncoding.FLAC };
     private static final AudioFormat.Encoding[] TARGET_ENCODINGS = new AudioFormat.Encoding[] { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED };
-    private static final AudioFormat[] TARGET_FORMATS = new AudioFormat[40 /* 80 */];
+    private static final AudioFormat[] TARGET_FORMATS = new AudioFormat[8 * 14];
     static {
-        for (int channels = 0; channels < 8; channels ++) {
-            TARGET_FORMATS[channels * 5] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                            -1.0f, 8, channels + 1, (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 5 + 1] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                            -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 5 + 2] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                            -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 5 + 3] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                            -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 5 + 4] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                            -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, false);
-        }
-        /*
-        for (int channels = 0; channels < 8; channels ++) {
-            TARGET_FORMATS[channels * 10] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                            -1.0f, 8, channels + 1, (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 10 + 1] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                            -1.0f, 8, channels + 1, (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 10 + 2] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                    -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 10 + 3] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                    -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 10 + 4] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                    -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 10 + 5] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                    -1.0f, 16, channels + 1, 2 * (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 10 + 6] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                    -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 10 + 7] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                    -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, false);
-            TARGET_FORMATS[channels * 10 + 8] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                    -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, true);
-            TARGET_FORMATS[channels * 10 + 9] =
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
-                    -1.0f, 24, channels + 1, 3 * (channels + 1), -1.0f, false);
+        // samples of other sizes are scaled, e.g. 20 bits to 24 bits
+        int index = 0;
+        for (int channels = 1; channels <= 8; channels ++) {
+            TARGET_FORMATS[index ++] = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                    -1.0f, 8, channels, channels, -1.0f, false);
+            TARGET_FORMATS[index ++] = new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED,
+                    -1.0f, 8, channels, channels, -1.0f, false);
+            for (int bits = 16; bits <= 32; bits += 8) {
+                for (AudioFormat.Encoding encoding : new AudioFormat.Encoding[] {AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED}) {
+                    TARGET_FORMATS[index ++] = new AudioFormat(encoding,
+                            -1.0f, bits, channels, bits / 8 * channels, -1.0f, true);
+                    TARGET_FORMATS[index ++] = new AudioFormat(encoding,
+                            -1.0f, bits, channels, bits / 8 * channels, -1.0f, false);
+                }
+            }
         }
-         */
     }
 
     @Override
@@ -85,16 +51,15 @@ public class FlacFormatConversionProvider extends FormatConversionProvider {
         else return EMPTY_ENCODING_ARRAY;
     }
 
+    // the range of the FLAC format, PCM samples are whole bytes
     static boolean checkFormat(AudioFormat format) {
         int sampleRate = (int) format.getSampleRate();
-        if (sampleRate < 1 || sampleRate > 48000) return false;
+        if (sampleRate < 1 || sampleRate > Format.FLAC__MAX_SAMPLE_RATE) return false;
         int channels = format.getChannels();
         if (channels < 1 || channels > 8) return false;
-        switch (format.getSampleSizeInBits()) {
-            case 8: case 16: case 24: break;
-            default: return false;
-        }
-        return true;
+        int bits = format.getSampleSizeInBits();
+        if (bits < Format.FLAC__MIN_BITS_PER_SAMPLE || bits > Format.FLAC__MAX_BITS_PER_SAMPLE) return false;
+        return FlacEncoding.FLAC.equals(format.getEncoding()) || (bits & 7) == 0;
     }
 
     protected boolean isAllowedSourceFormat(AudioFormat sourceFormat) {
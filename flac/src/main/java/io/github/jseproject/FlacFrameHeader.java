@@ -0,0 +1,116 @@
+package io.github.jseproject;
+
+/**
+ * Recognizes FLAC frame headers in raw bytes, to find the frame boundaries of a stream without decoding it.
+ * A frame starts with a sync code and a header with a valid CRC-8, the fields of the last header recognized are kept.
+ */
+final class FlacFrameHeader {
+
+    // sync, codes, UTF-8 number, block size, sample rate and CRC-8
+    static final int MAX_LENGTH = 2 + 2 + 7 + 2 + 2 + 1;
+
+    private static final int[] CRC16_TABLE = new int[256];
+    static {
+        for (int i = 0; i < 256; i ++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit ++) crc = (crc & 0x8000) != 0 ? (crc << 1 ^ 0x8005) & 0xFFFF : crc << 1;
+            CRC16_TABLE[i] = crc;
+        }
+    }
+
+    boolean variable;
+    // the frame number, or the sample number of a variable block size stream
+    long number;
+    int blocksize;
+    int sampleRateCode;
+    int bpsCode;
+
+    static boolean isSync(byte[] w, int i) {
+        return w[i] == (byte) 0xFF && (w[i + 1] & 0xFE) == 0xF8;
+    }
+
+    /**
+     * Validates the frame header at {@code w[i]} and keeps its fields. Unless {@code first}, the header must
+     * agree with the last one on the blocking strategy, sample rate and sample size.
+     *
+     * @param end the end of the bytes in {@code w}
+     */
+    boolean parse(byte[] w, int i, int end, boolean first) {
+        int p = i + 4;
+        if (p >= end) return false;
+        boolean variable = (w[i + 1] & 0x01) != 0;
+        int blocksizeCode = (w[i + 2] & 0xF0) >>> 4;
+        int sampleRateCode = w[i + 2] & 0x0F;
+        int channelAssignment = (w[i + 3] & 0xF0) >>> 4;
+        int bpsCode = (w[i + 3] & 0x0E) >>> 1;
+        if (blocksizeCode == 0 || sampleRateCode == 15 || channelAssignment > 10 || bpsCode == 3 || (w[i + 3] & 0x01) != 0)
+            return false;
+        if (!first && (variable != this.variable || sampleRateCode != this.sampleRateCode || bpsCode != this.bpsCode))
+            return false;
+        // UTF-8 coded frame or sample number
+        int x = w[p ++] & 0xFF;
+        long number;
+        int continuation;
+        if ((x & 0x80) == 0) { number = x; continuation = 0; }
+        else if ((x & 0xE0) == 0xC0) { number = x & 0x1F; continuation = 1; }
+        else if ((x & 0xF0) == 0xE0) { number = x & 0x0F; continuation = 2; }
+        else if ((x & 0xF8) == 0xF0) { number = x & 0x07; continuation = 3; }
+        else if ((x & 0xFC) == 0xF8) { number = x & 0x03; continuation = 4; }
+        else if ((x & 0xFE) == 0xFC) { number = x & 0x01; continuation = 5; }
+        else if (x == 0xFE && variable) { number = 0; continuation = 6; }
+        else return false;
+        if (p + continuation >= end) return false;
+        for (; continuation > 0; continuation --) {
+            x = w[p ++] & 0xFF;
+            if ((x & 0xC0) != 0x80) return false;
+            number = number << 6 | x & 0x3F;
+        }
+        int blocksize;
+        if (blocksizeCode == 1) blocksize = 192;
+        else if (blocksizeCode <= 5) blocksize = 576 << (blocksizeCode - 2);
+        else if (blocksizeCode == 6) {
+            if (p >= end) return false;
+            blocksize = (w[p ++] & 0xFF) + 1;
+        }
+        else if (blocksizeCode == 7) {
+            if (p + 1 >= end) return false;
+            blocksize = ((w[p] & 0xFF) << 8 | w[p + 1] & 0xFF) + 1;
+            p += 2;
+        }
+        else blocksize = 256 << (blocksizeCode - 8);
+        if (sampleRateCode == 12) p ++;
+        else if (sampleRateCode == 13 || sampleRateCode == 14) p += 2;
+        if (p >= end || crc8(w, i, p) != (w[p] & 0xFF)) return false;
+        this.variable = variable;
+        this.number = number;
+        this.blocksize = blocksize;
+        this.sampleRateCode = sampleRateCode;
+        this.bpsCode = bpsCode;
+        return true;
+    }
+
+    /**
+     * @return the number the header of the frame after this one carries
+     */
+    long nextNumber() {
+        return variable ? number + blocksize : number + 1;
+    }
+
+    static int crc8(byte[] data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i ++) {
+            crc ^= data[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit ++) crc = (crc & 0x80) != 0 ? (crc << 1 ^ 0x07) & 0xFF : crc << 1;
+        }
+        return crc;
+    }
+
+    /**
+     * Continues the CRC-16 of a frame, which its footer holds, with {@code data[from]} to {@code data[to - 1]}.
+     */
+    static int crc16(int crc, byte[] data, int from, int to) {
+        for (int i = from; i < to; i ++) crc = (crc << 8 & 0xFFFF) ^ CRC16_TABLE[(crc >>> 8) ^ (data[i] & 0xFF)];
+        return crc;
+    }
+
+}
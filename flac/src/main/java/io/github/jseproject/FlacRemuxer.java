@@ -0,0 +1,353 @@
+package io.github.jseproject;
+
+import org.xiph.flac.OggPacket;
+import org.xiph.flac.OggPage;
+import org.xiph.flac.OggStreamState;
+import org.xiph.flac.OggSyncState;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Moves FLAC streams between the native and the Ogg container without decoding them. The metadata blocks and
+ * frames are copied as they are, one Ogg packet each, following the Ogg FLAC mapping the encoder writes: the first
+ * packet carries the mapping header, "fLaC" and STREAMINFO, the granule position of a frame is the number of
+ * samples up to its end. The frame boundaries of a native stream are found from the frame headers and checked
+ * with the CRC-16 of each frame.
+ * <p>
+ * A SEEKTABLE is dropped going to Ogg, its offsets point into the native stream.
+ */
+public final class FlacRemuxer {
+
+    private static final byte[] MAPPING_HEADER = { 0x7F, 'F', 'L', 'A', 'C', 1, 0 };
+    // the mapping header, the number of header packets and "fLaC"
+    private static final int FIRST_PACKET_PREFIX_LENGTH = MAPPING_HEADER.length + 2 + 4;
+    private static final int METADATA_TYPE_STREAMINFO = 0;
+    private static final int METADATA_TYPE_SEEKTABLE = 3;
+    private static final int STREAMINFO_LENGTH = 34;
+    private static final int ID3V1_LENGTH = 128;
+
+    private FlacRemuxer() {
+    }
+
+    /**
+     * Copies a native FLAC stream into an Ogg FLAC stream with a random serial number.
+     *
+     * @return the number of bytes written
+     */
+    public static long toOgg(InputStream in, OutputStream out) throws IOException {
+        return toOgg(in, out, ThreadLocalRandom.current().nextInt());
+    }
+
+    /**
+     * Copies a native FLAC stream, which may start with an ID3v2 tag, into an Ogg FLAC stream.
+     *
+     * @return the number of bytes written
+     * @throws IOException if the stream is not native FLAC or its frames cannot be delimited
+     */
+    public static long toOgg(InputStream in, OutputStream out, int serialNumber) throws IOException {
+        byte[] magic = readFully(in, 4);
+        if (magic[0] == 'I' && magic[1] == 'D' && magic[2] == '3') {
+            byte[] header = readFully(in, 6);
+            int size = (header[2] & 0x7F) << 21 | (header[3] & 0x7F) << 14 | (header[4] & 0x7F) << 7 | header[5] & 0x7F;
+            // a footer repeats the header
+            skipFully(in, (header[1] & 0x10) != 0 ? size + 10 : size);
+            magic = readFully(in, 4);
+        }
+        if (magic[0] != 'f' || magic[1] != 'L' || magic[2] != 'a' || magic[3] != 'C') throw new IOException("Not a native FLAC stream");
+
+        List<byte[]> blocks = new ArrayList<>();
+        boolean last;
+        do {
+            byte[] header = readFully(in, 4);
+            last = (header[0] & 0x80) != 0;
+            int type = header[0] & 0x7F;
+            int length = (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | header[3] & 0xFF;
+            if (blocks.isEmpty() && (type != METADATA_TYPE_STREAMINFO || length != STREAMINFO_LENGTH))
+                throw new IOException("No STREAMINFO block");
+            byte[] block = Arrays.copyOf(header, 4 + length);
+            if (length > 0) readFully(in, block, 4, length);
+            if (type != METADATA_TYPE_SEEKTABLE) blocks.add(block);
+        } while (!last);
+        for (int i = 0; i < blocks.size(); i ++) {
+            if (i == blocks.size() - 1) blocks.get(i)[0] |= (byte) 0x80;
+            else blocks.get(i)[0] &= 0x7F;
+        }
+
+        byte[] streamInfo = blocks.get(0);
+        int numHeaders = blocks.size() - 1;
+        if (numHeaders > 0xFFFF) throw new IOException("Too many metadata blocks");
+        byte[] first = new byte[FIRST_PACKET_PREFIX_LENGTH + streamInfo.length];
+        System.arraycopy(MAPPING_HEADER, 0, first, 0, MAPPING_HEADER.length);
+        first[MAPPING_HEADER.length] = (byte) (numHeaders >>> 8);
+        first[MAPPING_HEADER.length + 1] = (byte) numHeaders;
+        System.arraycopy(magic, 0, first, MAPPING_HEADER.length + 2, 4);
+        System.arraycopy(streamInfo, 0, first, FIRST_PACKET_PREFIX_LENGTH, streamInfo.length);
+        blocks.set(0, first);
+
+        int maxFrameSize = (streamInfo[4 + 7] & 0xFF) << 16 | (streamInfo[4 + 8] & 0xFF) << 8 | streamInfo[4 + 9] & 0xFF;
+        FrameReader frames = new FrameReader(in, maxFrameSize);
+        OggWriter writer = new OggWriter(out, serialNumber);
+        int frameLength = frames.next();
+        for (int i = 0; i < blocks.size(); i ++) {
+            byte[] block = blocks.get(i);
+            // the mapping wants the metadata flushed before the first frame
+            writer.packet(block, 0, block.length, 0, i == 0, frameLength < 0 && i == blocks.size() - 1, true);
+        }
+        long samples = 0;
+        while (frameLength >= 0) {
+            samples += frames.blocksize;
+            int length = frameLength;
+            // the end of the stream is known only after looking for the next frame
+            frames.take(length);
+            frameLength = frames.next();
+            writer.packet(frames.window, frames.taken, length, samples, false, frameLength < 0, false);
+        }
+        writer.flush();
+        return writer.written;
+    }
+
+    /**
+     * Copies the first logical FLAC stream of an Ogg stream into a native FLAC stream.
+     *
+     * @return the number of bytes written
+     * @throws IOException if the stream is not Ogg FLAC or pages are missing
+     */
+    public static long toNative(InputStream in, OutputStream out) throws IOException {
+        OggSyncState sync = new OggSyncState();
+        OggStreamState stream = new OggStreamState();
+        OggPage page = new OggPage();
+        OggPacket packet = new OggPacket();
+        sync.init();
+        long written = 0;
+        boolean started = false;
+        boolean first = true;
+        boolean audio = false;
+        // held back until it is known whether it is the last metadata block
+        byte[] metadata = null;
+        boolean eos = false;
+        while (!eos) {
+            int ret = sync.pageout(page);
+            if (ret == 0) {
+                int offset = sync.buffer(8192);
+                int n = in.read(sync.data, offset, 8192);
+                if (n < 0) break;
+                sync.wrote(n);
+                continue;
+            }
+            if (ret < 0) continue;
+            if (!started) {
+                stream.init(page.serialno());
+                started = true;
+            }
+            // pages of other logical streams
+            if (stream.pagein(page) != 0) continue;
+            eos = page.eos();
+            while ((ret = stream.packetout(packet)) != 0) {
+                if (ret < 0) throw new IOException("Ogg FLAC pages missing");
+                byte[] data = packet.packet_base;
+                int offset = packet.packet;
+                int bytes = packet.bytes;
+                if (first) {
+                    first = false;
+                    if (bytes < FIRST_PACKET_PREFIX_LENGTH + 4 + STREAMINFO_LENGTH || data[offset] != MAPPING_HEADER[0] ||
+                            data[offset + 1] != 'F' || data[offset + 2] != 'L' || data[offset + 3] != 'A' || data[offset + 4] != 'C')
+                        throw new IOException("Not an Ogg FLAC stream");
+                    if (data[offset + 5] != 1) throw new IOException("Unsupported Ogg FLAC mapping version " + (data[offset + 5] & 0xFF));
+                    offset += MAPPING_HEADER.length + 2;
+                    out.write(data, offset, 4);
+                    written += 4;
+                    metadata = Arrays.copyOfRange(data, offset + 4, offset + bytes - MAPPING_HEADER.length - 2);
+                }
+                else if (!audio && bytes > 0 && data[offset] != (byte) 0xFF) {
+                    if (metadata != null) written += writeBlock(out, metadata, false);
+                    metadata = Arrays.copyOfRange(data, offset, offset + bytes);
+                }
+                else if (metadata == null && !audio) {
+                    throw new IOException("Not an Ogg FLAC stream");
+                }
+                else {
+                    if (!audio) {
+                        written += writeBlock(out, metadata, true);
+                        metadata = null;
+                        audio = true;
+                    }
+                    out.write(data, offset, bytes);
+                    written += bytes;
+                }
+            }
+        }
+        if (!started) throw new IOException("Not an Ogg stream");
+        if (metadata != null) written += writeBlock(out, metadata, true);
+        return written;
+    }
+
+    private static int writeBlock(OutputStream out, byte[] block, boolean last) throws IOException {
+        if (last) block[0] |= (byte) 0x80;
+        else block[0] &= 0x7F;
+        out.write(block);
+        return block.length;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] b = new byte[length];
+        readFully(in, b, 0, length);
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] b, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = in.read(b, offset, length);
+            if (n < 0) throw new EOFException();
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long n = in.skip(length);
+            if (n <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                n = 1;
+            }
+            length -= n;
+        }
+    }
+
+    // the frames of a native stream, delimited by the next valid frame header carrying the expected number
+    private static final class FrameReader {
+
+        private final InputStream in;
+        private final long maxFrameLength;
+        private final FlacFrameHeader header = new FlacFrameHeader();
+        private boolean first = true;
+        private boolean eof;
+        byte[] window = new byte[1 << 16];
+        private int windowLength;
+        // the start of the frame looked at by next(), the indices in next() are relative to it
+        private int position;
+        // the start of the frame taken last, it stays in the window until the next take()
+        int taken;
+        // the block size of the frame returned last
+        int blocksize;
+
+        FrameReader(InputStream in, int maxFrameSize) {
+            this.in = in;
+            // without a frame size in STREAMINFO, the size of a verbatim frame of the largest block size
+            maxFrameLength = maxFrameSize != 0 ? maxFrameSize : 65536L * 8 * 5 + 1024;
+        }
+
+        // the length of the frame at the position, -1 at the end of the stream
+        int next() throws IOException {
+            if (!fill(1)) return -1;
+            if (!fill(2) || !FlacFrameHeader.isSync(window, position) || !parse(0, first))
+                throw new IOException("FLAC frame header expected");
+            first = false;
+            blocksize = header.blocksize;
+            long expected = header.nextNumber();
+            int crc = 0;
+            int checked = 0;
+            for (int i = 1; fill(i + 2); i ++) {
+                if (i > maxFrameLength) throw new IOException("Lost sync after frame " + header.number);
+                if (FlacFrameHeader.isSync(window, position + i) && parse(i, false) && header.number == expected && i >= 2) {
+                    crc = FlacFrameHeader.crc16(crc, window, position + checked, position + i - 2);
+                    checked = i - 2;
+                    if (crc == ((window[position + i - 2] & 0xFF) << 8 | window[position + i - 1] & 0xFF)) return i;
+                }
+            }
+            // the last frame, possibly followed by an ID3v1 tag
+            int length = windowLength - position;
+            crc = FlacFrameHeader.crc16(crc, window, position + checked, windowLength - 2);
+            if (matchesFooter(crc, length)) return length;
+            int end = length - ID3V1_LENGTH;
+            if (end > 2 && window[position + end] == 'T' && window[position + end + 1] == 'A' && window[position + end + 2] == 'G' &&
+                    matchesFooter(FlacFrameHeader.crc16(0, window, position, position + end - 2), end)) {
+                windowLength = position + end;
+                return end;
+            }
+            throw new IOException("Last FLAC frame damaged");
+        }
+
+        // moves past the frame returned last, it is then at taken
+        void take(int length) {
+            taken = position;
+            position += length;
+        }
+
+        private boolean matchesFooter(int crc, int end) {
+            return end >= 2 && crc == ((window[position + end - 2] & 0xFF) << 8 | window[position + end - 1] & 0xFF);
+        }
+
+        private boolean parse(int i, boolean first) throws IOException {
+            fill(i + FlacFrameHeader.MAX_LENGTH);
+            return header.parse(window, position + i, windowLength, first);
+        }
+
+        // reads until the window holds length bytes from the position or the end of the stream
+        private boolean fill(int length) throws IOException {
+            while (windowLength - position < length && !eof) {
+                if (windowLength == window.length) {
+                    // the bytes before the frame taken last are done with, grow if that frame and the next fill the window
+                    if (taken > 0) {
+                        System.arraycopy(window, taken, window, 0, windowLength - taken);
+                        windowLength -= taken;
+                        position -= taken;
+                        taken = 0;
+                    }
+                    else window = Arrays.copyOf(window, window.length * 2);
+                }
+                int n = in.read(window, windowLength, window.length - windowLength);
+                if (n < 0) eof = true;
+                else windowLength += n;
+            }
+            return windowLength - position >= length;
+        }
+
+    }
+
+    private static final class OggWriter {
+
+        private final OutputStream out;
+        private final OggStreamState stream = new OggStreamState();
+        private final OggPage page = new OggPage();
+        private final OggPacket packet = new OggPacket();
+        long written;
+
+        OggWriter(OutputStream out, int serialNumber) {
+            this.out = out;
+            stream.init(serialNumber);
+        }
+
+        void packet(byte[] data, int offset, int bytes, long granulepos, boolean bos, boolean eos, boolean flush) throws IOException {
+            packet.clear();
+            packet.packet_base = data;
+            packet.packet = offset;
+            packet.bytes = bytes;
+            packet.granulepos = granulepos;
+            packet.b_o_s = bos;
+            packet.e_o_s = eos;
+            if (stream.packetin(packet) != 0) throw new IOException("Ogg packet rejected");
+            if (flush) flush();
+            else while (stream.pageout(page) != 0) write();
+        }
+
+        void flush() throws IOException {
+            while (stream.flush(page) != 0) write();
+        }
+
+        private void write() throws IOException {
+            out.write(page.header_base, page.header, page.header_len);
+            out.write(page.body_base, page.body, page.body_len);
+            written += page.header_len + page.body_len;
+        }
+
+    }
+
+}
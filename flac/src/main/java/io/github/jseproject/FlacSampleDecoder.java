@@ -0,0 +1,160 @@
+package io.github.jseproject;
+
+import org.tritonus.share.TDebug;
+import org.xiph.flac.Frame;
+import org.xiph.flac.StreamDecoder;
+import org.xiph.flac.StreamInfo;
+import org.xiph.flac.StreamMetadata;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Decodes a native or Ogg FLAC stream frame by frame into a {@link FlacSampleSink}, handing over the decoder's
+ * own sample arrays. For analysis which works on integer samples, e.g. fingerprinting or loudness measurement,
+ * this skips packing the samples into the bytes of an {@code AudioInputStream} and unpacking them again.
+ * <pre>{@code
+ * try (FlacSampleDecoder decoder = new FlacSampleDecoder(file, (channels, offset, blocksize, header) -> {
+ *     for (int i = offset; i < offset + blocksize; i ++) meter.add(channels[0][i], channels[1][i]);
+ * })) {
+ *     decoder.decodeAll();
+ * }
+ * }</pre>
+ */
+public class FlacSampleDecoder implements Closeable {
+
+    private final InputStream source;
+    private final boolean seekable;
+    private final FlacSampleSink sink;
+    private StreamDecoder decoder;
+    private StreamInfo info;
+    private String error;
+
+    /**
+     * Opens a file, which also allows seeking.
+     */
+    public FlacSampleDecoder(File file, FlacSampleSink sink) throws UnsupportedAudioFileException, IOException {
+        this(SeekableInputStream.open(file), sink);
+    }
+
+    /**
+     * Decodes a stream, which is closed by {@link #close()}. A {@link SeekableInputStream} allows seeking.
+     */
+    public FlacSampleDecoder(InputStream stream, FlacSampleSink sink) throws UnsupportedAudioFileException, IOException {
+        this.sink = Objects.requireNonNull(sink, "sink");
+        seekable = stream instanceof SeekableInputStream;
+        source = stream.markSupported() ? stream : new BufferedInputStream(stream);
+        decoder = new StreamDecoder();
+        try {
+            FormatSniffer.Format format = FormatSniffer.sniff(source);
+            if (format != FormatSniffer.Format.FLAC && format != FormatSniffer.Format.OGG_FLAC)
+                throw new UnsupportedAudioFileException("Not a FLAC stream");
+            int init_status = format == FormatSniffer.Format.OGG_FLAC
+                    ? decoder.init_ogg_FILE(source, this::write, this::metadata, this::error)
+                    : decoder.init_FILE(source, this::write, this::metadata, this::error);
+            if (init_status != StreamDecoder.FLAC__STREAM_DECODER_INIT_STATUS_OK)
+                throw new IOException(StreamDecoder.FLAC__StreamDecoderInitStatusString[init_status]);
+            if (!decoder.process_until_end_of_metadata() || info == null)
+                throw new UnsupportedAudioFileException("No FLAC stream info: " + decoder.get_resolved_state_string());
+        }
+        catch (UnsupportedAudioFileException | IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getSampleRate() {
+        return info.sample_rate;
+    }
+
+    public int getChannels() {
+        return info.channels;
+    }
+
+    public int getBitsPerSample() {
+        return info.bits_per_sample;
+    }
+
+    /**
+     * @return the number of samples per channel, 0 if the stream info does not tell
+     */
+    public long getTotalSamples() {
+        return info.total_samples;
+    }
+
+    /**
+     * Decodes the next frame into the sink.
+     *
+     * @return {@code false} at the end of the stream
+     * @throws IOException if the stream is corrupt or cannot be read
+     */
+    public boolean decodeFrame() throws IOException {
+        if (decoder == null) throw new IOException("Decoder closed");
+        boolean ok = decoder.process_single();
+        if (error != null) {
+            String message = error;
+            error = null;
+            throw new IOException(message);
+        }
+        if (!ok) throw new IOException("decoding failed: " + decoder.get_resolved_state_string());
+        return decoder.get_state() != StreamDecoder.FLAC__STREAM_DECODER_END_OF_STREAM;
+    }
+
+    /**
+     * Decodes the frames up to the end of the stream into the sink.
+     */
+    public void decodeAll() throws IOException {
+        while (decodeFrame()) {
+        }
+    }
+
+    public boolean isSeekable() {
+        return seekable && decoder != null;
+    }
+
+    /**
+     * Positions the decoder at a sample and writes the rest of the frame holding it to the sink.
+     *
+     * @param sample the number of the sample per channel, from 0
+     */
+    public void seek(long sample) throws IOException {
+        if (!isSeekable()) throw new IOException("stream is not seekable");
+        error = null;
+        if (!decoder.seek_absolute(sample)) {
+            String state = decoder.get_resolved_state_string();
+            // a failed seek leaves the decoder unusable until flushed
+            if (decoder.get_state() == StreamDecoder.FLAC__STREAM_DECODER_SEEK_ERROR) decoder.flush();
+            throw new IOException("seek failed: " + state);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (decoder != null) {
+            decoder.delete(false);
+            decoder = null;
+        }
+        source.close();
+    }
+
+    private void metadata(StreamDecoder decoder, StreamMetadata metadata) {
+        if (metadata instanceof StreamInfo) info = (StreamInfo) metadata;
+    }
+
+    private int write(StreamDecoder decoder, Frame frame, int[][] buffer, int offset) {
+        sink.samples(buffer, offset, frame.header.blocksize, frame.header);
+        return StreamDecoder.FLAC__STREAM_DECODER_WRITE_STATUS_CONTINUE;
+    }
+
+    private void error(StreamDecoder decoder, int status) {
+        if (TDebug.TraceAudioConverter) TDebug.out(StreamDecoder.FLAC__StreamDecoderErrorStatusString[status]);
+        // the decoder goes on with the next frame, the caller learns about the damage from decodeFrame()
+        if (error == null) error = StreamDecoder.FLAC__StreamDecoderErrorStatusString[status];
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.github.jseproject;
+
+import org.xiph.flac.FrameHeader;
+
+/**
+ * Receives the frames of a {@link FlacSampleDecoder} as the decoder produced them, one {@code int} array
+ * per channel, without interleaving or packing them into bytes.
+ */
+public interface FlacSampleSink {
+
+    /**
+     * Called once per decoded frame. The arrays and the header are reused for the next frame, copy what
+     * has to be kept.
+     *
+     * @param channels  the samples of each channel, in the channel order of the FLAC format,
+     *                  right-justified to {@code header.bits_per_sample} bits
+     * @param offset    the index of the first sample in each array, not 0 for the frame a seek ended in
+     * @param blocksize the number of samples per channel
+     * @param header    the frame header, {@code header.sample_number} is the number of the first sample
+     */
+    void samples(int[][] channels, int offset, int blocksize, FrameHeader header);
+
+}
@@ -0,0 +1,150 @@
+package io.github.jseproject;
+
+import org.xiph.flac.Format;
+import org.xiph.flac.MetadataChain;
+import org.xiph.flac.MetadataIterator;
+import org.xiph.flac.StreamMetadata;
+import org.xiph.flac.VorbisComment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Updates the tags and pictures of a native FLAC file without decoding it. The metadata blocks are rewritten in
+ * place when the PADDING block after them absorbs the change in size, so the audio is not touched. Otherwise the
+ * file is copied with the new blocks and {@link #PADDING} bytes of padding, which lets later edits fit in place.
+ */
+public final class FlacTagEditor {
+
+    /**
+     * The padding left after the metadata when a file has to be copied.
+     */
+    public static final int PADDING = 8192;
+
+    private FlacTagEditor() {
+    }
+
+    /**
+     * A PICTURE block, see the FLAC format specification for the fields.
+     */
+    public static final class Picture {
+
+        private final int type;
+        private final String mimeType;
+        private final String description;
+        private final int width;
+        private final int height;
+        private final int depth;
+        private final int colors;
+        private final byte[] data;
+
+        /**
+         * @param type   the picture type, e.g. 3 for the front cover
+         * @param colors the number of colors of an indexed image, 0 otherwise
+         */
+        public Picture(int type, String mimeType, String description, int width, int height, int depth, int colors, byte[] data) {
+            this.type = type;
+            this.mimeType = Objects.requireNonNull(mimeType, "mimeType");
+            this.description = description == null ? "" : description;
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+            this.colors = colors;
+            this.data = Objects.requireNonNull(data, "data");
+        }
+
+    }
+
+    /**
+     * Sets Vorbis comment fields, see {@link #update(File, Map, List)}.
+     */
+    public static boolean update(File file, Map<String, String> tags) throws IOException {
+        return update(file, tags, null);
+    }
+
+    /**
+     * Sets Vorbis comment fields and replaces the pictures of a file.
+     *
+     * @param tags     each field replaces all values of the field, matched ignoring case; a {@code null} value
+     *                 removes the field. Fields which are not mentioned are kept.
+     * @param pictures the pictures replacing all PICTURE blocks, {@code null} keeps them
+     * @return {@code true} if the metadata was rewritten in place, {@code false} if the file was copied
+     * @throws IOException if the file is not a native FLAC file or cannot be rewritten
+     */
+    public static boolean update(File file, Map<String, String> tags, List<Picture> pictures) throws IOException {
+        for (String name : tags.keySet()) {
+            if (!isLegalFieldName(name)) throw new IllegalArgumentException("Illegal Vorbis comment field name: " + name);
+        }
+        MetadataChain chain = new MetadataChain();
+        if (!chain.read(file.getPath())) throw new IOException(file + ": " + MetadataChain.FLAC__Metadata_ChainStatusString[chain.status()]);
+
+        MetadataIterator iterator = new MetadataIterator();
+        iterator.init(chain);
+        VorbisComment comment = null;
+        do {
+            int type = iterator.get_block_type();
+            if (type == Format.FLAC__METADATA_TYPE_VORBIS_COMMENT && comment == null) comment = (VorbisComment) iterator.get_block();
+            // deleting steps back, the next block follows
+            else if (type == Format.FLAC__METADATA_TYPE_PICTURE && pictures != null) iterator.delete_block(false);
+        } while (iterator.next());
+        iterator.init(chain);
+        if (comment == null) {
+            comment = (VorbisComment) StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_VORBIS_COMMENT);
+            // right after STREAMINFO, where players look first
+            iterator.insert_block_after(comment);
+        }
+        else {
+            while (iterator.get_block() != comment) iterator.next();
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            boolean ok = tag.getValue() == null
+                    ? comment.remove_entries_matching(tag.getKey()) >= 0
+                    : comment.replace_comment(VorbisComment.entry_from_name_value_pair(tag.getKey(), tag.getValue()), true, false);
+            if (!ok) throw new IOException("Failed to set " + tag.getKey());
+        }
+        if (pictures != null) {
+            for (Picture picture : pictures) iterator.insert_block_after(toBlock(picture));
+        }
+
+        boolean inPlace = !chain.check_if_tempfile_needed(true);
+        if (!inPlace) {
+            // the whole file is copied anyway, one padding block at the end makes room for the next edit
+            chain.sort_padding();
+            iterator.init(chain);
+            while (iterator.next()) {
+            }
+            if (iterator.get_block_type() == Format.FLAC__METADATA_TYPE_PADDING) iterator.delete_block(false);
+            StreamMetadata padding = StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_PADDING);
+            padding.length = PADDING;
+            iterator.insert_block_after(padding);
+        }
+        if (!chain.write(inPlace, true)) throw new IOException(file + ": " + MetadataChain.FLAC__Metadata_ChainStatusString[chain.status()]);
+        return inPlace;
+    }
+
+    private static org.xiph.flac.Picture toBlock(Picture picture) {
+        org.xiph.flac.Picture block = (org.xiph.flac.Picture) StreamMetadata.metadata_new(Format.FLAC__METADATA_TYPE_PICTURE);
+        block.set_picture_type(picture.type);
+        block.set_mime_type(picture.mimeType, false);
+        block.set_description(picture.description, false);
+        block.set_dimensions(picture.width, picture.height, picture.depth, picture.colors);
+        block.set_data(picture.data, picture.data.length, false);
+        String violation = block.is_legal();
+        if (violation != null) throw new IllegalArgumentException(violation);
+        return block;
+    }
+
+    // printable ASCII but '='
+    private static boolean isLegalFieldName(String name) {
+        if (name.isEmpty()) return false;
+        for (int i = 0; i < name.length(); i ++) {
+            char c = name.charAt(i);
+            if (c < 0x20 || c > 0x7d || c == '=') return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,360 @@
+package io.github.jseproject;
+
+import org.xiph.flac.Frame;
+import org.xiph.flac.StreamDecoder;
+import org.xiph.flac.StreamDecoderErrorCallback;
+import org.xiph.flac.StreamDecoderWriteCallback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes the frames of a native FLAC file on several threads.
+ * <p>
+ * The reading thread scans ahead for the frame boundaries, a frame starts with a sync code and a header with
+ * a valid CRC-8 carrying the next frame or sample number. Runs of frames are decoded by worker decoders fed with
+ * the STREAMINFO block and these frames only, and are returned in stream order. The MD5 signature is updated with
+ * the returned samples and checked at the end of the stream.
+ */
+final class ParallelFlacDecoder implements Closeable {
+
+    // "fLaC", the block header and the STREAMINFO block
+    private static final int STREAM_HEADER_LENGTH = 4 + 4 + 34;
+    // samples decoded by a worker at once
+    private static final int BATCH_SAMPLES = 65536;
+
+    private final SeekableInputStream source;
+    private final byte[] streamHeader;
+    private final byte[] md5sum;
+    private final AudioFormat format;
+    private final long maxFrameLength;
+    private final DecoderPool<List<Integer>, StreamDecoder> decoders;
+    private final List<Integer> decoderKey;
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final ArrayDeque<Future<Batch>> pending = new ArrayDeque<>();
+    private MessageDigest md5;
+    // where the main decoder left the source, the seek routine takes its position from there
+    private long decoderPosition;
+
+    // bytes of the source from windowStart, the frames of the batch being scanned
+    private byte[] window = new byte[1 << 18];
+    private long windowStart;
+    private int windowLength;
+    private boolean eof;
+    private boolean done;
+    private boolean lostSync;
+
+    // the frame at position
+    private long position;
+    private final FlacFrameHeader header = new FlacFrameHeader();
+
+    /**
+     * @param streamHeader the stream header returned by {@link #readStreamHeader(SeekableInputStream)}
+     * @param audioOffset the position of the first frame in {@code source}
+     */
+    ParallelFlacDecoder(SeekableInputStream source, byte[] streamHeader, long audioOffset, AudioFormat format, int threads,
+                        DecoderPool<List<Integer>, StreamDecoder> decoders, List<Integer> decoderKey) throws IOException {
+        this.source = source;
+        this.format = format;
+        decoderPosition = source.getFilePointer();
+        this.streamHeader = streamHeader;
+        this.decoders = decoders;
+        this.decoderKey = decoderKey;
+        int maxBlocksize = (streamHeader[10] & 0xFF) << 8 | streamHeader[11] & 0xFF;
+        int maxFrameSize = (streamHeader[15] & 0xFF) << 16 | (streamHeader[16] & 0xFF) << 8 | streamHeader[17] & 0xFF;
+        int channels = ((streamHeader[20] & 0x0E) >>> 1) + 1;
+        int bps = ((streamHeader[20] & 0x01) << 4 | (streamHeader[21] & 0xF0) >>> 4) + 1;
+        // without a frame size in STREAMINFO, the size of a verbatim frame of the largest block size
+        maxFrameLength = maxFrameSize != 0 ? maxFrameSize : (long) Math.max(maxBlocksize, 65535) * channels * 5 + 1024;
+        md5sum = Arrays.copyOfRange(streamHeader, 26, 42);
+        // the signature covers the samples as they are in the stream, it is checked only if the output keeps them so
+        md5 = isZero(md5sum) || !DecodedFlacAudioInputStream.isSignatureLayout(format, bps) ? null : newMd5();
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "FLAC decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maxPending = 2 * threads;
+        restart(audioOffset, false);
+    }
+
+    /**
+     * Reads the STREAMINFO block of a native FLAC stream starting at the position of {@code source}, and moves
+     * back to that position.
+     *
+     * @return "fLaC" and the STREAMINFO block marked as the last metadata block, {@code null} if the stream
+     * does not start with them
+     */
+    static byte[] readStreamHeader(SeekableInputStream source) throws IOException {
+        long start = source.getFilePointer();
+        byte[] header = new byte[STREAM_HEADER_LENGTH];
+        int read = 0;
+        for (int n; read < header.length && (n = source.read(header, read, header.length - read)) > 0; ) read += n;
+        source.seek(start);
+        if (read < header.length || header[0] != 'f' || header[1] != 'L' || header[2] != 'a' || header[3] != 'C') return null;
+        // STREAMINFO of 34 bytes
+        if ((header[4] & 0x7F) != 0 || header[5] != 0 || header[6] != 0 || header[7] != 34) return null;
+        header[4] |= (byte) 0x80;
+        return header;
+    }
+
+    /**
+     * @return the next run of decoded frames in stream order, {@code null} at the end of the stream
+     * @throws IOException if the MD5 signature of the whole stream does not match
+     */
+    Batch next() throws IOException {
+        while (pending.size() < maxPending && !done) {
+            Batch batch = scan();
+            pending.add(pool.submit(batch));
+        }
+        Future<Batch> future = pending.poll();
+        if (future == null) {
+            if (lostSync) {
+                lostSync = false;
+                Batch batch = new Batch(null, 0, 0);
+                batch.error = true;
+                return batch;
+            }
+            checkMd5();
+            return null;
+        }
+        Batch batch;
+        try {
+            batch = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("FLAC decoding interrupted");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        if (batch.error) md5 = null;
+        else if (md5 != null) md5.update(batch.pcm, 0, batch.length);
+        return batch;
+    }
+
+    /**
+     * Drops the frames scanned so far and gives the source back to the main decoder before it seeks.
+     */
+    void suspend() throws IOException {
+        cancel();
+        done = true;
+        source.seek(decoderPosition);
+    }
+
+    /**
+     * Continues after a seek of the main decoder at {@code offset}, which must be the start of a frame.
+     * The MD5 signature is not checked after a seek.
+     */
+    void resume(long offset) throws IOException {
+        decoderPosition = source.getFilePointer();
+        restart(offset, true);
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        pool.shutdown();
+    }
+
+    private void cancel() {
+        // running batches complete and give their decoders back
+        for (Future<Batch> future : pending) future.cancel(false);
+        pending.clear();
+    }
+
+    private void restart(long offset, boolean seeked) {
+        if (seeked) md5 = null;
+        windowStart = offset;
+        windowLength = 0;
+        eof = false;
+        done = false;
+        lostSync = false;
+        position = offset;
+        try {
+            if (!fill(1)) {
+                done = true;
+                return;
+            }
+            if (fill(2) && FlacFrameHeader.isSync(window, 0) && parseHeader(0, true)) return;
+        }
+        catch (IOException e) {
+            pending.add(failed(e));
+            done = true;
+            return;
+        }
+        // the serial decoder stops with a lost sync here as well
+        done = true;
+        lostSync = true;
+    }
+
+    private static Future<Batch> failed(IOException e) {
+        CompletableFuture<Batch> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    // collects the frames from position, up to BATCH_SAMPLES samples
+    private Batch scan() throws IOException {
+        compact(position);
+        long start = position;
+        int frames = 0;
+        long samples = 0;
+        long end = -1;
+        while (end < 0) {
+            frames ++;
+            samples += header.blocksize;
+            long next = findFrame(position, header.nextNumber());
+            if (next < 0) {
+                // the last frame runs to the end of the file
+                done = true;
+                end = windowStart + windowLength;
+            }
+            else {
+                position = next;
+                if (samples >= BATCH_SAMPLES) end = next;
+            }
+        }
+        int length = (int) (end - start);
+        byte[] data = Arrays.copyOf(streamHeader, streamHeader.length + length);
+        System.arraycopy(window, (int) (start - windowStart), data, streamHeader.length, length);
+        return new Batch(data, frames, samples * format.getFrameSize());
+    }
+
+    // the next frame header after the frame at from, -1 at the end of the file or if it is too far away
+    private long findFrame(long from, long expected) throws IOException {
+        int i = (int) (from - windowStart) + 1;
+        int limit = (int) Math.min(i + maxFrameLength, Integer.MAX_VALUE - 8);
+        for (; fill(i + 2); i ++) {
+            if (i > limit) {
+                lostSync = true;
+                return -1;
+            }
+            if (FlacFrameHeader.isSync(window, i) && parseHeader(i, false) && header.number == expected) return windowStart + i;
+        }
+        return -1;
+    }
+
+    private boolean parseHeader(int i, boolean first) throws IOException {
+        fill(i + FlacFrameHeader.MAX_LENGTH);
+        return header.parse(window, i, windowLength, first);
+    }
+
+    // reads until the window holds length bytes or the end of the file
+    private boolean fill(int length) throws IOException {
+        while (windowLength < length && !eof) {
+            if (windowLength == window.length) window = Arrays.copyOf(window, window.length * 2);
+            // the source is shared with the decoder seeking in it
+            source.seek(windowStart + windowLength);
+            int n = source.read(window, windowLength, window.length - windowLength);
+            if (n < 0) eof = true;
+            else windowLength += n;
+        }
+        return windowLength >= length;
+    }
+
+    private void compact(long start) {
+        int shift = (int) (start - windowStart);
+        System.arraycopy(window, shift, window, 0, windowLength - shift);
+        windowLength -= shift;
+        windowStart = start;
+    }
+
+    private void checkMd5() throws IOException {
+        if (md5 == null) return;
+        byte[] digest = md5.digest();
+        md5 = null;
+        if (!Arrays.equals(digest, md5sum)) throw new IOException("MD5 signature mismatch");
+    }
+
+    private static boolean isZero(byte[] b) {
+        for (byte x : b) if (x != 0) return false;
+        return true;
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Frames decoded by a worker, {@code pcm} holds {@code length} bytes of little-endian samples.
+     */
+    final class Batch implements Callable<Batch>, StreamDecoderWriteCallback, StreamDecoderErrorCallback {
+
+        private byte[] data;
+        private final int frames;
+        byte[] pcm;
+        int length = 0;
+        boolean error = false;
+
+        Batch(byte[] data, int frames, long bytes) {
+            this.data = data;
+            this.frames = frames;
+            pcm = new byte[(int) bytes];
+        }
+
+        @Override
+        public Batch call() throws IOException {
+            StreamDecoder decoder = decoders.acquire(decoderKey);
+            if (decoder == null) decoder = new StreamDecoder();
+            decoder.set_md5_checking(false);
+            try {
+                if (decoder.init_FILE(new ByteArrayInputStream(data), this, null, this) != StreamDecoder.FLAC__STREAM_DECODER_INIT_STATUS_OK ||
+                        !decoder.process_until_end_of_metadata()) {
+                    error = true;
+                    return this;
+                }
+                for (int i = 0; i < frames && !error; i ++) {
+                    if (!decoder.process_single() || decoder.get_state() == StreamDecoder.FLAC__STREAM_DECODER_END_OF_STREAM)
+                        error = true;
+                }
+            }
+            finally {
+                data = null;
+                decoder.finish_for_reuse(true);
+                decoders.release(decoderKey, decoder);
+            }
+            return this;
+        }
+
+        @Override
+        public void dec_error_callback(StreamDecoder decoder, int status) {
+            error = true;
+        }
+
+        @Override
+        public int dec_write_callback(StreamDecoder decoder, Frame frame, int[][] buffer, int offset) {
+            int bytes = frame.header.blocksize * format.getFrameSize();
+            if (length + bytes > pcm.length) pcm = Arrays.copyOf(pcm, Math.max(length + bytes, pcm.length * 2));
+            length = DecodedFlacAudioInputStream.pack(buffer, offset, frame.header.blocksize, frame.header.channels,
+                    frame.header.bits_per_sample, format, pcm, length);
+            return StreamDecoder.FLAC__STREAM_DECODER_WRITE_STATUS_CONTINUE;
+        }
+
+    }
+
+}
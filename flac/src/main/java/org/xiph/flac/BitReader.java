@@ -11,11 +11,11 @@ import java.nio.ByteOrder;
 /* WATCHOUT: there are a few places where the code will not work unless uint32_t is >= 32 bits wide */
 /*           also, some sections currently only have fast versions for 4 or 8 bytes per word */
 class BitReader {
-	private static final int FLAC__BYTES_PER_WORD = 4;// java: always 4
-	private static final int FLAC__BYTES_PER_WORD_LOG2 = 2;// java: always 2
-	private static final int FLAC__BITS_PER_WORD = 32;// java: always 32
-	private static final int FLAC__BITS_PER_WORD_LOG2 = 5;// java: always 5
-	private static final int FLAC__WORD_ALL_ONES = (0xffffffff);
+	private static final int FLAC__BYTES_PER_WORD = 8;// java: always 8
+	private static final int FLAC__BYTES_PER_WORD_LOG2 = 3;// java: always 3
+	private static final int FLAC__BITS_PER_WORD = 64;// java: always 64
+	private static final int FLAC__BITS_PER_WORD_LOG2 = 6;// java: always 6
+	private static final long FLAC__WORD_ALL_ONES = (0xffffffffffffffffL);
 	/*
 	 * This should be at least twice as large as the largest number of words
 	 * required to represent any 'number' (in any encoding) you are going to
@@ -32,29 +32,13 @@ class BitReader {
 	 */
 	private static final int FLAC__BITREADER_DEFAULT_CAPACITY = 65536 / FLAC__BITS_PER_WORD; /* in words */
 
-	private static final byte byte_to_unary_table[] = {
-		8, 7, 6, 6, 5, 5, 5, 5, 4, 4, 4, 4, 4, 4, 4, 4,
-		3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3,
-		2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2,
-		2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2,
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-		0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
-	};
 	/** any partially-consumed word at the head will stay right-justified as bits are consumed from the left<br>
 	 * any incomplete word at the tail will be left-justified, and bytes from the read callback are added on the right */
-	private int[] buffer = null;
+	private long[] buffer = null;
 	/** byte presentation of the buffer */
 	private byte[] bytebuffer = null;// java: added to read
+	/** big-endian view of bytebuffer, loads whole words */
+	private ByteBuffer bytebuffer_words = null;// java: added to read
 	/** in words */
 	private int capacity = 0;
 	/** # of completed words in buffer */
@@ -80,73 +64,7 @@ class BitReader {
 	private BitReaderReadCallback read_callback = null;
 	// private Object client_data = null;// java: don't need. uses read_callback
 
-	// java: extracted in place
-	/** counts the # of zero MSBs in a word */
-	/* Will never be emitted for MSVC, GCC, Intel compilers */
-	/*static inline unsigned int FLAC__clz_soft_uint32(unsigned int word)
-	{
-		static const unsigned char byte_to_unary_table[] = {
-			8, 7, 6, 6, 5, 5, 5, 5, 4, 4, 4, 4, 4, 4, 4, 4,
-			3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3,
-			2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2,
-			2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2,
-			1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-			1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-			1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-			1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-	    };
-
-		return word > 0xffffff ? byte_to_unary_table[word >> 24] :
-			word > 0xffff ? byte_to_unary_table[word >> 16] + 8 :
-				word > 0xff ? byte_to_unary_table[word >> 8] + 16 :
-					byte_to_unary_table[word] + 24;
-	}*/
-	/* Used when 64-bit bsr/clz is unavailable; can use 32-bit bsr/clz when possible */
-	/* static inline unsigned int FLAC__clz_soft_uint64(FLAC__uint64 word)
-	{
-		return (FLAC__uint32)(word>>32) ? FLAC__clz_uint32((FLAC__uint32)(word>>32)) :
-			FLAC__clz_uint32((FLAC__uint32)word) + 32;
-	} */
-
-	/* static inline unsigned int FLAC__clz_uint64(FLAC__uint64 v)
-	{
-		// Never used with input 0
-		FLAC__ASSERT(v > 0);
-	#if defined(__GNUC__) && (__GNUC__ >= 4 || (__GNUC__ == 3 && __GNUC_MINOR__ >= 4))
-		return __builtin_clzll(v);
-	#elif (defined(__INTEL_COMPILER) || defined(_MSC_VER)) && (defined(_M_IA64) || defined(_M_X64))
-		{
-			unsigned long idx;
-			_BitScanReverse64(&idx, v);
-			return idx ^ 63U;
-		}
-	#else
-		return FLAC__clz_soft_uint64(v);
-	#endif
-	} */
-
-	/* These two functions work with input 0 */
-	/* static inline unsigned int FLAC__clz2_uint32(FLAC__uint32 v)
-	{
-		if (!v)
-			return 32;
-		return FLAC__clz_uint32(v);
-	} */
-
-	/* static inline unsigned int FLAC__clz2_uint64(FLAC__uint64 v)
-	{
-		if (!v)
-			return 64;
-		return FLAC__clz_uint64(v);
-	} */
+	// java: FLAC__clz2_uint64( word ) is Long.numberOfLeadingZeros( word )
 
 	/***********************************************************************
 	 *
@@ -158,13 +76,13 @@ class BitReader {
 	BitReader() {
 	}
 
-	private void crc16_update_word_(final int word)
+	private void crc16_update_word_(final long word)
 	{
 		int crc = this.read_crc16;
 
 		for ( ; this.crc16_align < FLAC__BITS_PER_WORD; this.crc16_align += 8 ) {
-			final int shift = FLAC__BITS_PER_WORD - 8 - this.crc16_align;// uint32, java: shift >= 0 is added
-			crc = CRC.CRC16_UPDATE( (shift >= 0 && shift < FLAC__BITS_PER_WORD ? (word >> shift) & 0xff : 0), crc );
+			final int shift = FLAC__BITS_PER_WORD - 8 - this.crc16_align;
+			crc = CRC.CRC16_UPDATE( ((int)(word >>> shift)) & 0xff, crc );
 		}
 
 		this.read_crc16 = crc;
@@ -179,11 +97,11 @@ class BitReader {
 
 		/* Prevent OOB read due to wrap-around. */
 		if( this.consumed_words > this.crc16_offset ) {
-//if( FLAC__BYTES_PER_WORD == 4 ) {
+/*if( FLAC__BYTES_PER_WORD == 4 ) {
 			this.read_crc16 = CRC.crc16_update_words32( this.buffer, this.crc16_offset, this.consumed_words - this.crc16_offset, this.read_crc16 );
-/*} else if( FLAC__BYTES_PER_WORD == 8 ) {
- 			this.read_crc16 = FLAC__crc16_update_words64( this.buffer, this.crc16_offset, this.consumed_words - this.crc16_offset, this.read_crc16 );
-} else {
+} else if( FLAC__BYTES_PER_WORD == 8 ) {*/
+			this.read_crc16 = CRC.crc16_update_words64( this.buffer, this.crc16_offset, this.consumed_words - this.crc16_offset, this.read_crc16 );
+/*} else {
 			unsigned i;
 
 			for( int i = this.crc16_offset; i < this.consumed_words; i++ ) {
@@ -243,33 +161,37 @@ class BitReader {
 			throw new IOException();
 		}
 
-		int end = read;
+		int offset = 0;
+		int w = this.words;
 		if( this.bytes != 0 ) {// writing bytes in last partial word as BIG ENDIAN
-			int start = FLAC__BYTES_PER_WORD - this.bytes;// temp
-			int val = this.buffer[this.words];
-			val &= FLAC__WORD_ALL_ONES << (start << 3);
-			for( int i = --start; i >= 0 && end > 0; i--, end-- ) {
-				val |= (((int)this.bytebuffer[i]) & 0xff) << ((start - i) << 3);
+			int b = this.bytes;
+			long val = this.buffer[w] & (FLAC__WORD_ALL_ONES << ((FLAC__BYTES_PER_WORD - b) << 3));
+			for( ; b < FLAC__BYTES_PER_WORD && offset < read; b++ ) {
+				val |= (((long)this.bytebuffer[offset++]) & 0xff) << ((FLAC__BYTES_PER_WORD - 1 - b) << 3);
 			}
-			this.buffer[this.words] = val;
-
-		}
-		int offset = this.words;
-		if( end > 0 ) {
-			final int start = read - end;
-			if( start > 0 ) {
-				offset++;
+			this.buffer[w] = val;
+			if( b < FLAC__BYTES_PER_WORD ) {
+				this.bytes = b;
+				return;
 			}
-			if( 0 != (end & ((1 << FLAC__BYTES_PER_WORD_LOG2) - 1)) ) {
-				end += FLAC__BYTES_PER_WORD;
+			w++;
+		}
+		/* java: whole words are loaded at once from the big-endian view */
+		final ByteBuffer words_view = this.bytebuffer_words;
+		for( final int end = offset + ((read - offset) & ~(FLAC__BYTES_PER_WORD - 1)); offset < end; offset += FLAC__BYTES_PER_WORD ) {
+			this.buffer[w++] = words_view.getLong( offset );
+		}
+		/* the incomplete tail word is left-justified */
+		final int tail = read - offset;
+		if( tail != 0 ) {
+			long val = 0;
+			for( int b = 0; b < tail; b++ ) {
+				val |= (((long)this.bytebuffer[offset++]) & 0xff) << ((FLAC__BYTES_PER_WORD - 1 - b) << 3);
 			}
-			end >>>= FLAC__BYTES_PER_WORD_LOG2;// TODO try to optimize the wrap length parameter
-			ByteBuffer.wrap( this.bytebuffer, start, this.bytes + (end << FLAC__BYTES_PER_WORD_LOG2) ).order( ByteOrder.BIG_ENDIAN ).asIntBuffer().get( this.buffer, offset, end );
+			this.buffer[w] = val;
 		}
-
-		end = (this.words << FLAC__BYTES_PER_WORD_LOG2) + this.bytes + read;
-		this.words = (end >>> FLAC__BYTES_PER_WORD_LOG2);
-		this.bytes = end & (FLAC__BYTES_PER_WORD - 1);
+		this.words = w;
+		this.bytes = tail;
 	}
 
 	/***********************************************************************
@@ -283,8 +205,11 @@ class BitReader {
 		this.words = this.bytes = 0;
 		this.consumed_words = this.consumed_bits = 0;
 		this.capacity = FLAC__BITREADER_DEFAULT_CAPACITY;
-		this.buffer = new int[this.capacity];
-		this.bytebuffer = new byte[this.capacity << 2];// int to byte
+		if( this.buffer == null || this.buffer.length != this.capacity ) {// java: reused by a recycled decoder
+			this.buffer = new long[this.capacity];
+			this.bytebuffer = new byte[this.capacity << FLAC__BYTES_PER_WORD_LOG2];// long to byte
+			this.bytebuffer_words = ByteBuffer.wrap( this.bytebuffer ).order( ByteOrder.BIG_ENDIAN );
+		}
 		this.read_callback = rcb;
 		// this.client_data = cd;
 		this.read_limit_set = false;
@@ -347,7 +272,7 @@ class BitReader {
 				if( i < this.consumed_words || (i == this.consumed_words && j < this.consumed_bits) ) {
 					out.print(".");
 				} else {
-					out.printf("%01d", (this.buffer[i] & (1 << (FLAC__BITS_PER_WORD - j - 1))) != 0 ? 1 : 0);
+					out.printf("%01d", (this.buffer[i] & (1L << (FLAC__BITS_PER_WORD - j - 1))) != 0 ? 1 : 0);
 				}
 			}
 			out.print("\n");
@@ -358,7 +283,7 @@ class BitReader {
 				if( i < this.consumed_words || (i == this.consumed_words && j < this.consumed_bits) ) {
 					out.print(".");
 				} else {
-					out.printf("%01d", (this.buffer[i] & (1 << (this.bytes * 8 - j - 1))) != 0 ? 1 : 0);
+					out.printf("%01d", (this.buffer[i] & (1L << (FLAC__BITS_PER_WORD - j - 1))) != 0 ? 1 : 0);
 				}
 			}
 			out.print("\n");
@@ -388,11 +313,11 @@ class BitReader {
 		/* CRC any tail bytes in a partially-consumed word */
 		final int bits = this.consumed_bits;// java
 		if( bits != 0 ) {
-			final int tail = this.buffer[this.consumed_words];
+			final long tail = this.buffer[this.consumed_words];
 			int align = this.crc16_align;// java
 			int crc16 = this.read_crc16;// java
 			for( ; align < bits; align += 8 ) {
-				crc16 = CRC.CRC16_UPDATE( ((tail >> (FLAC__BITS_PER_WORD - 8 - align)) & 0xff), crc16 );
+				crc16 = CRC.CRC16_UPDATE( ((int)(tail >>> (FLAC__BITS_PER_WORD - 8 - align)) & 0xff), crc16 );
 			}
 			this.read_crc16 = crc16;
 			this.crc16_align = align;
@@ -464,38 +389,27 @@ class BitReader {
 			if( this.consumed_bits != 0 ) {
 				/* this also works when consumed_bits==0, it's just a little slower than necessary for that case */
 				final int n = FLAC__BITS_PER_WORD - this.consumed_bits;
-				final int word = this.buffer[this.consumed_words];
-				final int mask = this.consumed_bits < FLAC__BITS_PER_WORD ? FLAC__WORD_ALL_ONES >>> this.consumed_bits : 0;
+				final long word = this.buffer[this.consumed_words] & (FLAC__WORD_ALL_ONES >>> this.consumed_bits);
 				if( bits < n ) {
-					final int shift = n - bits;
-					final int val = shift < FLAC__BITS_PER_WORD ? ((word & mask) >>> shift) : 0; /* The result has <= 32 non-zero bits */
 					this.consumed_bits += bits;
-					return val;
+					return (int)(word >>> (n - bits)); /* The result has <= 32 non-zero bits */
 				}
 				/* (FLAC__BITS_PER_WORD - br->consumed_bits <= bits) ==> (FLAC__WORD_ALL_ONES >> br->consumed_bits) has no more than 'bits' non-zero bits */
-				int val = (word & mask);
+				int val = (int)word;
 				bits -= n;
 				this.consumed_words++;
 				this.consumed_bits = 0;
 				if( bits != 0 ) { /* if there are still bits left to read, there have to be less than 32 so they will all be in the next word */
-					final int shift = FLAC__BITS_PER_WORD - bits;// uint32
-					val = bits < 32 ? val << bits : 0;
-					val |= shift < FLAC__BITS_PER_WORD ? (this.buffer[this.consumed_words] >>> shift) : 0;
+					val <<= bits;
+					val |= (int)(this.buffer[this.consumed_words] >>> (FLAC__BITS_PER_WORD - bits));
 					this.consumed_bits = bits;
 				}
 				return val;
 			}
 			// else { // br->consumed_bits == 0
-				final int word = this.buffer[this.consumed_words];
-				if( bits < FLAC__BITS_PER_WORD ) {
-					// final int val = word >>> (FLAC__BITS_PER_WORD - bits);
-					this.consumed_bits = bits;
-					return word >>> (FLAC__BITS_PER_WORD - bits);
-				}
-				/* at this point bits == FLAC__BITS_PER_WORD == 32; because of previous assertions, it can't be larger */
-				// final int val = word;
-				this.consumed_words++;
-				return word;
+				/* bits <= 32 < FLAC__BITS_PER_WORD, the word is never used up here */
+				this.consumed_bits = bits;
+				return (int)(this.buffer[this.consumed_words] >>> (FLAC__BITS_PER_WORD - bits));
 			//}
 		}
 		//else {
@@ -506,14 +420,13 @@ class BitReader {
 			/* OPT: taking out the consumed_bits==0 "else" case below might make things faster if less code allows the compiler to inline this function */
 			if( this.consumed_bits != 0 ) {
 				/* this also works when consumed_bits==0, it's just a little slower than necessary for that case */
-				final int val = (this.buffer[this.consumed_words] & (FLAC__WORD_ALL_ONES >>> this.consumed_bits)) >>> (FLAC__BITS_PER_WORD - this.consumed_bits - bits);
+				final int val = (int)((this.buffer[this.consumed_words] & (FLAC__WORD_ALL_ONES >>> this.consumed_bits)) >>> (FLAC__BITS_PER_WORD - this.consumed_bits - bits));
 				this.consumed_bits += bits;
 				return val;
 			}
 			//else {
-				// final int val = this.buffer[this.consumed_words] >>> (FLAC__BITS_PER_WORD - bits);
 				this.consumed_bits += bits;
-				return this.buffer[this.consumed_words] >>> (FLAC__BITS_PER_WORD - bits);
+				return (int)(this.buffer[this.consumed_words] >>> (FLAC__BITS_PER_WORD - bits));
 			//}
 		//}
 	}
@@ -553,7 +466,7 @@ class BitReader {
 		final long uval = read_raw_uint64( bits );
 		/* sign-extend *val assuming it is currently bits wide. */
 		/* From: https://graphics.stanford.edu/~seander/bithacks.html#FixedSignExtend */
-		final long mask = bits >= 65 ? 0 : 1 << (bits - 1);
+		final long mask = bits >= 65 ? 0 : 1L << (bits - 1);
 		final long val = (uval ^ mask) - mask;
 		return val;
 	}
@@ -669,22 +582,22 @@ class BitReader {
 		/* step 2: read whole words in chunks */
 		while( nvals >= FLAC__BYTES_PER_WORD ) {
 			if( this.consumed_words < this.words ) {
-				final int word = this.buffer[this.consumed_words++];
-//if( FLAC__BYTES_PER_WORD == 4 ) {
+				final long word = this.buffer[this.consumed_words++];
+/*if( FLAC__BYTES_PER_WORD == 4 ) {
 				val[offset++] = (byte)(word >>> 24);
 				val[offset++] = (byte)(word >>> 16);
 				val[offset++] = (byte)(word >>> 8);
 				val[offset++] = (byte)word;
-/*} else if( FLAC__BYTES_PER_WORD == 8 ) {
-				val[offset + 0] = (byte)(word >>> 56);
-				val[offset + 1] = (byte)(word >>> 48);
-				val[offset + 2] = (byte)(word >>> 40);
-				val[offset + 3] = (byte)(word >>> 32);
-				val[offset + 4] = (byte)(word >>> 24);
-				val[offset + 5] = (byte)(word >>> 16);
-				val[offset + 6] = (byte)(word >>> 8);
-				val[offset + 7] = (byte)word;
-} else {
+} else if( FLAC__BYTES_PER_WORD == 8 ) {*/
+				val[offset++] = (byte)(word >>> 56);
+				val[offset++] = (byte)(word >>> 48);
+				val[offset++] = (byte)(word >>> 40);
+				val[offset++] = (byte)(word >>> 32);
+				val[offset++] = (byte)(word >>> 24);
+				val[offset++] = (byte)(word >>> 16);
+				val[offset++] = (byte)(word >>> 8);
+				val[offset++] = (byte)word;
+/*} else {
 				for( int i = 0; i < FLAC__BYTES_PER_WORD; i++ )
 					val[offset + i] = (byte)(word >>> ((FLAC__BYTES_PER_WORD - i - 1) << 3));
 }*/
@@ -727,13 +640,9 @@ class BitReader {
 		int val = 0;
 		while( true ) {
 			while( this.consumed_words < this.words ) { /* if we've not consumed up to a partial tail word... */
-				final int b = this.consumed_bits < FLAC__BITS_PER_WORD ? this.buffer[this.consumed_words] << this.consumed_bits : 0;
+				final long b = this.consumed_bits < FLAC__BITS_PER_WORD ? this.buffer[this.consumed_words] << this.consumed_bits : 0;
 				if( b != 0 ) {
-					//i = COUNT_ZERO_MSBS( b );
-					int i = ( (b & 0xff000000) != 0 ? byte_to_unary_table[b >>> 24] :
-						(b & 0xffff0000) != 0 ? byte_to_unary_table[b >>> 16] + 8 :
-						(b & 0xffffff00) != 0 ? byte_to_unary_table[b >>> 8] + 16 :
-						byte_to_unary_table[b] + 24 );
+					int i = Long.numberOfLeadingZeros( b );// COUNT_ZERO_MSBS( b )
 					val += i;
 					i++;
 					this.consumed_bits += i;
@@ -759,13 +668,9 @@ class BitReader {
 			 */
 			if( (this.bytes << 3) > this.consumed_bits ) {
 				final int end = this.bytes << 3;
-				final int b = (this.buffer[this.consumed_words] & (FLAC__WORD_ALL_ONES << (FLAC__BITS_PER_WORD - end))) << this.consumed_bits;
+				final long b = (this.buffer[this.consumed_words] & (FLAC__WORD_ALL_ONES << (FLAC__BITS_PER_WORD - end))) << this.consumed_bits;
 				if( b != 0 ) {
-					//i = COUNT_ZERO_MSBS( b );
-					int i = ( (b & 0xff000000) != 0 ? byte_to_unary_table[b >>> 24] :
-						(b & 0xffff0000) != 0 ? byte_to_unary_table[b >>> 16] + 8 :
-						(b & 0xffffff00) != 0 ? byte_to_unary_table[b >>> 8] + 16 :
-						byte_to_unary_table[b] + 24 );
+					int i = Long.numberOfLeadingZeros( b );// COUNT_ZERO_MSBS( b )
 					val += i;
 					i++;
 					this.consumed_bits += i;
@@ -774,7 +679,7 @@ class BitReader {
 				}
 				else {
 					val += end - this.consumed_bits;
-					this.consumed_bits += end;
+					this.consumed_bits = end;
 					//FLAC__ASSERT(br.consumed_bits < FLAC__BITS_PER_WORD);
 					/* didn't find stop bit yet, have to keep going... */
 				}
@@ -824,7 +729,7 @@ class BitReader {
 		//FLAC__ASSERT(parameter < 32);
 		/* the above two asserts also guarantee that the binary part never straddles more than 2 words, so we don't have to loop to read it */
 
-		final int limit = Integer.MAX_VALUE >>> parameter; /* Maximal msbs that can occur with residual bounded to int32_t */
+		final int limit = -1 >>> parameter;// java: UINT32_MAX >> parameter. /* Maximal msbs that can occur with residual bounded to int32_t */
 
 		//val = offset;// java: val changed to offset
 		final int end = offset + nvals;
@@ -846,7 +751,7 @@ class BitReader {
 		int cwords = this.consumed_words;
 		int rwords = this.words;
 
-		int b;
+		long b;
 		int ucbits; /* keep track of the number of unconsumed bits in word */
 		/* if we've not consumed up to a partial tail word... */
 		if( cwords >= rwords ) {
@@ -868,7 +773,7 @@ class BitReader {
 				cwords = this.consumed_words;
 				rwords = this.words;
 				ucbits = FLAC__BITS_PER_WORD - this.consumed_bits;
-				b = this.buffer[cwords] << this.consumed_bits;
+				b = cwords < this.capacity ? this.buffer[cwords] << this.consumed_bits : 0;
 			} while( cwords >= rwords && offset < end );
 		} else {
 			ucbits = FLAC__BITS_PER_WORD - this.consumed_bits;
@@ -877,14 +782,41 @@ class BitReader {
 
 main_loop:
 		while( offset < end ) {
+			/* java: fast path, unrolled by two. while whole codes lie in the unconsumed bits of b,
+			 * decode them without the word and tail handling below. the bits of b after ucbits are 0,
+			 * so a code fits if its stop bit and its parameter bits end within ucbits */
+			final int end1 = end - 1;
+			while( offset < end1 ) {
+				final int z0 = Long.numberOfLeadingZeros( b );
+				final int l0 = z0 + 1 + parameter;
+				if( l0 > ucbits || z0 > limit ) {
+					break;
+				}
+				long t = b << (z0 + 1);/* z0 + 1 < 64, parameter > 0 */
+				final int x0 = (z0 << parameter) | (int)(t >>> (FLAC__BITS_PER_WORD - parameter));
+				t <<= parameter;
+				vals[offset++] = (x0 >>> 1) ^ -(x0 & 1);
+				ucbits -= l0;
+
+				final int z1 = Long.numberOfLeadingZeros( t );
+				final int l1 = z1 + 1 + parameter;
+				if( l1 > ucbits || z1 > limit ) {
+					b = t;
+					break;
+				}
+				t <<= z1 + 1;
+				final int x1 = (z1 << parameter) | (int)(t >>> (FLAC__BITS_PER_WORD - parameter));
+				b = t << parameter;
+				vals[offset++] = (x1 >>> 1) ^ -(x1 & 1);
+				ucbits -= l1;
+			}
+			if( offset >= end ) {
+				break;
+			}
+
 			/* read the unary MSBs and end bit */
-			//x = y = COUNT_ZERO_MSBS( b );
 			int x, y;
-			x = y = ( b == 0 ? 32 :
-				(b & 0xff000000) != 0 ? byte_to_unary_table[b >>> 24] :
-				(b & 0xffff0000) != 0 ? byte_to_unary_table[b >>> 16] + 8 :
-				(b & 0xffffff00) != 0 ? byte_to_unary_table[b >>> 8] + 16 :
-				byte_to_unary_table[b] + 24 );
+			x = y = Long.numberOfLeadingZeros( b );// COUNT_ZERO_MSBS2( b )
 			if( x == FLAC__BITS_PER_WORD ) {
 				x = ucbits;
 				do {
@@ -913,17 +845,12 @@ main_loop:
 							cwords = this.consumed_words;
 							rwords = this.words;
 							ucbits = FLAC__BITS_PER_WORD - this.consumed_bits;
-							b = this.buffer[cwords] << this.consumed_bits;
+							b = cwords < this.capacity ? this.buffer[cwords] << this.consumed_bits : 0;
 						} while( cwords >= rwords && offset < end );
 						continue main_loop;
 					}
 					b = this.buffer[cwords];
-					//y = COUNT_ZERO_MSBS( b );
-					y = ( b == 0 ? 32 :
-						(b & 0xff000000) != 0 ? byte_to_unary_table[b >>> 24] :
-						(b & 0xffff0000) != 0 ? byte_to_unary_table[b >>> 16] + 8 :
-						(b & 0xffffff00) != 0 ? byte_to_unary_table[b >>> 8] + 16 :
-						byte_to_unary_table[b] + 24 );
+					y = Long.numberOfLeadingZeros( b );// COUNT_ZERO_MSBS2( b )
 					x += y;
 				} while( y == FLAC__BITS_PER_WORD );
 			}
@@ -937,7 +864,7 @@ main_loop:
 			}
 
 			/* read the binary LSBs */
-			x = b >>> (FLAC__BITS_PER_WORD - parameter);/* parameter < 32, so we can cast to 32-bit uint32_t */
+			x = (int)(b >>> (FLAC__BITS_PER_WORD - parameter));/* parameter < 32, so we can cast to 32-bit uint32_t */
 
 			if( parameter <= ucbits ) {
 				ucbits -= parameter;
@@ -961,7 +888,7 @@ main_loop:
 					cwords = this.consumed_words;
 					rwords = this.words;
 					ucbits = FLAC__BITS_PER_WORD - this.consumed_bits;
-					b = this.buffer[cwords] << this.consumed_bits;
+					b = cwords < this.capacity ? this.buffer[cwords] << this.consumed_bits : 0;
 					if( cwords < rwords || offset >= end ) {
 						continue main_loop;
 					}
@@ -992,7 +919,7 @@ main_loop:
 				}
 				b = this.buffer[cwords];
 				ucbits += FLAC__BITS_PER_WORD - parameter;
-				x |= b >>> ucbits;
+				x |= (int)(b >>> ucbits);
 				b <<= FLAC__BITS_PER_WORD - ucbits;
 			}
 			// final int lsbs = x;
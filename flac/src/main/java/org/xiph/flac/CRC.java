@@ -382,47 +382,18 @@ class CRC {
 		return crc & 0xffff;// uint16
 	}
 
-	static final int crc16_update_words32(final int[] words, int off, int len, int crc)
+	static final int crc16_update_words64(final long[] words, int off, final int len, int crc)// java: off is added
 	{
-		while( len >= 2 ) {
-			final int d0 = words[ off ];
-			final int d1 = words[ off + 1 ];
-			crc ^= d0 >> 16;
+		for( final int end = off + len; off < end; off++ ) {
+			final long d = words[ off ];
+			crc ^= (int)(d >>> 48);
 
-			crc = crc16_table[7][(crc >>> 8) & 0xff] ^ crc16_table[6][crc & 0xFF       ] ^
-			      crc16_table[5][(d0 >>  8) & 0xFF ] ^ crc16_table[4][ d0        & 0xFF] ^
-			      crc16_table[3][ d1 >>> 24        ] ^ crc16_table[2][(d1 >> 16) & 0xFF] ^
-			      crc16_table[1][(d1 >>  8) & 0xFF ] ^ crc16_table[0][ d1        & 0xFF];
-
-			off += 2;
-			len -= 2;
-		}
-
-		if( len != 0 ) {
-			final int d0 = words[ off ];
-			crc ^= d0 >>> 16;
-
-			crc = crc16_table[3][(crc >>> 8) & 0xff] ^ crc16_table[2][crc & 0xFF] ^
-			      crc16_table[1][(d0 >> 8) & 0xFF  ] ^ crc16_table[0][d0  & 0xFF];
-		}
-
-		return crc;// uint16
-	}
-
-
-	/* java: 4 bytes per word, so it is not used
-	static final char crc16_update_words64(final long[] words, final int len, char crc)
-	{
-		for( int i = 0; i < len; i++ ) {
-			final long d = words[ i ];
-			crc ^= d >>> 48;
-
-			crc = (char)(crc16_table[7][crc >>> 8       ] ^ crc16_table[6][crc & 0xFF      ] ^
+			crc = crc16_table[7][(crc >>> 8) & 0xff       ] ^ crc16_table[6][crc & 0xFF                ] ^
 			      crc16_table[5][((int)(d >> 40)) & 0xFF] ^ crc16_table[4][((int)(d >> 32)) & 0xFF] ^
 			      crc16_table[3][((int)(d >> 24)) & 0xFF] ^ crc16_table[2][((int)(d >> 16)) & 0xFF] ^
-			      crc16_table[1][((int)(d >>  8)) & 0xFF] ^ crc16_table[0][((int)d)         & 0xFF]);
+			      crc16_table[1][((int)(d >>  8)) & 0xFF] ^ crc16_table[0][((int)d)         & 0xFF];
 		}
 
-		return crc;
-	} */
+		return crc;// uint16
+	}
 }
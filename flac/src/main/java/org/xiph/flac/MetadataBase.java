@@ -1,5 +1,6 @@
 package org.xiph.flac;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -99,11 +100,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 		int ret = 0;
 
 		for( int i = 0; i < bytes; i++ ) {
-			ret <<= 8;
-			ret |= ((int)b[offset++]) & 0xff;
-			ret |= (((int)b[offset++]) & 0xff) << 8;
-			ret |= (((int)b[offset++]) & 0xff) << 16;
-			ret |= ((int)b[offset++]) << 24;
+			ret = (ret << 8) | (((int)b[offset++]) & 0xff);
 		}
 
 		return ret;
@@ -115,11 +112,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 		int offset = bytes;
 
 		for( int i = 0; i < bytes; i++ ) {
-			ret <<= 8;
-			ret |= ((int)b[--offset]) << 24;
-			ret |= (((int)b[--offset]) & 0xff) << 16;
-			ret |= (((int)b[--offset]) & 0xff) << 8;
-			ret |= ((int)b[--offset]) & 0xff;
+			ret = (ret << 8) | (((int)b[--offset]) & 0xff);
 		}
 
 		return ret;
@@ -130,15 +123,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 		long ret = 0;
 
 		for( int i = 0; i < bytes; i++ ) {
-			ret <<= 8;
-			ret |= ((int)b[offset++]) & 0xff;
-			ret |= (((int)b[offset++]) & 0xff) << 8;
-			ret |= (((int)b[offset++]) & 0xff) << 16;
-			ret |= (((int)b[offset++]) & 0xff) << 24;
-			ret |= (((int)b[offset++]) & 0xff) << 32;
-			ret |= (((int)b[offset++]) & 0xff) << 40;
-			ret |= (((int)b[offset++]) & 0xff) << 48;
-			ret |= (((int)b[offset++]) & 0xff) << 56;
+			ret = (ret << 8) | (((long)b[offset++]) & 0xff);
 		}
 
 		return ret;
@@ -391,10 +376,12 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 		//if( 0 != entry->entry )
 		//	free( entry->entry );
 
-		entry_entry = new byte[entry_length_len];
+		entry_entry = new byte[entry_length];
 
-		if( entry_length_len > 0 && handle.read( entry_entry, 0, entry_length_len ) != entry_length_len ) {
-			if( handle.read( entry_entry, 0, entry_length_len ) != entry_length_len ) {
+		if( entry_length > 0 ) {
+			try {
+				handle.readFully( entry_entry, 0, entry_length );
+			} catch(final EOFException e) {
 				throw new IOException("FLAC__METADATA_SIMPLE_ITERATOR_STATUS_READ_ERROR");// return FLAC__METADATA_SIMPLE_ITERATOR_STATUS_READ_ERROR;
 			}
 		}
@@ -706,7 +693,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 			if( handle.read( buffer, 0, len ) != len ) {
 				return FLAC__METADATA_SIMPLE_ITERATOR_STATUS_READ_ERROR;
 			}
-			block.type = (int /* FLAC__StreamMetadata_Picture_Type */)unpack_uint32_( buffer, 0, len );
+			block.picture_type = (int /* FLAC__StreamMetadata_Picture_Type */)unpack_uint32_( buffer, 0, len );
 
 			byte[] data;
 			if( null == (data = read_metadata_block_data_picture_cstring_cb_( handle, Format.FLAC__STREAM_METADATA_PICTURE_MIME_TYPE_LENGTH_LEN )) ) {
@@ -1086,7 +1073,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 		try {
 
 			int len = Format.FLAC__STREAM_METADATA_PICTURE_TYPE_LEN / 8;
-			pack_uint32_( block.type, buffer, 0, len );
+			pack_uint32_( block.picture_type, buffer, 0, len );
 			handle.write( buffer, 0, len );
 
 			len = Format.FLAC__STREAM_METADATA_PICTURE_MIME_TYPE_LENGTH_LEN / 8;
@@ -1100,7 +1087,7 @@ abstract class MetadataBase {// FIXME why shared functions return FLAC__Metadata
 			slen = description.length;
 			pack_uint32_( slen, buffer, 0, len );
 			handle.write( buffer, 0, len );
-			handle.write( description, 1, slen );
+			handle.write( description, 0, slen );
 
 			len = Format.FLAC__STREAM_METADATA_PICTURE_WIDTH_LEN / 8;
 			pack_uint32_( block.width, buffer, 0, len );
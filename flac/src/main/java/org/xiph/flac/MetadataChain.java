@@ -75,6 +75,30 @@ public class MetadataChain extends MetadataBase implements
 
 	//} FLAC__Metadata_ChainStatus;
 
+	/** Maps a FLAC__Metadata_ChainStatus to a C string.
+	 *
+	 *  Using a FLAC__Metadata_ChainStatus as the index to this array
+	 *  will give the string equivalent.  The contents should not be modified.
+	 */
+	public static final String FLAC__Metadata_ChainStatusString[] = {
+		"FLAC__METADATA_CHAIN_STATUS_OK",
+		"FLAC__METADATA_CHAIN_STATUS_ILLEGAL_INPUT",
+		"FLAC__METADATA_CHAIN_STATUS_ERROR_OPENING_FILE",
+		"FLAC__METADATA_CHAIN_STATUS_NOT_A_FLAC_FILE",
+		"FLAC__METADATA_CHAIN_STATUS_NOT_WRITABLE",
+		"FLAC__METADATA_CHAIN_STATUS_BAD_METADATA",
+		"FLAC__METADATA_CHAIN_STATUS_READ_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_SEEK_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_WRITE_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_RENAME_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_UNLINK_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_MEMORY_ALLOCATION_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_INTERNAL_ERROR",
+		"FLAC__METADATA_CHAIN_STATUS_INVALID_CALLBACKS",
+		"FLAC__METADATA_CHAIN_STATUS_READ_WRITE_MISMATCH",
+		"FLAC__METADATA_CHAIN_STATUS_WRONG_WRITE_CALL"
+	};
+
 	private String filename = null; /* will be NULL if using callbacks */
 	private boolean is_ogg = false;
 	MetadataNode head = null;
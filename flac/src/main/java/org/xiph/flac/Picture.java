@@ -59,6 +59,7 @@ public class Picture extends StreamMetadata {
 		mime_type = m.mime_type;
 		description = m.description;
 		width = m.width;
+		height = m.height;
 		depth = m.depth;
 		colors = m.colors;
 		data_length = m.data_length;
@@ -67,7 +68,7 @@ public class Picture extends StreamMetadata {
 
 	static boolean compare_block_data_(final Picture block1, final Picture block2)
 	{
-		if( block1.type != block2.type ) {
+		if( block1.picture_type != block2.picture_type ) {
 			return false;
 		}
 		if( block1.mime_type != block2.mime_type && (block1.mime_type == null || block2.mime_type == null || ! block1.mime_type.equals( block2.mime_type )) ) {
@@ -97,6 +98,21 @@ public class Picture extends StreamMetadata {
 		return true;
 	}
 
+	// java: added, libFLAC clients assign the fields of the struct
+	public final void set_picture_type(final int /* FLAC__StreamMetadata_Picture_Type */ value)
+	{
+		this.picture_type = value;
+	}
+
+	// java: added, libFLAC clients assign the fields of the struct
+	public final void set_dimensions(final int pic_width, final int pic_height, final int pic_depth, final int pic_colors)
+	{
+		this.width = pic_width;
+		this.height = pic_height;
+		this.depth = pic_depth;
+		this.colors = pic_colors;
+	}
+
 	public final boolean set_mime_type(final String mime, final boolean copy)
 	{
 		//FLAC__ASSERT(object != NULL);
@@ -127,8 +143,9 @@ public class Picture extends StreamMetadata {
 		//FLAC__ASSERT(description != NULL);
 
 		final String old = this.description;
-		final int old_length = old != null ? old.length() : 0;
-		final int new_length = pic_description.length();
+		// java: the length of the block counts the UTF-8 bytes
+		final int old_length = old != null ? utf8_length_( old ) : 0;
+		final int new_length = utf8_length_( pic_description );
 
 		if( new_length > Format.SIZE_MAX ) {
 			return false;
@@ -1,11 +1,12 @@
 package org.xiph.flac;
 
+import io.github.jseproject.SeekableInputStream;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.RandomAccessFile;
 
-public class RandomAccessInputStream extends InputStream {
+public class RandomAccessInputStream extends SeekableInputStream {
 	private RandomAccessFile f;
 
 	public RandomAccessInputStream(String path) throws FileNotFoundException {
@@ -42,6 +43,7 @@ public class RandomAccessInputStream extends InputStream {
      * @return     the length of this file, measured in bytes.
      * @exception  IOException  if an I/O error occurs.
      */
+	@Override
 	public final long length() throws IOException {
 		return f.length();
 	}
@@ -53,6 +55,7 @@ public class RandomAccessInputStream extends InputStream {
      *             at which the next read or write occurs.
      * @exception  IOException  if an I/O error occurs.
      */
+	@Override
 	public final long getFilePointer() throws IOException {
 		return f.getFilePointer();
 	}
@@ -132,6 +135,7 @@ public class RandomAccessInputStream extends InputStream {
      * @exception  IOException  if <code>pos</code> is less than 
      *                          <code>0</code> or if an I/O error occurs.
      */
+	@Override
 	public final void seek(long pos) throws IOException {
 		f.seek( pos );
 	}
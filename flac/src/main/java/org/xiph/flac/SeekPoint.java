@@ -36,6 +36,7 @@ public class SeekPoint implements Comparable<SeekPoint> {
 
 			// if( object_array != null ) {// java: do not
 				for( int i = 0; i < num_points; i++ ) {
+					object_array[i] = new SeekPoint();// java: the array holds references
 					object_array[i].sample_number = Format.FLAC__STREAM_METADATA_SEEKPOINT_PLACEHOLDER;
 					object_array[i].stream_offset = 0;
 					object_array[i].frame_samples = 0;
@@ -99,7 +99,8 @@ public class SeekTable extends StreamMetadata {
 			/* if growing, set new elements to placeholders */
 			if( new_size > old_size ) {
 				for( int i = this.num_points; i < new_num_points; i++ ) {
-					final SeekPoint p = this.points[i];// java
+					final SeekPoint p = new SeekPoint();// java: Arrays.copyOf pads with null
+					this.points[i] = p;
 					p.sample_number = Format.FLAC__STREAM_METADATA_SEEKPOINT_PLACEHOLDER;
 					p.stream_offset = 0;
 					p.frame_samples = 0;
@@ -1,5 +1,7 @@
 package org.xiph.flac;
 
+import io.github.jseproject.SeekableInputStream;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -193,7 +195,7 @@ public class StreamDecoder implements
 		 * with FLAC__stream_decoder_flush() or reset with
 		 * FLAC__stream_decoder_reset() before decoding can continue.
 		 */
-		private static final int FLAC__STREAM_DECODER_SEEK_ERROR = 6;
+		public static final int FLAC__STREAM_DECODER_SEEK_ERROR = 6;
 
 		/** The decoder was aborted by the read or write callback. */
 		private static final int FLAC__STREAM_DECODER_ABORTED = 7;
@@ -463,6 +465,7 @@ public class StreamDecoder implements
 		int sample_rate; /* in Hz */
 		int blocksize; /* in samples (per channel) */
 		boolean md5_checking; /* if true, generate MD5 signature of decoded data and compare against signature in the STREAMINFO metadata block */
+		boolean async_md5; /* java: added, if true, the MD5 signature is updated by a pool thread */
 //if( FLAC__HAS_OGG ) {
 		final OggDecoderAspect ogg_decoder_aspect = new OggDecoderAspect();
 //}
@@ -682,6 +685,7 @@ if( Format.FLAC__HAS_OGG ) {
 		this.cached = false;
 
 		this.do_md5_checking = this.md5_checking;
+		this.md5context.set_async( this.async_md5 );
 		this.is_seeking = false;
 
 		this.internal_reset_hack = true; /* so the following reset does not try to rewind the input */
@@ -911,10 +915,10 @@ if( Format.FLAC__HAS_OGG ) {
 		);*/
 		return init_stream_internal_(
 			this,// file_read_callback_,
-			this.file instanceof RandomAccessInputStream ? this : null,// file_seek_callback_,
-			this.file instanceof RandomAccessInputStream ? this : null,// file_tell_callback_,
-			this.file instanceof RandomAccessInputStream ? this : null,// file_length_callback_,
-			this.file instanceof RandomAccessInputStream ? this : null,// file_eof_callback_,
+			this.file instanceof SeekableInputStream ? this : null,// file_seek_callback_,
+			this.file instanceof SeekableInputStream ? this : null,// file_tell_callback_,
+			this.file instanceof SeekableInputStream ? this : null,// file_length_callback_,
+			this.file instanceof SeekableInputStream ? this : null,// file_eof_callback_,
 			write_cb,
 			metadata_cb,
 			error_cb,
@@ -1178,6 +1182,24 @@ if( Format.FLAC__HAS_OGG ) {
 	 *    \c true.
 	 */
 	public final boolean finish(final boolean isCloseFile)// java: added isCloseFile
+	{
+		return finish_( isCloseFile, false );
+	}
+
+	/** Finish the decoding process like {@link #finish(boolean)}, but keep the
+	 *  input and output buffers, so the decoder can be initialized again for
+	 *  another stream without allocating them.
+	 *
+	 * @param isCloseFile {@code true} - close the stream
+	 * @retval FLAC__bool
+	 *    same as {@link #finish(boolean)}.
+	 */
+	public final boolean finish_for_reuse(final boolean isCloseFile)// java: added
+	{
+		return finish_( isCloseFile, true );
+	}
+
+	private final boolean finish_(final boolean isCloseFile, final boolean keepBuffers)
 	{
 		//FLAC__ASSERT(0 != decoder);
 		//FLAC__ASSERT(0 != decoder->private_);
@@ -1195,25 +1217,37 @@ if( Format.FLAC__HAS_OGG ) {
 		this.seek_table.points = null;
 		this.has_seek_table = false;
 
-		this.input = null;
-		for(int i = 0; i < Format.FLAC__MAX_CHANNELS; i++ ) {
-			/* WATCHOUT:
-			 * restore_signal_asm_ia32_mmx() and ..._intrin_sseN()
-			 * require that the output arrays have a buffer of up to 3 zeroes
-			 * in front (at negative indices) for alignment purposes;
-			 * we use 4 to keep the data well-aligned.
-			 */
-			if( null != this.output[i] ) {
-				this.output[i] = null;
-			}
-			if( null != this.residual[i] /*this.residual_unaligned[i]*/ ) {
-				//this.residual_unaligned[i] = null;
-				this.residual[i] = null;
+		if( ! keepBuffers ) {
+			this.input = null;
+			for(int i = 0; i < Format.FLAC__MAX_CHANNELS; i++ ) {
+				/* WATCHOUT:
+				 * restore_signal_asm_ia32_mmx() and ..._intrin_sseN()
+				 * require that the output arrays have a buffer of up to 3 zeroes
+				 * in front (at negative indices) for alignment purposes;
+				 * we use 4 to keep the data well-aligned.
+				 */
+				if( null != this.output[i] ) {
+					this.output[i] = null;
+				}
+				if( null != this.residual[i] /*this.residual_unaligned[i]*/ ) {
+					//this.residual_unaligned[i] = null;
+					this.residual[i] = null;
+				}
 			}
+			this.side_subframe = null;
+			this.output_capacity = 0;
+			this.output_channels = 0;
+		} else {
+			/* an idle decoder must not keep its last client alive */
+			this.read_callback = null;
+			this.seek_callback = null;
+			this.tell_callback = null;
+			this.length_callback = null;
+			this.eof_callback = null;
+			this.write_callback = null;
+			this.metadata_callback = null;
+			this.error_callback = null;
 		}
-		this.side_subframe = null;
-		this.output_capacity = 0;
-		this.output_channels = 0;
 
 if( Format.FLAC__HAS_OGG ) {
 		if( this.is_ogg ) {
@@ -1308,6 +1342,42 @@ if( Format.FLAC__HAS_OGG ) {
 		this.md5_checking = value;
 		return true;
 	}
+	/** Set the "asynchronous MD5" flag.  If \c true, the decoder only
+	 *  converts the decoded samples for the MD5 signature, a pool thread
+	 *  updates the signature with a few frames of delay, so the decoding
+	 *  thread does not wait for it.
+	 *
+	 * \default \c false
+	 * @param  value    Flag value (see above).
+	 * @retval FLAC__bool
+	 *    \c false if the decoder is already initialized, else \c true.
+	 */
+	public final boolean set_async_md5(final boolean value)// java: added
+	{
+		if( this.state != FLAC__STREAM_DECODER_UNINITIALIZED ) {
+			return false;
+		}
+		this.async_md5 = value;
+		return true;
+	}
+	/** Compare the MD5 signature of the decoded audio with the one in the
+	 *  STREAMINFO block once the decoder reached the end of the stream,
+	 *  instead of at FLAC__stream_decoder_finish().  The signature is
+	 *  compared once, MD5 checking is off afterwards.
+	 *
+	 * @retval FLAC__bool
+	 *    \c false if MD5 checking is on AND the decoder is at the end of
+	 *    the stream AND the signatures differ; else \c true.
+	 */
+	public final boolean check_md5()// java: added
+	{
+		if( ! this.do_md5_checking || this.state != FLAC__STREAM_DECODER_END_OF_STREAM ) {
+			return true;
+		}
+		this.md5context.MD5Final( this.computed_md5sum );
+		this.do_md5_checking = false;
+		return Arrays.equals( this.stream_info.md5sum, this.computed_md5sum );
+	}
 	/** Direct the decoder to pass on all metadata blocks of type \a type.
 	 *
 	 * \default By default, only the \c STREAMINFO block is returned via the
@@ -2202,6 +2272,7 @@ if( Format.FLAC__HAS_OGG ) {
 		this.metadata_filter_ids_count = 0;
 
 		this.md5_checking = false;
+		this.async_md5 = false;
 
 if( Format.FLAC__HAS_OGG ) {
 		this.ogg_decoder_aspect.set_defaults();
@@ -2544,7 +2615,7 @@ if( Format.FLAC__HAS_OGG ) {
 					case Format.FLAC__METADATA_TYPE_VORBIS_COMMENT:
 						final VorbisComment vorbis_comment = (VorbisComment)block;
 						vorbis_comment.vendor_string = null;
-						if( vorbis_comment.comments.length > 0 ) {
+						if( vorbis_comment.comments != null ) {
 							final String[] comments = vorbis_comment.comments;// java
 							for( int i = 0, ie = vorbis_comment.comments.length; i < ie; i++ ) {
 								comments[i] = null;
@@ -2666,9 +2737,12 @@ if( Format.FLAC__HAS_OGG ) {
 		table.num_points = num_points;// java
 
 		/* use realloc since we may pass through here several times (e.g. after seeking) */
-		table.points = Arrays.copyOf( table.points, num_points );
+		table.points = table.points == null ? new SeekPoint[num_points] : Arrays.copyOf( table.points, num_points );
 
 		for( int i = 0; i < num_points; i++ ) {
+			if( table.points[i] == null ) {
+				table.points[i] = new SeekPoint();// java: the array holds references
+			}
 			table.points[i].sample_number = this.input.read_raw_uint64( Format.FLAC__STREAM_METADATA_SEEKPOINT_SAMPLE_NUMBER_LEN );/* read_callback_ sets the state for us */
 
 			table.points[i].stream_offset = this.input.read_raw_uint64( Format.FLAC__STREAM_METADATA_SEEKPOINT_STREAM_OFFSET_LEN );/* read_callback_ sets the state for us */
@@ -2693,24 +2767,25 @@ if( Format.FLAC__HAS_OGG ) {
 			//FLAC__ASSERT(FLAC__STREAM_METADATA_VORBIS_COMMENT_ENTRY_LENGTH_LEN == 32);
 
 			int n = this.input.read_uint32_little_endian();/* read_callback_ sets the state for us */
+			// java: an empty string instead of a NULL entry, the vendor string is written back as a String
+			obj.vendor_string = "";
+			obj.num_comments = 0;
 			if( n > 0 ) {
-				if( length < obj.vendor_string.length() ) {
+				if( length < n ) {
 					//obj.vendor_string.length = 0;
-					obj.vendor_string = null;
 					//goto skip;
 					if( length > 0 ) {
 						/* This will only happen on files with invalid data in comments */
 						this.input.skip_byte_block_aligned_no_crc( length ); /* read_callback_ sets the state for us */
 					}
-				} else {
-					length -= obj.vendor_string.length();
+					obj.comments = null;
+					return;
 				}
+				length -= n;
 
 				final byte[] entry = new byte[ n ];
 				this.input.read_byte_block_aligned_no_crc( entry, n );/* read_callback_ sets the state for us */
 				try { obj.vendor_string = new String( entry, VorbisComment.ENCODING ); } catch( final UnsupportedEncodingException e ) {}
-			} else {
-				obj.vendor_string = null;
 			}
 
 			/* read num comments */
@@ -2860,8 +2935,8 @@ if( Format.FLAC__HAS_OGG ) {
 		byte[] buffer = new byte[ x/* + 1*/ ];
 		if( x > 0 ) {
 			reader.read_byte_block_aligned_no_crc( buffer, x );/* read_callback_ sets the state for us */
-			obj.mime_type = new String( buffer, Picture.MIME_ENCODING );
 		}
+		obj.mime_type = new String( buffer, Picture.MIME_ENCODING );// java: "" like the C empty string
 		//obj.mime_type[ x[0] ] = '\0';
 
 		/* read description */
@@ -2873,11 +2948,11 @@ if( Format.FLAC__HAS_OGG ) {
 		buffer = new byte[ x/* + 1*/ ];
 		if( x > 0 ) {
 			reader.read_byte_block_aligned_no_crc( buffer, x );/* read_callback_ sets the state for us */
-			try {
-				obj.description = new String( buffer, Picture.DESCRIPTION_ENCODING );
-			} catch(final UnsupportedEncodingException e) {
-				throw new IOException( e );
-			}
+		}
+		try {
+			obj.description = new String( buffer, Picture.DESCRIPTION_ENCODING );
+		} catch(final UnsupportedEncodingException e) {
+			throw new IOException( e );
 		}
 		//obj.description[ x[0] ] = '\0';
 
@@ -3619,7 +3694,7 @@ if( Format.FLAC__HAS_OGG ) {
 				final long[] sidesubframe = this.side_subframe;// java
 				this.side_subframe_in_use = true;
 				for( int i = 0; i < frame_header_blocksize; i++ ) {
-					sidesubframe[i] = (out[i] << x);
+					sidesubframe[i] = ((long)out[i] << x);
 				}
 			}
 		}
@@ -3749,18 +3824,18 @@ if( Format.FLAC__HAS_OGG ) {
 				}
 				break;
 			case 2:
-				for( int i = 0; i < data_len; i++ ) {
+				for( int i = 0; i < data_len; i++, order++ ) {
 					data[order] = (long)residual[i] + ((long)data[order-1] << 1) - (long)data[order-2];
 				}
 				break;
 			case 3:
-				for( int i = 0; i < data_len; i++ ) {
+				for( int i = 0; i < data_len; i++, order++ ) {
 					final long e = (long)(data[order-1] - data[order-2]);
 					data[order] = (long)residual[i] + ((e << 1) + e) + (long)data[order-3];
 				}
 				break;
 			case 4:
-				for( int i = 0; i < data_len; i++ ) {
+				for( int i = 0; i < data_len; i++, order++ ) {
 					final long e = (long)data[order-2];
 					data[order] = (long)residual[i] + ((((long)(data[order-1] + data[order-3]) << 1) - ((e << 1) + e)) << 1) - (long)data[order-4];
 				}
@@ -4371,7 +4446,7 @@ if( Format.FLAC__HAS_OGG ) {
 
 		if( this.state == FLAC__STREAM_DECODER_SEARCH_FOR_FRAME_SYNC &&
 				this.samples_decoded != 0 ) {
-			if( target_sample < this.samples_decoded ) {
+			if( sample < this.samples_decoded ) {
 				try {
 					upper_bound = get_decode_position();
 					upper_bound_sample = this.samples_decoded;
@@ -4743,9 +4818,9 @@ if( Format.FLAC__HAS_OGG ) {
 	public int dec_seek_callback(final StreamDecoder decoder, final long absolute_byte_offset/*, final Object client_data*/)
 	{
 		final InputStream is = decoder.file;
-		if( is instanceof RandomAccessInputStream ) {
+		if( is instanceof SeekableInputStream ) {
 			try {
-				((RandomAccessInputStream) is).seek( absolute_byte_offset );
+				((SeekableInputStream) is).seek( absolute_byte_offset );
 				return FLAC__STREAM_DECODER_SEEK_STATUS_OK;
 			} catch(final IOException e) {
 				return FLAC__STREAM_DECODER_SEEK_STATUS_ERROR;
@@ -4759,8 +4834,8 @@ if( Format.FLAC__HAS_OGG ) {
 	public long dec_tell_callback(final StreamDecoder decoder/*, final Object client_data*/) throws IOException, UnsupportedOperationException
 	{
 		final InputStream is = decoder.file;
-		if( is instanceof RandomAccessInputStream ) {
-			return ((RandomAccessInputStream) is).getFilePointer();
+		if( is instanceof SeekableInputStream ) {
+			return ((SeekableInputStream) is).getFilePointer();
 		}
 		// if( is == System.in )
 		throw new UnsupportedOperationException( FLAC__StreamDecoderTellStatusString[FLAC__STREAM_DECODER_TELL_STATUS_UNSUPPORTED] );
@@ -4770,8 +4845,8 @@ if( Format.FLAC__HAS_OGG ) {
 	public final long dec_length_callback(final StreamDecoder decoder/*, final Object client_data*/) throws IOException, UnsupportedOperationException
 	{
 		final InputStream is = decoder.file;
-		if( is instanceof RandomAccessInputStream ) {
-			return ((RandomAccessInputStream) is).length();
+		if( is instanceof SeekableInputStream ) {
+			return ((SeekableInputStream) is).length();
 		}
 		throw new UnsupportedOperationException( FLAC__StreamDecoderLengthStatusString[FLAC__STREAM_DECODER_LENGTH_STATUS_UNSUPPORTED] );
 	}
@@ -4780,9 +4855,9 @@ if( Format.FLAC__HAS_OGG ) {
 	public final boolean dec_eof_callback(final StreamDecoder decoder/*, final Object client_data*/) {
 		//return feof(decoder.file) ? true : false;
 		final InputStream is = decoder.file;
-		if( is instanceof RandomAccessInputStream ) {
+		if( is instanceof SeekableInputStream ) {
 			try {
-				return ((RandomAccessInputStream) is).length() == ((RandomAccessInputStream) is).getFilePointer();
+				return ((SeekableInputStream) is).length() == ((SeekableInputStream) is).getFilePointer();
 			} catch( final IOException e ) {
 			}
 		}
@@ -2,7 +2,12 @@ package org.xiph.flac;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class StreamEncoder implements
 		OggEncoderAspectWriteCallbackProxy,
@@ -159,6 +164,26 @@ public class StreamEncoder implements
 		"FLAC__STREAM_ENCODER_INIT_STATUS_ALREADY_INITIALIZED"
 	};
 
+	/** Return values for FLAC__stream_encoder_set_num_threads().
+	 */
+	//typedef enum {
+		/** The number of threads was set. */
+		public static final int FLAC__STREAM_ENCODER_SET_NUM_THREADS_OK = 0;
+
+		/** Not used in java, threads are always available. */
+		public static final int FLAC__STREAM_ENCODER_SET_NUM_THREADS_NOT_COMPILED_WITH_MULTITHREADING_ENABLED = 1;
+
+		/** The encoder is already initialized. */
+		public static final int FLAC__STREAM_ENCODER_SET_NUM_THREADS_ALREADY_INITIALIZED = 2;
+
+		/** The value is negative or larger than FLAC__STREAM_ENCODER_MAX_THREADS. */
+		public static final int FLAC__STREAM_ENCODER_SET_NUM_THREADS_TOO_MANY_THREADS = 3;
+
+	//} FLAC__StreamEncoderSetNumThreadsStatus;
+
+	/** The maximum number of threads accepted by FLAC__stream_encoder_set_num_threads(). */
+	public static final int FLAC__STREAM_ENCODER_MAX_THREADS = 128;
+
 	/** Return values for the FLAC__StreamEncoder read callback.
 	 */
 	//typedef enum {// java: changed. uses IOException and UnsupportedOperationException
@@ -320,12 +345,14 @@ public class StreamEncoder implements
 		boolean do_verify;// java: duplicate, verify renamed to do_verify
 		boolean streamable_subset;
 		boolean do_md5;
+		boolean async_md5;// java: added, if true, the MD5 signature is updated by a pool thread
 		boolean do_mid_side_stereo;
 		boolean loose_mid_side_stereo;
 		int channels;
 		int bits_per_sample;
 		int sample_rate;
 		int blocksize;
+		int num_threads;
 //#ifndef FLAC__INTEGER_ONLY_LIBRARY
 		int num_apodizations;
 		final ApodizationSpecification apodizations[] = new ApodizationSpecification[FLAC__MAX_APODIZATION_FUNCTIONS];
@@ -557,6 +584,14 @@ public class StreamEncoder implements
 	private final float lp_coeff[][] = new float[Format.FLAC__MAX_LPC_ORDER][Format.FLAC__MAX_LPC_ORDER]; /* from process_subframe_() */
 //#endif
 	private final PartitionedRiceContents partitioned_rice_contents_extra[] = new PartitionedRiceContents[2]; /* from find_best_partition_order_() */
+		/*
+		 * The data for multithreaded encoding: each worker is an encoder with
+		 * its own workspaces that encodes whole frames into its own bitbuffer,
+		 * the frames are written in order by the calling thread.
+		 */
+	private ExecutorService thread_pool;
+	private final ArrayDeque<StreamEncoder> idle_workers = new ArrayDeque<StreamEncoder>();
+	private final ArrayDeque<Future<StreamEncoder>> pending_frames = new ArrayDeque<Future<StreamEncoder>>();
 		/*
 		 * The data for the verify section
 		 */
@@ -1026,15 +1061,28 @@ if( Format.FLAC__HAS_OGG ) {
 			return FLAC__STREAM_ENCODER_INIT_STATUS_ENCODER_ERROR;
 		}
 
+		/*
+		 * Set up the worker encoders; loose mid-side stereo depends on the
+		 * channel assignment of the previous frames, so it is always done
+		 * by the calling thread
+		 */
+		if( this.num_threads > 1 && ! this.loose_mid_side_stereo ) {
+			if( ! init_threads_() ) {
+				/* the above function sets the state for us in case of an error */
+				return FLAC__STREAM_ENCODER_INIT_STATUS_ENCODER_ERROR;
+			}
+		}
+
 		/*
 		 * Set up the verify stuff if necessary
 		 */
 		if( this.do_verify ) {
 			/*
 			 * First, set up the fifo which will hold the
-			 * original signal to compare against
+			 * original signal to compare against, it holds
+			 * the frames still being encoded by the workers too
 			 */
-			this.verify.input_fifo.size = this.blocksize + OVERREAD_;
+			this.verify.input_fifo.size = this.blocksize * (this.idle_workers.size() + 1) + OVERREAD_;
 			for( int i = 0; i < this.channels; i++ ) {
 				try {
 					this.verify.input_fifo.data[i] = new int[this.verify.input_fifo.size];
@@ -1122,6 +1170,7 @@ if( Format.FLAC__HAS_OGG ) {
 		stream_info.total_samples = this.total_samples_estimate; /* we will replace this later with the real total */
 		Arrays.fill( stream_info.md5sum, 0, 16, (byte)0 );/* we don't know this yet; have to fill it in later */
 		if( this.do_md5 ) {
+			this.md5context.set_async( this.async_md5 );
 			this.md5context.MD5Init();
 		}
 		if( ! StreamMetadata.add_metadata_block( this.streaminfo, this.frame ) ) {
@@ -1678,7 +1727,10 @@ if( Format.FLAC__HAS_OGG ) {
 		boolean error = false;
 
 		if( this.state == FLAC__STREAM_ENCODER_OK && ! this.is_being_deleted ) {
-			if( this.current_sample_number != 0 ) {
+			if( ! write_pending_frames_() ) {
+				error = true;
+			}
+			else if( this.current_sample_number != 0 ) {
 				this.blocksize = this.current_sample_number;
 				if( ! process_frame_( /*is_last_block=*/true ) ) {
 					error = true;
@@ -1838,6 +1890,24 @@ if( Format.FLAC__HAS_OGG ) {
 		return true;
 	}
 
+	/** Set the "asynchronous MD5" flag.  If \c true, the encoder only
+	 *  converts the input samples for the MD5 signature, a pool thread
+	 *  updates the signature, which is complete at FLAC__stream_encoder_finish().
+	 *
+	 * \default \c false
+	 * @param  value    Flag value (see above).
+	 * @retval FLAC__bool
+	 *    \c false if the encoder is already initialized, else \c true.
+	 */
+	public final boolean set_async_md5(final boolean value)// java: added
+	{
+		if( this.state != FLAC__STREAM_ENCODER_UNINITIALIZED ) {
+			return false;
+		}
+		this.async_md5 = value;
+		return true;
+	}
+
 	/** Set the number of channels to be encoded.
 	 *
 	 * \default \c 2
@@ -2025,6 +2095,37 @@ if( Format.FLAC__HAS_OGG ) {
 		return true;
 	}
 
+	/** Set the number of threads to use while encoding.
+	 *
+	 * With more than one thread, the frames are encoded by worker threads
+	 * and written in order by the thread calling the process functions, so
+	 * the callbacks are always called from that thread.  The encoded stream
+	 * is the same for any number of threads.  Use \c 0 for the default.
+	 * Loose mid-side stereo depends on the previous frames, with it set the
+	 * encoder always uses one thread.
+	 *
+	 * \default \c 1
+	 * @param  value    See above.
+	 * \assert
+	 *    \code encoder != NULL \endcode
+	 * @retval FLAC__StreamEncoderSetNumThreadsStatus
+	 *    \c FLAC__STREAM_ENCODER_SET_NUM_THREADS_OK if the number was set.
+	 */
+	public final int /* FLAC__StreamEncoderSetNumThreadsStatus */ set_num_threads(final int value)
+	{
+		//FLAC__ASSERT(0 != encoder);
+		//FLAC__ASSERT(0 != encoder->private_);
+		//FLAC__ASSERT(0 != encoder->protected_);
+		if( this.state != FLAC__STREAM_ENCODER_UNINITIALIZED ) {
+			return FLAC__STREAM_ENCODER_SET_NUM_THREADS_ALREADY_INITIALIZED;
+		}
+		if( value < 0 || value > FLAC__STREAM_ENCODER_MAX_THREADS ) {
+			return FLAC__STREAM_ENCODER_SET_NUM_THREADS_TOO_MANY_THREADS;
+		}
+		this.num_threads = value == 0 ? 1 : value;
+		return FLAC__STREAM_ENCODER_SET_NUM_THREADS_OK;
+	}
+
 	/** Set to \c true to enable mid-side encoding on stereo input.  The
 	 *  number of channels must be 2 for this to have any effect.  Set to
 	 *  \c false to use only independent channel coding.
@@ -2783,6 +2884,14 @@ if( Format.FLAC__HAS_OGG ) {
 		return this.blocksize;
 	}
 
+	public final int get_num_threads()
+	{
+		//FLAC__ASSERT(0 != encoder);
+		//FLAC__ASSERT(0 != encoder->private_);
+		//FLAC__ASSERT(0 != encoder->protected_);
+		return this.num_threads;
+	}
+
 	public final boolean get_do_mid_side_stereo()
 	{
 		//FLAC__ASSERT(0 != encoder);
@@ -3114,12 +3223,14 @@ if( Format.FLAC__HAS_OGG ) {
 //#endif
 		this.streamable_subset = true;
 		this.do_md5 = true;
+		this.async_md5 = false;
 		this.do_mid_side_stereo = false;
 		this.loose_mid_side_stereo = false;
 		this.channels = 2;
 		this.bits_per_sample = 16;
 		this.sample_rate = 44100;
 		this.blocksize = 0;
+		this.num_threads = 1;
 //#ifndef FLAC__INTEGER_ONLY_LIBRARY
 		this.num_apodizations = 1;
 		this.apodizations[0].type = ApodizationSpecification.FLAC__APODIZATION_TUKEY;
@@ -3203,6 +3314,12 @@ if( Format.FLAC__HAS_OGG ) {
 			}
 		}
 		this.frame.free();
+		if( null != this.thread_pool ) {
+			this.thread_pool.shutdownNow();
+			this.thread_pool = null;
+		}
+		this.pending_frames.clear();
+		this.idle_workers.clear();
 	}
 
 	private final boolean resize_buffers_(final int new_blocksize)
@@ -3364,12 +3481,17 @@ if( Format.FLAC__HAS_OGG ) {
 	}
 
 	private final boolean write_bitbuffer_(final int samples, final boolean is_last_block)
+	{
+		return write_bitbuffer_( this.frame, samples, is_last_block );
+	}
+
+	private final boolean write_bitbuffer_(final BitWriter frame, final int samples, final boolean is_last_block)
 	{
 		final BitWriterHelperStruct buffer;
 
-		//FLAC__ASSERT(FLAC__bitwriter_is_byte_aligned(encoder.private_.frame));
+		//FLAC__ASSERT(FLAC__bitwriter_is_byte_aligned(frame));
 
-		if( null == (buffer = this.frame.get_buffer( /* buffer, bytes */ )) ) {
+		if( null == (buffer = frame.get_buffer( /* buffer, bytes */ )) ) {
 			this.state = FLAC__STREAM_ENCODER_MEMORY_ALLOCATION_ERROR;
 			return false;
 		}
@@ -3387,8 +3509,8 @@ if( Format.FLAC__HAS_OGG ) {
 					    || ( ! is_last_block
 						    && (get_verify_decoder_state() == StreamDecoder.FLAC__STREAM_DECODER_END_OF_STREAM) )
 					    || this.state == FLAC__STREAM_ENCODER_VERIFY_DECODER_ERROR /* Happens when error callback was used */) {
-					this.frame.release_buffer();
-					this.frame.clear();
+					frame.release_buffer();
+					frame.clear();
 					if( this.state != FLAC__STREAM_ENCODER_VERIFY_MISMATCH_IN_AUDIO_DATA ) {
 						this.state = FLAC__STREAM_ENCODER_VERIFY_DECODER_ERROR;
 					}
@@ -3398,14 +3520,14 @@ if( Format.FLAC__HAS_OGG ) {
 		}
 
 		if( write_frame_( buffer.bytebuffer, buffer.bytes, samples, is_last_block ) != FLAC__STREAM_ENCODER_WRITE_STATUS_OK ) {
-			this.frame.release_buffer();
-			this.frame.clear();
+			frame.release_buffer();
+			frame.clear();
 			this.state = FLAC__STREAM_ENCODER_CLIENT_ERROR;
 			return false;
 		}
 
-		this.frame.release_buffer();
-		this.frame.clear();
+		frame.release_buffer();
+		frame.clear();
 
 		if( samples > 0 ) {
 			final StreamInfo stream_info = this.streaminfo;
@@ -3893,6 +4015,39 @@ if( Format.FLAC__HAS_OGG ) {
 			return false;
 		}
 
+		/*
+		 * Hand the frame to a worker; the last block is always encoded here,
+		 * after the frames of the workers are written
+		 */
+		if( null != this.thread_pool && ! is_last_block ) {
+			return submit_frame_();
+		}
+
+		if( ! encode_frame_() ) {
+			return false;
+		}
+
+		/*
+		 * Write it
+		 */
+		if( ! write_bitbuffer_( this.blocksize, is_last_block ) ) {
+			/* the above function sets the state for us in case of an error */
+			return false;
+		}
+
+		/*
+		 * Get ready for the next frame
+		 */
+		this.current_sample_number = 0;
+		this.current_frame_number++;
+		this.streaminfo.total_samples += (long)this.blocksize;
+
+		return true;
+	}
+
+	/** Encodes the current block into the frame bitbuffer. */
+	private final boolean encode_frame_()
+	{
 		/*
 		 * Process the frame header and subframes into the frame bitbuffer
 		 */
@@ -3924,21 +4079,165 @@ if( Format.FLAC__HAS_OGG ) {
 			return false;
 		}
 
-		/*
-		 * Write it
-		 */
-		if( ! write_bitbuffer_( this.blocksize, is_last_block ) ) {
-			/* the above function sets the state for us in case of an error */
+		return true;
+	}
+
+	private final boolean init_threads_()
+	{
+		final int nworkers = this.num_threads << 1; /* the calling thread fills the next blocks while all threads are busy */
+		try {
+			for( int i = 0; i < nworkers; i++ ) {
+				final StreamEncoder worker = new StreamEncoder();
+				if( ! worker.init_worker_( this ) ) {
+					this.state = worker.state;
+					return false;
+				}
+				this.idle_workers.add( worker );
+			}
+			this.thread_pool = Executors.newFixedThreadPool( this.num_threads, r -> {
+				final Thread thread = new Thread( r, "FLAC encoder" );
+				thread.setDaemon( true );
+				return thread;
+			});
+		} catch( final OutOfMemoryError e ) {
+			this.idle_workers.clear();
+			this.state = FLAC__STREAM_ENCODER_MEMORY_ALLOCATION_ERROR;
 			return false;
 		}
+		return true;
+	}
+
+	/** Copies the settings used by process_subframes_() from the encoder and allocates the workspaces. */
+	private final boolean init_worker_(final StreamEncoder encoder)
+	{
+		this.do_mid_side_stereo = encoder.do_mid_side_stereo;
+		this.loose_mid_side_stereo = false;
+		this.channels = encoder.channels;
+		this.bits_per_sample = encoder.bits_per_sample;
+		this.sample_rate = encoder.sample_rate;
+		this.blocksize = encoder.blocksize;
+		this.num_apodizations = encoder.num_apodizations;
+		for( int i = 0; i < encoder.num_apodizations; i++ ) {
+			final ApodizationSpecification from = encoder.apodizations[i];
+			final ApodizationSpecification to = this.apodizations[i];
+			to.type = from.type;
+			to.stddev = from.stddev;
+			to.p = from.p;
+			to.start = from.start;
+			to.end = from.end;
+			to.parts = from.parts;
+		}
+		this.max_lpc_order = encoder.max_lpc_order;
+		this.qlp_coeff_precision = encoder.qlp_coeff_precision;
+		this.do_qlp_coeff_prec_search = encoder.do_qlp_coeff_prec_search;
+		this.do_exhaustive_model_search = encoder.do_exhaustive_model_search;
+		this.do_escape_coding = encoder.do_escape_coding;
+		this.min_residual_partition_order = encoder.min_residual_partition_order;
+		this.max_residual_partition_order = encoder.max_residual_partition_order;
+		this.rice_parameter_search_dist = encoder.rice_parameter_search_dist;
+		this.limit_min_bitrate = encoder.limit_min_bitrate;
+		this.disable_constant_subframes = encoder.disable_constant_subframes;
+		this.disable_fixed_subframes = encoder.disable_fixed_subframes;
+		this.disable_verbatim_subframes = encoder.disable_verbatim_subframes;
+
+		this.state = FLAC__STREAM_ENCODER_OK;
+		if( ! resize_buffers_( this.blocksize ) ) {
+			return false;
+		}
+		if( ! this.frame.init() ) {
+			this.state = FLAC__STREAM_ENCODER_MEMORY_ALLOCATION_ERROR;
+			return false;
+		}
+		return true;
+	}
+
+	/** Copies the current block to an idle worker and queues it, waiting for the oldest frame if all workers are busy. */
+	private final boolean submit_frame_()
+	{
+		StreamEncoder worker = this.idle_workers.poll();
+		if( null == worker ) {
+			worker = write_pending_frame_();
+			if( null == worker ) {
+				/* the above function sets the state for us in case of an error */
+				return false;
+			}
+		}
+
+		final int block_size = this.blocksize;
+		for( int channel = 0, nchannels = this.channels; channel < nchannels; channel++ ) {
+			System.arraycopy( this.integer_signal[channel], 0, worker.integer_signal[channel], 0, block_size );
+		}
+		if( this.do_mid_side_stereo ) {
+			System.arraycopy( this.integer_signal_mid_side[0], 0, worker.integer_signal_mid_side[0], 0, block_size );
+			if( this.bits_per_sample < 32 ) {
+				System.arraycopy( this.integer_signal_mid_side[1], 0, worker.integer_signal_mid_side[1], 0, block_size );
+			} else {
+				System.arraycopy( this.integer_signal_33bit_side, 0, worker.integer_signal_33bit_side, 0, block_size );
+			}
+		}
+		/* current_frame_number is the number of the next frame to be written */
+		worker.current_frame_number = this.current_frame_number + this.pending_frames.size();
+
+		final StreamEncoder w = worker;// java
+		this.pending_frames.add( this.thread_pool.submit( () -> {
+			w.encode_frame_();
+			return w;
+		}) );
 
-		/*
-		 * Get ready for the next frame
-		 */
 		this.current_sample_number = 0;
+		return true;
+	}
+
+	/** Waits for the oldest frame being encoded and writes it.
+	 *
+	 * @return the worker which encoded the frame, or \c null on error
+	 */
+	private final StreamEncoder write_pending_frame_()
+	{
+		final Future<StreamEncoder> pending = this.pending_frames.poll();
+		final StreamEncoder worker;
+		try {
+			worker = pending.get();
+		} catch( final InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			this.state = FLAC__STREAM_ENCODER_CLIENT_ERROR;
+			return null;
+		} catch( final ExecutionException e ) {
+			if( e.getCause() instanceof OutOfMemoryError ) {
+				this.state = FLAC__STREAM_ENCODER_MEMORY_ALLOCATION_ERROR;
+				return null;
+			}
+			if( e.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RuntimeException( e.getCause() );
+		}
+		if( worker.state != FLAC__STREAM_ENCODER_OK ) {
+			this.state = worker.state;
+			return null;
+		}
+
+		if( ! write_bitbuffer_( worker.frame, this.blocksize, /*is_last_block=*/false ) ) {
+			/* the above function sets the state for us in case of an error */
+			return null;
+		}
+
 		this.current_frame_number++;
 		this.streaminfo.total_samples += (long)this.blocksize;
 
+		return worker;
+	}
+
+	/** Writes all the frames being encoded by the workers. */
+	private final boolean write_pending_frames_()
+	{
+		while( ! this.pending_frames.isEmpty() ) {
+			final StreamEncoder worker = write_pending_frame_();
+			if( null == worker ) {
+				return false;
+			}
+			this.idle_workers.add( worker );
+		}
 		return true;
 	}
 
@@ -4513,7 +4812,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_1_is_valid && total_error_1 < smallest_error ) {
 			order = 1;
 			smallest_error = total_error_1;
-			residual_bits_per_sample[ 1 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 1 ] = (float)((total_error_1 > 0) ? Math.log( M_LN2 * (double)total_error_1 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 1 ] = 34.0f;
 		}
@@ -4522,7 +4821,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_2_is_valid && total_error_2 < smallest_error ) {
 			order = 2;
 			smallest_error = total_error_2;
-			residual_bits_per_sample[ 2 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 2 ] = (float)((total_error_2 > 0) ? Math.log( M_LN2 * (double)total_error_2 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 2 ] = 34.0f;
 		}
@@ -4531,7 +4830,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_3_is_valid && total_error_3 < smallest_error ) {
 			order = 3;
 			smallest_error = total_error_3;
-			residual_bits_per_sample[ 3 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 3 ] = (float)((total_error_3 > 0) ? Math.log( M_LN2 * (double)total_error_3 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 3 ] = 34.0f;
 		}
@@ -4540,7 +4839,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_4_is_valid && total_error_4 < smallest_error ) {
 			order = 4;
 			smallest_error = total_error_4;
-			residual_bits_per_sample[ 4 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 4 ] = (float)((total_error_4 > 0) ? Math.log( M_LN2 * (double)total_error_4 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 4 ] = 34.0f;
 		}
@@ -4626,7 +4925,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_1_is_valid && total_error_1 < smallest_error ) {
 			order = 1;
 			smallest_error = total_error_1;
-			residual_bits_per_sample[ 1 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 1 ] = (float)((total_error_1 > 0) ? Math.log( M_LN2 * (double)total_error_1 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 1 ] = 34.0f;
 		}
@@ -4635,7 +4934,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_2_is_valid && total_error_2 < smallest_error ) {
 			order = 2;
 			smallest_error = total_error_2;
-			residual_bits_per_sample[ 2 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 2 ] = (float)((total_error_2 > 0) ? Math.log( M_LN2 * (double)total_error_2 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 2 ] = 34.0f;
 		}
@@ -4644,7 +4943,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_3_is_valid && total_error_3 < smallest_error ) {
 			order = 3;
 			smallest_error = total_error_3;
-			residual_bits_per_sample[ 3 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 3 ] = (float)((total_error_3 > 0) ? Math.log( M_LN2 * (double)total_error_3 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 3 ] = 34.0f;
 		}
@@ -4653,7 +4952,7 @@ if( Format.FLAC__HAS_OGG ) {
 		if( order_4_is_valid && total_error_4 < smallest_error ) {
 			order = 4;
 			smallest_error = total_error_4;
-			residual_bits_per_sample[ 4 ] = (float)((total_error_0 > 0) ? Math.log( M_LN2 * (double)total_error_0 / (double)data_len ) / M_LN2 : 0.0 );
+			residual_bits_per_sample[ 4 ] = (float)((total_error_4 > 0) ? Math.log( M_LN2 * (double)total_error_4 / (double)data_len ) / M_LN2 : 0.0 );
 		} else {
 			residual_bits_per_sample[ 4 ] = 34.0f;
 		}
@@ -2,6 +2,7 @@ package org.xiph.flac;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 
 /** FLAC metadata block structure.  (c.f. <A HREF="../format.html#metadata_block">format specification</A>)
  */
@@ -43,6 +44,11 @@ public class StreamMetadata implements StreamDecoderWriteCallback
 		is_last = m.is_last;
 		length = m.length;
 	}
+
+	// java: the strings of the blocks are stored as UTF-8, their lengths count bytes, not chars
+	static int utf8_length_(final String s) {
+		return s.getBytes( StandardCharsets.UTF_8 ).length;
+	}
 	/****************************************************************************
 	 *
 	 * Metadata object routines
@@ -110,7 +116,7 @@ public class StreamMetadata implements StreamDecoderWriteCallback
 						Format.FLAC__STREAM_METADATA_PICTURE_DATA_LENGTH_LEN +
 						0 /* no data */
 					) / 8;
-					picture.type = Format.FLAC__STREAM_METADATA_PICTURE_TYPE_OTHER;
+					picture.picture_type = Format.FLAC__STREAM_METADATA_PICTURE_TYPE_OTHER;
 					//picture.mime_type = null;
 					//picture.description = null;
 					/* calloc() and java took care of this for us:
@@ -458,7 +464,7 @@ public class StreamMetadata implements StreamDecoderWriteCallback
 					try {
 						final Picture picture = (Picture) metadata;
 						int len;
-						if( ! bw.write_raw_uint32( picture.type, Format.FLAC__STREAM_METADATA_PICTURE_TYPE_LEN ) ) {
+						if( ! bw.write_raw_uint32( picture.picture_type, Format.FLAC__STREAM_METADATA_PICTURE_TYPE_LEN ) ) {
 							return false;
 						}
 						len = picture.mime_type.length();
@@ -468,11 +474,12 @@ public class StreamMetadata implements StreamDecoderWriteCallback
 						if( ! bw.write_byte_block( picture.mime_type.getBytes( Picture.MIME_ENCODING ), len ) ) {
 							return false;
 						}
-						len = picture.description.length();
+						final byte[] description = picture.description.getBytes( Picture.DESCRIPTION_ENCODING );// java: UTF-8, the byte length may differ
+						len = description.length;
 						if( ! bw.write_raw_uint32( len, Format.FLAC__STREAM_METADATA_PICTURE_DESCRIPTION_LENGTH_LEN ) ) {
 							return false;
 						}
-						if( ! bw.write_byte_block( picture.description.getBytes( Picture.DESCRIPTION_ENCODING ), len ) ) {
+						if( ! bw.write_byte_block( description, len ) ) {
 							return false;
 						}
 						if( ! bw.write_raw_uint32( picture.width, Format.FLAC__STREAM_METADATA_PICTURE_WIDTH_LEN ) ) {
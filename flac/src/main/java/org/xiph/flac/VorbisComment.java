@@ -22,7 +22,8 @@ public class VorbisComment extends StreamMetadata {
 	private final void copyFrom(final VorbisComment m) {
 		super.copyFrom( m );
 		vendor_string = m.vendor_string;
-		comments = entry_array_copy_( m.comments, comments.length );
+		num_comments = m.num_comments;
+		comments = m.comments != null ? entry_array_copy_( m.comments, m.comments.length ) : null;
 	}
 
 	private static String[] entry_array_new_(final int num_comments)
@@ -73,13 +74,13 @@ public class VorbisComment extends StreamMetadata {
 		//FLAC__ASSERT(object->type == FLAC__METADATA_TYPE_VORBIS_COMMENT);
 
 		this.length = (Format.FLAC__STREAM_METADATA_VORBIS_COMMENT_ENTRY_LENGTH_LEN) / 8;
-		this.length += this.vendor_string.length();
+		this.length += utf8_length_( this.vendor_string );
 		this.length += (Format.FLAC__STREAM_METADATA_VORBIS_COMMENT_NUM_COMMENTS_LEN) / 8;
 		for( int i = 0, ie = this.num_comments; i < ie; i++ ) {
 			this.length += (Format.FLAC__STREAM_METADATA_VORBIS_COMMENT_ENTRY_LENGTH_LEN / 8);
 			final String comment = this.comments[i];// java
 			if( comment != null ) {
-				this.length += comment.length();
+				this.length += utf8_length_( comment );
 			}
 		}
 	}
@@ -160,7 +161,8 @@ public class VorbisComment extends StreamMetadata {
 		if( copy ) {
 			/* do the copy first so that if we fail we leave the dest object untouched */
 			this.vendor_string = new String( entry );
-			return true;// FIXME why length do not calculating?
+			calculate_length_();
+			return true;
 		}
 		this.vendor_string = entry;
 		calculate_length_();
@@ -376,7 +378,7 @@ public class VorbisComment extends StreamMetadata {
 			if( p < 0 || p != field_name_length ) {
 				return false;
 			}
-			return entry.substring( 0, p ).equalsIgnoreCase( field_name );
+			return entry.regionMatches( true, 0, field_name, 0, p );// java: field_name may be a whole entry
 		}
 	}
 
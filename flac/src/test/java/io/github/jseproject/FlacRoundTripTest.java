@@ -0,0 +1,184 @@
+package io.github.jseproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlacRoundTripTest {
+
+    private static final int CHANNELS = 2;
+
+    // the STREAMINFO signature follows the marker, the block header and 18 bytes of stream parameters
+    private static final int MD5_OFFSET = 4 + 4 + 18;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void roundTrips32BitSamples() throws IOException, UnsupportedAudioFileException {
+        // half scale noise: the side channel needs 33 bits and the residuals more than 30
+        for (float sampleRate : new float[] { 96000, 44100 }) {
+            AudioFormat format = new AudioFormat(sampleRate, 32, CHANNELS, true, false);
+            byte[] pcm = pcm(format, 1, 0, 0.5);
+            assertArrayEquals(pcm, decode(encode(format, pcm, Collections.<String, Object>singletonMap("flac.verify", true)), format),
+                    "at " + sampleRate + " Hz");
+        }
+    }
+
+    @Test
+    public void checksSignatureOnSerialDecode() throws IOException, UnsupportedAudioFileException {
+        AudioFormat format = new AudioFormat(44100, 16, CHANNELS, true, false);
+        byte[] pcm = pcm(format, 2, 1, 0.05);
+        File file = encode(format, pcm, Collections.<String, Object>emptyMap());
+        assertArrayEquals(pcm, decode(file, format));
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        data[MD5_OFFSET] ^= 1;
+        Files.write(file.toPath(), data);
+        assertThrows(IOException.class, () -> decode(file, format));
+    }
+
+    @Test
+    public void decodesAlikeOnSeveralThreads() throws IOException, UnsupportedAudioFileException {
+        AudioFormat format = new AudioFormat(44100, 16, CHANNELS, true, false);
+        byte[] pcm = pcm(format, 10, 1, 0.05);
+        File file = encode(format, pcm, Collections.<String, Object>emptyMap());
+        byte[] serial = decode(file, format);
+        assertArrayEquals(pcm, serial);
+
+        String threads = System.setProperty(DecodedFlacAudioInputStream.DECODER_THREADS_PROPERTY, "4");
+        try {
+            assertArrayEquals(serial, decode(file, format));
+            try (AudioInputStream stream = open(file, format)) {
+                SeekableAudioInputStream seekable = (SeekableAudioInputStream) stream;
+                for (long frame : new long[] { 300000, 1000, 4096 * 37 + 11, serial.length / 4 - 5000, 0 }) {
+                    seekable.seekToFrame(frame);
+                    assertEquals(frame, seekable.getFramePosition());
+                    int offset = (int) frame * format.getFrameSize();
+                    // across several batches of the workers
+                    byte[] expected = Arrays.copyOfRange(serial, offset, Math.min(offset + 200000 * format.getFrameSize(), serial.length));
+                    assertArrayEquals(expected, readFully(stream, expected.length), "after seeking to " + frame);
+                }
+                assertTrue(isDecoderThreadRunning(), "decoded in the reading thread");
+            }
+
+            byte[] data = Files.readAllBytes(file.toPath());
+            data[MD5_OFFSET] ^= 1;
+            Files.write(file.toPath(), data);
+            assertThrows(IOException.class, () -> decode(file, format));
+        }
+        finally {
+            if (threads == null) System.clearProperty(DecodedFlacAudioInputStream.DECODER_THREADS_PROPERTY);
+            else System.setProperty(DecodedFlacAudioInputStream.DECODER_THREADS_PROPERTY, threads);
+        }
+    }
+
+    @Test
+    public void copiesFramesOnlyWithoutEncoderProperties() throws IOException, UnsupportedAudioFileException {
+        AudioFormat format = new AudioFormat(44100, 16, CHANNELS, true, false);
+        byte[] pcm = pcm(format, 2, 1, 0.05);
+        File file = encode(format, pcm, Collections.<String, Object>singletonMap("quality", 1f));
+        byte[] fast = Files.readAllBytes(file.toPath());
+
+        File copy = new File(directory, "copy.flac");
+        new FlacAudioCompressionWriter().write(new FlacAudioFileReader().getAudioInputStream(file), FlacFileFormatType.FLAC,
+                Collections.<String, Object>emptyMap(), copy);
+        assertArrayEquals(fast, Files.readAllBytes(copy.toPath()));
+
+        File again = new File(directory, "again.flac");
+        new FlacAudioCompressionWriter().write(new FlacAudioFileReader().getAudioInputStream(file), FlacFileFormatType.FLAC,
+                Collections.<String, Object>singletonMap("quality", 0f), again);
+        assertTrue(again.length() < fast.length, "not encoded again");
+        assertArrayEquals(pcm, decode(again, format));
+    }
+
+    @Test
+    public void encodesAlikeOnSeveralThreads() throws IOException {
+        AudioFormat format = new AudioFormat(44100, 24, CHANNELS, true, false);
+        byte[] pcm = pcm(format, 5, 1, 0.05);
+        byte[] serial = Files.readAllBytes(encode(format, pcm, threads(1)).toPath());
+        for (int threads : new int[] { 2, 4 })
+            assertArrayEquals(serial, Files.readAllBytes(encode(format, pcm, threads(threads)).toPath()), threads + " threads");
+    }
+
+    // the highest compression level on the given number of encoder threads
+    private static Map<String, Object> threads(int threads) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("quality", 0f);
+        properties.put("flac.threads", threads);
+        return properties;
+    }
+
+    private File encode(AudioFormat format, byte[] pcm, Map<String, Object> properties) throws IOException {
+        File file = new File(directory, (int) format.getSampleRate() + "-" + format.getSampleSizeInBits() + ".flac");
+        new FlacAudioCompressionWriter().write(new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length / format.getFrameSize()),
+                FlacFileFormatType.FLAC, properties, file);
+        return file;
+    }
+
+    private static byte[] decode(File file, AudioFormat format) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream stream = open(file, format)) {
+            return readFully(stream, Integer.MAX_VALUE);
+        }
+    }
+
+    private static AudioInputStream open(File file, AudioFormat format) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream encoded = new FlacAudioFileReader().getAudioInputStream(file);
+        return new FlacFormatConversionProvider().getAudioInputStream(format, encoded);
+    }
+
+    // the workers of ParallelFlacDecoder
+    private static boolean isDecoderThreadRunning() {
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if ("FLAC decoder".equals(thread.getName())) return true;
+        return false;
+    }
+
+    // a chord and a sweep with uniform noise, little endian
+    private static byte[] pcm(AudioFormat format, int seconds, double tone, double noise) {
+        Random random = new Random(1);
+        int bytes = format.getSampleSizeInBits() / 8;
+        int frames = (int) format.getSampleRate() * seconds;
+        double full = Math.pow(2, format.getSampleSizeInBits() - 1) - 1;
+        byte[] pcm = new byte[frames * format.getFrameSize()];
+        for (int i = 0; i < frames; i ++) {
+            for (int channel = 0; channel < CHANNELS; channel ++) {
+                double t = i / (double) format.getSampleRate();
+                double value = tone * (0.4 * Math.sin(2 * Math.PI * (220 + 110 * channel) * t) + 0.3 * Math.sin(2 * Math.PI * 1375 * t * (1 + t)))
+                        + noise * (2 * random.nextDouble() - 1);
+                long sample = Math.max((long) -full - 1, Math.min((long) full, Math.round(value * full)));
+                int offset = i * format.getFrameSize() + channel * bytes;
+                for (int b = 0; b < bytes; b ++) pcm[offset + b] = (byte) (sample >> (8 * b));
+            }
+        }
+        return pcm;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        for (int read; out.size() < length && (read = in.read(buffer, 0, Math.min(buffer.length, length - out.size()))) != -1; )
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+}
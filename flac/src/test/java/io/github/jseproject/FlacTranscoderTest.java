@@ -0,0 +1,90 @@
+package io.github.jseproject;
+
+import io.github.jseproject.batch.TranscodeJob;
+import io.github.jseproject.batch.Transcoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class FlacTranscoderTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int JOBS = 64;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void concurrentJobsKeepTheirOwnProperties() throws IOException, UnsupportedAudioFileException, InterruptedException, ExecutionException {
+        File source = new File(directory, "source.wav");
+        byte[] pcm = pcm(1);
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length / format.getFrameSize()), AudioFileFormat.Type.WAVE, source);
+
+        byte[][] expected = new byte[2][];
+        try (Transcoder transcoder = new Transcoder(1)) {
+            for (int quality = 0; quality < 2; quality ++) {
+                File target = new File(directory, "serial-" + quality + ".flac");
+                transcoder.transcode(TranscodeJob.of(source, target, FlacFileFormatType.FLAC, properties(quality)));
+                expected[quality] = Files.readAllBytes(target.toPath());
+            }
+        }
+        assertFalse(expected[0].length == expected[1].length, "the qualities encode alike");
+
+        List<File> targets = new ArrayList<>();
+        List<TranscodeJob> jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS; i ++) {
+            File target = new File(directory, i + ".flac");
+            targets.add(target);
+            jobs.add(TranscodeJob.of(source, target, FlacFileFormatType.FLAC, properties(i % 2)));
+        }
+        try (Transcoder transcoder = new Transcoder(8)) {
+            for (Future<Integer> future : transcoder.submitAll(jobs)) future.get();
+        }
+        for (int i = 0; i < JOBS; i ++)
+            assertArrayEquals(expected[i % 2], Files.readAllBytes(targets.get(i).toPath()), "job " + i);
+    }
+
+    private static Map<String, Object> properties(int quality) {
+        return Collections.<String, Object>singletonMap("quality", (float) quality);
+    }
+
+    // a chord with some noise, little endian
+    private static byte[] pcm(int seconds) {
+        Random random = new Random(1);
+        int frames = (int) SAMPLE_RATE * seconds;
+        byte[] pcm = new byte[frames * CHANNELS * 2];
+        for (int i = 0; i < frames; i ++) {
+            for (int channel = 0; channel < CHANNELS; channel ++) {
+                double t = i / (double) SAMPLE_RATE;
+                double value = 0.4 * Math.sin(2 * Math.PI * (220 + 110 * channel) * t) + 0.05 * (2 * random.nextDouble() - 1);
+                short sample = (short) Math.round(value * 32767);
+                int offset = (i * CHANNELS + channel) * 2;
+                pcm[offset] = (byte) sample;
+                pcm[offset + 1] = (byte) (sample >> 8);
+            }
+        }
+        return pcm;
+    }
+
+}
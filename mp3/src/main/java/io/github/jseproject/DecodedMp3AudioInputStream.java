@@ -2,22 +2,45 @@ package io.github.jseproject;
 
 import net.sourceforge.lame.Mpg123;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
-public class DecodedMp3AudioInputStream extends TAudioInputStream {
+public class DecodedMp3AudioInputStream extends DecodedAudioInputStream {
+
+    // enough for one MPEG-1 Layer III frame of stereo 32-bit float samples
+    private static final int CHUNK_SIZE = 1152 * 2 * 4;
+    // frames decoded before the seek target, they restore the bit reservoir and the synthesis filter
+    private static final int SEEK_PREROLL_FRAMES = 10;
+    // bytes searched for a frame header after a seek
+    private static final int SYNC_WINDOW = 16384;
+    // sync word, version, layer and sampling frequency, which do not change within a stream
+    private static final int HEADER_MASK = 0xFFFE0C00;
+
+    private static final DecoderPool<List<Object>, Mpg123> DECODERS = new DecoderPool<>();
 
-    private byte[] singleByte = null;
     private Mpg123 decoder;
+    // the output format the decoder was created for
+    private final List<Object> decoderKey;
+    private SeekableInputStream seekableStream = null;
+    private Boolean constantBitrate = null;
+    private Mp3FrameIndex frameIndex = null;
+
     public DecodedMp3AudioInputStream(AudioFormat outputFormat, Mp3AudioInputStream inputStream) {
         super(inputStream, outputFormat, AudioSystem.NOT_SPECIFIED);
         if (TDebug.TraceAudioConverter) TDebug.out(">DecodedMp3AudioInputStream(AudioFormat, AudioInputStream)");
-        decoder = new Mpg123(outputFormat.getSampleSizeInBits(),
+        decoderKey = Arrays.asList(outputFormat.getSampleSizeInBits(),
+                outputFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED),
+                format.isBigEndian(),
+                PcmFloat.isFloat(outputFormat));
+        decoder = DECODERS.acquire(decoderKey);
+        if (decoder == null) decoder = new Mpg123(outputFormat.getSampleSizeInBits(),
                 outputFormat.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED),
-                format.isBigEndian());
+                format.isBigEndian(),
+                PcmFloat.isFloat(outputFormat));
         decoder.InitMP3();
         if (decoder.open(inputStream.getFilteredInputStream()) < 0) {
             decoder.ExitMP3();
@@ -25,6 +48,8 @@ public class DecodedMp3AudioInputStream extends TAudioInputStream {
             if (TDebug.TraceAudioConverter) TDebug.out("DecodedMp3AudioInputStream : Failed to initialize MP3 decoder");
             throw new IllegalArgumentException("conversion not supported");
         }
+        if (inputStream.getFilteredInputStream() instanceof SeekableInputStream)
+            seekableStream = (SeekableInputStream) inputStream.getFilteredInputStream();
     }
 
     @Override
@@ -32,26 +57,201 @@ public class DecodedMp3AudioInputStream extends TAudioInputStream {
         super.close();
         if (decoder != null) {
             decoder.ExitMP3();
+            decoder.reset();
+            DECODERS.release(decoderKey, decoder);
             decoder = null;
         }
-        singleByte = null;
     }
 
     @Override
-    public boolean markSupported() {
-        return false;
+    protected boolean decode() throws IOException {
+        // Mpg123 keeps the samples that do not fit itself, so fill the caller's buffer directly
+        int length = capacity();
+        if (length == 0) length = CHUNK_SIZE;
+        int offset = reserve(length);
+        int read = decoder.read(output(), offset, length);
+        if (read < 0) {
+            commit(0);
+            return false;
+        }
+        commit(read);
+        return true;
+    }
+
+    /**
+     * Seeks exactly through {@code frameIndex} from now on, which must be built from the same stream.
+     *
+     * @throws IllegalArgumentException if the index does not match the stream
+     */
+    public void setFrameIndex(Mp3FrameIndex frameIndex) {
+        // the index skips the Xing frame, which the decoder may not have parsed yet
+        if (frameIndex != null && (frameIndex.getSamplesPerFrame() != decoder.getSamplesPerFrame()
+                || frameIndex.getSampleRate() != decoder.getSampleRate()
+                || (frameIndex.size() > 0 && frameIndex.getByteOffset(0) < decoder.getFirstFrameOffset())))
+            throw new IllegalArgumentException("frame index does not match the stream");
+        this.frameIndex = frameIndex;
     }
 
     @Override
-    public int read() throws IOException {
-        if (singleByte == null) singleByte = new byte[1];
-        if (read(singleByte) <= 0) return -1; // we have a weird situation if read(byte[]) returns 0!
-        else return ((int) singleByte[0]) & 0xFF;
+    public boolean isSeekable() {
+        if (seekableStream == null || decoder == null || decoder.getSamplesPerFrame() == 0) return false;
+        if (frameIndex != null) return frameIndex.size() > 0;
+        return (decoder.getToc() != null && decoder.getFrameCount() > 0 && decoder.getStreamBytes() > 0) || isConstantBitrate();
     }
 
+    /**
+     * Seeks exactly in constant bitrate streams and with a frame index. Variable bitrate streams are positioned
+     * by the Xing table of contents otherwise, which is accurate to about a percent of the stream length only.
+     */
     @Override
-    public int read(byte[] b, int off, int len) throws IOException {
-        return decoder.read(b, off, len);
+    protected long seek(long frame) throws IOException {
+        int samplesPerFrame = decoder.getSamplesPerFrame();
+        long sample = frame + decoder.getDecoderDelay();
+        long targetFrame = sample / samplesPerFrame;
+        long startFrame = targetFrame - SEEK_PREROLL_FRAMES;
+        if (frameIndex != null) {
+            if (targetFrame >= frameIndex.getFrameCount()) {
+                // past the last frame
+                seekableStream.seek(seekableStream.length());
+                decoder.seek(0, 0, 0);
+                return frame;
+            }
+            int entry = frameIndex.find(Math.max(startFrame, 0) * samplesPerFrame);
+            seekableStream.seek(frameIndex.getByteOffset(entry));
+            long entryFrame = frameIndex.getSampleOffset(entry) / samplesPerFrame;
+            decoder.seek(entryFrame, (int) (targetFrame - entryFrame),
+                    (int) (sample - targetFrame * samplesPerFrame));
+            return frame;
+        }
+        if (startFrame <= 0) {
+            // decode from the first frame, like after opening the stream
+            seekableStream.seek(decoder.getFirstFrameOffset() + decoder.getVbrFrameSize());
+            decoder.seek(0, 0, (int) sample);
+            return frame;
+        }
+        long audioStart = decoder.getFirstFrameOffset() + decoder.getVbrFrameSize();
+        double frameBytes = getAverageFrameBytes();
+        boolean constantBitrate = isConstantBitrate();
+        long offset;
+        if (constantBitrate) offset = audioStart + (long) (startFrame * frameBytes);
+        else {
+            byte[] toc = decoder.getToc();
+            double percent = Math.min(100.0 * startFrame / decoder.getFrameCount(), 99.999);
+            int index = (int) percent;
+            double a = toc[index] & 0xFF;
+            double b = index < 99 ? toc[index + 1] & 0xFF : 256;
+            offset = decoder.getFirstFrameOffset() + (long) ((a + (b - a) * (percent - index)) / 256.0 * decoder.getStreamBytes());
+        }
+        long header = findFrame(offset);
+        if (header < 0) {
+            // past the last frame
+            seekableStream.seek(seekableStream.length());
+            decoder.seek(0, 0, 0);
+            return frame;
+        }
+        if (constantBitrate) startFrame = Math.round((header - audioStart) / frameBytes);
+        seekableStream.seek(header);
+        decoder.seek(startFrame, (int) Math.max(targetFrame - startFrame, 0), (int) (sample - targetFrame * samplesPerFrame));
+        return frame;
+    }
+
+    private boolean isConstantBitrate() {
+        if (constantBitrate == null) constantBitrate = checkConstantBitrate();
+        return constantBitrate;
+    }
+
+    private boolean checkConstantBitrate() {
+        if (decoder.getFrameBitrate() == 0) return false;
+        int frames = decoder.getFrameCount();
+        if (frames > 0) {
+            // a Xing header may be written for constant bitrate streams too, "Info" by LAME
+            if (decoder.getStreamBytes() == 0) return false;
+            double audioBytes = decoder.getStreamBytes() - decoder.getVbrFrameSize();
+            return Math.abs(audioBytes - frames * getAverageFrameBytes()) <= frames;
+        }
+        // without a Xing header sample the bitrate of a few frames across the stream
+        try {
+            long position = seekableStream.getFilePointer();
+            try {
+                byte[] buffer = new byte[4];
+                long first = decoder.getFirstFrameOffset();
+                seekableStream.seek(first);
+                if (readFully(buffer, 4) < 4) return false;
+                int reference = getHeader(buffer, 0);
+                long length = seekableStream.length();
+                for (int i = 0; i < 4; i ++) {
+                    long header = i == 0 ? first + getFrameLength(reference) : findFrame(first + (length - first) * i / 4);
+                    if (header < 0) return false;
+                    seekableStream.seek(header);
+                    if (readFully(buffer, 4) < 4) return i > 0;
+                    int next = getHeader(buffer, 0);
+                    if (!isValidHeader(next, reference) || ((next ^ reference) & 0xF000) != 0) return false;
+                }
+                return true;
+            }
+            finally {
+                seekableStream.seek(position);
+            }
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private double getAverageFrameBytes() {
+        return decoder.getSamplesPerFrame() / 8.0 * decoder.getFrameBitrate() * 1000.0 / decoder.getSampleRate();
+    }
+
+    // finds the first frame header at or after offset which is followed by another one
+    private long findFrame(long offset) throws IOException {
+        byte[] buffer = new byte[SYNC_WINDOW];
+        seekableStream.seek(decoder.getFirstFrameOffset());
+        if (readFully(buffer, 4) < 4) return -1;
+        int reference = getHeader(buffer, 0);
+        long length = seekableStream.length();
+        seekableStream.seek(offset);
+        int read = readFully(buffer, buffer.length);
+        for (int i = 0; i + 4 <= read; i ++) {
+            int header = getHeader(buffer, i);
+            if (!isValidHeader(header, reference)) continue;
+            int next = i + getFrameLength(header);
+            if (next + 4 <= read) {
+                if (isValidHeader(getHeader(buffer, next), reference)) return offset + i;
+            }
+            else if (offset + next >= length - 128) return offset + i; // the last frame, maybe followed by an ID3v1 tag
+        }
+        return -1;
+    }
+
+    private int readFully(byte[] b, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int read = seekableStream.read(b, total, len - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    static int getHeader(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+
+    static boolean isValidHeader(int header, int reference) {
+        if ((header & HEADER_MASK) != (reference & HEADER_MASK)) return false;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        return bitrateIndex != 0 && bitrateIndex != 0xF;
+    }
+
+    static int getFrameLength(int header) {
+        boolean mpeg25 = ((header >>> 20) & 1) == 0;
+        int lsf = ((header >>> 19) & 1) == 0 ? 1 : 0;
+        int layer = 4 - ((header >>> 17) & 3);
+        int bitrate = Mpg123.tabsel_123[lsf][layer - 1][(header >>> 12) & 0xF] * 1000;
+        int sampleRate = Mpg123.freqs[(mpeg25 ? 6 : lsf * 3) + ((header >>> 10) & 3)];
+        int padding = (header >>> 9) & 1;
+        if (layer == 1) return (12 * bitrate / sampleRate + padding) * 4;
+        return (layer == 3 && lsf == 1 ? 72 : 144) * bitrate / sampleRate + padding;
     }
 
 }
@@ -0,0 +1,309 @@
+package io.github.jseproject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the frames of an ID3v2.2, 2.3 or 2.4 tag one by one from a stream. Only the frame headers are read unless
+ * a frame is asked for, the payload of the frames left, e.g. cover art in APIC frames, is skipped with
+ * {@link InputStream#skip(long)}, which seeks on files. Unsynchronised tags and frames are resynchronised and
+ * compressed frames are inflated when read; tags unsynchronised as a whole, which only ID3v2.2 and 2.3 have, are
+ * read through instead of skipped.
+ */
+public final class ID3v2Reader {
+
+    public static final int HEADER_LENGTH = 10;
+
+    private final InputStream in;
+    private final int version;
+    private final int revision;
+    private final long length;
+    private final boolean footer;
+    // ID3v2.2 and 2.3: the frames are unsynchronised as a whole
+    private final boolean unsynchronised;
+    // ID3v2.4: all the frames are unsynchronised
+    private final boolean framesUnsynchronised;
+    // bytes of the tag left in the stream, without the footer
+    private long left;
+    // the last byte resynchronised was 0xFF
+    private boolean ff;
+    private boolean ended;
+    private final byte[] buffer = new byte[HEADER_LENGTH];
+
+    private String frameId;
+    private int frameSize;
+    // bytes of the payload of the frame left, after resynchronisation for a tag unsynchronised as a whole
+    private long frameLeft;
+    private boolean frameUnsynchronised;
+    private boolean compressed;
+    private boolean encrypted;
+
+    /**
+     * @return whether the {@code length} bytes from {@code b[offset]} start with the header of an ID3v2.2, 2.3 or 2.4 tag
+     */
+    public static boolean isTag(byte[] b, int offset, int length) {
+        if (length < HEADER_LENGTH || b[offset] != 'I' || b[offset + 1] != 'D' || b[offset + 2] != '3') return false;
+        if (b[offset + 3] < 2 || b[offset + 3] > 4 || b[offset + 4] == (byte) 0xFF) return false;
+        return (b[offset + 6] | b[offset + 7] | b[offset + 8] | b[offset + 9]) >= 0;
+    }
+
+    /**
+     * @return the number of bytes of the tag whose header is at {@code b[offset]}, with its header and footer
+     */
+    public static long getLength(byte[] b, int offset) {
+        boolean footer = b[offset + 3] == 4 && (b[offset + 5] & 0x10) != 0;
+        return HEADER_LENGTH + syncsafe(b, offset + 6) + (footer ? HEADER_LENGTH : 0);
+    }
+
+    /**
+     * Reads the header of the tag at the position of {@code in}, and its extended header if any.
+     * {@link #next()} moves to the first frame.
+     *
+     * @throws IOException if there is no ID3v2.2, 2.3 or 2.4 tag
+     */
+    public ID3v2Reader(InputStream in) throws IOException {
+        this.in = in;
+        left = HEADER_LENGTH;
+        readFully(buffer, HEADER_LENGTH, false);
+        if (!isTag(buffer, 0, HEADER_LENGTH)) throw new IOException("No ID3v2 tag found");
+        version = buffer[3];
+        revision = buffer[4] & 0xFF;
+        int flags = buffer[5] & 0xFF;
+        left = syncsafe(buffer, 6);
+        footer = version == 4 && (flags & 0x10) != 0;
+        length = getLength(buffer, 0);
+        unsynchronised = version < 4 && (flags & 0x80) != 0;
+        framesUnsynchronised = version == 4 && (flags & 0x80) != 0;
+        if (version == 2 && (flags & 0x40) != 0) {
+            // ID3v2.2 compression was never defined
+            left = 0;
+        }
+        else if (version == 3 && (flags & 0x40) != 0) {
+            // the size of the extended header after the size
+            if (!readFully(buffer, 4, unsynchronised)) left = 0;
+            frameLeft = ((buffer[0] & 0xFFL) << 24) | (buffer[1] & 0xFF) << 16 | (buffer[2] & 0xFF) << 8 | buffer[3] & 0xFF;
+            skipFrame();
+        }
+        else if (version == 4 && (flags & 0x40) != 0) {
+            // the size of the whole extended header
+            if (!readFully(buffer, 4, false)) left = 0;
+            frameLeft = Math.max(0, syncsafe(buffer, 0) - 4);
+            skipFrame();
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the number of bytes of the tag, with its header and footer
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Moves to the next frame, skipping what was not read of the current one.
+     *
+     * @return {@code false} at the padding or the end of the tag, the stream is then positioned after the tag
+     */
+    public boolean next() throws IOException {
+        if (ended) return false;
+        if (frameId != null) skipFrame();
+        frameId = null;
+        int headerLength = version == 2 ? 6 : 10;
+        if (left < headerLength || !readFully(buffer, headerLength, unsynchronised)) {
+            skipRest();
+            return false;
+        }
+        int idLength = version == 2 ? 3 : 4;
+        for (int i = 0; i < idLength; i ++) {
+            byte c = buffer[i];
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) {
+                // padding
+                skipRest();
+                return false;
+            }
+        }
+        frameId = new String(buffer, 0, idLength, "ISO-8859-1");
+        if (version == 2) frameSize = (buffer[3] & 0xFF) << 16 | (buffer[4] & 0xFF) << 8 | buffer[5] & 0xFF;
+        else if (version == 3 || (buffer[4] | buffer[5] | buffer[6] | buffer[7]) < 0)
+            // some ID3v2.4 writers do not use syncsafe sizes
+            frameSize = (buffer[4] & 0xFF) << 24 | (buffer[5] & 0xFF) << 16 | (buffer[6] & 0xFF) << 8 | buffer[7] & 0xFF;
+        else frameSize = (int) syncsafe(buffer, 4);
+        frameLeft = frameSize & 0xFFFFFFFFL;
+        int flags = version == 2 ? 0 : buffer[9] & 0xFF;
+        frameUnsynchronised = version == 4 && (framesUnsynchronised || (flags & 0x02) != 0);
+        if (frameUnsynchronised) ff = false;
+        compressed = false;
+        encrypted = false;
+        // the bytes the flags add before the frame data
+        if (version == 3) {
+            compressed = (flags & 0x80) != 0;
+            encrypted = (flags & 0x40) != 0;
+            skipFrame((compressed ? 4 : 0) + (encrypted ? 1 : 0) + ((flags & 0x20) != 0 ? 1 : 0));
+        }
+        else if (version == 4) {
+            compressed = (flags & 0x08) != 0;
+            encrypted = (flags & 0x04) != 0;
+            skipFrame(((flags & 0x40) != 0 ? 1 : 0) + (encrypted ? 1 : 0) + ((flags & 0x01) != 0 ? 4 : 0));
+        }
+        return true;
+    }
+
+    /**
+     * @return the identifier of the current frame, e.g. "TIT2", or "TT2" in an ID3v2.2 tag
+     */
+    public String getFrameId() {
+        return frameId;
+    }
+
+    /**
+     * @return the size of the current frame as written in its header, which includes the bytes its flags add
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    /**
+     * @return the data of the current frame, resynchronised and inflated, read as it is consumed, or
+     * {@code null} if the frame is encrypted. The data left is skipped by {@link #next()}.
+     */
+    public InputStream getFrameStream() {
+        if (frameId == null) throw new IllegalStateException("no frame");
+        if (encrypted) return null;
+        InputStream data = new FrameInputStream();
+        return compressed ? new InflaterInputStream(data) : data;
+    }
+
+    /**
+     * @return the data of the current frame, see {@link #getFrameStream()}
+     */
+    public byte[] readFrame() throws IOException {
+        InputStream data = getFrameStream();
+        if (data == null) return null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(frameLeft, 65536));
+        byte[] b = new byte[4096];
+        for (int n; (n = data.read(b)) != -1; ) out.write(b, 0, n);
+        return out.toByteArray();
+    }
+
+    /**
+     * Skips the frames left, the stream is then positioned after the tag.
+     */
+    public void skip() throws IOException {
+        frameId = null;
+        skipRest();
+    }
+
+    private static long syncsafe(byte[] b, int offset) {
+        return (b[offset] & 0x7F) << 21 | (b[offset + 1] & 0x7F) << 14 | (b[offset + 2] & 0x7F) << 7 | b[offset + 3] & 0x7F;
+    }
+
+    // reads up to len bytes of the tag, at least one unless it is at its end, and resynchronises them in place
+    private int readTag(byte[] b, int offset, int len, boolean resynchronise) throws IOException {
+        int n = in.read(b, offset, (int) Math.min(len, left));
+        if (n < 0) throw new EOFException("Truncated ID3v2 tag");
+        left -= n;
+        if (!resynchronise) return n;
+        int j = offset;
+        for (int i = offset; i < offset + n; i ++) {
+            byte x = b[i];
+            if (ff && x == 0) {
+                ff = false;
+                continue;
+            }
+            ff = x == (byte) 0xFF;
+            b[j ++] = x;
+        }
+        return j - offset;
+    }
+
+    private boolean readFully(byte[] b, int len, boolean resynchronise) throws IOException {
+        for (int n = 0; n < len; ) {
+            if (left <= 0) return false;
+            n += readTag(b, n, len - n, resynchronise);
+        }
+        return true;
+    }
+
+    // reads up to len bytes of the payload of the frame, -1 at its end
+    private int readData(byte[] b, int offset, int len) throws IOException {
+        while (frameLeft > 0 && left > 0) {
+            int raw = (int) Math.min(len, frameLeft);
+            long before = left;
+            int n = readTag(b, offset, raw, unsynchronised || frameUnsynchronised);
+            frameLeft -= unsynchronised ? n : before - left;
+            if (n > 0) return n;
+        }
+        frameLeft = 0;
+        return -1;
+    }
+
+    private void skipFrame() throws IOException {
+        skipFrame(frameLeft);
+    }
+
+    private void skipFrame(long n) throws IOException {
+        n = Math.min(n, frameLeft);
+        if (unsynchronised) {
+            // the sizes are of the resynchronised bytes
+            byte[] b = new byte[(int) Math.min(n, 4096)];
+            for (int read; n > 0 && (read = readData(b, 0, (int) Math.min(n, b.length))) != -1; ) n -= read;
+        }
+        else {
+            frameLeft -= n;
+            skipTag(n);
+        }
+    }
+
+    private void skipRest() throws IOException {
+        if (ended) return;
+        ended = true;
+        frameLeft = 0;
+        if (footer) left += HEADER_LENGTH;
+        skipTag(left);
+    }
+
+    private void skipTag(long n) throws IOException {
+        n = Math.min(n, left);
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Truncated ID3v2 tag");
+                skipped = 1;
+            }
+            n -= skipped;
+            left -= skipped;
+        }
+    }
+
+    private final class FrameInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            return readData(b, off, len);
+        }
+
+    }
+
+}
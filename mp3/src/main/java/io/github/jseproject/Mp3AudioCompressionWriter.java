@@ -27,12 +27,12 @@ public class Mp3AudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, Mp3FileFormatType.withProperties(fileType, properties), out);
+        return new Mp3AudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, Mp3FileFormatType.withProperties(fileType, properties), out);
+        return new Mp3AudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
@@ -7,6 +7,8 @@ import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -21,6 +23,15 @@ public class Mp3AudioFileFormat extends ExtendedAudioFileFormat {
     };
 
     public static Mp3AudioFileFormat of(Header header, int byteLength, int mediaLength, byte[] id3v2, byte[] id3v1) throws UnsupportedAudioFileException {
+        Map<String, Object> tags = new HashMap<>();
+        if (id3v2 != null) parseID3v2(id3v2, tags);
+        return of(header, byteLength, mediaLength, tags, id3v1);
+    }
+
+    /**
+     * @param id3v2 the properties read from the ID3v2 tag with {@link #readID3v2(ID3v2Reader, Map)}
+     */
+    static Mp3AudioFileFormat of(Header header, int byteLength, int mediaLength, Map<String, Object> id3v2, byte[] id3v1) throws UnsupportedAudioFileException {
         Map<String, Object> properties = new HashMap<>();
         properties.put("mp3.version", header.version_string());
         // version = 0 => MPEG2-LSF (Including MPEG2.5), version = 1 => MPEG1
@@ -58,7 +69,7 @@ public class Mp3AudioFileFormat extends ExtendedAudioFileFormat {
         properties.put("mp3.original", header.original());
         properties.put("mp3.crc", header.checksums());
         properties.put("mp3.padding", header.padding());
-        if (id3v2 != null) parseID3v2(id3v2, properties);
+        properties.putAll(id3v2);
         if (id3v1 != null && id3v1[0] == 'T' && id3v1[1] == 'A' && id3v1[2] == 'G') parseID3v1(id3v1, properties);
         return new Mp3AudioFileFormat(TYPES[header.layer() - 1], Mp3AudioFormat.of(header),
                 totalFrames,
@@ -72,107 +83,82 @@ public class Mp3AudioFileFormat extends ExtendedAudioFileFormat {
 
     private static void parseID3v2(byte[] id3v2, Map<String, Object> properties) {
         if (TDebug.TraceAudioFileReader) TDebug.out("Parsing ID3v2");
-        int size = id3v2.length;
-        if (!"ID3".equals(new String(id3v2, 0, 3))) {
+        if (!ID3v2Reader.isTag(id3v2, 0, id3v2.length)) {
             if (TDebug.TraceAudioFileReader) TDebug.out("No ID3v2 header found");
             return;
         }
-        int version = id3v2[3] & 0xFF;
-        if (version < 2 || version > 4) {
-            if (TDebug.TraceAudioFileReader) TDebug.out("Unsupported ID3v2 version: " + version);
-            return;
-        }
-        properties.put("mp3.id3tag.v2.version", Integer.toString(version));
         try {
-            if (TDebug.TraceAudioFileReader) {
-                String tag;
-                try {
-                    tag = new String(id3v2, "ISO-8859-1");
-                }
-                catch (UnsupportedEncodingException e) {
-                    tag = new String(id3v2);
-                    TDebug.out("Cannot use ISO-8859-1");
-                }
-                TDebug.out("ID3v2 frame dump='" + tag + "'");
-            }
-            /* ID3 tags : http://www.unixgods.org/~tilo/ID3/docs/ID3_comparison.html */
-            String value;
-            for (int i = 10; i < id3v2.length && id3v2[i] > 0; i += size) {
-                if (version == 3 || version == 4) {
-                    // ID3v2.3 & ID3v2.4
-                    String code = new String(id3v2, i, 4);
-                    size = ((id3v2[i + 4] << 24) & 0xFF000000) | ((id3v2[i + 5] << 16) & 0x00FF0000)
-                            | ((id3v2[i + 6] << 8) & 0x0000FF00) | ((id3v2[i + 7]) & 0x000000FF);
-                    i += 10;
-                    if (code.equals("TALB") || code.equals("TIT2") || code.equals("TYER")
-                            || code.equals("TPE1") || code.equals("TCOP") || code.equals("COMM")
-                            || code.equals("TCON") || code.equals("TRCK") || code.equals("TPOS")
-                            || code.equals("TDRC") || code.equals("TCOM") || code.equals("TIT1")
-                            || code.equals("TENC") || code.equals("TPUB") || code.equals("TPE2")
-                            || code.equals("TLEN")) {
-                        if (code.equals("COMM")) value = parseText(id3v2, i, size, 5);
-                        else value = parseText(id3v2, i, size, 1);
-                        if (value != null && !value.isEmpty()) {
-                            if (code.equals("TALB")) properties.put("album", value);
-                            else if (code.equals("TIT2")) properties.put("title", value);
-                            else if (code.equals("TYER")) properties.put("date", parseDate(value));
-                            // ID3v2.4 date fix.
-                            else if (code.equals("TDRC")) properties.put("date", parseDate(value));
-                            else if (code.equals("TPE1")) properties.put("author", value);
-                            else if (code.equals("TCOP")) properties.put("copyright", value);
-                            else if (code.equals("COMM")) properties.put("comment", value);
-                            else if (code.equals("TCON")) properties.put("mp3.id3tag.genre", value);
-                            else if (code.equals("TRCK")) properties.put("mp3.id3tag.track", value);
-                            else if (code.equals("TPOS")) properties.put("mp3.id3tag.disc", value);
-                            else if (code.equals("TCOM")) properties.put("mp3.id3tag.composer", value);
-                            else if (code.equals("TIT1")) properties.put("mp3.id3tag.grouping", value);
-                            else if (code.equals("TENC")) properties.put("mp3.id3tag.encoded", value);
-                            else if (code.equals("TPUB")) properties.put("mp3.id3tag.publisher", value);
-                            else if (code.equals("TPE2")) properties.put("mp3.id3tag.orchestra", value);
-                            else if (code.equals("TLEN")) properties.put("mp3.id3tag.length", value);
-                        }
-                    }
-                }
-                else {
-                    // ID3v2.2
-                    String code = new String(id3v2, i, 3);
-                    size = (id3v2[i + 3] << 16) + (id3v2[i + 4] << 8) + (id3v2[i + 5]);
-                    i += 6;
-                    if (code.equals("TAL") || code.equals("TT2") || code.equals("TP1")
-                            || code.equals("TYE") || code.equals("TRK") || code.equals("TPA")
-                            || code.equals("TCR") || code.equals("TCO") || code.equals("TCM")
-                            || code.equals("COM") || code.equals("TT1") || code.equals("TEN")
-                            || code.equals("TPB") || code.equals("TP2") || code.equals("TLE")) {
-                        if (code.equals("COM")) value = parseText(id3v2, i, size, 5);
-                        else value = parseText(id3v2, i, size, 1);
-                        if (value != null && !value.isEmpty()) {
-                            if (code.equals("TAL")) properties.put("album", value);
-                            else if (code.equals("TT2")) properties.put("title", value);
-                            else if (code.equals("TYE")) properties.put("date", parseDate(value));
-                            else if (code.equals("TP1")) properties.put("author", value);
-                            else if (code.equals("TCR")) properties.put("copyright", value);
-                            else if (code.equals("COM")) properties.put("comment", value);
-                            else if (code.equals("TCO")) properties.put("mp3.id3tag.genre", value);
-                            else if (code.equals("TRK")) properties.put("mp3.id3tag.track", value);
-                            else if (code.equals("TPA")) properties.put("mp3.id3tag.disc", value);
-                            else if (code.equals("TCM")) properties.put("mp3.id3tag.composer", value);
-                            else if (code.equals("TT1")) properties.put("mp3.id3tag.grouping", value);
-                            else if (code.equals("TEN")) properties.put("mp3.id3tag.encoded", value);
-                            else if (code.equals("TPB")) properties.put("mp3.id3tag.publisher", value);
-                            else if (code.equals("TP2")) properties.put("mp3.id3tag.orchestra", value);
-                            else if (code.equals("TLE")) properties.put("mp3.id3tag.length", value);
-                        }
-                    }
-                }
-            }
+            readID3v2(new ID3v2Reader(new ByteArrayInputStream(id3v2)), properties);
         }
-        catch (RuntimeException e) {
+        catch (IOException e) {
             // Ignore all parsing errors.
             if (TDebug.TraceAudioFileReader) TDebug.out("Cannot parse ID3v2: " + e.getMessage());
         }
         if (TDebug.TraceAudioFileReader) TDebug.out("ID3v2 parsed");
     }
 
+    // larger frames are not text
+    private static final int MAX_TEXT_FRAME_SIZE = 1 << 20;
+    // the ID3v2.3 frames of the ID3v2.2 ones
+    private static final Map<String, String> ID3V22_FRAMES = new HashMap<>();
+    static {
+        String[] frames = new String[] {
+                "TAL", "TALB", "TT2", "TIT2", "TP1", "TPE1", "TYE", "TYER", "TRK", "TRCK", "TPA", "TPOS",
+                "TCR", "TCOP", "TCO", "TCON", "TCM", "TCOM", "COM", "COMM", "TT1", "TIT1", "TEN", "TENC",
+                "TPB", "TPUB", "TP2", "TPE2", "TLE", "TLEN", "TXX", "TXXX"
+        };
+        for (int i = 0; i < frames.length; i += 2) ID3V22_FRAMES.put(frames[i], frames[i + 1]);
+    }
+
+    /**
+     * Reads the text and comment frames of an ID3v2 tag into {@code properties}. The other frames, e.g. APIC, GEOB
+     * or PRIV, are skipped without being read. The text frames not mapped to a property are kept as
+     * "mp3.id3tag.v2." followed by the frame identifier, "mp3.id3tag.v2.TXXX." followed by the description for
+     * user defined ones.
+     */
+    static void readID3v2(ID3v2Reader reader, Map<String, Object> properties) throws IOException {
+        /* ID3 tags : http://www.unixgods.org/~tilo/ID3/docs/ID3_comparison.html */
+        properties.put("mp3.id3tag.v2.version", Integer.toString(reader.getVersion()));
+        while (reader.next()) {
+            String code = reader.getFrameId();
+            if (reader.getVersion() == 2) code = ID3V22_FRAMES.getOrDefault(code, code);
+            if (code.charAt(0) != 'T' && !code.equals("COMM") || reader.getFrameSize() > MAX_TEXT_FRAME_SIZE) continue;
+            byte[] frame = reader.readFrame();
+            if (frame == null || frame.length == 0) continue;
+            try {
+                if (code.equals("TXXX")) {
+                    String[] description = parseUserText(frame);
+                    if (description != null) properties.put("mp3.id3tag.v2.TXXX." + description[0], description[1]);
+                    continue;
+                }
+                String value = parseText(frame, 0, frame.length, code.equals("COMM") ? 5 : 1);
+                if (value == null || value.isEmpty()) continue;
+                if (code.equals("TALB")) properties.put("album", value);
+                else if (code.equals("TIT2")) properties.put("title", value);
+                else if (code.equals("TYER")) properties.put("date", parseDate(value));
+                // ID3v2.4 date fix.
+                else if (code.equals("TDRC")) properties.put("date", parseDate(value));
+                else if (code.equals("TPE1")) properties.put("author", value);
+                else if (code.equals("TCOP")) properties.put("copyright", value);
+                else if (code.equals("COMM")) properties.put("comment", value);
+                else if (code.equals("TCON")) properties.put("mp3.id3tag.genre", value);
+                else if (code.equals("TRCK")) properties.put("mp3.id3tag.track", value);
+                else if (code.equals("TPOS")) properties.put("mp3.id3tag.disc", value);
+                else if (code.equals("TCOM")) properties.put("mp3.id3tag.composer", value);
+                else if (code.equals("TIT1")) properties.put("mp3.id3tag.grouping", value);
+                else if (code.equals("TENC")) properties.put("mp3.id3tag.encoded", value);
+                else if (code.equals("TPUB")) properties.put("mp3.id3tag.publisher", value);
+                else if (code.equals("TPE2")) properties.put("mp3.id3tag.orchestra", value);
+                else if (code.equals("TLEN")) properties.put("mp3.id3tag.length", value);
+                else properties.put("mp3.id3tag.v2." + code, value);
+            }
+            catch (RuntimeException e) {
+                // Ignore all parsing errors.
+                if (TDebug.TraceAudioFileReader) TDebug.out("Cannot parse ID3v2 frame " + code + ": " + e.getMessage());
+            }
+        }
+    }
+
     private static final SimpleDateFormat YYYY_MM_DD_TIME_TZ = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
     private static final SimpleDateFormat YYYY_MM_TIME_TZ = new SimpleDateFormat("yyyy-MM'T'HH:mm:ssXXX");
     private static final SimpleDateFormat YYYY_TIME_TZ = new SimpleDateFormat("yyyy'T'HH:mm:ssXXX");
@@ -404,6 +390,24 @@ public class Mp3AudioFileFormat extends ExtendedAudioFileFormat {
         return value;
     }
 
+    // the description and the value of a TXXX frame
+    private static String[] parseUserText(byte[] frame) {
+        String text = null;
+        try {
+            text = new String(frame, 1, frame.length - 1, STRING_ENCODERS[frame[0]]);
+        }
+        catch (UnsupportedEncodingException e) {
+            if (TDebug.TraceAudioFileReader) TDebug.out("ID3v2 encoding error: " + e.getMessage());
+        }
+        if (text == null) return null;
+        int i = text.indexOf('\0');
+        if (i == -1) return null;
+        String value = chopSubstring(text, i + 1, text.length());
+        // the BOM of the value
+        if (value != null && value.startsWith("\uFEFF")) value = value.substring(1);
+        return new String[] { text.substring(0, i), value };
+    }
+
     private static String chopSubstring(String string, int start, int end) {
         String str = null;
         // 11/28/04 - String encoding bug fix.
@@ -12,23 +12,60 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public class Mp3AudioFileReader extends TAudioFileReader {
 
-    private static final int INITIAL_READ_LENGTH = 128000 * 32;
+    // the first frame is looked for in this many bytes after the ID3v2 tag
+    private static final int INITIAL_READ_LENGTH = 65536;
     private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
 
     public Mp3AudioFileReader() {
         super(MARK_LIMIT);
     }
 
+    @Override
+    public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioFileFormat(File): begin");
+        AudioFileFormat format;
+        try (SeekableInputStream inputStream = SeekableInputStream.open(file)) {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.MPEG_AUDIO))
+                throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream");
+            format = getAudioFileFormat(inputStream, inputStream.length(), true);
+        }
+        if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioFileFormat(File): end");
+        return format;
+    }
+
+    @Override
+    public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioFileFormat(InputStream): begin (class: " + getClass().getSimpleName() + ")");
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.MPEG_AUDIO))
+            throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream");
+        inputStream.mark(getMarkLimit(inputStream));
+        AudioFileFormat audioFileFormat;
+        try {
+            audioFileFormat = getAudioFileFormat(inputStream, AudioSystem.NOT_SPECIFIED);
+        }
+        catch (UnsupportedAudioFileException | IOException e) {
+            reset(inputStream, e);
+            throw e;
+        }
+        if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioFileFormat(InputStream): end");
+        return audioFileFormat;
+    }
+
     @Override
     public AudioFileFormat getAudioFileFormat(InputStream inputStream, long lFileLengthInBytes) throws UnsupportedAudioFileException, IOException {
-        return getAudioFileFormat(inputStream, lFileLengthInBytes, inputStream instanceof FileInputStream);
+        return getAudioFileFormat(inputStream, lFileLengthInBytes, inputStream instanceof FileInputStream || inputStream instanceof SeekableInputStream);
     }
 
     public AudioFileFormat getAudioFileFormat(InputStream inputStream, long lFileLengthInBytes, boolean readID3v1) throws UnsupportedAudioFileException, IOException {
@@ -36,8 +73,8 @@ public class Mp3AudioFileReader extends TAudioFileReader {
         int nByteLength = lFileLengthInBytes > Integer.MAX_VALUE ? AudioSystem.NOT_SPECIFIED : (int) lFileLengthInBytes;
         int nMediaLength = nByteLength;
         int nAvailable = inputStream.available();
-        PushbackInputStream pis = new PushbackInputStream(inputStream, MARK_LIMIT);
         byte[] head = new byte[22];
+        PushbackInputStream pis = new PushbackInputStream(inputStream, head.length);
         pis.read(head);
         if (TDebug.TraceAudioFileReader) TDebug.out("InputStream : " + inputStream + " =>" + new String(head));
         // Check for WAV, AU/SND, AIFF, MAC/APE, FLAC, OGG file formats.
@@ -60,22 +97,23 @@ public class Mp3AudioFileReader extends TAudioFileReader {
             throw new UnsupportedAudioFileException("Ogg stream found");
         // Not either of them, so pushback for further reading.
         else pis.unread(head);
+        // read frame by frame, the frames other than text, e.g. cover art, are skipped
+        Map<String, Object> id3v2 = new HashMap<>();
+        if (ID3v2Reader.isTag(head, 0, head.length)) {
+            ID3v2Reader reader = new ID3v2Reader(pis);
+            Mp3AudioFileFormat.readID3v2(reader, id3v2);
+            if (nByteLength != AudioSystem.NOT_SPECIFIED && reader.getLength() < nByteLength)
+                nMediaLength -= (int) reader.getLength();
+        }
         Header header;
-        byte[] id3v2;
         byte[] id3v1;
         try {
-            Bitstream bitstream = new Bitstream(pis);
-            int streamPos = bitstream.header_pos();
-            if (streamPos > 0 && nByteLength != AudioSystem.NOT_SPECIFIED && streamPos < nByteLength)
-                nMediaLength -= streamPos;
+            byte[] window = readWindow(pis);
+            Bitstream bitstream = new Bitstream(new ByteArrayInputStream(window));
             header = bitstream.readFrame();
-            if (header == null) throw new IOException("header is null (end of mpeg stream)");
-            id3v2 = bitstream.getRawID3v2();
-            if (readID3v1 && lFileLengthInBytes != AudioSystem.NOT_SPECIFIED && nAvailable == lFileLengthInBytes) {
-                id3v1 = new byte[128];
-                inputStream.skip(inputStream.available() - id3v1.length);
-                inputStream.read(id3v1, 0, id3v1.length);
-            }
+            if (header == null) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: no frame found");
+            if (readID3v1 && lFileLengthInBytes != AudioSystem.NOT_SPECIFIED && nAvailable == lFileLengthInBytes)
+                id3v1 = readID3v1(inputStream, window);
             else id3v1 = null;
             if (TDebug.TraceAudioFileReader) TDebug.out(header.toString());
         }
@@ -93,16 +131,36 @@ public class Mp3AudioFileReader extends TAudioFileReader {
         return format;
     }
 
+    @Override
+    public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
+        if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioInputStream(File): begin");
+        AudioInputStream audioInputStream;
+        InputStream inputStream = SeekableInputStream.open(file);
+        try {
+            audioInputStream = getAudioInputStream(inputStream, file.length());
+        }
+        catch (UnsupportedAudioFileException | IOException e) {
+            try {
+                inputStream.close();
+            }
+            catch (IOException ignored) {
+            }
+            throw e;
+        }
+        if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioInputStream(File): end");
+        return audioInputStream;
+    }
+
     @Override
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioInputStream(InputStream): begin (class: " + getClass().getSimpleName() + ")");
         AudioInputStream audioInputStream;
-        inputStream.mark(MARK_LIMIT);
+        if (inputStream.markSupported()) inputStream.mark(getMarkLimit(inputStream));
         try {
             audioInputStream = getAudioInputStream(inputStream, AudioSystem.NOT_SPECIFIED);
         }
         catch (UnsupportedAudioFileException | IOException e) {
-            inputStream.reset();
+            reset(inputStream, e);
             throw e;
         }
         if (TDebug.TraceAudioFileReader) TDebug.out("TAudioFileReader.getAudioInputStream(InputStream): end");
@@ -113,10 +171,12 @@ public class Mp3AudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream, long lFileLengthInBytes) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioInputStream(InputStream inputStream, long mediaLength): begin");
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
-        PushbackInputStream pis = new PushbackInputStream(inputStream, MARK_LIMIT);
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.MPEG_AUDIO))
+            throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream");
         byte[] head = new byte[22];
-        pis.read(head);
+        inputStream.mark(head.length);
+        inputStream.read(head);
+        inputStream.reset();
         if (TDebug.TraceAudioFileReader) TDebug.out("InputStream : " + inputStream + " =>" + new String(head));
         // Check for WAV, AU/SND, AIFF, MAC/APE, FLAC, OGG file formats.
         if (head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
@@ -136,28 +196,84 @@ public class Mp3AudioFileReader extends TAudioFileReader {
             throw new UnsupportedAudioFileException("FLAC stream found");
         else if (head[0] == 'O' && head[1] == 'g' && head[2] == 'g' && head[3] == 'S')
             throw new UnsupportedAudioFileException("Ogg stream found");
-            // Not either of them, so pushback for further reading.
-        else pis.unread(head);
-        Header header;
+        // the stream goes back to its start if the first frame after the ID3v2 tag is not MPEG audio
+        boolean tag = ID3v2Reader.isTag(head, 0, head.length);
+        inputStream.mark(getMarkLimit(head, head.length));
+        AudioFormat audioFormat;
         try {
-            Bitstream bitstream = new Bitstream(pis);
-            header = bitstream.readFrame();
-            if (header == null) throw new IOException("header is null (end of mpeg stream)");
-            if (TDebug.TraceAudioFileReader) TDebug.out(header.toString());
+            if (tag) new ID3v2Reader(inputStream).skip();
+            Header header;
+            try {
+                Bitstream bitstream = new Bitstream(new ByteArrayInputStream(readWindow(inputStream)));
+                header = bitstream.readFrame();
+                if (header == null) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: no frame found");
+                if (TDebug.TraceAudioFileReader) TDebug.out(header.toString());
+            }
+            catch (BitstreamException e) {
+                throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: " + e.getMessage());
+            }
+            // Deeper checks
+            int nHeader = header.getSyncHeader();
+            int cVersion = (nHeader >> 19) & 0x3;
+            if (cVersion == 1) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: wrong version");
+            int cSFIndex = (nHeader >> 10) & 0x3;
+            if (cSFIndex == 3) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: wrong sampling rate");
+            audioFormat = Mp3AudioFormat.of(header);
         }
-        catch (BitstreamException e) {
-            throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: " + e.getMessage());
+        catch (UnsupportedAudioFileException | IOException e) {
+            reset(inputStream, e);
+            throw e;
         }
-        // Deeper checks
-        int nHeader = header.getSyncHeader();
-        int cVersion = (nHeader >> 19) & 0x3;
-        if (cVersion == 1) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: wrong version");
-        int cSFIndex = (nHeader >> 10) & 0x3;
-        if (cSFIndex == 3) throw new UnsupportedAudioFileException("Not a MPEG1/2/2.5 stream: wrong sampling rate");
-        AudioFormat audioFormat = Mp3AudioFormat.of(header);
         inputStream.reset();
+        // a file is passed on from its start, the decoder skips the ID3v2 tag itself and seeks by file offsets,
+        // a stream is passed on after the tag, which the decoder would copy
+        if (tag && !(inputStream instanceof SeekableInputStream)) new ID3v2Reader(inputStream).skip();
         if (TDebug.TraceAudioFileReader) TDebug.out("Mp3AudioFileReader.getAudioInputStream(InputStream inputStream, long mediaLength): end");
         return new Mp3AudioInputStream(inputStream, audioFormat, AudioSystem.NOT_SPECIFIED);
     }
 
+    // the ID3v2 tag at the start of the stream and the first frame window after it
+    private static int getMarkLimit(InputStream inputStream) throws IOException {
+        byte[] head = new byte[ID3v2Reader.HEADER_LENGTH];
+        inputStream.mark(head.length);
+        int length = 0;
+        for (int n; length < head.length && (n = inputStream.read(head, length, head.length - length)) > 0; ) length += n;
+        inputStream.reset();
+        return getMarkLimit(head, length);
+    }
+
+    private static int getMarkLimit(byte[] head, int length) {
+        long tag = ID3v2Reader.isTag(head, 0, length) ? ID3v2Reader.getLength(head, 0) : 0;
+        return (int) Math.min(MARK_LIMIT + tag, Integer.MAX_VALUE);
+    }
+
+    // the bytes the first frame is looked for in, a stream which is not MPEG audio is not read past the mark
+    private static byte[] readWindow(InputStream inputStream) throws IOException {
+        byte[] window = new byte[INITIAL_READ_LENGTH];
+        int length = 0;
+        for (int n; length < window.length && (n = inputStream.read(window, length, window.length - length)) > 0; ) length += n;
+        return length < window.length ? Arrays.copyOf(window, length) : window;
+    }
+
+    // the last 128 bytes of the stream, taken from the end of the window if less is left
+    private static byte[] readID3v1(InputStream inputStream, byte[] window) throws IOException {
+        byte[] id3v1 = new byte[128];
+        int left = (int) Math.min(inputStream.available(), id3v1.length);
+        inputStream.skip(inputStream.available() - left);
+        int fromWindow = Math.min(id3v1.length - left, window.length);
+        System.arraycopy(window, window.length - fromWindow, id3v1, id3v1.length - left - fromWindow, fromWindow);
+        for (int offset = id3v1.length - left, n; offset < id3v1.length && (n = inputStream.read(id3v1, offset, id3v1.length - offset)) > 0; ) offset += n;
+        return id3v1;
+    }
+
+    // the failure is reported even if the stream cannot go back
+    private static void reset(InputStream inputStream, Exception e) {
+        try {
+            inputStream.reset();
+        }
+        catch (IOException r) {
+            e.addSuppressed(r);
+        }
+    }
+
 }
\ No newline at end of file
@@ -3,11 +3,13 @@ package io.github.jseproject;
 import net.sourceforge.lame.GlobalFlags;
 import net.sourceforge.lame.ID3Tag;
 import net.sourceforge.lame.LAME;
+import net.sourceforge.lame.VBRTag;
 import org.tritonus.share.TDebug;
 import org.tritonus.share.sampled.file.AudioOutputStream;
 import org.tritonus.share.sampled.file.TAudioFileWriter;
 import org.tritonus.share.sampled.file.TDataOutputStream;
 import org.tritonus.share.sampled.file.TNonSeekableDataOutputStream;
+import org.tritonus.share.sampled.file.TSeekableDataOutputStream;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -20,7 +22,9 @@ import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class Mp3AudioFileWriter extends TAudioFileWriter {
 
@@ -119,20 +123,29 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
 
     private static final AudioFileFormat.Type[] TYPES = new AudioFileFormat.Type[] { Mp3FileFormatType.MP3 };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public Mp3AudioFileWriter() {
+        this(null);
+    }
+
+    Mp3AudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
     public int write(AudioInputStream audioInputStream, AudioFileFormat.Type fileType, File file) throws IOException {
-        try (OutputStream out = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            return write(audioInputStream, fileType, out);
+        // a seekable sink, so the Xing/LAME tag frame can be patched when done
+        try (OutputStream ignored = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return super.write(audioInputStream, fileType, file);
         }
     }
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new Mp3AudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, ((Mp3FileFormatType) fileType).properties);
+        return new Mp3AudioOutputParams(audioFormat, lLengthInBytes, dataOutputStream, properties);
     }
 
     // 2024-10-12: Workaround for TAudioFileWriter
@@ -151,15 +164,18 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
 
         // 2024-09-26: Edit for MP3 Encoder
         Mp3AudioOutputParams params = (Mp3AudioOutputParams) audioOutputStream;
-        OutputStream out = params.getOutputStream();
+        TDataOutputStream out = params.getTDataOutputStream();
 
         Object qualityObject = params.getProperties().get("quality");
         float quality = qualityObject instanceof Float ? Math.min(1, Math.max(0, (Float) qualityObject)) : -1;
         Object vbrObject = params.getProperties().get("vbr");
         boolean vbr = vbrObject instanceof Boolean ? (Boolean) vbrObject : true;
         Object vbrModeObject = params.getProperties().get("mp3.vbr.mode");
-        int vbrMode = vbrModeObject instanceof Integer ? (Integer) vbrModeObject : -1;
-        if (vbrMode < -1 || vbrMode > 4) vbrMode = -1;
+        int vbrMode = vbrModeObject instanceof Integer && (Integer) vbrModeObject >= -1 && (Integer) vbrModeObject <= 4 ? (Integer) vbrModeObject : -1;
+        // receives the Xing/LAME tag frame when the sink cannot be patched, to replace the first frame written
+        Object lametagObject = params.getProperties().get("mp3.lametag");
+        @SuppressWarnings("unchecked")
+        Consumer<byte[]> lametag = lametagObject instanceof Consumer ? (Consumer<byte[]>) lametagObject : null;
 
         int channels = outputFormat.getChannels();
         int sampleRate = (int) outputFormat.getSampleRate();
@@ -167,6 +183,56 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
         byte[] abBuffer = new byte[BUFFER_SIZE * 2 * 2]; // 2 channels, 2 bytes per sample
         short[] pcm = new short[2 * BUFFER_SIZE]; // 2 channels
 
+        // encodes segments of the input on several threads, see ParallelMp3Encoder
+        Object threadsObject = params.getProperties().get("mp3.threads");
+        int threads = threadsObject instanceof Integer ? (Integer) threadsObject : 1;
+
+        GlobalFlags gf;
+        int ret;
+        if (threads > 1) {
+            try (ParallelMp3Encoder encoder = new ParallelMp3Encoder(() -> newEncoder(channels, sampleRate, quality, vbr, vbrMode), channels, threads)) {
+                for (int nFrames; (nFrames = read(audioInputStream, abBuffer, pcm, channels)) != -1; )
+                    nTotalWritten += encoder.encode(pcm, nFrames, out);
+                nTotalWritten += encoder.finish(out);
+                gf = encoder.getTagEncoder();
+            }
+        }
+        else {
+            gf = newEncoder(channels, sampleRate, quality, vbr, vbrMode);
+            ret = LAME.init_params(gf);
+            if (ret < 0) throw new IOException("Failed to initialize MP3 encoder");
+            nTotalWritten += encode(gf, audioInputStream, out, abBuffer, pcm, channels);
+        }
+
+        ret = writeID3v1(gf, out);
+        nTotalWritten += ret;
+
+        // InitVbrTag reserved the first frame, it gets the frame count, byte count and TOC now
+        byte[] tagFrame = getLametagFrame(gf);
+        if (tagFrame != null) {
+            if (out.supportsSeek()) {
+                long position = out.getFilePointer();
+                out.seek(0);
+                out.write(tagFrame);
+                out.seek(position);
+            }
+            else if (lametag != null) lametag.accept(tagFrame);
+        }
+
+        if (TDebug.TraceAudioFileWriter) TDebug.out("<TAudioFileWriter.writeImpl(): after main loop. Wrote " + nTotalWritten + " bytes");
+        LAME.close( gf );
+        if (out instanceof TNonSeekableDataOutputStream) {
+            ((TNonSeekableDataOutputStream) out).flush();
+        }
+        else if (out instanceof TSeekableDataOutputStream) {
+            out.close();
+        }
+        // TODO: get bytes written for header etc. from AudioOutputStrem and add to nTotalWrittenBytes
+        return nTotalWritten;
+    }
+
+    // the encoder configured for the output, before LAME.init_params
+    private static GlobalFlags newEncoder(int channels, int sampleRate, float quality, boolean vbr, int vbrMode) throws IOException {
         GlobalFlags gf = LAME.init();
         if (gf == null) throw new IOException("Failed to initialize MP3 encoder");
         ID3Tag.id3tag_init(gf);
@@ -183,18 +249,15 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
         }
         // end set encoding parameters
         gf.set_write_id3tag_automatic(false);
-        int ret = LAME.init_params(gf);
-        if (ret < 0) throw new IOException("Failed to initialize MP3 encoder");
+        return gf;
+    }
 
-        while (true) {
-            if (TDebug.TraceAudioFileWriter) TDebug.out("trying to read (bytes): " + abBuffer.length);
-            int nBytesRead = audioInputStream.read(abBuffer);
-            if (TDebug.TraceAudioFileWriter) TDebug.out("read (bytes): " + nBytesRead);
-            if (nBytesRead == -1) break;
-            ByteBuffer.wrap(abBuffer, 0, nBytesRead).order(ByteOrder.LITTLE_ENDIAN)
-                    .asShortBuffer().get(pcm, 0, nBytesRead >> 1);
+    private static int encode(GlobalFlags gf, AudioInputStream audioInputStream, TDataOutputStream out, byte[] abBuffer, short[] pcm, int channels) throws IOException {
+        int nTotalWritten = 0;
+        int ret;
+        for (int nFrames; (nFrames = read(audioInputStream, abBuffer, pcm, channels)) != -1; ) {
             if (TDebug.TraceAudioFileWriter) TDebug.out("write(byte[], int, int): begin");
-            ret = LAME.encode_buffer_interleaved(gf, pcm, (nBytesRead / channels) >> 1,
+            ret = LAME.encode_buffer_interleaved(gf, pcm, nFrames,
                     abBuffer, 0, abBuffer.length);
             // was our output buffer big enough?
             if (ret < 0) throw new IOException("Failed to encode MP3");
@@ -211,16 +274,30 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
         nTotalWritten += ret;
         if (TDebug.TraceAudioFileWriter) TDebug.out("write(byte[], int, int): end");
 
-        ret = writeID3v1(gf, out);
-        nTotalWritten += ret;
-
-        if (TDebug.TraceAudioFileWriter) TDebug.out("<TAudioFileWriter.writeImpl(): after main loop. Wrote " + nTotalWritten + " bytes");
-        LAME.close( gf );
-        // TODO: get bytes written for header etc. from AudioOutputStrem and add to nTotalWrittenBytes
         return nTotalWritten;
     }
 
-    private static int writeID3v1(GlobalFlags gf, OutputStream out) throws IOException {
+    // reads the next 16 bit little endian input into pcm, the number of sample frames read or -1 at the end
+    private static int read(AudioInputStream audioInputStream, byte[] abBuffer, short[] pcm, int channels) throws IOException {
+        if (TDebug.TraceAudioFileWriter) TDebug.out("trying to read (bytes): " + abBuffer.length);
+        int nBytesRead = audioInputStream.read(abBuffer);
+        if (TDebug.TraceAudioFileWriter) TDebug.out("read (bytes): " + nBytesRead);
+        if (nBytesRead == -1) return -1;
+        ByteBuffer.wrap(abBuffer, 0, nBytesRead).order(ByteOrder.LITTLE_ENDIAN)
+                .asShortBuffer().get(pcm, 0, nBytesRead >> 1);
+        return (nBytesRead / channels) >> 1;
+    }
+
+    // null if the encoder writes no tag frame
+    private static byte[] getLametagFrame(GlobalFlags gf) {
+        int size = VBRTag.lame_get_lametag_frame(gf, new byte[0], 0);
+        if (size <= 0) return null;
+        byte[] frame = new byte[size];
+        if (VBRTag.lame_get_lametag_frame(gf, frame, size) != size) return null;
+        return frame;
+    }
+
+    private static int writeID3v1(GlobalFlags gf, TDataOutputStream out) throws IOException {
         byte[] buf = new byte[128];
         int ret = ID3Tag.lame_get_id3v1_tag(gf, buf, buf.length);
         if (ret <= 0) return 0;
@@ -232,15 +309,15 @@ public class Mp3AudioFileWriter extends TAudioFileWriter {
     private static class Mp3AudioOutputParams implements AudioOutputStream {
         private final AudioFormat format;
         private final long length;
-        private final OutputStream out;
+        private final TDataOutputStream out;
         private final Map<String, Object> properties;
-        public Mp3AudioOutputParams(AudioFormat format, long length, TNonSeekableDataOutputStream out, Map<String, Object> properties) {
+        public Mp3AudioOutputParams(AudioFormat format, long length, TDataOutputStream out, Map<String, Object> properties) {
             this.format = format;
             this.length = length;
             this.out = out;
             this.properties = properties;
         }
-        public OutputStream getOutputStream() {
+        public TDataOutputStream getTDataOutputStream() {
             return out;
         }
         public Map<String, Object> getProperties() {
@@ -1,7 +1,6 @@
 package io.github.jseproject;
 
 import javax.sound.sampled.AudioFileFormat;
-import java.util.Map;
 
 public class Mp3FileFormatType extends AudioFileFormat.Type {
 
@@ -13,10 +12,4 @@ public class Mp3FileFormatType extends AudioFileFormat.Type {
         super(name, extension);
     }
 
-    Map<String, Object> properties;
-    static AudioFileFormat.Type withProperties(AudioFileFormat.Type type, Map<String, Object> properties) {
-        if (type instanceof Mp3FileFormatType) ((Mp3FileFormatType) type).properties = properties;
-        return type;
-    }
-
 }
@@ -432,8 +432,36 @@ public class Mp3FormatConversionProvider extends TMatrixFormatConversionProvider
             new boolean[] {f,f,f,f,f,f,f,f,f,f, t,t,f,f,f,f,f,f,f,f, f,f,f,f,f,f,f,f,f,f, f,f,f,f,f,f},	// 41
     };
 
+    // the synthesis packs 24 bit samples as well, see net.sourceforge.lame.Decode24
+    private static final AudioFormat[] OUTPUTS = add24BitFormats(OUTPUT_FORMATS);
+
     public Mp3FormatConversionProvider() {
-        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(OUTPUT_FORMATS), CONVERSIONS);
+        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(PcmFloat.addFormats(OUTPUTS)),
+                PcmFloat.addConversions(add24BitConversions(CONVERSIONS, OUTPUT_FORMATS), OUTPUTS));
+    }
+
+    /**
+     * @return {@code outputs} followed by a 24 bit format for each of them, in the same order
+     */
+    private static AudioFormat[] add24BitFormats(AudioFormat[] outputs) {
+        AudioFormat[] formats = Arrays.copyOf(outputs, outputs.length * 2);
+        for (int i = 0; i < outputs.length; i ++) {
+            AudioFormat output = outputs[i];
+            formats[outputs.length + i] = new AudioFormat(output.getSampleRate(), 24, output.getChannels(), true, output.isBigEndian());
+        }
+        return formats;
+    }
+
+    /**
+     * @return the conversion matrix for {@link #add24BitFormats(AudioFormat[]) add24BitFormats(outputs)}
+     */
+    private static boolean[][] add24BitConversions(boolean[][] conversions, AudioFormat[] outputs) {
+        boolean[][] result = new boolean[conversions.length][];
+        for (int i = 0; i < conversions.length; i ++) {
+            result[i] = Arrays.copyOf(conversions[i], outputs.length * 2);
+            System.arraycopy(conversions[i], 0, result[i], outputs.length, outputs.length);
+        }
+        return result;
     }
 
     @Override
@@ -0,0 +1,356 @@
+package io.github.jseproject;
+
+import net.sourceforge.lame.Mpg123;
+import net.sourceforge.lame.VBRTag;
+import net.sourceforge.lame.VBRTagData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The byte and sample offsets of every {@code interval}th audio frame of an MPEG audio stream, found by walking the
+ * frame headers without decoding. It gives the exact length of streams without a Xing header, or with a wrong one,
+ * and exact seeking in them, see {@link DecodedMp3AudioInputStream#setFrameIndex(Mp3FrameIndex)}.
+ * An index can be saved with {@link #write(OutputStream)}, to be cached next to the file.
+ */
+public final class Mp3FrameIndex {
+
+    public static final int DEFAULT_INTERVAL = 16;
+
+    private static final int MAGIC = 0x4D334958; // "M3IX"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 65536;
+    // bytes of the first frame VBRTag.GetVbrTag may look at, up to the encoder padding of the LAME tag
+    private static final int VBR_TAG_SIZE = 4 + 32 + 8 + 4 + 4 + 100 + 4 + 21 + 3;
+
+    private final int interval;
+    private final int samplesPerFrame;
+    private final int sampleRate;
+    private final long frameCount;
+    private final int encoderDelay;
+    private final int encoderPadding;
+    private final long byteLength;
+    // the byte offset and sample offset of the frames 0, interval, 2 * interval, ... interleaved
+    private final long[] entries;
+
+    private Mp3FrameIndex(int interval, int samplesPerFrame, int sampleRate, long frameCount,
+                          int encoderDelay, int encoderPadding, long byteLength, long[] entries) {
+        this.interval = interval;
+        this.samplesPerFrame = samplesPerFrame;
+        this.sampleRate = sampleRate;
+        this.frameCount = frameCount;
+        this.encoderDelay = encoderDelay;
+        this.encoderPadding = encoderPadding;
+        this.byteLength = byteLength;
+        this.entries = entries;
+    }
+
+    public static Mp3FrameIndex build(File file) throws IOException {
+        try (InputStream in = SeekableInputStream.open(file)) {
+            return build(in, DEFAULT_INTERVAL);
+        }
+    }
+
+    /**
+     * Reads {@code in} to the end. The Xing or LAME frame, if any, is not an audio frame and is not indexed.
+     *
+     * @param interval the number of frames between two entries
+     * @throws IOException if there is no MPEG audio frame in the stream
+     */
+    public static Mp3FrameIndex build(InputStream in, int interval) throws IOException {
+        if (interval < 1) throw new IllegalArgumentException("interval: " + interval);
+        Window window = new Window(in);
+        long pos = sync(window, skipID3v2(window), 0);
+        if (pos < 0) throw new IOException("No MPEG audio frame found");
+        int reference = window.getInt(pos);
+        int samplesPerFrame = getSamplesPerFrame(reference);
+        int sampleRate = getSampleRate(reference);
+
+        int encoderDelay = -1;
+        int encoderPadding = -1;
+        int length = DecodedMp3AudioInputStream.getFrameLength(reference);
+        window.ensure(pos, Math.max(length, VBR_TAG_SIZE));
+        VBRTagData tag = new VBRTagData();
+        if (VBRTag.GetVbrTag(tag, window.copy(pos, Math.max(length, VBR_TAG_SIZE)))) {
+            encoderDelay = tag.enc_delay;
+            encoderPadding = tag.enc_padding;
+            pos += length;
+        }
+
+        long[] entries = new long[256];
+        int size = 0;
+        long frames = 0;
+        while (window.ensure(pos, 4)) {
+            int header = window.getInt(pos);
+            if (!DecodedMp3AudioInputStream.isValidHeader(header, reference)) {
+                pos = sync(window, pos + 1, reference);
+                if (pos < 0) break;
+                header = window.getInt(pos);
+            }
+            length = DecodedMp3AudioInputStream.getFrameLength(header);
+            // a truncated last frame
+            if (!window.ensure(pos, length)) break;
+            if (frames % interval == 0) {
+                if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+                entries[size ++] = pos;
+                entries[size ++] = frames * samplesPerFrame;
+            }
+            frames ++;
+            pos += length;
+        }
+        return new Mp3FrameIndex(interval, samplesPerFrame, sampleRate, frames, encoderDelay, encoderPadding,
+                window.drain(), Arrays.copyOf(entries, size));
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return the number of audio frames
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the encoder delay of the LAME tag in samples, {@code -1} if unknown
+     */
+    public int getEncoderDelay() {
+        return encoderDelay;
+    }
+
+    /**
+     * @return the encoder padding of the LAME tag in samples, {@code -1} if unknown
+     */
+    public int getEncoderPadding() {
+        return encoderPadding;
+    }
+
+    /**
+     * @return the samples per channel of all audio frames, less the encoder delay and padding if known
+     */
+    public long getSampleCount() {
+        return frameCount * samplesPerFrame - Math.max(encoderDelay, 0) - Math.max(encoderPadding, 0);
+    }
+
+    public long getDurationMicroseconds() {
+        return getSampleCount() * 1000000L / sampleRate;
+    }
+
+    /**
+     * @return the length of the indexed stream in bytes, to tell whether a cached index is stale
+     */
+    public long getByteLength() {
+        return byteLength;
+    }
+
+    public int size() {
+        return entries.length / 2;
+    }
+
+    public long getByteOffset(int entry) {
+        return entries[entry * 2];
+    }
+
+    /**
+     * @return the number of samples per channel of the audio frames before the entry
+     */
+    public long getSampleOffset(int entry) {
+        return entries[entry * 2 + 1];
+    }
+
+    /**
+     * @return the last entry at or before {@code sample}, counted from the first audio frame, {@code -1} if there
+     * are no entries
+     */
+    public int find(long sample) {
+        int low = 0;
+        int high = size() - 1;
+        if (high < 0) return -1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getSampleOffset(mid) <= sample) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(interval);
+        data.writeInt(samplesPerFrame);
+        data.writeInt(sampleRate);
+        data.writeLong(frameCount);
+        data.writeInt(encoderDelay);
+        data.writeInt(encoderPadding);
+        data.writeLong(byteLength);
+        data.writeInt(entries.length);
+        for (long entry : entries) data.writeLong(entry);
+        data.flush();
+    }
+
+    /**
+     * Reads an index written by {@link #write(OutputStream)}.
+     *
+     * @throws IOException if the data is not an index of this version
+     */
+    public static Mp3FrameIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) throw new IOException("Not an MP3 frame index");
+        int interval = data.readInt();
+        int samplesPerFrame = data.readInt();
+        int sampleRate = data.readInt();
+        long frameCount = data.readLong();
+        int encoderDelay = data.readInt();
+        int encoderPadding = data.readInt();
+        long byteLength = data.readLong();
+        int length = data.readInt();
+        if (interval < 1 || samplesPerFrame <= 0 || sampleRate <= 0 || length < 0 || (length & 1) != 0)
+            throw new IOException("Not an MP3 frame index");
+        long[] entries = new long[length];
+        for (int i = 0; i < length; i ++) entries[i] = data.readLong();
+        return new Mp3FrameIndex(interval, samplesPerFrame, sampleRate, frameCount, encoderDelay, encoderPadding, byteLength, entries);
+    }
+
+    // the offset after the ID3v2 tags at the start of the stream
+    private static long skipID3v2(Window window) throws IOException {
+        long pos = 0;
+        while (window.ensure(pos, 10) && window.get(pos) == 'I' && window.get(pos + 1) == 'D' && window.get(pos + 2) == '3') {
+            int size = (window.get(pos + 6) & 0x7F) << 21 | (window.get(pos + 7) & 0x7F) << 14
+                    | (window.get(pos + 8) & 0x7F) << 7 | window.get(pos + 9) & 0x7F;
+            // the footer
+            if ((window.get(pos + 5) & 0x10) != 0) size += 10;
+            pos += 10 + size;
+        }
+        return pos;
+    }
+
+    /**
+     * Finds the first frame header at or after {@code pos} which is followed by another one, or ends the stream.
+     *
+     * @param reference the header the frames must agree with, {@code 0} for any
+     * @return the offset of the frame, {@code -1} if there is none
+     */
+    private static long sync(Window window, long pos, int reference) throws IOException {
+        for (; window.ensure(pos, 4); pos ++) {
+            int header = window.getInt(pos);
+            if (reference == 0 ? !isFrameHeader(header) : !DecodedMp3AudioInputStream.isValidHeader(header, reference)) continue;
+            int length = DecodedMp3AudioInputStream.getFrameLength(header);
+            if (window.ensure(pos, length + 4)) {
+                if (DecodedMp3AudioInputStream.isValidHeader(window.getInt(pos + length), reference == 0 ? header : reference)) return pos;
+            }
+            else if (reference != 0 && window.ensure(pos, length)) return pos;
+        }
+        return -1;
+    }
+
+    private static boolean isFrameHeader(int header) {
+        return (header & 0xFFE00000) == 0xFFE00000 && ((header >>> 19) & 3) != 1 && ((header >>> 17) & 3) != 0
+                && ((header >>> 10) & 3) != 3 && DecodedMp3AudioInputStream.isValidHeader(header, header);
+    }
+
+    private static int getSamplesPerFrame(int header) {
+        int layer = 4 - ((header >>> 17) & 3);
+        boolean lsf = ((header >>> 19) & 1) == 0;
+        return layer == 1 ? 384 : layer == 2 || !lsf ? 1152 : 576;
+    }
+
+    private static int getSampleRate(int header) {
+        boolean mpeg25 = ((header >>> 20) & 1) == 0;
+        int lsf = ((header >>> 19) & 1) == 0 ? 1 : 0;
+        return Mpg123.freqs[(mpeg25 ? 6 : lsf * 3) + ((header >>> 10) & 3)];
+    }
+
+    // a buffered view of the stream which only moves forward
+    private static final class Window {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        // the stream offset of buffer[0]
+        private long base = 0;
+        private int count = 0;
+        private boolean eof = false;
+
+        private Window(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return {@code true} if the {@code n} bytes at {@code pos} are buffered, {@code false} if the stream ends
+         * before
+         */
+        boolean ensure(long pos, int n) throws IOException {
+            if (pos + n <= base + count) return true;
+            if (pos < base + count) {
+                int start = (int) (pos - base);
+                System.arraycopy(buffer, start, buffer, 0, count - start);
+                count -= start;
+            }
+            else {
+                // e.g. a large ID3v2 tag, read past it
+                base += count;
+                count = 0;
+                while (!eof && base < pos) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, pos - base));
+                    if (read < 0) eof = true;
+                    else base += read;
+                }
+                if (base < pos) return false;
+            }
+            base = pos;
+            if (n > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, n));
+            while (!eof && count < n) {
+                int read = in.read(buffer, count, buffer.length - count);
+                if (read < 0) eof = true;
+                else count += read;
+            }
+            return n <= count;
+        }
+
+        int get(long pos) {
+            return buffer[(int) (pos - base)] & 0xFF;
+        }
+
+        int getInt(long pos) {
+            int i = (int) (pos - base);
+            return (buffer[i] & 0xFF) << 24 | (buffer[i + 1] & 0xFF) << 16 | (buffer[i + 2] & 0xFF) << 8 | buffer[i + 3] & 0xFF;
+        }
+
+        // the n bytes at pos, zero past the end of the stream
+        byte[] copy(long pos, int n) {
+            int i = (int) (pos - base);
+            byte[] b = new byte[n];
+            System.arraycopy(buffer, i, b, 0, Math.max(Math.min(n, count - i), 0));
+            return b;
+        }
+
+        // reads the rest of the stream, returns its length
+        long drain() throws IOException {
+            while (!eof) {
+                base += count;
+                count = 0;
+                int read = in.read(buffer, 0, buffer.length);
+                if (read < 0) eof = true;
+                else count = read;
+            }
+            return base + count;
+        }
+    }
+
+}
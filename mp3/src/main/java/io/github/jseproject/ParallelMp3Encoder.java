@@ -0,0 +1,261 @@
+package io.github.jseproject;
+
+import net.sourceforge.lame.GlobalFlags;
+import net.sourceforge.lame.LAME;
+import net.sourceforge.lame.VBRTag;
+import org.tritonus.share.sampled.file.TDataOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Encodes MP3 on several threads.
+ * <p>
+ * The input is split into segments of whole frames, each one encoded by its own encoder which is fed the samples
+ * before the segment first, so the first frame of the segment is coded with the same history as in a single pass.
+ * The bit reservoir is drained with the last of these pre-roll frames, the first frame of the segment then takes
+ * no bits from the frames it follows. The pre-roll frames and the frames past the segment are dropped, and the
+ * frames kept are written in stream order. The encoder of the first segment writes the Xing/LAME tag frame, its
+ * frame count, byte count, TOC, music CRC and padding are those of the frames kept.
+ */
+final class ParallelMp3Encoder implements Closeable {
+
+    // whole frames at any sample rate
+    private static final int SEGMENT_SAMPLES = 1152 * 512;
+    // the history the first frame of a segment is coded with
+    private static final int PREROLL_SAMPLES = 1152 * 8;
+    // the look-ahead the last frame of a segment is coded with, beyond the encoder delay and the psychoacoustic window
+    private static final int POSTROLL_SAMPLES = 1152 * 2;
+    private static final int BUFFER_SIZE = 1152;
+    private static final int FLUSH_SIZE = 128000;
+
+    private final Callable<GlobalFlags> encoders;
+    private final int channels;
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+
+    // interleaved samples of the segment being read, from its pre-roll on
+    private final short[] buffer;
+    private int buffered;
+    private int preroll;
+    private int segments;
+
+    private GlobalFlags tagEncoder;
+    // the first segment until its encoder is handed out, closed with this otherwise
+    private Future<Segment> firstSegment;
+
+    /**
+     * @param encoders creates an encoder configured for the output, before {@link LAME#init_params(GlobalFlags)}
+     */
+    ParallelMp3Encoder(Callable<GlobalFlags> encoders, int channels, int threads) {
+        this.encoders = encoders;
+        this.channels = channels;
+        buffer = new short[(PREROLL_SAMPLES + SEGMENT_SAMPLES + POSTROLL_SAMPLES) * channels];
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "MP3 encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maxPending = 2 * threads;
+    }
+
+    /**
+     * Adds interleaved samples, and writes the segments done so far.
+     *
+     * @return the number of bytes written
+     */
+    int encode(short[] pcm, int samples, TDataOutputStream out) throws IOException {
+        int written = 0;
+        int length = preroll + SEGMENT_SAMPLES + POSTROLL_SAMPLES;
+        for (int from = 0; from < samples; ) {
+            int n = Math.min(samples - from, length - buffered);
+            System.arraycopy(pcm, from * channels, buffer, buffered * channels, n * channels);
+            buffered += n;
+            from += n;
+            if (buffered == length) {
+                written += submit(false, out);
+                // the next segment starts where the post-roll does, after its pre-roll
+                int keep = PREROLL_SAMPLES + POSTROLL_SAMPLES;
+                System.arraycopy(buffer, (buffered - keep) * channels, buffer, 0, keep * channels);
+                buffered = keep;
+                preroll = PREROLL_SAMPLES;
+                length = preroll + SEGMENT_SAMPLES + POSTROLL_SAMPLES;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Encodes the samples left and writes all the segments.
+     *
+     * @return the number of bytes written
+     */
+    int finish(TDataOutputStream out) throws IOException {
+        int written = submit(true, out);
+        while (!pending.isEmpty()) written += write(pending.poll(), out);
+        return written;
+    }
+
+    /**
+     * @return the encoder of the first segment, to get the Xing/LAME tag frame and the ID3v1 tag from after
+     * {@link #finish(TDataOutputStream)}, the caller closes it
+     */
+    GlobalFlags getTagEncoder() {
+        firstSegment = null;
+        return tagEncoder;
+    }
+
+    @Override
+    public void close() {
+        for (Future<Segment> future : pending) future.cancel(false);
+        pending.clear();
+        pool.shutdown();
+        if (firstSegment != null && !firstSegment.isCancelled()) {
+            // the encoder of the first segment outlives its task, it is done or still running
+            try {
+                GlobalFlags gf = firstSegment.get().encoder;
+                if (gf != null) LAME.close(gf);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                // closed by the task
+            }
+        }
+        firstSegment = null;
+        tagEncoder = null;
+    }
+
+    private int submit(boolean last, TDataOutputStream out) throws IOException {
+        int written = 0;
+        while (pending.size() >= maxPending) written += write(pending.poll(), out);
+        Segment segment = new Segment(Arrays.copyOf(buffer, buffered * channels), buffered, preroll, segments++ == 0, last);
+        Future<Segment> future = pool.submit(segment);
+        if (segment.first) firstSegment = future;
+        pending.add(future);
+        return written;
+    }
+
+    private int write(Future<Segment> future, TDataOutputStream out) throws IOException {
+        Segment segment;
+        try {
+            segment = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("MP3 encoding interrupted");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        int[] frames = segment.frames;
+        int from = frames[0];
+        if (segment.first) {
+            tagEncoder = segment.encoder;
+            VBRTag.lame_restart_lametag(tagEncoder);
+            // the tag frame the encoder reserved
+            from = 0;
+        }
+        for (int i = 0; i < frames.length - 1; i ++)
+            VBRTag.lame_add_lametag_frame(tagEncoder, segment.data, frames[i], frames[i + 1] - frames[i]);
+        if (segment.last) VBRTag.lame_set_lametag_padding(tagEncoder, segment.padding);
+        int end = frames[frames.length - 1];
+        out.write(segment.data, from, end - from);
+        return end - from;
+    }
+
+    private final class Segment implements Callable<Segment> {
+
+        private final short[] pcm;
+        private final int samples;
+        private final int preroll;
+        private final boolean first;
+        private final boolean last;
+
+        private GlobalFlags encoder;
+        private byte[] data;
+        // the offsets of the frames kept in data, and the end of the last one
+        private int[] frames;
+        private int padding;
+
+        Segment(short[] pcm, int samples, int preroll, boolean first, boolean last) {
+            this.pcm = pcm;
+            this.samples = samples;
+            this.preroll = preroll;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public Segment call() throws Exception {
+            GlobalFlags gf = encoders.call();
+            try {
+                encode(gf);
+            }
+            finally {
+                if (encoder != gf) LAME.close(gf);
+            }
+            return this;
+        }
+
+        private void encode(GlobalFlags gf) throws IOException {
+            if (!first) gf.set_bWriteVbrTag(false);
+            if (LAME.init_params(gf) < 0) throw new IOException("Failed to initialize MP3 encoder");
+            int frameSize = gf.get_framesize();
+            int skip = preroll / frameSize;
+            if (skip > 0) gf.set_reservoir_close_frame(skip - 1);
+
+            data = new byte[samples / 4 + BUFFER_SIZE * 5 / 4 + 7200];
+            int length = 0;
+            short[] chunk = new short[BUFFER_SIZE * 2];
+            for (int from = 0; from < samples; from += BUFFER_SIZE) {
+                int n = Math.min(BUFFER_SIZE, samples - from);
+                System.arraycopy(pcm, from * channels, chunk, 0, n * channels);
+                int size = BUFFER_SIZE * 5 / 4 + 7200;
+                if (data.length - length < size) data = Arrays.copyOf(data, Math.max(2 * data.length, length + size));
+                int ret = channels == 2 ? LAME.encode_buffer_interleaved(gf, chunk, n, data, length, size)
+                        : LAME.encode_buffer(gf, chunk, chunk, n, data, length, size);
+                if (ret < 0) throw new IOException("Failed to encode MP3");
+                length += ret;
+            }
+            byte[] flushBuffer = new byte[FLUSH_SIZE];
+            int ret = LAME.encode_flush(gf, flushBuffer, flushBuffer.length);
+            if (ret < 0) throw new IOException("Failed to encode MP3");
+            if (data.length - length < ret) data = Arrays.copyOf(data, length + ret);
+            System.arraycopy(flushBuffer, 0, data, length, ret);
+            length += ret;
+            padding = gf.get_encoder_padding();
+
+            int position = first ? VBRTag.lame_get_lametag_frame(gf, new byte[0], 0) : 0;
+            int count = last ? Integer.MAX_VALUE : skip + SEGMENT_SAMPLES / frameSize;
+            int[] offsets = new int[Math.min(count, length / 24 + 1) + 1];
+            int frame = 0;
+            for (; frame < count && position + 4 <= length; frame ++) {
+                int header = DecodedMp3AudioInputStream.getHeader(data, position);
+                if ((header & 0xFFE00000) != 0xFFE00000) throw new IOException("Failed to encode MP3");
+                offsets[frame] = position;
+                position += DecodedMp3AudioInputStream.getFrameLength(header);
+            }
+            if (frame < count && !last || position > length) throw new IOException("Failed to encode MP3");
+            offsets[frame] = position;
+            frames = Arrays.copyOfRange(offsets, Math.min(skip, frame), frame + 1);
+
+            if (first) encoder = gf;
+        }
+
+    }
+
+}
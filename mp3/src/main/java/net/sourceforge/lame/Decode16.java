@@ -0,0 +1,44 @@
+package net.sourceforge.lame;
+
+/** java: added. The clipped synth_1to1 of Decode, writing signed 16 bit samples into a byte array. */
+abstract class Decode16 extends DecodePacked {
+
+	/** little endian output */
+	static final class LE extends Decode16 {
+		@Override
+		final int pack(final float[] sums, final byte[] out, int samples, final int step) {
+			int clip = 0;
+			for( int s = 0; s < 32; s++, samples += step ) {
+				final float sum = sums[ s ];
+				final int v;
+				if( sum > 32767.0f ) { v = 0x7fff; clip++; }
+				else if( sum < -32768.0f ) { v = -0x8000; clip++; }
+				else { v = (int)(sum > 0 ? sum + 0.5f : sum - 0.5f); }
+				final int i = samples << 1;
+				out[i] = (byte)v;
+				out[i + 1] = (byte)(v >> 8);
+			}
+			return clip;
+		}
+	}
+
+	/** big endian output */
+	static final class BE extends Decode16 {
+		@Override
+		final int pack(final float[] sums, final byte[] out, int samples, final int step) {
+			int clip = 0;
+			for( int s = 0; s < 32; s++, samples += step ) {
+				final float sum = sums[ s ];
+				final int v;
+				if( sum > 32767.0f ) { v = 0x7fff; clip++; }
+				else if( sum < -32768.0f ) { v = -0x8000; clip++; }
+				else { v = (int)(sum > 0 ? sum + 0.5f : sum - 0.5f); }
+				final int i = samples << 1;
+				out[i] = (byte)(v >> 8);
+				out[i + 1] = (byte)v;
+			}
+			return clip;
+		}
+	}
+
+}
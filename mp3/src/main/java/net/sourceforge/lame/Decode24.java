@@ -0,0 +1,46 @@
+package net.sourceforge.lame;
+
+/** java: added. The clipped synth_1to1 of Decode, writing signed 24 bit samples into a byte array. */
+abstract class Decode24 extends DecodePacked {
+
+	/** little endian output */
+	static final class LE extends Decode24 {
+		@Override
+		final int pack(final float[] sums, final byte[] out, int samples, final int step) {
+			int clip = 0;
+			for( int s = 0; s < 32; s++, samples += step ) {
+				final float sum = sums[ s ];
+				final int v;
+				if( sum > 32767.0f ) { v = 0x7fffff; clip++; }
+				else if( sum < -32768.0f ) { v = -0x800000; clip++; }
+				else { final float f = sum * 256f; v = (int)(f > 0 ? f + 0.5f : f - 0.5f); }
+				final int i = samples * 3;
+				out[i] = (byte)v;
+				out[i + 1] = (byte)(v >> 8);
+				out[i + 2] = (byte)(v >> 16);
+			}
+			return clip;
+		}
+	}
+
+	/** big endian output */
+	static final class BE extends Decode24 {
+		@Override
+		final int pack(final float[] sums, final byte[] out, int samples, final int step) {
+			int clip = 0;
+			for( int s = 0; s < 32; s++, samples += step ) {
+				final float sum = sums[ s ];
+				final int v;
+				if( sum > 32767.0f ) { v = 0x7fffff; clip++; }
+				else if( sum < -32768.0f ) { v = -0x800000; clip++; }
+				else { final float f = sum * 256f; v = (int)(f > 0 ? f + 0.5f : f - 0.5f); }
+				final int i = samples * 3;
+				out[i] = (byte)(v >> 16);
+				out[i + 1] = (byte)(v >> 8);
+				out[i + 2] = (byte)v;
+			}
+			return clip;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package net.sourceforge.lame;
+
+/**
+ * java: added. The clipped synth_1to1 of Decode, writing signed samples into a byte array.
+ * The window loops only collect the 32 sums, the subclasses pack them in one final loop per format and byte order.
+ */
+abstract class DecodePacked extends DCT64 implements Synth {
+
+	@Override
+	public final int synth_1to1_mono(final MpStrTag mp, final float[] bandPtr, final int boffset, final Object outp, final int[] pnt) {
+		final int ret = synth( mp, bandPtr, boffset, 0, (byte[]) outp, pnt[0], 1 );
+		pnt[0] += 32;// java: sample counter
+		return ret;
+	}
+
+	@Override
+	public final int synth_1to1(final MpStrTag mp, final float[] bandPtr, final int boffset, final int channel, final Object outp, final int[] pnt) {
+		final int ret = synth( mp, bandPtr, boffset, channel, (byte[]) outp, pnt[0], 2 );
+		pnt[0] += 64;// java: sample counter
+		return ret;
+	}
+
+	/** java: samples is a sample counter, step 1 for mono, 2 for interleaved stereo output */
+	private int synth(final MpStrTag mp, final float[] bandPtr, final int boffset, final int channel, final byte[] out, int samples, final int step) {
+		final float[] sums = mp.synth_sums;
+		int s = 0;// sums[ s ]
+
+		int bo = mp.synth_bo;
+		float[][] buf;
+
+		if( 0 == channel ) {
+			bo--;
+			bo &= 0xf;
+			buf = mp.synth_buffs[0];
+		} else {
+			samples++;
+			buf = mp.synth_buffs[1];
+		}
+
+		int b0 = 0;// buf0[ b0 ]
+		final float[] buf0;
+		final int bo1;
+		if( (bo & 0x1) != 0 ) {
+			buf0 = buf[0];
+			bo1 = bo;
+			dct64( buf[1], ((bo + 1) & 0xf), buf[0], bo, bandPtr, boffset );
+		} else {
+			buf0 = buf[1];
+			bo1 = bo + 1;
+			dct64( buf[0], bo, buf[1], bo + 1, bandPtr, boffset );
+		}
+
+		mp.synth_bo = bo;
+
+		{
+			final float[] decwin = sDecwin;
+			int window = 16 - bo1;
+			int j = window + 0x20 * 16;
+			do {// for( int j = 16; j != 0; j--, window += 0x11, samples += step ) {
+				float sum = decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window++ ] * buf0[ b0++ ];
+				sum += decwin[ window++ ] * buf0[ b0++ ];
+				sum -= decwin[ window   ] * buf0[ b0++ ];
+
+				sums[ s++ ] = sum;
+				window += 0x11;
+			} while( window < j );
+
+			{
+				float sum  = decwin[ window + 0x0] * buf0[ b0 + 0x0];
+				sum += decwin[ window + 0x2] * buf0[ b0 + 0x2];
+				sum += decwin[ window + 0x4] * buf0[ b0 + 0x4];
+				sum += decwin[ window + 0x6] * buf0[ b0 + 0x6];
+				sum += decwin[ window + 0x8] * buf0[ b0 + 0x8];
+				sum += decwin[ window + 0xA] * buf0[ b0 + 0xA];
+				sum += decwin[ window + 0xC] * buf0[ b0 + 0xC];
+				sum += decwin[ window + 0xE] * buf0[ b0 + 0xE];
+				sums[ s++ ] = sum;
+				window -= 0x20;
+			}
+			window += bo1 << 1;
+
+			j = window - 0x20 * 15;
+			do {// for( j = 15; j != 0; j--, window -= 0x20, samples += step ) {
+				float sum = -decwin[ window ] * buf0[ --b0 ];
+				int w = window - 0xF;
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w++ ] * buf0[ --b0 ];
+				sum -= decwin[ w   ] * buf0[ --b0 ];
+
+				sums[ s++ ] = sum;
+				window -= 0x20;
+			} while( window > j );
+		}
+		return pack( sums, out, samples, step );
+	}
+
+	/**
+	 * Clips, rounds and packs the 32 sums in 16 bit scale.
+	 *
+	 * @param samples the sample counter of the first sum
+	 * @param step 1 for mono, 2 for interleaved stereo output
+	 * @return the number of clipped samples
+	 */
+	abstract int pack(final float[] sums, final byte[] out, int samples, final int step);
+
+}
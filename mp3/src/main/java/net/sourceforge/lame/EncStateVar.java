@@ -44,6 +44,8 @@ class EncStateVar {
 	/* variables for reservoir.c */
 	int     ResvSize;    /* in bits */
 	int     ResvMax;     /* in bits */
+	/** java: added. the frame after which the reservoir is empty, -1 = none */
+	int     ResvCloseFrame = -1;
 
 	int     in_buffer_nsamples;
 	float[] in_buffer_0;
@@ -581,6 +581,21 @@ public class GlobalFlags {// struct lame_global_struct
 		return false;
 	}
 
+	/**
+	 * java: added. Drains the bit reservoir with the given frame, so the frame after it does not
+	 * take bits from the frames before. Only valid after init_params. -1 = never (default)
+	 */
+	public final int set_reservoir_close_frame(final int frame) {
+		if( is_valid() ) {
+			final InternalFlags gfc = this.internal_flags;
+			if( gfc.is_valid() ) {
+				gfc.sv_enc.ResvCloseFrame = frame;
+				return 0;
+			}
+		}
+		return -1;
+	}
+
 	public final int set_experimentalX(final int experimentalX) {
 		if( is_valid() ) {
 			set_quant_comp( experimentalX );
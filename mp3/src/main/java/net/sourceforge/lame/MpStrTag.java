@@ -41,6 +41,12 @@ public class MpStrTag {
 	public int     enc_delay;
 	/** set if vbr header present */
 	public int     enc_padding;
+	/** set if vbr header present, null if it has no table of contents */
+	byte[]  vbr_toc;
+	/** set if vbr header present, total bytes of the stream including the vbr header frame */
+	int     vbr_bytes;
+	/** set if vbr header present, size of the vbr header frame */
+	int     vbr_frame_size;
 	/* header_parsed, side_parsed and data_parsed must be all set 1
 	   before the full frame has been parsed */
 	/** 1 = header of current frame has been parsed */
@@ -71,6 +77,10 @@ public class MpStrTag {
 	int  bsnum;
 	final float synth_buffs[][][] = new float[2][2][0x110];
 	int     synth_bo;
+	/** java: added. the 32 window sums of the packed synthesis, see DecodePacked */
+	final float synth_sums[] = new float[32];
+	/** java: added. index of the frame being decoded after a seek, -1 if not seeking */
+	long    seek_frame;
 	/** 1 = bitstream is yet to be synchronized */
 	boolean sync_bitstream;
 
@@ -114,6 +124,9 @@ public class MpStrTag {
 		this.num_frames = 0;
 		this.enc_delay = -1;
 		this.enc_padding = -1;
+		this.vbr_toc = null;
+		this.vbr_bytes = 0;
+		this.vbr_frame_size = 0;
 		this.vbr_header = false;
 		this.header_parsed = false;
 		this.side_parsed = false;
@@ -131,6 +144,7 @@ public class MpStrTag {
 		this.wordpointer = 512;
 		this.bitindex = 0;
 		this.synth_bo = 1;
+		this.seek_frame = -1;
 		this.sync_bitstream = true;
 
 		// }
@@ -284,6 +298,9 @@ public class MpStrTag {
 			this.num_frames = pTagData.frames;
 			this.enc_delay = pTagData.enc_delay;
 			this.enc_padding = pTagData.enc_padding;
+			this.vbr_toc = (pTagData.flags & VBRTag.TOC_FLAG) != 0 ? pTagData.toc.clone() : null;
+			this.vbr_bytes = (pTagData.flags & VBRTag.BYTES_FLAG) != 0 ? pTagData.bytes : 0;
+			this.vbr_frame_size = pTagData.headersize;
 
 			/* Util.lame_report_fnc(this.report_msg,"hip: delays: %d %d \n",this.enc_delay,this.enc_padding); */
 			/* Util.lame_report_fnc(this.report_msg,"hip: Xing VBR header dectected.  MP3 file has %d frames\n", pTagData.frames); */
@@ -649,6 +666,13 @@ public class MpStrTag {
 
 			done[0] = 0;
 
+			if( this.seek_frame >= 0 ) {
+				/* java: the phase of a decode from the start, one synth call per 32 samples. The first frames after
+				 * a seek may not be synthesized, they lack the bit reservoir */
+				final int calls = this.fr.lay == 1 ? 12 : (this.fr.lay == 3 && this.fr.lsf != 0 ? 18 : 36);
+				this.synth_bo = (int) ((1 - this.seek_frame * calls) & 0xf);
+			}
+
 			/*do_layer3(&mp.fr,(unsigned char *) out,done); */
 			switch( this.fr.lay ) {
 			case 1:
@@ -733,6 +757,9 @@ public class MpStrTag {
 		}
 
 		/* the above frame is completely parsed.  start looking for next frame */
+		if( this.seek_frame >= 0 ) {
+			this.seek_frame++;
+		}
 		this.fsizeold = this.framesize;
 		this.old_free_format = this.free_format;
 		this.framesize = 0;
@@ -768,6 +795,12 @@ public class MpStrTag {
 		return decodeMP3_clipchoice( in, isize, out, done, sDecoderUnclipped );// synth_1to1_mono_unclipped, synth_1to1_unclipped );
 	}
 
+	/** java: added. decodeMP3 with a synth packing the samples into out, like Decode16 and Decode24.
+	 * out must hold 1152 * 2 samples. */
+	final int decodeMP3_packed(final byte[] in, final int isize, final byte[] out, final int[] done, final Synth synth) {
+		return decodeMP3_clipchoice( in, isize, out, done, synth );
+	}
+
 	final int getbits_fast(final int number_of_bits) {
 		final byte[] buf = this.wordbuf;// java
 		int p = this.wordpointer;// java
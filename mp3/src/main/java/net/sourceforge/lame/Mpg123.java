@@ -50,12 +50,19 @@ public class Mpg123 extends MpStrTag {
 	private static final int FORMAT_MP3 = 3;
 	//
 	private static final byte sAbl2[] = { 0, 7, 7, 7, 0, 7, 0, 0, 0, 0, 0, 8, 8, 8, 8, 8 };
+	// java: synthesis packing signed samples for the output format, see DecodePacked
+	private static final Synth sDecoder16LE = new Decode16.LE();
+	private static final Synth sDecoder16BE = new Decode16.BE();
+	private static final Synth sDecoder24LE = new Decode24.LE();
+	private static final Synth sDecoder24BE = new Decode24.BE();
 	// output stream parameters
 	/** true if big endian output */
 	private final boolean mIsBigEndian;
 	/** true if signed output */
 	private final boolean mIsSigned;
-	/** mono sample size in bytes. supporting 1, 2, 3 bytes */
+	/** true if float output */
+	private final boolean mIsFloat;
+	/** mono sample size in bytes. supporting 1, 2, 3 bytes, 4 bytes for float output */
 	private final int mBytesPerSample;
 	//
 	private InputStream mInputStream = null;
@@ -75,11 +82,14 @@ public class Mpg123 extends MpStrTag {
 	//
 	private static final int OUT_SIZE = 1152 * 2;// 4096;
 	private final float mOutUnclipped[] = new float[OUT_SIZE];
+	/** synthesis writing signed 16 or 24 bit output to mOutPacked, null to convert mOutUnclipped */
+	private final Synth mSynth;
+	private final byte mOutPacked[];
 	//
 	private final byte mByteBuffer[] = new byte[1024];
 	// pcm buffer
-	/** buffer for interleaved samples */
-	private float mBuffer[] = null;
+	/** buffer for interleaved samples in the output format */
+	private byte mBuffer[] = null;
 	/** number samples allocated */
 	private int mNumSamplesAllocated = 0;
 	/** number samples used */
@@ -88,6 +98,24 @@ public class Mpg123 extends MpStrTag {
 	private int mSkipStart = 0;
 	/** number samples to ignore at the end */
 	private int mSkipEnd = 0;
+	/** number of frames to decode and ignore, set by seek */
+	private int mSkipFrames = 0;
+	// seeking
+	/** byte offset of the first frame header, the Xing VBR header frame if present */
+	private long mFirstFrameOffset = 0;
+	/** size of the Xing VBR header frame, 0 if not present */
+	private int mVbrFrameSize = 0;
+	/** number of frames from the Xing VBR header, 0 if not present */
+	private int mFrameCount = 0;
+	/** number of bytes from the Xing VBR header, 0 if not present */
+	private int mStreamBytes = 0;
+	/** table of contents from the Xing VBR header, null if not present */
+	private byte[] mToc = null;
+	private int mSamplesPerFrame = 0;
+	/** bitrate of the first audio frame in kbps, 0 for free format */
+	private int mFrameBitrate = 0;
+	/** number of samples per channel the decoder output is delayed by */
+	private int mDecoderDelay = 0;
 	// end pcm buffer
 	/**
 	 * Constructor with parameters for output byte stream.
@@ -98,12 +126,36 @@ public class Mpg123 extends MpStrTag {
 	 * @throws IllegalArgumentException throws if sample size not one of the 8, 16, 24.
 	 */
 	public Mpg123(final int sampleSize, final boolean isSigned, final boolean isBigEndian) throws IllegalArgumentException {
-		if( sampleSize != 16 && sampleSize != 24 && sampleSize != 8 ) {
+		this( sampleSize, isSigned, isBigEndian, false );
+	}
+	/**
+	 * Constructor with parameters for output byte stream.
+	 *
+	 * @param sampleSize sample size in bits, 16, 24 or 8 bits, 32 bits for float output.
+	 * @param isSigned true for signed data
+	 * @param isBigEndian true for big endian data
+	 * @param isFloat true for float data scaled to [-1, 1), not clipped
+	 * @throws IllegalArgumentException throws if sample size not one of the 8, 16, 24, or not 32 for float output.
+	 */
+	public Mpg123(final int sampleSize, final boolean isSigned, final boolean isBigEndian, final boolean isFloat) throws IllegalArgumentException {
+		if( isFloat ? sampleSize != 32 : sampleSize != 16 && sampleSize != 24 && sampleSize != 8 ) {
 			throw new IllegalArgumentException("Unsupported sample size: " + sampleSize);
 		}
 		mBytesPerSample = sampleSize >> 3;
 		mIsSigned = isSigned;
 		mIsBigEndian = isBigEndian;
+		mIsFloat = isFloat;
+		if( ! isFloat && isSigned && mBytesPerSample != 1 ) {
+			if( mBytesPerSample == 2 ) {
+				mSynth = isBigEndian ? sDecoder16BE : sDecoder16LE;
+			} else {
+				mSynth = isBigEndian ? sDecoder24BE : sDecoder24LE;
+			}
+			mOutPacked = new byte[OUT_SIZE * mBytesPerSample];
+		} else {
+			mSynth = null;
+			mOutPacked = null;
+		}
 	}
 	/**
 	 *
@@ -126,6 +178,62 @@ public class Mpg123 extends MpStrTag {
 	public long getTotalNumSamples() {
 		return mTotalNumSamples;
 	}
+	/**
+	 *
+	 * @return byte offset of the first frame in the input stream, the Xing VBR header frame if present
+	 */
+	public long getFirstFrameOffset() {
+		return mFirstFrameOffset;
+	}
+	/**
+	 *
+	 * @return size of the Xing VBR header frame, 0 if not present
+	 */
+	public int getVbrFrameSize() {
+		return mVbrFrameSize;
+	}
+	/**
+	 *
+	 * @return number of audio frames if Xing VBR header was detected, otherwise 0
+	 */
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+	/**
+	 *
+	 * @return stream size in bytes if Xing VBR header was detected, otherwise 0
+	 */
+	public int getStreamBytes() {
+		return mStreamBytes;
+	}
+	/**
+	 *
+	 * @return the 100 entry seek table of the Xing VBR header, null if not present
+	 */
+	public byte[] getToc() {
+		return mToc;
+	}
+	/**
+	 *
+	 * @return samples per channel in one frame
+	 */
+	public int getSamplesPerFrame() {
+		return mSamplesPerFrame;
+	}
+	/**
+	 *
+	 * @return bitrate of the first audio frame in kbps, 0 for free format
+	 */
+	public int getFrameBitrate() {
+		return mFrameBitrate;
+	}
+	/**
+	 *
+	 * @return number of samples per channel decoded before the first sample of the stream
+	 */
+	public int getDecoderDelay() {
+		return mDecoderDelay;
+	}
 	private static final int getLenOfId3v2Tag(final byte[] buf, int offset) {
 		final int b0 = (int)buf[offset++] & 127;
 		final int b1 = (int)buf[offset++] & 127;
@@ -182,14 +290,18 @@ public class Mpg123 extends MpStrTag {
 	 *  n     number of mono samples output.  either 576 or 1152 depending on MP3 file.
 	 *
 	 */
-    private final int decodeHeaders(final byte[] buffer, final int len,
-		final float[] p, final int psize)
+    private final int decodeHeaders(final byte[] buffer, final int len)
 	{
 		final int processed_mono_samples[] = new int[1];// java: processed_bytes changed to processed_mono_samples
 
 		mIsHeaderParsed = false;
 
-		final int ret = decodeMP3_unclipped( buffer, len, p, psize, processed_mono_samples );
+		int ret = decodeFrame( buffer, len, processed_mono_samples );
+		// after a seek, decode whole frames to restore the bit reservoir, but drop their samples
+		while( ret == Mpg123.MP3_OK && mSkipFrames > 0 ) {
+			mSkipFrames--;
+			ret = decodeFrame( buffer, 0, processed_mono_samples );
+		}
 		/* three cases:
 		 * 1. headers parsed, but data not complete
 		 *       pmp.header_parsed==1
@@ -240,6 +352,40 @@ public class Mpg123 extends MpStrTag {
 
 		return -1;
 	}
+	/** java: added. Decodes to mOutPacked if the synthesis packs the output format, to mOutUnclipped otherwise */
+	private final int decodeFrame(final byte[] buffer, final int len, final int[] processed_mono_samples) {
+		if( mSynth != null ) {
+			return decodeMP3_packed( buffer, len, mOutPacked, processed_mono_samples, mSynth );
+		}
+		return decodeMP3_unclipped( buffer, len, mOutUnclipped, OUT_SIZE, processed_mono_samples );
+	}
+	/**
+	 * Forgets the input stream and everything read from it, keeping the buffers.
+	 * A decoder can open another stream after reset() and InitMP3().
+	 */
+	public final void reset() {
+		mInputStream = null;
+		mIsEofReached = false;
+		mInputFormat = FORMAT_UNKNOWN;
+		mId3v2TagBuff = null;
+		mIsHeaderParsed = false;
+		mNumChannels = 0;
+		mSampleRate = 0;
+		mBitrate = 0;
+		mTotalNumSamples = 0;
+		mNumSamplesUsed = 0;
+		mSkipStart = 0;
+		mSkipEnd = 0;
+		mSkipFrames = 0;
+		mFirstFrameOffset = 0;
+		mVbrFrameSize = 0;
+		mFrameCount = 0;
+		mStreamBytes = 0;
+		mToc = null;
+		mSamplesPerFrame = 0;
+		mFrameBitrate = 0;
+		mDecoderDelay = 0;
+	}
 	/**
 	 * Inspect a input stream
 	 * @param is a input stream.
@@ -248,9 +394,11 @@ public class Mpg123 extends MpStrTag {
 	public final int open(final InputStream is) {
 		try {
 			final byte buf[] = new byte[100];
+			long pos = 0;// bytes read
 			if( is.read( buf, 0, 4 ) != 4 ) {
 				return -1;
 			}
+			pos += 4;
 			// TODO java: how to detect not a mpeg stream?
 			if( (buf[0] == 'R') && (buf[1] == 'I') && (buf[2] == 'F') && (buf[3] == 'F') ) {//&&
 				//	(buf[8] == 'W') && (buf[9] == 'A') && (buf[10] == 'V') && (buf[11] == 'E') ) {
@@ -276,6 +424,7 @@ public class Mpg123 extends MpStrTag {
 				if( is.read( buf, 4, 6 ) != 6 ) {
 					return -1;
 				}
+				pos += 6;
 				final int len = getLenOfId3v2Tag( buf, 6 );
 				if( mId3v2TagBuff == null ) {
 					mId3v2TagBuff = new byte[ 10 + len ];
@@ -283,21 +432,25 @@ public class Mpg123 extends MpStrTag {
 					if( is.read( mId3v2TagBuff, 10, len ) != len ) {
 						return -1;
 					}
+					pos += len;
 				}
 				if( is.read( buf, 0, 4 ) != 4 ) {
 					return -1;
 				}
+				pos += 4;
 			}
 			if( buf[0] == 'A' && buf[1] == 'i' && buf[2] == 'D' && buf[3] == '\1' ) {
 				if( is.read( buf, 0, 2 ) != 2 ) {
 					return -1;
 				}
+				pos += 2;
 				int aid_header = ((int)buf[0] & 0xff) + (((int)buf[1] & 0xff) << 8);
 				//System.out.printf("Album ID found. length = %d\n", aid_header );
 				// skip rest of AID, except for 6 bytes we have already read
 				aid_header -= 6;
 				// skip (aid_header - 6) bytes
 				for( final int read = is.read( buf, 0, aid_header ); read >= 0; ) {
+					pos += read;
 					aid_header -= read;
 					if( aid_header <= 0 ) {
 						break;
@@ -307,6 +460,7 @@ public class Mpg123 extends MpStrTag {
 				if( is.read( buf, 0, 4 ) != 4 ) {
 					return -1;
 				}
+				pos += 4;
 			}
 			int len = OUT_SIZE;
 			while( ! isSyncwordMp123( buf ) ) {
@@ -316,16 +470,18 @@ public class Mpg123 extends MpStrTag {
 				if( is.read( buf, 3, 1 ) != 1 ) {
 					return -1;
 				}
+				pos++;
 				if( --len <= 0 ) {
 					return -1;// no sync word in 1152 bytes
 				}
 			}
+			mFirstFrameOffset = pos - 4;
 			boolean freeformat = false;
 			if( (buf[2] & 0xf0) == 0 ) {
 				//System.out.println("Input file is freeformat.");
 				freeformat = true;
 			}
-			int ret = decodeHeaders( buf, 4, mOutUnclipped, OUT_SIZE );
+			int ret = decodeHeaders( buf, 4 );
 			if( -1 == ret ) {
 				return -1;
 			}
@@ -335,7 +491,7 @@ public class Mpg123 extends MpStrTag {
 				if( len != buf.length ) {
 					return -1;
 				}
-				ret = decodeHeaders( buf, len, mOutUnclipped, OUT_SIZE );
+				ret = decodeHeaders( buf, len );
 				if( -1 == ret ) {
 					return -1;
 				}
@@ -353,6 +509,13 @@ public class Mpg123 extends MpStrTag {
 				// System.err.printf("Unsupported number of channels: %d\n", mNumChannels );
 				return -1;
 			}
+			// java: vbr_header is cleared again by the check on the next frame, the fields are only set with the tag
+			mVbrFrameSize = this.vbr_frame_size;
+			mFrameCount = this.num_frames;
+			mStreamBytes = this.vbr_bytes;
+			mToc = this.vbr_toc;
+			mSamplesPerFrame = this.fr.lay == 1 ? 384 : (this.fr.lay == 2 || this.fr.lsf == 0 ? 1152 : 576);
+			mFrameBitrate = freeformat ? 0 : tabsel_123[this.fr.lsf][this.fr.lay - 1][this.fr.bitrate_index];
 			switch( mInputFormat ) {
 			case FORMAT_MP3:
 				mSkipStart = ENCDELAY + 528 + 1;
@@ -369,6 +532,7 @@ public class Mpg123 extends MpStrTag {
 				mSkipStart = 240 + 1;
 				break;
 			}
+			mDecoderDelay = mSkipStart;
 			mSkipStart *= mNumChannels;
 			mSkipEnd *= mNumChannels;
 			mSkipStart = mSkipStart < 0 ? 0 : mSkipStart;
@@ -378,7 +542,23 @@ public class Mpg123 extends MpStrTag {
 			return -1;
 		}
 	}
-	private final int addBuffer(final float[] a, final int read) {
+	/**
+	 * Restarts decoding after the input stream was moved to a frame header.
+	 *
+	 * @param frame index of that frame counted from the first audio frame, the samples are then rounded as when
+	 *        decoding from the start
+	 * @param skipFrames number of frames to decode and drop, they restore the bit reservoir and the filter state
+	 * @param skipSamples number of samples per channel to drop after these frames
+	 */
+	public final void seek(final long frame, final int skipFrames, final int skipSamples) {
+		decode_reset();
+		this.seek_frame = frame;
+		mNumSamplesUsed = 0;
+		mIsEofReached = false;
+		mSkipFrames = skipFrames;
+		mSkipStart = skipSamples * mNumChannels;
+	}
+	private final int addBuffer(final int read) {
 		if( read < 0 ) {
 			return mNumSamplesUsed - mSkipEnd;
 		}
@@ -391,9 +571,13 @@ public class Mpg123 extends MpStrTag {
 			final int b_need = (mNumSamplesUsed + a_want);
 			if( mNumSamplesAllocated < b_need ) {
 				mNumSamplesAllocated = b_need;
-				mBuffer = mBuffer == null ? new float[b_need] : Arrays.copyOf( mBuffer, b_need );
+				mBuffer = mBuffer == null ? new byte[b_need * mBytesPerSample] : Arrays.copyOf( mBuffer, b_need * mBytesPerSample );
+			}
+			if( mSynth != null ) {
+				System.arraycopy( mOutPacked, mSkipStart * mBytesPerSample, mBuffer, mNumSamplesUsed * mBytesPerSample, a_want * mBytesPerSample );
+			} else {
+				convert( mOutUnclipped, mSkipStart, a_want, mBuffer, mNumSamplesUsed * mBytesPerSample );
 			}
-			System.arraycopy( a, mSkipStart, mBuffer, mNumSamplesUsed, a_want );
 			mNumSamplesUsed = b_need;
 		}
 		mSkipStart = 0;
@@ -410,47 +594,31 @@ public class Mpg123 extends MpStrTag {
 	 * @param isSigned
 	 * @param isBigEndian
 	 */
-	private final void convert(final float[] buffer, final int samples, final byte[] b, int off) {
-		if( mBytesPerSample == 2 ) {
-			if( mIsSigned ) {
+	private final void convert(final float[] buffer, final int from, final int samples, final byte[] b, int off) {
+		// java: signed 16 and 24 bit samples are packed by the synthesis, see mSynth
+		final int to = from + samples;
+		if( mIsFloat ) {
+			// the synthesis output is in 16 bit scale
+			for( int i = from; i < to; i++ ) {
+				final int v = Float.floatToRawIntBits( buffer[i] * (1.0f / 32768.0f) );
 				if( mIsBigEndian ) {
-					// signed, big endian
-					for( int i = 0; i < samples; i++ ) {
-						final float x = buffer[i];
-						if( x > 32767.0f ) {// 0x7fff
-							b[off++] = 0x7f;
-							b[off++] = -1;
-						} else if( x < -32768.0f ) {// -0x8000
-							b[off++] = -0x80;
-							b[off++] = 0;
-						} else {
-							final short v = (short)(x > 0 ? x + 0.5f : x - 0.5f);
-							b[off++] = (byte)(v >> 8);
-							b[off++] = (byte)(v);
-						}
-					}
-					return;
-				}
-				// signed, little endian
-				for( int i = 0; i < samples; i++ ) {
-					final float x = buffer[i];
-					if( x > 32767.0f ) {// 0x7fff
-						b[off++] = -1;
-						b[off++] = 0x7f;
-					} else if( x < -32768.0f ) {// -0x8000
-						b[off++] = 0;
-						b[off++] = -0x80;
-					} else {
-						final short v = (short)(x > 0 ? x + 0.5f : x - 0.5f);
-						b[off++] = (byte)(v);
-						b[off++] = (byte)(v >> 8);
-					}
+					b[off++] = (byte)(v >> 24);
+					b[off++] = (byte)(v >> 16);
+					b[off++] = (byte)(v >> 8);
+					b[off++] = (byte)(v);
+				} else {
+					b[off++] = (byte)(v);
+					b[off++] = (byte)(v >> 8);
+					b[off++] = (byte)(v >> 16);
+					b[off++] = (byte)(v >> 24);
 				}
-				return;
-			}// if signed
+			}
+			return;
+		}
+		if( mBytesPerSample == 2 ) {
 			if( mIsBigEndian ) {
 				// unsigned, big endian
-				for( int i = 0; i < samples; i++ ) {
+				for( int i = from; i < to; i++ ) {
 					final float x = buffer[i] + 32768f;
 					if( x > 32767.0f ) {// 0x7fff
 						b[off++] = 0x7f;
@@ -467,7 +635,7 @@ public class Mpg123 extends MpStrTag {
 				return;
 			}
 			// unsigned, little endian
-			for( int i = 0; i < samples; i++ ) {
+			for( int i = from; i < to; i++ ) {
 				final float x = buffer[i] + 32768f;
 				if( x > 32767.0f ) {// 0x7fff
 					b[off++] = -1;
@@ -484,53 +652,9 @@ public class Mpg123 extends MpStrTag {
 			return;
 		}
 		if( mBytesPerSample == 3 ) {// TODO dither
-			if( mIsSigned ) {
-				if( mIsBigEndian ) {
-					// signed, big endian
-					for( int i = 0; i < samples; i++ ) {
-						float x = buffer[i];
-						if( x > 32767.0f ) {// 0x7fff
-							b[off++] = 0x7f;
-							b[off++] = -1;
-							b[off++] = -1;
-						} else if( x < -32768.0f ) {// -0x8000
-							b[off++] = -0x80;
-							b[off++] = 0;
-							b[off++] = 0;
-						} else {
-							x *= 256f;
-							final int v = (short)(x > 0 ? x + 0.5f : x - 0.5f);
-							b[off++] = (byte)(v >> 16);
-							b[off++] = (byte)(v >> 8);
-							b[off++] = (byte)(v);
-						}
-					}
-					return;
-				}
-				// signed, stereo, little endian
-				for( int i = 0; i < samples; i++ ) {
-					float x = buffer[i];
-					if( x > 32767.0f ) {// 0x7fff
-						b[off++] = -1;
-						b[off++] = -1;
-						b[off++] = 0x7f;
-					} else if( x < -32768.0f ) {// -0x8000
-						b[off++] = 0;
-						b[off++] = 0;
-						b[off++] = -0x80;
-					} else {
-						x *= 256f;
-						final int v = (short)(x > 0 ? x + 0.5f : x - 0.5f);
-						b[off++] = (byte)(v);
-						b[off++] = (byte)(v >> 8);
-						b[off++] = (byte)(v >> 16);
-					}
-				}
-				return;
-			}// if signed
 			if( mIsBigEndian ) {
 				// unsigned, stereo, big endian
-				for( int i = 0; i < samples; i++ ) {
+				for( int i = from; i < to; i++ ) {
 					float x = buffer[i] + 32768f;
 					if( x > 32767.0f ) {// 0x7fff
 						b[off++] = 0x7f;
@@ -551,7 +675,7 @@ public class Mpg123 extends MpStrTag {
 				return;
 			}
 			// unsigned, stereo, little endian
-			for( int i = 0; i < samples; i++ ) {
+			for( int i = from; i < to; i++ ) {
 				float x = buffer[i] + 32768f;
 				if( x > 32767.0f ) {// 0x7fff
 					b[off++] = -1;
@@ -574,7 +698,7 @@ public class Mpg123 extends MpStrTag {
 		if( mBytesPerSample == 1 ) {
 			if( mIsSigned ) {
 				// signed
-				for( int i = 0; i < samples; i++ ) {
+				for( int i = from; i < to; i++ ) {
 					final float x = buffer[i];
 					if( x > 32767.0f ) {// 0x7fff
 						b[off++] = 0x7f;
@@ -588,7 +712,7 @@ public class Mpg123 extends MpStrTag {
 				return;
 			}
 			// unsigned
-			for( int i = 0; i < samples; i++ ) {
+			for( int i = from; i < to; i++ ) {
 				final float x = buffer[i] + 32768f;
 				if( x > 32767.0f ) {// 0x7fff
 					b[off++] = 0x7f;
@@ -612,13 +736,13 @@ public class Mpg123 extends MpStrTag {
 			take = samples_in_buffer;
 		}
 		if( take > 0 ) {
-			convert( mBuffer, take, b, off );
+			System.arraycopy( mBuffer, 0, b, off, take * mBytesPerSample );
 			mNumSamplesUsed -= take;
 			if( mNumSamplesUsed < 0 ) {
 				mNumSamplesUsed = 0;
 				return take * mBytesPerSample;
 			}
-			System.arraycopy( mBuffer, take, mBuffer, 0, mNumSamplesUsed );
+			System.arraycopy( mBuffer, take * mBytesPerSample, mBuffer, 0, mNumSamplesUsed * mBytesPerSample );
 			return take * mBytesPerSample;
 		}
 		return 0;
@@ -640,7 +764,6 @@ public class Mpg123 extends MpStrTag {
 				return -1;
 			}
 			//
-			final float[] out = mOutUnclipped;
 			final byte[] byte_buff = mByteBuffer;
 			int read;
 			do {
@@ -649,12 +772,12 @@ public class Mpg123 extends MpStrTag {
 				//
 				int num = 0;
 				// read until we get a valid output frame
-				while( (read = decodeHeaders( byte_buff, num, out, OUT_SIZE )) == 0 ) {
+				while( (read = decodeHeaders( byte_buff, num )) == 0 ) {
 					num = mInputStream.read( byte_buff, 0, 1024 );
 					if( num <= 0 ) {// java: len = -1 if eof
 						num = 0;// java: len = -1 if eof
 						// we are done reading the file, but check for buffered data
-						read = decodeHeaders( byte_buff, num, out, OUT_SIZE );
+						read = decodeHeaders( byte_buff, num );
 						if( read <= 0 ) {
 							read = -1;// done with file
 						}
@@ -665,10 +788,6 @@ public class Mpg123 extends MpStrTag {
 				// read = 0:  not possible with lame_decode_fromfile() ???
 				// read > 0:  number of output samples
 				if( read < 0 ) {
-					int i = OUT_SIZE;
-					do {
-						out[--i] = 0;
-					} while( i > 0 );
 					read = 0;
 					mIsEofReached = true;
 				}
@@ -679,7 +798,7 @@ public class Mpg123 extends MpStrTag {
 				if( mSampleRate != sample_rate ) {
 					throw new IOException("Error: sample frequency has changed - not supported");
 				}
-				used = addBuffer( out, read );
+				used = addBuffer( read );
 			} while( used <= 0 && read > 0 );
 		}// while no data in the buffer
 	}
@@ -105,7 +105,7 @@ class Reservoir {
 		if( esv.ResvMax > resvLimit ) {
 			esv.ResvMax = resvLimit;
 		}
-		if( esv.ResvMax < 0 || cfg.disable_reservoir) {
+		if( esv.ResvMax < 0 || cfg.disable_reservoir || gfc.ov_enc.frame_number == esv.ResvCloseFrame ) {// java: added ResvCloseFrame
 			esv.ResvMax = 0;
 		}
 
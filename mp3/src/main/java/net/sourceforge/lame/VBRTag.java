@@ -7,8 +7,8 @@ import java.io.RandomAccessFile;
 
 public class VBRTag {
 	private static final int FRAMES_FLAG    = 0x0001;
-	private static final int BYTES_FLAG     = 0x0002;
-	private static final int TOC_FLAG       = 0x0004;
+	static final int BYTES_FLAG     = 0x0002;
+	static final int TOC_FLAG       = 0x0004;
 	private static final int VBR_SCALE_FLAG = 0x0008;
 
 	static final int NUMTOCENTRIES = 100;
@@ -886,6 +886,50 @@ public class VBRTag {
 		return gfc.VBR_seek_table.TotalFrameSize;
 	}
 
+	/**
+	 * java: added. Starts the frame count, byte count, TOC and music CRC of the tag over,
+	 * to describe a stream assembled from the frames of several encoders with lame_add_lametag_frame.
+	 */
+	public static final void lame_restart_lametag(final GlobalFlags gfp) {
+		final InternalFlags gfc = gfp.internal_flags;
+		if( gfc == null || ! gfc.is_valid() || ! gfc.cfg.write_lame_tag ) {
+			return;
+		}
+		final VBRSeekInfo v = gfc.VBR_seek_table;
+		v.nVbrNumFrames = 0;
+		v.nBytesWritten = 0;
+		v.sum = 0;
+		v.seen = 0;
+		v.want = 1;
+		v.pos = 0;
+		gfc.nMusicCRC = 0;
+	}
+
+	/**
+	 * java: added. Adds a frame of the assembled stream to the tag.
+	 */
+	public static final void lame_add_lametag_frame(final GlobalFlags gfp, final byte[] frame, final int offset, final int length) {
+		final InternalFlags gfc = gfp.internal_flags;
+		if( gfc == null || ! gfc.is_valid() || ! gfc.cfg.write_lame_tag ) {
+			return;
+		}
+		final int bitrate_index = (frame[offset + 2] >> 4) & 0x0f;
+		addVbr( gfc.VBR_seek_table, Tables.bitrate_table[gfc.cfg.version][bitrate_index] );
+		gfc.VBR_seek_table.nBytesWritten += length;
+		gfc.nMusicCRC = UpdateMusicCRC( gfc.nMusicCRC, frame, offset, length );
+	}
+
+	/**
+	 * java: added. Sets the encoder padding of the assembled stream, the one of the encoder of its last frames.
+	 */
+	public static final void lame_set_lametag_padding(final GlobalFlags gfp, final int encoder_padding) {
+		final InternalFlags gfc = gfp.internal_flags;
+		if( gfc == null || ! gfc.is_valid() ) {
+			return;
+		}
+		gfc.ov_enc.encoder_padding = encoder_padding;
+	}
+
 	/***********************************************************************
 	 *
 	 * PutVbrTag: Write final VBR tag to the file
@@ -0,0 +1,120 @@
+package io.github.jseproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class Mp3AudioFileReaderTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void rejectedStreamGoesBackToItsStart() throws IOException {
+        // more than the first frame window of bytes which are not MPEG audio after the tag
+        byte[] junk = new byte[75 * 1024];
+        Arrays.fill(junk, (byte) 'x');
+        byte[] data = concat(tag(1024), junk);
+
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(data));
+        assertThrows(UnsupportedAudioFileException.class, () -> new Mp3AudioFileReader().getAudioInputStream(in));
+        assertArrayEquals(data, readFully(in));
+
+        InputStream again = new BufferedInputStream(new ByteArrayInputStream(data));
+        assertThrows(UnsupportedAudioFileException.class, () -> new Mp3AudioFileReader().getAudioFileFormat(again));
+        assertArrayEquals(data, readFully(again));
+    }
+
+    @Test
+    public void readsStreamWithLongTag() throws IOException, UnsupportedAudioFileException {
+        File file = new File(directory, "tagged.mp3");
+        Files.write(file.toPath(), concat(tag(1 << 20), encode()));
+        byte[] expected = decode(new Mp3AudioFileReader().getAudioInputStream(file));
+
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath()))) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        assertArrayEquals(expected, decode(new Mp3AudioFileReader().getAudioInputStream(in)));
+
+        InputStream buffered = new BufferedInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+        assertEquals("Title", new Mp3AudioFileReader().getAudioFileFormat(buffered).properties().get("title"));
+    }
+
+    // an ID3v2.3 tag with a title and a picture of pictureLength bytes
+    private static byte[] tag(int pictureLength) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frames);
+        byte[] title = "\0Title".getBytes(StandardCharsets.ISO_8859_1);
+        out.writeBytes("TIT2");
+        out.writeInt(title.length);
+        out.writeShort(0);
+        out.write(title);
+        out.writeBytes("APIC");
+        out.writeInt(pictureLength);
+        out.writeShort(0);
+        out.write(new byte[pictureLength]);
+        int size = frames.size();
+        byte[] header = new byte[] { 'I', 'D', '3', 3, 0, 0,
+                (byte) ((size >> 21) & 0x7F), (byte) ((size >> 14) & 0x7F), (byte) ((size >> 7) & 0x7F), (byte) (size & 0x7F) };
+        return concat(header, frames.toByteArray());
+    }
+
+    private static byte[] encode() throws IOException {
+        int frames = (int) SAMPLE_RATE;
+        byte[] pcm = new byte[frames * CHANNELS * 2];
+        for (int i = 0; i < frames * CHANNELS; i ++) {
+            short sample = (short) Math.round(16000 * Math.sin(2 * Math.PI * (220 + 110 * (i % CHANNELS)) * (i / CHANNELS) / SAMPLE_RATE));
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Mp3AudioCompressionWriter().write(new AudioInputStream(new ByteArrayInputStream(pcm), new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), frames),
+                Mp3FileFormatType.MP3, Collections.<String, Object>emptyMap(), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(AudioInputStream encoded) throws IOException {
+        try (AudioInputStream stream = new Mp3FormatConversionProvider().getAudioInputStream(new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), encoded)) {
+            return readFully(stream);
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        for (int read; (read = in.read(buffer)) != -1; ) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,73 @@
+package io.github.jseproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Mp3DecodeTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void decodes24BitSamples() throws IOException, UnsupportedAudioFileException {
+        File file = encode();
+        for (boolean bigEndian : new boolean[] { false, true }) {
+            AudioFormat format = new AudioFormat(SAMPLE_RATE, 24, CHANNELS, true, bigEndian);
+            assertTrue(new Mp3FormatConversionProvider().isConversionSupported(format, new Mp3AudioFileReader().getAudioFileFormat(file).getFormat()));
+            byte[] pcm16 = decode(file, new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false));
+            byte[] pcm24 = decode(file, format);
+            assertEquals(pcm16.length / 2 * 3, pcm24.length);
+            for (int i = 0; i < pcm16.length / 2; i ++) {
+                int sample16 = (pcm16[2 * i] & 0xFF) | (pcm16[2 * i + 1] << 8);
+                int sample24 = bigEndian ? (pcm24[3 * i] << 16) | ((pcm24[3 * i + 1] & 0xFF) << 8) | (pcm24[3 * i + 2] & 0xFF)
+                        : (pcm24[3 * i] & 0xFF) | ((pcm24[3 * i + 1] & 0xFF) << 8) | (pcm24[3 * i + 2] << 16);
+                assertTrue(Math.abs(sample16 * 256 - sample24) <= 128, "sample " + i + ": " + sample16 + " vs " + sample24);
+            }
+        }
+    }
+
+    private File encode() throws IOException {
+        int frames = (int) SAMPLE_RATE;
+        byte[] pcm = new byte[frames * CHANNELS * 2];
+        for (int i = 0; i < frames * CHANNELS; i ++) {
+            short sample = (short) Math.round(16000 * Math.sin(2 * Math.PI * (220 + 110 * (i % CHANNELS)) * (i / CHANNELS) / SAMPLE_RATE));
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        File file = new File(directory, "tone.mp3");
+        new Mp3AudioCompressionWriter().write(new AudioInputStream(new ByteArrayInputStream(pcm), new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), frames),
+                Mp3FileFormatType.MP3, Collections.<String, Object>emptyMap(), file);
+        return file;
+    }
+
+    private static byte[] decode(File file, AudioFormat format) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream encoded = new Mp3AudioFileReader().getAudioInputStream(file);
+        try (AudioInputStream stream = new Mp3FormatConversionProvider().getAudioInputStream(format, encoded)) {
+            return readFully(stream);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        for (int read; (read = in.read(buffer)) != -1; ) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+}
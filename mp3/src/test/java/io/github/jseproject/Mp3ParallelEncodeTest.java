@@ -0,0 +1,118 @@
+package io.github.jseproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Mp3ParallelEncodeTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int FRAME_SIZE = CHANNELS * 2;
+    // the MPEG frames of a segment of ParallelMp3Encoder
+    private static final int SEGMENT_FRAMES = 512;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void encodesSegmentsOnSeveralThreads() throws IOException, UnsupportedAudioFileException {
+        byte[] pcm = pcm(40);
+        File file = new File(directory, "parallel.mp3");
+        new Mp3AudioCompressionWriter().write(new AudioInputStream(new ByteArrayInputStream(pcm), new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), pcm.length / FRAME_SIZE),
+                Mp3FileFormatType.MP3, Collections.<String, Object>singletonMap("mp3.threads", 4), file);
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        // the frames after the Xing/LAME tag frame
+        List<Integer> frames = new ArrayList<>();
+        int position = DecodedMp3AudioInputStream.getFrameLength(DecodedMp3AudioInputStream.getHeader(data, 0));
+        while (position + 4 <= data.length) {
+            int header = DecodedMp3AudioInputStream.getHeader(data, position);
+            if ((header & 0xFFE00000) != 0xFFE00000) break;
+            frames.add(position);
+            position += DecodedMp3AudioInputStream.getFrameLength(header);
+        }
+        assertEquals(data.length, position, "not a whole number of frames");
+        assertTrue(frames.size() > 2 * SEGMENT_FRAMES, "less than three segments");
+
+        int xing = indexOf(data, "Xing");
+        assertTrue(xing > 0, "no Xing tag written");
+        assertEquals(3, getInt(data, xing + 4) & 3, "no frame and byte counts");
+        assertEquals(frames.size(), getInt(data, xing + 8), "frame count");
+        assertEquals(data.length, getInt(data, xing + 12), "byte count");
+
+        // each segment starts with an empty bit reservoir
+        for (int frame = SEGMENT_FRAMES; frame < frames.size(); frame += SEGMENT_FRAMES)
+            assertEquals(0, getMainDataBegin(data, frames.get(frame)), "main_data_begin of frame " + frame);
+
+        AudioInputStream encoded = new Mp3AudioFileReader().getAudioInputStream(file);
+        try (AudioInputStream stream = new Mp3FormatConversionProvider().getAudioInputStream(new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), encoded)) {
+            assertEquals(pcm.length, readFully(stream).length);
+        }
+    }
+
+    // MPEG-1 layer III, the first 9 bits of the side info
+    private static int getMainDataBegin(byte[] data, int position) {
+        int header = DecodedMp3AudioInputStream.getHeader(data, position);
+        int offset = position + 4 + ((header & 0x10000) == 0 ? 2 : 0);
+        return ((data[offset] & 0xFF) << 1) | ((data[offset + 1] & 0xFF) >>> 7);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return DecodedMp3AudioInputStream.getHeader(data, offset);
+    }
+
+    // a chord with some noise, so that the frames differ
+    private static byte[] pcm(int seconds) {
+        Random random = new Random(1);
+        int frames = (int) SAMPLE_RATE * seconds;
+        byte[] pcm = new byte[frames * FRAME_SIZE];
+        for (int i = 0; i < frames; i ++) {
+            for (int channel = 0; channel < CHANNELS; channel ++) {
+                double t = i / (double) SAMPLE_RATE;
+                double value = 0.3 * Math.sin(2 * Math.PI * (220 + 110 * channel) * t) + 0.2 * Math.sin(2 * Math.PI * 1375 * t * (1 + t / 10))
+                        + 0.05 * random.nextGaussian();
+                short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32767)));
+                int offset = i * FRAME_SIZE + channel * 2;
+                pcm[offset] = (byte) sample;
+                pcm[offset + 1] = (byte) (sample >> 8);
+            }
+        }
+        return pcm;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        for (int read; (read = in.read(buffer)) != -1; ) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] data, String text) {
+        byte[] pattern = text.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + pattern.length <= Math.min(data.length, 8192); i ++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) j ++;
+            if (j == pattern.length) return i;
+        }
+        return -1;
+    }
+
+}
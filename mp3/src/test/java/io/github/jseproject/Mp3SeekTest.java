@@ -0,0 +1,127 @@
+package io.github.jseproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Mp3SeekTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int FRAME_SIZE = CHANNELS * 2;
+    private static final int COMPARED_FRAMES = 4096;
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void seeksExactlyInConstantBitrateStreamWithInfoTag() throws IOException, UnsupportedAudioFileException {
+        File file = encode(false);
+        assertTrue(indexOf(Files.readAllBytes(file.toPath()), "Info") >= 0, "no Info tag written");
+        assertSeeksExactly(file, null);
+    }
+
+    @Test
+    public void variableBitrateStreamWithXingTagIsSeekable() throws IOException, UnsupportedAudioFileException {
+        File file = encode(true);
+        assertTrue(indexOf(Files.readAllBytes(file.toPath()), "Xing") >= 0, "no Xing tag written");
+        try (AudioInputStream stream = open(file)) {
+            assertTrue(((SeekableAudioInputStream) stream).isSeekable());
+        }
+    }
+
+    @Test
+    public void seeksExactlyInVariableBitrateStreamWithFrameIndex() throws IOException, UnsupportedAudioFileException {
+        File file = encode(true);
+        assertSeeksExactly(file, Mp3FrameIndex.build(file));
+    }
+
+    private static void assertSeeksExactly(File file, Mp3FrameIndex frameIndex) throws IOException, UnsupportedAudioFileException {
+        byte[] decoded;
+        try (AudioInputStream stream = open(file)) {
+            decoded = readFully(stream, Integer.MAX_VALUE);
+        }
+        long frames = decoded.length / FRAME_SIZE;
+        try (AudioInputStream stream = open(file)) {
+            if (frameIndex != null) ((DecodedMp3AudioInputStream) stream).setFrameIndex(frameIndex);
+            SeekableAudioInputStream seekable = (SeekableAudioInputStream) stream;
+            assertTrue(seekable.isSeekable());
+            for (long frame : new long[] { frames / 2, 1000, frames - 5000, 3, 1152 * 37 + 11, frames / 3, 0 }) {
+                seekable.seekToFrame(frame);
+                assertEquals(frame, seekable.getFramePosition());
+                int offset = (int) (frame * FRAME_SIZE);
+                byte[] expected = Arrays.copyOfRange(decoded, offset, Math.min(offset + COMPARED_FRAMES * FRAME_SIZE, decoded.length));
+                assertArrayEquals(expected, readFully(stream, expected.length), "after seeking to " + frame);
+            }
+        }
+    }
+
+    private File encode(boolean vbr) throws IOException {
+        byte[] pcm = pcm(3);
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+        File file = new File(directory, vbr ? "vbr.mp3" : "cbr.mp3");
+        new Mp3AudioCompressionWriter().write(new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length / FRAME_SIZE),
+                Mp3FileFormatType.MP3, Collections.<String, Object>singletonMap("vbr", vbr), file);
+        return file;
+    }
+
+    private static AudioInputStream open(File file) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream encoded = new Mp3AudioFileReader().getAudioInputStream(file);
+        return new Mp3FormatConversionProvider().getAudioInputStream(new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false), encoded);
+    }
+
+    // a chord with some noise, so that the frames differ
+    private static byte[] pcm(int seconds) {
+        Random random = new Random(1);
+        int frames = (int) SAMPLE_RATE * seconds;
+        byte[] pcm = new byte[frames * FRAME_SIZE];
+        for (int i = 0; i < frames; i ++) {
+            for (int channel = 0; channel < CHANNELS; channel ++) {
+                double t = i / (double) SAMPLE_RATE;
+                double value = 0.3 * Math.sin(2 * Math.PI * (220 + 110 * channel) * t) + 0.2 * Math.sin(2 * Math.PI * 1375 * t * (1 + t))
+                        + 0.05 * random.nextGaussian();
+                short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32767)));
+                int offset = i * FRAME_SIZE + channel * 2;
+                pcm[offset] = (byte) sample;
+                pcm[offset + 1] = (byte) (sample >> 8);
+            }
+        }
+        return pcm;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        for (int read; out.size() < length && (read = in.read(buffer, 0, Math.min(buffer.length, length - out.size()))) != -1; )
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] data, String text) {
+        byte[] pattern = text.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + pattern.length <= Math.min(data.length, 8192); i ++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) j ++;
+            if (j == pattern.length) return i;
+        }
+        return -1;
+    }
+
+}
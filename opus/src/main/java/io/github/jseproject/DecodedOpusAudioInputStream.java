@@ -3,20 +3,32 @@ package io.github.jseproject;
 import org.concentus.OpusDecoder;
 import org.concentus.OpusException;
 import org.gagravarr.ogg.OggFile;
+import org.gagravarr.ogg.OggPacket;
+import org.gagravarr.ogg.OggPacketReader;
 import org.gagravarr.opus.OpusAudioData;
 import org.gagravarr.opus.OpusFile;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
-public class DecodedOpusAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedOpusAudioInputStream extends DecodedAudioInputStream {
+
+    // decoded before the seek target so the decoder state settles, as recommended by RFC 7845
+    private static final int SEEK_PREROLL = 3840;
+
+    private static final DecoderPool<List<Integer>, OpusDecoder> DECODERS = new DecoderPool<>();
 
     private OpusFile opusFile;
     private AudioFormat audioFormat;
     private OpusDecoder decoder = null;
+    private short[] pcm = null;
+    private SeekableInputStream seekableStream = null;
+    // reads the packets after a seek, opusFile reads them before
+    private OggPacketReader packetReader = null;
 
     public DecodedOpusAudioInputStream(AudioFormat outputFormat, OpusAudioInputStream inputStream) {
         super(outputFormat, AudioSystem.NOT_SPECIFIED);
@@ -27,47 +39,109 @@ public class DecodedOpusAudioInputStream extends TAsynchronousFilteredAudioInput
             throw new IllegalArgumentException("conversion not supported");
         }
         audioFormat = inputStream.getFormat();
+        if (inputStream.getFilteredInputStream() instanceof SeekableInputStream)
+            seekableStream = (SeekableInputStream) inputStream.getFilteredInputStream();
         if (TDebug.TraceAudioConverter) TDebug.out(">DecodedOpusAudioInputStream(AudioFormat, AudioInputStream)");
     }
 
     @Override
-    public int read(byte[] abData, int nOffset, int nLength) throws IOException {
-        int n = super.read(abData, nOffset, nLength);
-        while (n == 0) n = super.read(abData, nOffset, nLength);
-        return n;
-    }
-
-    @Override
-    public void execute() {
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): begin");
+    protected boolean decode() throws IOException {
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): begin");
         try {
-            OpusAudioData packet = opusFile.getNextAudioPacket();
-            if (packet == null) {
-                getCircularBuffer().close();
-                return;
+            OpusAudioData packet;
+            if (packetReader == null) packet = opusFile.getNextAudioPacket();
+            else {
+                OggPacket oggPacket = packetReader.getNextPacketWithSid(opusFile.getSid());
+                packet = oggPacket == null ? null : new OpusAudioData(oggPacket);
             }
-            if (decoder == null)
-                decoder = new OpusDecoder((int) audioFormat.getSampleRate(), audioFormat.getChannels());
-            int packetSamples = packet.getNumberOfSamples();
-            byte[] samples = packet.getData();
-            short[] pcm = new short[packetSamples * audioFormat.getChannels()];
-            int decoded = decoder.decode(samples, 0, samples.length, pcm, 0, packetSamples, false);
-            getCircularBuffer().write(shortsToBytes(pcm, 0, decoded * audioFormat.getChannels()));
+            if (packet == null) return false;
+            decodePacket(packet);
+            return true;
         } catch (IOException | OpusException e) {
             if (TDebug.TraceAudioConverter) TDebug.out(e);
-            getCircularBuffer().close();
+            return false;
         } finally {
-            if (TDebug.TraceAudioConverter) TDebug.out("execute(): end");
+            if (TDebug.TraceAudioConverter) TDebug.out("decode(): end");
         }
     }
 
-    private static byte[] shortsToBytes(short[] input, int offset, int length) {
-        byte[] bytes = new byte[length * 2];
+    private void decodePacket(OpusAudioData packet) throws OpusException {
+        if (decoder == null) {
+            decoder = DECODERS.acquire(decoderKey());
+            if (decoder == null) decoder = new OpusDecoder((int) audioFormat.getSampleRate(), audioFormat.getChannels());
+        }
+        int packetSamples = packet.getNumberOfSamples();
+        int length = packetSamples * audioFormat.getChannels();
+        if (pcm == null || pcm.length < length) pcm = new short[length];
+        byte[] samples = packet.getData();
+        int decoded = decoder.decode(samples, 0, samples.length, pcm, 0, packetSamples, false);
+        if (PcmFloat.isFloat(format)) shortsToFloats(pcm, 0, decoded * audioFormat.getChannels());
+        else shortsToBytes(pcm, 0, decoded * audioFormat.getChannels());
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return seekableStream != null;
+    }
+
+    @Override
+    protected long seek(long frame) throws IOException {
+        // granule positions are always counted at 48 kHz
+        int sampleRate = (int) audioFormat.getSampleRate();
+        long granule = frame * 48000 / sampleRate;
+        OggSeeker.Page page = OggSeeker.findPage(seekableStream, Math.max(0, granule - SEEK_PREROLL));
+        if (page == null) throw new IOException("No audio page found");
+        seekableStream.seek(page.getOffset());
+        packetReader = new OggPacketReader(seekableStream);
+        if (decoder != null) decoder.resetState();
+        // the position is known at the end of the first page, from its granule position
+        boolean continued = page.isContinued();
+        int sequenceNumber = -1;
+        long pageGranule = -1;
+        try {
+            OggPacket packet;
+            while ((packet = packetReader.getNextPacketWithSid(opusFile.getSid())) != null) {
+                if (sequenceNumber != -1 && packet.getSequenceNumber() != sequenceNumber) {
+                    packetReader.unreadPacket(packet);
+                    break;
+                }
+                sequenceNumber = packet.getSequenceNumber();
+                pageGranule = packet.getGranulePosition();
+                // the rest of a packet which started before the page
+                if (continued) continued = false;
+                else decodePacket(new OpusAudioData(packet));
+            }
+        }
+        catch (OpusException e) {
+            throw new IOException(e);
+        }
+        if (pageGranule == -1) return frame;
+        return pageGranule * sampleRate / 48000 - available() / format.getFrameSize();
+    }
+
+    private void shortsToBytes(short[] input, int offset, int length) {
+        int start = reserve(length * 2);
+        byte[] bytes = output();
+        for (int c = 0; c < length; c ++) {
+            bytes[start + c * 2] = (byte) (input[c + offset] & 0xFF);
+            bytes[start + c * 2 + 1] = (byte) ((input[c + offset] >> 8) & 0xFF);
+        }
+        commit(length * 2);
+    }
+
+    // the decoder is fixed point, so float output carries the same 16 bit samples
+    private void shortsToFloats(short[] input, int offset, int length) {
+        int start = reserve(length * 4);
+        byte[] bytes = output();
+        boolean bigEndian = format.isBigEndian();
         for (int c = 0; c < length; c ++) {
-            bytes[c * 2] = (byte) (input[c + offset] & 0xFF);
-            bytes[c * 2 + 1] = (byte) ((input[c + offset] >> 8) & 0xFF);
+            PcmFloat.put(bytes, start + c * 4, input[c + offset] * (1.0f / 32768.0f), bigEndian);
         }
-        return bytes;
+        commit(length * 4);
+    }
+
+    private List<Integer> decoderKey() {
+        return Arrays.asList((int) audioFormat.getSampleRate(), audioFormat.getChannels());
     }
 
     @Override
@@ -75,8 +149,13 @@ public class DecodedOpusAudioInputStream extends TAsynchronousFilteredAudioInput
         super.close();
         opusFile.close();
         opusFile = null;
+        if (decoder != null) {
+            decoder.resetState();
+            DECODERS.release(decoderKey(), decoder);
+        }
         audioFormat = null;
         decoder = null;
+        pcm = null;
     }
 
 }
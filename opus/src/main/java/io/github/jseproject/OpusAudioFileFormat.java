@@ -23,6 +23,17 @@ public class OpusAudioFileFormat extends ExtendedAudioFileFormat {
         return of(opusFile.getInfo(), opusFile.getTags(), statistics);
     }
 
+    /**
+     * Takes the duration from the granule position of the last page instead of reading every packet.
+     */
+    public static OpusAudioFileFormat of(OpusFile opusFile, SeekableInputStream inputStream) throws IOException {
+        OggSeeker.Page first = OggSeeker.firstAudioPage(inputStream);
+        OggSeeker.Page last = OggSeeker.lastPage(inputStream, opusFile.getSid());
+        long lastGranule = last == null ? 0 : last.getGranule();
+        long audioBytes = first == null || last == null ? 0 : last.getOffset() + last.getSize() - first.getOffset();
+        return of(opusFile.getInfo(), opusFile.getTags(), lastGranule, audioBytes, inputStream.length());
+    }
+
     public static OpusAudioFileFormat of(OpusInfo opusInfo, OpusTags opusTags, OpusStatistics statistics) {
         Map<String, Object> properties = new HashMap<>();
         properties.put("ogg.duration.packets", statistics.getAudioPacketsCount());
@@ -37,6 +48,28 @@ public class OpusAudioFileFormat extends ExtendedAudioFileFormat {
         properties.put("opus.packet.duration.max", statistics.getMaxPacketDuration());
         properties.put("opus.page.duration.min", statistics.getMinPageDuration());
         properties.put("opus.page.duration.max", statistics.getMaxPageDuration());
+        return of(opusInfo, opusTags, properties, OpusAudioFormat.of(opusInfo, statistics),
+                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize());
+    }
+
+    /**
+     * @param audioBytes the length of the audio pages, used for the average bitrate
+     */
+    public static OpusAudioFileFormat of(OpusInfo opusInfo, OpusTags opusTags, long lastGranule, long audioBytes, long byteLength) {
+        Map<String, Object> properties = new HashMap<>();
+        // granule positions always count 48 kHz samples
+        double seconds = Math.max(lastGranule - opusInfo.getPreSkip(), 0) / 48000.0;
+        properties.put("ogg.duration.seconds", seconds);
+        properties.put("ogg.duration", OggSeeker.formatDuration(seconds));
+        properties.put("duration", Math.round(seconds * 1_000_000L));
+        // no bitrate for streams without audio
+        if (seconds <= 0) return of(opusInfo, opusTags, properties, OpusAudioFormat.of(opusInfo), byteLength);
+        double bitrate = audioBytes * 8 / seconds;
+        properties.put("ogg.bitrate", bitrate);
+        return of(opusInfo, opusTags, properties, OpusAudioFormat.of(opusInfo, bitrate), byteLength);
+    }
+
+    private static OpusAudioFileFormat of(OpusInfo opusInfo, OpusTags opusTags, Map<String, Object> properties, AudioFormat audioFormat, long byteLength) {
         //boolean vbr = statistics.getMinPacketBytes() != statistics.getMaxPacketBytes()
         //        || statistics.getMinPacketDuration() != statistics.getMaxPacketDuration();
         //properties.put("opus.vbr", vbr);
@@ -57,9 +90,9 @@ public class OpusAudioFileFormat extends ExtendedAudioFileFormat {
         for (Map.Entry<String, List<String>> entry : opusTags.getAllComments().entrySet()) {
             properties.put("ogg.comment." + entry.getKey(), entry.getValue());
         }
-        return new OpusAudioFileFormat(OpusFileFormatType.OPUS, OpusAudioFormat.of(opusInfo, statistics),
+        return new OpusAudioFileFormat(OpusFileFormatType.OPUS, audioFormat,
                 AudioSystem.NOT_SPECIFIED,
-                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize(),
+                byteLength,
                 properties);
     }
 
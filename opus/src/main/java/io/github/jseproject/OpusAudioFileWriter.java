@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 public class OpusAudioFileWriter extends TAudioFileWriter {
@@ -105,8 +106,16 @@ public class OpusAudioFileWriter extends TAudioFileWriter {
 
     private static final AudioFileFormat.Type[] TYPES = new AudioFileFormat.Type[] { OpusFileFormatType.OPUS };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public OpusAudioFileWriter() {
+        this(null);
+    }
+
+    OpusAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -118,7 +127,7 @@ public class OpusAudioFileWriter extends TAudioFileWriter {
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new OpusAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, ((OpusFileFormatType) fileType).properties);
+        return new OpusAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, properties);
     }
 
     // 2024-09-15: Workaround for TAudioFileWriter
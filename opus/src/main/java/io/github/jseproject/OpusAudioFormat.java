@@ -11,8 +11,12 @@ import java.util.Map;
 public class OpusAudioFormat extends AudioFormat {
 
     public static OpusAudioFormat of(OpusInfo opusInfo, OpusStatistics statistics) {
+        return of(opusInfo, statistics.getAverageAudioBitrate());
+    }
+
+    public static OpusAudioFormat of(OpusInfo opusInfo, double bitrate) {
         Map<String, Object> properties = new HashMap<>();
-        properties.put("bitrate", (int) Math.round(statistics.getAverageAudioBitrate()));
+        properties.put("bitrate", (int) Math.round(bitrate));
         //boolean vbr = statistics.getMinPacketBytes() != statistics.getMaxPacketBytes()
         //        || statistics.getMinPacketDuration() != statistics.getMaxPacketDuration();
         //properties.put("vbr", vbr);
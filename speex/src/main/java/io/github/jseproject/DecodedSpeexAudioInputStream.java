@@ -1,67 +1,112 @@
 package io.github.jseproject;
 
 import org.gagravarr.ogg.OggFile;
+import org.gagravarr.ogg.OggPacket;
+import org.gagravarr.ogg.OggPacketReader;
 import org.gagravarr.speex.SpeexAudioData;
 import org.gagravarr.speex.SpeexFile;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 import org.xiph.speex.SpeexDecoder;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 
-public class DecodedSpeexAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedSpeexAudioInputStream extends DecodedAudioInputStream {
+
+    // milliseconds decoded before the seek target so the decoder state settles
+    private static final int SEEK_PREROLL_MS = 80;
 
     private SpeexFile speexFile;
-    private byte[] pcm;
     private AudioFormat audioFormat;
     private SpeexDecoder decoder = null;
+    private SeekableInputStream seekableStream = null;
+    // reads the packets after a seek, speexFile reads them before
+    private OggPacketReader packetReader = null;
 
     public DecodedSpeexAudioInputStream(AudioFormat outputFormat, SpeexAudioInputStream inputStream) {
         super(outputFormat, AudioSystem.NOT_SPECIFIED);
         try {
             speexFile = new SpeexFile(new OggFile(inputStream.getFilteredInputStream()));
-            pcm = new byte[2048];
         } catch (IOException e) {
             if (TDebug.TraceAudioConverter) TDebug.out(e);
             throw new IllegalArgumentException("conversion not supported");
         }
         audioFormat = inputStream.getFormat();
+        if (inputStream.getFilteredInputStream() instanceof SeekableInputStream)
+            seekableStream = (SeekableInputStream) inputStream.getFilteredInputStream();
         if (TDebug.TraceAudioConverter) TDebug.out(">DecodedSpeexAudioInputStream(AudioFormat, AudioInputStream)");
     }
 
     @Override
-    public int read(byte[] abData, int nOffset, int nLength) throws IOException {
-        int n = super.read(abData, nOffset, nLength);
-        while (n == 0) n = super.read(abData, nOffset, nLength);
-        return n;
-    }
-
-    @Override
-    public void execute() {
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): begin");
+    protected boolean decode() throws IOException {
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): begin");
         try {
-            SpeexAudioData packet = speexFile.getNextAudioPacket();
-            if (packet == null) {
-                getCircularBuffer().close();
-                return;
-            }
-            if (decoder == null) {
-                decoder = new SpeexDecoder();
-                decoder.init(speexFile.getInfo().getMode(),
-                        (int) audioFormat.getSampleRate(), audioFormat.getChannels(), true);
+            SpeexAudioData packet;
+            if (packetReader == null) packet = speexFile.getNextAudioPacket();
+            else {
+                OggPacket oggPacket = packetReader.getNextPacketWithSid(speexFile.getSid());
+                packet = oggPacket == null ? null : new SpeexAudioData(oggPacket);
             }
-            byte[] samples = packet.getData();
-            decoder.processData(samples, 0, samples.length);
-            int decoded = decoder.getProcessedData(pcm, 0);
-            getCircularBuffer().write(pcm, 0, decoded);
+            if (packet == null) return false;
+            decodePacket(packet);
+            return true;
         } catch (IOException e) {
             if (TDebug.TraceAudioConverter) TDebug.out(e);
-            getCircularBuffer().close();
+            return false;
         } finally {
-            if (TDebug.TraceAudioConverter) TDebug.out("execute(): end");
+            if (TDebug.TraceAudioConverter) TDebug.out("decode(): end");
+        }
+    }
+
+    private void decodePacket(SpeexAudioData packet) throws IOException {
+        if (decoder == null) {
+            decoder = new SpeexDecoder();
+            decoder.init(speexFile.getInfo().getMode(),
+                    (int) audioFormat.getSampleRate(), audioFormat.getChannels(), true);
+            decoder.setFloatOutput(PcmFloat.isFloat(format));
+        }
+        byte[] samples = packet.getData();
+        decoder.processData(samples, 0, samples.length);
+        int size = decoder.getProcessedDataByteSize();
+        if (size > 0) {
+            int offset = reserve(size);
+            if (PcmFloat.isFloat(format)) commit(decoder.getProcessedFloatData(output(), offset, format.isBigEndian()));
+            else commit(decoder.getProcessedData(output(), offset));
+        }
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return seekableStream != null;
+    }
+
+    @Override
+    protected long seek(long frame) throws IOException {
+        long preroll = (long) audioFormat.getSampleRate() * SEEK_PREROLL_MS / 1000;
+        OggSeeker.Page page = OggSeeker.findPage(seekableStream, Math.max(0, frame - preroll));
+        if (page == null) throw new IOException("No audio page found");
+        seekableStream.seek(page.getOffset());
+        packetReader = new OggPacketReader(seekableStream);
+        decoder = null;
+        // the position is known at the end of the first page, from its granule position
+        boolean continued = page.isContinued();
+        int sequenceNumber = -1;
+        long pageGranule = -1;
+        OggPacket packet;
+        while ((packet = packetReader.getNextPacketWithSid(speexFile.getSid())) != null) {
+            if (sequenceNumber != -1 && packet.getSequenceNumber() != sequenceNumber) {
+                packetReader.unreadPacket(packet);
+                break;
+            }
+            sequenceNumber = packet.getSequenceNumber();
+            pageGranule = packet.getGranulePosition();
+            // the rest of a packet which started before the page
+            if (continued) continued = false;
+            else decodePacket(new SpeexAudioData(packet));
         }
+        if (pageGranule == -1) return frame;
+        return pageGranule - available() / format.getFrameSize();
     }
 
     @Override
@@ -69,7 +114,6 @@ public class DecodedSpeexAudioInputStream extends TAsynchronousFilteredAudioInpu
         super.close();
         speexFile.close();
         speexFile = null;
-        pcm = null;
         audioFormat = null;
         decoder = null;
     }
@@ -27,12 +27,12 @@ public class SpeexAudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, SpeexFileFormatType.withProperties(fileType, properties), out);
+        return new SpeexAudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, SpeexFileFormatType.withProperties(fileType, properties), out);
+        return new SpeexAudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
@@ -22,6 +22,17 @@ public class SpeexAudioFileFormat extends ExtendedAudioFileFormat {
         return of(speexFile.getInfo(), speexFile.getTags(), statistics);
     }
 
+    /**
+     * Takes the duration from the granule position of the last page instead of reading every packet.
+     */
+    public static SpeexAudioFileFormat of(SpeexFile speexFile, SeekableInputStream inputStream) throws IOException {
+        OggSeeker.Page first = OggSeeker.firstAudioPage(inputStream);
+        OggSeeker.Page last = OggSeeker.lastPage(inputStream, speexFile.getSid());
+        long lastGranule = last == null ? 0 : last.getGranule();
+        long audioBytes = first == null || last == null ? 0 : last.getOffset() + last.getSize() - first.getOffset();
+        return of(speexFile.getInfo(), speexFile.getTags(), lastGranule, audioBytes, inputStream.length());
+    }
+
     public static SpeexAudioFileFormat of(SpeexInfo speexInfo, SpeexTags speexTags, OggAudioStatistics statistics) {
         Map<String, Object> properties = new HashMap<>();
         properties.put("ogg.duration.packets", statistics.getAudioPacketsCount());
@@ -30,6 +41,26 @@ public class SpeexAudioFileFormat extends ExtendedAudioFileFormat {
         properties.put("ogg.duration", statistics.getDuration());
         properties.put("duration", Math.round(statistics.getDurationSeconds() * 1_000_000L));
         properties.put("ogg.bitrate", statistics.getAverageAudioBitrate());
+        return of(speexInfo, speexTags, properties,
+                (long) statistics.getAudioPacketsCount() * speexInfo.getFramesPerPacket(),
+                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize());
+    }
+
+    /**
+     * @param audioBytes the length of the audio pages, used for the average bitrate
+     */
+    public static SpeexAudioFileFormat of(SpeexInfo speexInfo, SpeexTags speexTags, long lastGranule, long audioBytes, long byteLength) {
+        Map<String, Object> properties = new HashMap<>();
+        double seconds = (double) Math.max(lastGranule - speexInfo.getPreSkip(), 0) / speexInfo.getSampleRate();
+        properties.put("ogg.duration.seconds", seconds);
+        properties.put("ogg.duration", OggSeeker.formatDuration(seconds));
+        properties.put("duration", Math.round(seconds * 1_000_000L));
+        // no bitrate for streams without audio
+        if (seconds > 0) properties.put("ogg.bitrate", audioBytes * 8 / seconds);
+        return of(speexInfo, speexTags, properties, lastGranule / speexInfo.getFrameSize(), byteLength);
+    }
+
+    private static SpeexAudioFileFormat of(SpeexInfo speexInfo, SpeexTags speexTags, Map<String, Object> properties, long frameLength, long byteLength) {
         properties.put("speex.extraheaders", speexInfo.getExtraHeaders());
         properties.put("speex.bitrate", speexInfo.getBitrate());
         properties.put("speex.frame.size.bytes", speexInfo.getFrameSize());
@@ -55,8 +86,8 @@ public class SpeexAudioFileFormat extends ExtendedAudioFileFormat {
             properties.put("ogg.comment." + entry.getKey(), entry.getValue());
         }
         return new SpeexAudioFileFormat(SpeexFileFormatType.SPEEX, SpeexAudioFormat.of(speexInfo),
-                (long) statistics.getAudioPacketsCount() * speexInfo.getFramesPerPacket(),
-                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize(),
+                frameLength,
+                byteLength,
                 properties);
     }
 
@@ -15,11 +15,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 
 public class SpeexAudioFileReader extends TAudioFileReader {
 
+    /**
+     * System property, if {@code true} every packet is read for the statistics of the file format,
+     * otherwise seekable inputs only read the header and the last page.
+     */
+    public static final String PACKET_STATISTICS_PROPERTY = "io.github.jseproject.speex.packetStatistics";
+
     private static final int INITIAL_READ_LENGTH = 64000 * 2;
     private static final int MARK_LIMIT = INITIAL_READ_LENGTH + 1;
 
@@ -31,8 +35,12 @@ public class SpeexAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("SpeexAudioFileReader.getAudioFileFormat(File): begin");
         AudioFileFormat format;
-        try (SpeexFile speexFile = new SpeexFile(file)) {
-            format = SpeexAudioFileFormat.of(speexFile);
+        try (SeekableInputStream inputStream = SeekableInputStream.open(file)) {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.OGG_SPEEX, FormatSniffer.Format.OGG))
+                throw new UnsupportedAudioFileException("Not a Speex stream");
+            SpeexFile speexFile = new SpeexFile(new OggFile(inputStream));
+            if (Boolean.getBoolean(PACKET_STATISTICS_PROPERTY)) format = SpeexAudioFileFormat.of(speexFile);
+            else format = SpeexAudioFileFormat.of(speexFile, inputStream);
         }
         catch (IllegalArgumentException e) {
             throw new UnsupportedAudioFileException(e.getMessage());
@@ -59,11 +67,15 @@ public class SpeexAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("SpeexAudioFileReader.getAudioFileFormat(InputStream): begin");
         AudioFileFormat format;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.OGG_SPEEX, FormatSniffer.Format.OGG))
+            throw new UnsupportedAudioFileException("Not a Speex stream");
         inputStream.mark(MARK_LIMIT);
         try {
             OggFile oggFile = new OggFile(inputStream);
             SpeexFile speexFile = new SpeexFile(oggFile);
-            format = SpeexAudioFileFormat.of(speexFile);
+            if (inputStream instanceof SeekableInputStream && !Boolean.getBoolean(PACKET_STATISTICS_PROPERTY))
+                format = SpeexAudioFileFormat.of(speexFile, (SeekableInputStream) inputStream);
+            else format = SpeexAudioFileFormat.of(speexFile);
         }
         catch (IllegalArgumentException | IOException e) {
             inputStream.reset();
@@ -82,10 +94,11 @@ public class SpeexAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("SpeexAudioFileReader.getAudioInputStream(File): begin");
         AudioInputStream audioInputStream;
-        InputStream inputStream = Files.newInputStream(file.toPath(), StandardOpenOption.READ);
-        if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
+        InputStream inputStream = SeekableInputStream.open(file);
         try {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.OGG_SPEEX, FormatSniffer.Format.OGG))
+                throw new IllegalArgumentException("Not a Speex stream");
+            inputStream.mark(MARK_LIMIT);
             OggFile oggFile = new OggFile(inputStream);
             SpeexFile speexFile = new SpeexFile(oggFile);
             AudioFormat audioFormat = SpeexAudioFormat.of(speexFile.getInfo());
@@ -110,8 +123,10 @@ public class SpeexAudioFileReader extends TAudioFileReader {
         AudioInputStream audioInputStream;
         InputStream inputStream = url.openStream();
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
-        inputStream.mark(MARK_LIMIT);
         try {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.OGG_SPEEX, FormatSniffer.Format.OGG))
+                throw new IllegalArgumentException("Not a Speex stream");
+            inputStream.mark(MARK_LIMIT);
             OggFile oggFile = new OggFile(inputStream);
             SpeexFile speexFile = new SpeexFile(oggFile);
             AudioFormat audioFormat = SpeexAudioFormat.of(speexFile.getInfo());
@@ -134,6 +149,8 @@ public class SpeexAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("SpeexAudioFileReader.getAudioInputStream(InputStream): begin");
         AudioInputStream audioInputStream;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.OGG_SPEEX, FormatSniffer.Format.OGG))
+            throw new UnsupportedAudioFileException("Not a Speex stream");
         inputStream.mark(MARK_LIMIT);
         try {
             OggFile oggFile = new OggFile(inputStream);
@@ -22,6 +22,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 public class SpeexAudioFileWriter extends TAudioFileWriter {
@@ -43,8 +44,16 @@ public class SpeexAudioFileWriter extends TAudioFileWriter {
 
     private static final AudioFileFormat.Type[] TYPES = new AudioFileFormat.Type[] { SpeexFileFormatType.SPEEX };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public SpeexAudioFileWriter() {
+        this(null);
+    }
+
+    SpeexAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -56,7 +65,7 @@ public class SpeexAudioFileWriter extends TAudioFileWriter {
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new SpeexAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, ((SpeexFileFormatType) fileType).properties);
+        return new SpeexAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, properties);
     }
 
     // 2024-09-24: Workaround for TAudioFileWriter
@@ -49,7 +49,8 @@ public class SpeexFormatConversionProvider extends TMatrixFormatConversionProvid
     };
 
     public SpeexFormatConversionProvider() {
-        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(OUTPUT_FORMATS), CONVERSIONS);
+        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(PcmFloat.addFormats(OUTPUT_FORMATS)),
+                PcmFloat.addConversions(CONVERSIONS, OUTPUT_FORMATS));
     }
 
     @Override
@@ -28,6 +28,8 @@ public class SpeexDecoder
   private int     channels;
   private float[] decodedData;
   private short[] outputData;
+  private float[] outputFloatData;
+  private boolean floatOutput;
   private int     outputSize;
   private Bits    bits;
   private Decoder decoder;
@@ -147,13 +149,60 @@ public class SpeexDecoder
     return size;
   }
 
+  /**
+   * Sets whether the decoded data is kept as 32 bit floats scaled to [-1, 1)
+   * instead of 16 bit samples. Must be called after init().
+   * @param floatOutput true for float output.
+   */
+  public void setFloatOutput(final boolean floatOutput)
+  {
+    this.floatOutput = floatOutput;
+    if (floatOutput && outputFloatData == null)
+      outputFloatData = new float[outputData.length];
+    outputSize = 0;
+  }
+
+  /**
+   * Pull the decoded float data out into a byte array at the given offset
+   * and returns the number of bytes processed and just read.
+   * @param data
+   * @param offset
+   * @param bigEndian true for big endian floats.
+   * @return the number of bytes processed and just read.
+   */
+  public int getProcessedFloatData(final byte[] data, final int offset, final boolean bigEndian)
+  {
+    if (outputSize<=0) {
+      return outputSize;
+    }
+    for (int i=0; i<outputSize; i++) {
+      int dx   = offset + (i<<2);
+      int bits = Float.floatToRawIntBits(outputFloatData[i]);
+      if (bigEndian) {
+        data[dx]   = (byte) (bits >>> 24);
+        data[dx+1] = (byte) (bits >>> 16);
+        data[dx+2] = (byte) (bits >>> 8);
+        data[dx+3] = (byte) bits;
+      }
+      else {
+        data[dx]   = (byte) bits;
+        data[dx+1] = (byte) (bits >>> 8);
+        data[dx+2] = (byte) (bits >>> 16);
+        data[dx+3] = (byte) (bits >>> 24);
+      }
+    }
+    int size = outputSize*4;
+    outputSize = 0;
+    return size;
+  }
+
   /**
    * Returns the number of bytes processed and ready to be read.
    * @return the number of bytes processed and ready to be read.
    */
   public int getProcessedDataByteSize() 
   {
-    return (outputSize*2);
+    return floatOutput ? outputSize*4 : outputSize*2;
   }
   
   /**
@@ -196,6 +245,14 @@ public class SpeexDecoder
     if (channels == 2)
       decoder.decodeStereo(decodedData, frameSize);
 
+    if (floatOutput) {
+      /* no saturation, just scale */
+      for (i=0; i<frameSize*channels; i++, outputSize++) {
+        outputFloatData[outputSize] = decodedData[i] * (1.0f / 32768.0f);
+      }
+      return;
+    }
+
     /* PCM saturation */
     for (i=0; i<frameSize*channels; i++) {
       if (decodedData[i]>32767.0f)
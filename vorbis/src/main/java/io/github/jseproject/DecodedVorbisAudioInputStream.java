@@ -1,7 +1,6 @@
 package io.github.jseproject;
 
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 import org.xiph.vorbis.Packet;
 import org.xiph.vorbis.Page;
 import org.xiph.vorbis.StreamState;
@@ -17,7 +16,7 @@ import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 import java.io.InputStream;
 
-public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedVorbisAudioInputStream extends DecodedAudioInputStream {
 
     private InputStream oggBitStream;
 
@@ -35,26 +34,27 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     private static final int PLAY_STATE_READ_DATA = 1;
     private static final int PLAY_STATE_WRITE_DATA = 2;
     private static final int PLAY_STATE_DONE = 3;
-    private static final int PLAY_STATE_BUFFER_FULL = 4;
     private static final int PLAY_STATE_CORRUPT = -1;
     private int playState;
 
     private static final int BUFFER_MULTIPLE = 4;
     private static final int BUFFER_SIZE = BUFFER_MULTIPLE * 256 * 2;
 
-    private int bufferSize = BUFFER_SIZE * 2;
-    private byte[] buffer = new byte[bufferSize];
     private int dataRead = 0;
-    // bout is now a global so that we can continue from when we have a buffer full.
-    private int bufferOutSize = 0;
+
+    private final boolean floatOutput;
+
+    // granule position of the last packet which ended a page
+    private long granulePosition = -1;
 
     //private long currentBytes = 0;
 
     public DecodedVorbisAudioInputStream(AudioFormat outputFormat, VorbisAudioInputStream bitStream) {
         super(outputFormat, AudioSystem.NOT_SPECIFIED);
         this.oggBitStream = bitStream.getFilteredInputStream();
+        this.floatOutput = PcmFloat.isFloat(outputFormat);
         initDecoder();
-        execute();
+        decode();
     }
 
     /**
@@ -76,14 +76,7 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
     }
 
     @Override
-    public int read(byte[] abData, int nOffset, int nLength) throws IOException {
-        int n = super.read(abData, nOffset, nLength);
-        while (n == 0) n = super.read(abData, nOffset, nLength);
-        return n;
-    }
-
-    @Override
-    public void execute() {
+    protected boolean decode() {
         if (TDebug.TraceAudioConverter) {
             switch (playState) {
                 case PLAY_STATE_NEED_HEADERS:
@@ -98,9 +91,6 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 case PLAY_STATE_DONE:
                     TDebug.out("playState = playState_Done");
                     break;
-                case PLAY_STATE_BUFFER_FULL:
-                    TDebug.out("playState = playState_BufferFull");
-                    break;
                 case PLAY_STATE_CORRUPT:
                     TDebug.out("playState = playState_Corrupt");
                     break;
@@ -114,7 +104,7 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 }
                 catch (IOException e) {
                     playState = PLAY_STATE_CORRUPT;
-                    return;
+                    return true;
                 }
                 playState = PLAY_STATE_READ_DATA;
                 break;
@@ -175,13 +165,13 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                         continue;
                     }
                     else {
+                        if (oggPacket.granulepos != -1) granulePosition = oggPacket.granulepos;
                         try {
                             // we have a packet.  Decode it
                             if (vorbisBlock.synthesis(oggPacket) == 0) {
                                 // test for success!
                                 vorbisDspState.synthesis_blockin(vorbisBlock);
                                 outputSamples();
-                                if (playState == PLAY_STATE_BUFFER_FULL) return;
                             }
                             else {
                                 // if(TDebug.TraceAudioConverter) TDebug.out("vorbisBlock.synthesis() returned !0, going to read state");
@@ -200,13 +190,12 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                     playState = PLAY_STATE_DONE;
                 }
                 break;
-            case PLAY_STATE_BUFFER_FULL:
-                continueFromBufferFull();
-                break;
             case PLAY_STATE_CORRUPT:
                 if (TDebug.TraceAudioConverter) TDebug.out("Corrupt Song.");
                 // drop through to playState_Done...
             case PLAY_STATE_DONE:
+                // keep everything for seeking back, close() releases it
+                if (isSeekable()) return false;
                 oggStreamState.clear();
                 vorbisBlock.clear();
                 vorbisDspState.clear();
@@ -215,34 +204,65 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 if (TDebug.TraceAudioConverter) TDebug.out("Done Song.");
                 try {
                     if (oggBitStream != null) oggBitStream.close();
-                    getCircularBuffer().close();
                 }
                 catch (Exception e) {
                     if(TDebug.TraceAudioConverter) TDebug.out(e.getMessage());
                 }
-                break;
+                return false;
         } // switch
+        return true;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return oggBitStream instanceof SeekableInputStream && playState != PLAY_STATE_CORRUPT;
+    }
+
+    @Override
+    protected long seek(long frame) throws IOException {
+        SeekableInputStream in = (SeekableInputStream) oggBitStream;
+        OggSeeker.Page page = OggSeeker.findPage(in, frame);
+        if (page == null) throw new IOException("No audio page found");
+        in.seek(page.getOffset());
+        oggSyncState.reset();
+        oggStreamState.reset();
+        vorbisDspState.synthesis_restart();
+        granulePosition = -1;
+        playState = PLAY_STATE_READ_DATA;
+        // the position is known once a page is decoded completely
+        while (granulePosition == -1) {
+            if (!decode()) return frame;
+        }
+        return granulePosition - available() / format.getFrameSize();
     }
 
     /**
-     * This routine was extracted so that when the output buffer fills up,
-     * we can break out of the loop, let the music channel drain, then
-     * continue from where we were.
+     * Converts all the samples available in the dsp state and passes them on,
+     * the base stream keeps whatever does not fit into the reader's buffer.
      */
     private void outputSamples() {
         while (true) {
             PcmHelperStruct pcm = vorbisDspState.synthesis_pcmout(true);
             if (pcm.samples <= 0) break;
             float[][] pcmf = pcm.pcm;
-            bufferOutSize = Math.min(pcm.samples, bufferSize);
+            int samples = pcm.samples;
+            if (floatOutput) {
+                outputFloatSamples(pcmf, pcm.pcmret, samples);
+                if (vorbisDspState.synthesis_read(samples) != 0)
+                    if (TDebug.TraceAudioConverter) TDebug.out("VorbisDspState.synthesis_read returned -1.");
+                continue;
+            }
+            int length = 2 * vorbisInfo.channels * samples;
+            int offset = reserve(length);
+            byte[] buffer = output();
             double fVal;
             // convert doubles to 16 bit signed ints (host order) and
             // interleave
             for (int i = 0; i < vorbisInfo.channels; i ++) {
-                int pointer = i * 2;
+                int pointer = offset + i * 2;
                 //int ptr=i;
                 int mono = pcm.pcmret;
-                for (int j = 0; j < bufferOutSize; j ++) {
+                for (int j = 0; j < samples; j ++) {
                     fVal = pcmf[i][mono + j] * 32767.0;
                     int val = (int) fVal;
                     if (val > 32767) val = 32767;
@@ -253,30 +273,32 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                     pointer += 2 * (vorbisInfo.channels);
                 }
             }
-            if (TDebug.TraceAudioConverter) TDebug.out("about to write: " + 2 * vorbisInfo.channels * bufferOutSize);
-            if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bufferOutSize) {
-                if (TDebug.TraceAudioConverter) TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
-                playState = PLAY_STATE_BUFFER_FULL;
-                return;
-            }
-            getCircularBuffer().write(buffer, 0, 2 * vorbisInfo.channels * bufferOutSize);
+            if (TDebug.TraceAudioConverter) TDebug.out("about to write: " + length);
+            commit(length);
             if (dataRead < BUFFER_SIZE)
                 if (TDebug.TraceAudioConverter) TDebug.out("Finished with final buffer of music?");
-            if (vorbisDspState.synthesis_read(bufferOutSize) != 0)
+            if (vorbisDspState.synthesis_read(samples) != 0)
                 if (TDebug.TraceAudioConverter) TDebug.out("VorbisDspState.synthesis_read returned -1.");
         } // while(samples...)
         playState = PLAY_STATE_READ_DATA;
     }
 
-    private void continueFromBufferFull() {
-        if (getCircularBuffer().availableWrite() < 2 * vorbisInfo.channels * bufferOutSize) {
-            if (TDebug.TraceAudioConverter) TDebug.out("Too much data in this data packet, better return, let the channel drain, and try again...");
-            // Don't change play state.
-            return;
+    // the synthesis output is already scaled to [-1, 1), only interleaved
+    private void outputFloatSamples(float[][] pcmf, int mono, int samples) {
+        int channels = vorbisInfo.channels;
+        int length = 4 * channels * samples;
+        int offset = reserve(length);
+        byte[] buffer = output();
+        boolean bigEndian = format.isBigEndian();
+        for (int i = 0; i < channels; i ++) {
+            int pointer = offset + i * 4;
+            float[] channel = pcmf[i];
+            for (int j = 0; j < samples; j ++) {
+                PcmFloat.put(buffer, pointer, channel[mono + j], bigEndian);
+                pointer += 4 * channels;
+            }
         }
-        getCircularBuffer().write(buffer, 0, 2 * vorbisInfo.channels * bufferOutSize);
-        // Don't change play state. Let outputSamples change play state, if necessary.
-        outputSamples();
+        commit(length);
     }
 
     private void readHeaders() throws IOException {
@@ -350,7 +372,6 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
                 TDebug.out("Comment: " + ptr[j]);
             }
         }
-        bufferSize = BUFFER_SIZE / vorbisInfo.channels;
         vorbisDspState.synthesis_init(vorbisInfo);
         //vorbisDspState.block_init(vorbisBlock);
     }
@@ -390,7 +411,6 @@ public class DecodedVorbisAudioInputStream extends TAsynchronousFilteredAudioInp
         vorbisComment = null;
         vorbisDspState = null;
         vorbisBlock = null;
-        buffer = null;
     }
 
 }
@@ -27,12 +27,12 @@ public class VorbisAudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, VorbisFileFormatType.withProperties(fileType, properties), out);
+        return new VorbisAudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, VorbisFileFormatType.withProperties(fileType, properties), out);
+        return new VorbisAudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
@@ -24,6 +24,17 @@ public class VorbisAudioFileFormat extends ExtendedAudioFileFormat {
         return of(vorbisFile.getInfo(), vorbisFile.getSetup(), vorbisFile.getTags(), statistics);
     }
 
+    /**
+     * Takes the duration from the granule position of the last page instead of reading every packet.
+     */
+    public static VorbisAudioFileFormat of(VorbisFile vorbisFile, SeekableInputStream inputStream) throws IOException {
+        OggSeeker.Page first = OggSeeker.firstAudioPage(inputStream);
+        OggSeeker.Page last = OggSeeker.lastPage(inputStream, vorbisFile.getSid());
+        long lastGranule = last == null ? 0 : last.getGranule();
+        long audioBytes = first == null || last == null ? 0 : last.getOffset() + last.getSize() - first.getOffset();
+        return of(vorbisFile.getInfo(), vorbisFile.getSetup(), vorbisFile.getTags(), lastGranule, audioBytes, inputStream.length());
+    }
+
     public static VorbisAudioFileFormat of(VorbisInfo vorbisInfo, VorbisSetup vorbisSetup, VorbisComments vorbisComments, OggAudioStatistics statistics) {
         Map<String, Object> properties = new HashMap<>();
         properties.put("ogg.duration.packets", statistics.getAudioPacketsCount());
@@ -32,6 +43,25 @@ public class VorbisAudioFileFormat extends ExtendedAudioFileFormat {
         properties.put("ogg.duration", statistics.getDuration());
         properties.put("duration", Math.round(statistics.getDurationSeconds() * 1_000_000L));
         properties.put("ogg.bitrate", statistics.getAverageAudioBitrate());
+        return of(vorbisInfo, vorbisSetup, vorbisComments, properties,
+                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize());
+    }
+
+    /**
+     * @param audioBytes the length of the audio pages, used for the average bitrate
+     */
+    public static VorbisAudioFileFormat of(VorbisInfo vorbisInfo, VorbisSetup vorbisSetup, VorbisComments vorbisComments, long lastGranule, long audioBytes, long byteLength) {
+        Map<String, Object> properties = new HashMap<>();
+        double seconds = Math.max(lastGranule - vorbisInfo.getPreSkip(), 0) / (double) vorbisInfo.getSampleRate();
+        properties.put("ogg.duration.seconds", seconds);
+        properties.put("ogg.duration", OggSeeker.formatDuration(seconds));
+        properties.put("duration", Math.round(seconds * 1_000_000L));
+        // no bitrate for streams without audio
+        if (seconds > 0) properties.put("ogg.bitrate", audioBytes * 8 / seconds);
+        return of(vorbisInfo, vorbisSetup, vorbisComments, properties, byteLength);
+    }
+
+    private static VorbisAudioFileFormat of(VorbisInfo vorbisInfo, VorbisSetup vorbisSetup, VorbisComments vorbisComments, Map<String, Object> properties, long byteLength) {
         properties.put("vorbis.vbr", vorbisInfo.getBitrateUpper() != vorbisInfo.getBitrateLower());
         properties.put("ogg.channels", vorbisInfo.getNumChannels());
         properties.put("ogg.frequency.hz", vorbisInfo.getSampleRate());
@@ -56,7 +86,7 @@ public class VorbisAudioFileFormat extends ExtendedAudioFileFormat {
         }
         return new VorbisAudioFileFormat(VorbisFileFormatType.VORBIS, VorbisAudioFormat.of(vorbisInfo),
                 AudioSystem.NOT_SPECIFIED,
-                statistics.getAudioDataSize() + statistics.getHeaderOverheadSize() + statistics.getOggOverheadSize(),
+                byteLength,
                 properties);
     }
 
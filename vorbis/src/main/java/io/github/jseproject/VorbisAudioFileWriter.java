@@ -24,6 +24,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -160,8 +161,16 @@ public class VorbisAudioFileWriter extends TAudioFileWriter {
 
     private static final AudioFileFormat.Type[] TYPES = new AudioFileFormat.Type[] { VorbisFileFormatType.VORBIS };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public VorbisAudioFileWriter() {
+        this(null);
+    }
+
+    VorbisAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -173,7 +182,7 @@ public class VorbisAudioFileWriter extends TAudioFileWriter {
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new VorbisAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, ((VorbisFileFormatType) fileType).properties);
+        return new VorbisAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, properties);
     }
 
     // 2024-09-26: Workaround for TAudioFileWriter
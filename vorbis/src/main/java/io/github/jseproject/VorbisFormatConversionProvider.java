@@ -187,7 +187,8 @@ public class VorbisFormatConversionProvider extends TMatrixFormatConversionProvi
     };
 
     public VorbisFormatConversionProvider() {
-        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(OUTPUT_FORMATS), CONVERSIONS);
+        super(Arrays.asList(INPUT_FORMATS), Arrays.asList(PcmFloat.addFormats(OUTPUT_FORMATS)),
+                PcmFloat.addConversions(CONVERSIONS, OUTPUT_FORMATS));
     }
 
     @Override
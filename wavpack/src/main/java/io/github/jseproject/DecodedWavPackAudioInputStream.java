@@ -4,18 +4,16 @@ import com.beatofthedrum.wv.Defines;
 import com.beatofthedrum.wv.WavPackContext;
 import com.beatofthedrum.wv.WavPackUtils;
 import org.tritonus.share.TDebug;
-import org.tritonus.share.sampled.convert.TAsynchronousFilteredAudioInputStream;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 
-public class DecodedWavPackAudioInputStream extends TAsynchronousFilteredAudioInputStream {
+public class DecodedWavPackAudioInputStream extends DecodedAudioInputStream {
 
     private WavPackAudioInputStream audioInputStream;
     private WavPackContext context;
     private int[] sampleBuffer = null;
-    private byte[] pcmBuffer = null;
 
     public DecodedWavPackAudioInputStream(AudioFormat outputFormat, WavPackAudioInputStream inputStream) {
         super(outputFormat, AudioSystem.NOT_SPECIFIED);
@@ -25,38 +23,41 @@ public class DecodedWavPackAudioInputStream extends TAsynchronousFilteredAudioIn
     }
 
     @Override
-    public void execute() {
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): begin");
-        if (sampleBuffer == null) {
-            sampleBuffer = new int[Defines.SAMPLE_BUFFER_SIZE];
-            pcmBuffer = new byte[Defines.SAMPLE_BUFFER_SIZE * 4];
-        }
-        long samplesUnpacked = WavPackUtils.UnpackSamples(context, sampleBuffer,
-                Defines.SAMPLE_BUFFER_SIZE / format.getChannels());
-        if (context.error) {
-            if (TDebug.TraceAudioConverter) TDebug.out(context.error_message);
-            getCircularBuffer().close();
-        }
-        if (samplesUnpacked > 0) {
+    protected boolean decode() {
+        if (TDebug.TraceAudioConverter) TDebug.out("decode(): begin");
+        try {
+            if (sampleBuffer == null) sampleBuffer = new int[Defines.SAMPLE_BUFFER_SIZE];
+            long samplesUnpacked = WavPackUtils.UnpackSamples(context, sampleBuffer,
+                    Defines.SAMPLE_BUFFER_SIZE / format.getChannels());
+            if (context.error) {
+                if (TDebug.TraceAudioConverter) TDebug.out(context.error_message);
+                return false;
+            }
+            if (samplesUnpacked <= 0) return false;
             samplesUnpacked = samplesUnpacked * format.getChannels();
-            formatSamples(samplesUnpacked);
-            getCircularBuffer().write(pcmBuffer, 0, (int) samplesUnpacked * WavPackUtils.GetBytesPerSample(context));
+            int length = (int) samplesUnpacked * WavPackUtils.GetBytesPerSample(context);
+            int offset = reserve(length);
+            formatSamples(samplesUnpacked, output(), offset);
+            commit(length);
+            return true;
+        }
+        finally {
+            if (TDebug.TraceAudioConverter) TDebug.out("decode(): end");
         }
-        else getCircularBuffer().close();
-        if (TDebug.TraceAudioConverter) TDebug.out("execute(): end");
     }
 
     // Reformat samples from longs in big-endian mode to
     // little-endian data with (possibly) less than 4 bytes / sample.
-    private void formatSamples(long samples) {
+    private void formatSamples(long samples, byte[] pcmBuffer, int offset) {
         int temp;
-        int counter = 0;
+        int counter = offset;
         int counter2 = 0;
         switch (WavPackUtils.GetBytesPerSample(context)) {
             case 1:
                 while (samples > 0) {
-                    pcmBuffer[counter] = (byte) (0x00FF & (sampleBuffer[counter] + 128));
+                    pcmBuffer[counter] = (byte) (0x00FF & (sampleBuffer[counter2] + 128));
                     counter ++;
+                    counter2 ++;
                     samples --;
                 }
                 break;
@@ -109,7 +110,6 @@ public class DecodedWavPackAudioInputStream extends TAsynchronousFilteredAudioIn
         audioInputStream = null;
         context = null;
         sampleBuffer = null;
-        pcmBuffer = null;
     }
 
 }
@@ -27,12 +27,12 @@ public class WavPackAudioCompressionWriter extends AudioCompressionWriter {
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, OutputStream out) throws IOException {
-        return WRITER.write(stream, WavPackFileFormatType.withProperties(fileType, properties), out);
+        return new WavPackAudioFileWriter(properties).write(stream, fileType, out);
     }
 
     @Override
     public int write(AudioInputStream stream, AudioFileFormat.Type fileType, Map<String, Object> properties, File out) throws IOException {
-        return WRITER.write(stream, WavPackFileFormatType.withProperties(fileType, properties), out);
+        return new WavPackAudioFileWriter(properties).write(stream, fileType, out);
     }
 
 }
@@ -15,8 +15,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 
 public class WavPackAudioFileReader extends TAudioFileReader {
 
@@ -31,8 +29,10 @@ public class WavPackAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("WavPackAudioFileReader.getAudioFileFormat(File): begin");
         AudioFileFormat format;
-        try (DataInputStream dataInputStream = new DataInputStream(Files.newInputStream(file.toPath(), StandardOpenOption.READ))) {
-            WavPackContext context = WavPackUtils.OpenFileInput(dataInputStream);
+        try (SeekableInputStream inputStream = SeekableInputStream.open(file)) {
+            if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.WAVPACK))
+                throw new UnsupportedAudioFileException("Not a WavPack stream");
+            WavPackContext context = WavPackUtils.OpenFileInput(new DataInputStream(inputStream));
             if (context.error) throw new UnsupportedAudioFileException(context.error_message);
             format = WavPackAudioFileFormat.of(context);
         }
@@ -57,6 +57,8 @@ public class WavPackAudioFileReader extends TAudioFileReader {
     public AudioFileFormat getAudioFileFormat(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("WavPackAudioFileReader.getAudioFileFormat(InputStream): begin");
         AudioFileFormat format;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.WAVPACK))
+            throw new UnsupportedAudioFileException("Not a WavPack stream");
         inputStream.mark(MARK_LIMIT);
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         WavPackContext context = WavPackUtils.OpenFileInput(dataInputStream);
@@ -78,8 +80,15 @@ public class WavPackAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(File file) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("WavPackAudioFileReader.getAudioInputStream(File): begin");
         AudioInputStream audioInputStream;
-        InputStream inputStream = Files.newInputStream(file.toPath(), StandardOpenOption.READ);
-        if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
+        InputStream inputStream = SeekableInputStream.open(file);
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.WAVPACK)) {
+            try {
+                inputStream.close();
+            }
+            catch (IOException ignored) {
+            }
+            throw new UnsupportedAudioFileException("Not a WavPack stream");
+        }
         inputStream.mark(MARK_LIMIT);
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         WavPackContext context = WavPackUtils.OpenFileInput(dataInputStream);
@@ -103,6 +112,14 @@ public class WavPackAudioFileReader extends TAudioFileReader {
         AudioInputStream audioInputStream;
         InputStream inputStream = url.openStream();
         if (!inputStream.markSupported()) inputStream = new BufferedInputStream(inputStream, MARK_LIMIT);
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.WAVPACK)) {
+            try {
+                inputStream.close();
+            }
+            catch (IOException ignored) {
+            }
+            throw new UnsupportedAudioFileException("Not a WavPack stream");
+        }
         inputStream.mark(MARK_LIMIT);
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         WavPackContext context = WavPackUtils.OpenFileInput(dataInputStream);
@@ -124,6 +141,8 @@ public class WavPackAudioFileReader extends TAudioFileReader {
     public AudioInputStream getAudioInputStream(InputStream inputStream) throws UnsupportedAudioFileException, IOException {
         if (TDebug.TraceAudioFileReader) TDebug.out("WavPackAudioFileReader.getAudioInputStream(InputStream): begin");
         AudioInputStream audioInputStream;
+        if (!FormatSniffer.mayBe(inputStream, FormatSniffer.Format.WAVPACK))
+            throw new UnsupportedAudioFileException("Not a WavPack stream");
         inputStream.mark(MARK_LIMIT);
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         WavPackContext context = WavPackUtils.OpenFileInput(dataInputStream);
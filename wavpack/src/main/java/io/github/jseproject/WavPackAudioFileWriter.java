@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 public class WavPackAudioFileWriter extends TAudioFileWriter {
@@ -270,8 +271,16 @@ public class WavPackAudioFileWriter extends TAudioFileWriter {
 
     private static final AudioFileFormat.Type[] TYPES = new AudioFileFormat.Type[] { WavPackFileFormatType.WAVPACK };
 
+    // the properties of a single AudioCompressionWriter.write call
+    private final Map<String, Object> properties;
+
     public WavPackAudioFileWriter() {
+        this(null);
+    }
+
+    WavPackAudioFileWriter(Map<String, Object> properties) {
         super(Arrays.asList(TYPES), Arrays.asList(SUPPORTED_FORMATS));
+        this.properties = properties == null ? Collections.<String, Object>emptyMap() : properties;
     }
 
     @Override
@@ -283,7 +292,7 @@ public class WavPackAudioFileWriter extends TAudioFileWriter {
 
     @Override
     protected AudioOutputStream getAudioOutputStream(AudioFormat audioFormat, long lLengthInBytes, AudioFileFormat.Type fileType, TDataOutputStream dataOutputStream) throws IOException {
-        return new WavPackAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, ((WavPackFileFormatType) fileType).properties);
+        return new WavPackAudioOutputParams(audioFormat, lLengthInBytes, (TNonSeekableDataOutputStream) dataOutputStream, properties);
     }
 
     @Override
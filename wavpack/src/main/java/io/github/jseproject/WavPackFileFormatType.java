@@ -1,7 +1,6 @@
 package io.github.jseproject;
 
 import javax.sound.sampled.AudioFileFormat;
-import java.util.Map;
 
 public class WavPackFileFormatType extends AudioFileFormat.Type {
 
@@ -11,10 +10,4 @@ public class WavPackFileFormatType extends AudioFileFormat.Type {
         super(name, extension);
     }
 
-    Map<String, Object> properties;
-    static AudioFileFormat.Type withProperties(AudioFileFormat.Type type, Map<String, Object> properties) {
-        if (type instanceof WavPackFileFormatType) ((WavPackFileFormatType) type).properties = properties;
-        return type;
-    }
-
 }